@@ -45,6 +45,7 @@ import ca.uhn.fhir.rest.client.api.IGenericClient;
 import ca.uhn.fhir.rest.client.api.IRestfulClient;
 import ca.uhn.fhir.rest.client.api.IRestfulClientFactory;
 import ca.uhn.fhir.system.HapiSystemProperties;
+import ca.uhn.fhir.util.CompiledTerserPath;
 import ca.uhn.fhir.util.FhirTerser;
 import ca.uhn.fhir.util.ReflectionUtil;
 import ca.uhn.fhir.util.VersionUtil;
@@ -78,6 +79,8 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -116,6 +119,8 @@ public class FhirContext {
 			Collections.emptyMap();
 	private ArrayList<Class<? extends IBase>> myCustomTypes;
 	private final Set<String> myCustomResourceNames = new HashSet<>();
+	private final Map<Class<? extends IBase>, Map<String, CompiledTerserPath>> myCompiledTerserPaths =
+			new ConcurrentHashMap<>();
 	private volatile Map<String, RuntimeResourceDefinition> myIdToResourceDefinition = Collections.emptyMap();
 	private volatile boolean myInitialized;
 	private volatile boolean myInitializing = false;
@@ -987,6 +992,20 @@ public class FhirContext {
 		return new FhirTerser(this);
 	}
 
+	/**
+	 * Returns the cached {@link CompiledTerserPath} for the given type and path, creating it
+	 * using the supplied factory if this is the first request for it. Applications should use
+	 * {@link FhirTerser#compilePath(Class, String)} instead of calling this method directly.
+	 *
+	 * @since 8.4.0
+	 */
+	public CompiledTerserPath getCompiledTerserPath(
+			Class<? extends IBase> theType, String thePath, Supplier<CompiledTerserPath> theFactory) {
+		return myCompiledTerserPaths
+				.computeIfAbsent(theType, t -> new ConcurrentHashMap<>())
+				.computeIfAbsent(thePath, p -> theFactory.get());
+	}
+
 	/**
 	 * Create a new validator instance.
 	 * <p>
@@ -38,6 +38,7 @@ import ca.uhn.fhir.model.primitive.BoundCodeDt;
 import ca.uhn.fhir.model.primitive.XhtmlDt;
 import ca.uhn.fhir.rest.api.RestSearchParameterTypeEnum;
 import ca.uhn.fhir.util.ReflectionUtil;
+import com.google.common.annotations.VisibleForTesting;
 import jakarta.annotation.Nonnull;
 import org.hl7.fhir.instance.model.api.IBase;
 import org.hl7.fhir.instance.model.api.IBaseBackboneElement;
@@ -68,11 +69,19 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
 class ModelScanner {
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(ModelScanner.class);
+
+	/**
+	 * Below this many classes, handing work to other threads costs more than it saves
+	 */
+	private static final int MIN_PARALLEL_PREFETCH_SIZE = 8;
+	private static final AtomicLong ourParallelPrefetchCount = new AtomicLong();
+
 	private Map<Class<? extends IBase>, BaseRuntimeElementDefinition<?>> myClassToElementDefinitions = new HashMap<>();
 	private FhirContext myContext;
 	private Map<String, RuntimeResourceDefinition> myIdToResourceDefinition = new HashMap<>();
@@ -133,10 +142,16 @@ class ModelScanner {
 		long start = System.currentTimeMillis();
 		Map<String, Class<? extends IBaseResource>> resourceTypes = myNameToResourceType;
 
+		boolean parallel = myContext.getPerformanceOptions().contains(PerformanceOptionsEnum.PARALLEL_MODEL_SCANNING);
+
 		Set<Class<? extends IBase>> typesToScan = theTypesToScan;
-		myVersionTypes = scanVersionPropertyFile(typesToScan, resourceTypes, myVersion, myClassToElementDefinitions);
+		myVersionTypes = scanVersionPropertyFile(
+				typesToScan, resourceTypes, myVersion, myClassToElementDefinitions, parallel);
 
 		do {
+			if (parallel) {
+				prefetchReflectionData(typesToScan);
+			}
 			for (Class<? extends IBase> nextClass : typesToScan) {
 				scan(nextClass);
 			}
@@ -568,16 +583,89 @@ class ModelScanner {
 		return type;
 	}
 
+	/**
+	 * Loads the given classes and performs the reflection which {@link #scan(Class)} will need
+	 * for them (declared fields, generic field types and annotations) across all available cores.
+	 * The JVM caches all of this per class, so the subsequent single threaded scan mostly hits
+	 * warm caches. This only reads JVM-managed data so it is safe to run concurrently, and any
+	 * failure is ignored here since the scan itself will report it properly.
+	 */
+	static void prefetchReflectionData(Collection<? extends Class<?>> theClasses) {
+		if (theClasses.size() < MIN_PARALLEL_PREFETCH_SIZE) {
+			return;
+		}
+		ourParallelPrefetchCount.incrementAndGet();
+		theClasses.parallelStream().forEach(ModelScanner::prefetchReflectionData);
+	}
+
+	/**
+	 * Returns the number of scan rounds (across all contexts) which have prefetched in parallel
+	 */
+	@VisibleForTesting
+	static long getParallelPrefetchCountForUnitTest() {
+		return ourParallelPrefetchCount.get();
+	}
+
+	private static void prefetchReflectionData(Class<?> theClass) {
+		try {
+			theClass.getFields();
+			for (Class<?> next = theClass; next != null && !Object.class.equals(next); next = next.getSuperclass()) {
+				next.getDeclaredAnnotations();
+				for (Field nextField : next.getDeclaredFields()) {
+					nextField.getDeclaredAnnotations();
+					Child child = nextField.getAnnotation(Child.class);
+					if (child != null) {
+						nextField.getGenericType();
+						for (Class<?> nextChoiceType : child.type()) {
+							nextChoiceType.getDeclaredFields();
+						}
+					}
+				}
+			}
+		} catch (RuntimeException | LinkageError e) {
+			ourLog.trace("Failed to prefetch reflection data for {}", theClass, e);
+		}
+	}
+
+	private static void preloadClass(String theClassName) {
+		try {
+			Class.forName(theClassName, false, ModelScanner.class.getClassLoader());
+		} catch (ClassNotFoundException | LinkageError e) {
+			ourLog.trace("Failed to preload class {}", theClassName, e);
+		}
+	}
+
 	static Set<Class<? extends IBase>> scanVersionPropertyFile(
 			Set<Class<? extends IBase>> theDatatypes,
 			Map<String, Class<? extends IBaseResource>> theResourceTypes,
 			FhirVersionEnum theVersion,
 			Map<Class<? extends IBase>, BaseRuntimeElementDefinition<?>> theExistingElementDefinitions) {
+		return scanVersionPropertyFile(
+				theDatatypes, theResourceTypes, theVersion, theExistingElementDefinitions, false);
+	}
+
+	/**
+	 * @param theParallel If <code>true</code>, the classes named in the property file are loaded
+	 *                    using all available cores before they are processed
+	 */
+	static Set<Class<? extends IBase>> scanVersionPropertyFile(
+			Set<Class<? extends IBase>> theDatatypes,
+			Map<String, Class<? extends IBaseResource>> theResourceTypes,
+			FhirVersionEnum theVersion,
+			Map<Class<? extends IBase>, BaseRuntimeElementDefinition<?>> theExistingElementDefinitions,
+			boolean theParallel) {
 		Set<Class<? extends IBase>> retVal = new HashSet<>();
 
 		try (InputStream str = theVersion.getVersionImplementation().getFhirVersionPropertiesFile()) {
 			Properties prop = new Properties();
 			prop.load(str);
+
+			if (theParallel) {
+				new ArrayList<>(prop.values())
+						.parallelStream()
+						.map(Object::toString)
+						.forEach(ModelScanner::preloadClass);
+			}
 			for (Entry<Object, Object> nextEntry : prop.entrySet()) {
 				String nextKey = nextEntry.getKey().toString();
 				String nextValue = nextEntry.getValue().toString();
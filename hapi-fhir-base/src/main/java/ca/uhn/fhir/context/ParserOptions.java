@@ -48,6 +48,8 @@ public class ParserOptions {
 	private boolean myAutoContainReferenceTargetsWithNoId = true;
 	private Set<String> myEncodeElementsForSummaryMode = null;
 	private Set<String> myDontEncodeElementsForSummaryMode = null;
+	private boolean myStreamingJsonParsing = false;
+	private boolean myInternRepeatedPrimitiveValues = false;
 
 	/**
 	 * If set to {@literal true} (which is the default), contained resources may be specified by
@@ -337,4 +339,78 @@ public class ParserOptions {
 	public Set<String> getDontEncodeElementsForSummaryMode() {
 		return myDontEncodeElementsForSummaryMode;
 	}
+
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), the {@link ca.uhn.fhir.parser.JsonParser JSON parser}
+	 * will feed resources and complex elements to the model directly from the Jackson token stream instead
+	 * of first reading the whole document into a Jackson <code>JsonNode</code> tree. Only the primitive
+	 * members of the object currently being parsed are buffered (so that an element can be paired with
+	 * its <code>_element</code> sibling), which means the memory held while parsing a large document such
+	 * as a transaction Bundle no longer grows with the size of the document.
+	 * <p>
+	 * Documents are parsed to the same model as with the default tree parser, with these exceptions:
+	 * a resource whose <code>resourceType</code> is not its first member is read into a tree before it
+	 * is parsed, and an <code>_element</code> member which follows a complex <code>element</code> it belongs
+	 * to is reported to the {@link ca.uhn.fhir.parser.IParserErrorHandler#unknownElement error handler}
+	 * instead of being applied.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public boolean isStreamingJsonParsing() {
+		return myStreamingJsonParsing;
+	}
+
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), the {@link ca.uhn.fhir.parser.JsonParser JSON parser}
+	 * will feed resources and complex elements to the model directly from the Jackson token stream instead
+	 * of first reading the whole document into a Jackson <code>JsonNode</code> tree. Only the primitive
+	 * members of the object currently being parsed are buffered (so that an element can be paired with
+	 * its <code>_element</code> sibling), which means the memory held while parsing a large document such
+	 * as a transaction Bundle no longer grows with the size of the document.
+	 * <p>
+	 * Documents are parsed to the same model as with the default tree parser, with these exceptions:
+	 * a resource whose <code>resourceType</code> is not its first member is read into a tree before it
+	 * is parsed, and an <code>_element</code> member which follows a complex <code>element</code> it belongs
+	 * to is reported to the {@link ca.uhn.fhir.parser.IParserErrorHandler#unknownElement error handler}
+	 * instead of being applied.
+	 * </p>
+	 *
+	 * @return Returns a reference to <code>this</code> parser so that method calls can be chained together
+	 * @since 8.4.0
+	 */
+	public ParserOptions setStreamingJsonParsing(boolean theStreamingJsonParsing) {
+		myStreamingJsonParsing = theStreamingJsonParsing;
+		return this;
+	}
+
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), the parsers will intern the values of
+	 * <code>code</code>, <code>uri</code>, <code>canonical</code>, <code>url</code>, <code>oid</code>
+	 * and <code>uuid</code> elements, as well as extension URLs, so that repeated values (e.g. the same
+	 * <code>Coding.system</code> across a large Bundle of Observations) share a single String instance.
+	 * This reduces the heap held by large parsed documents and by cached resources, at the cost of an
+	 * interner lookup for each of these values while parsing.
+	 *
+	 * @since 8.4.0
+	 */
+	public boolean isInternRepeatedPrimitiveValues() {
+		return myInternRepeatedPrimitiveValues;
+	}
+
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), the parsers will intern the values of
+	 * <code>code</code>, <code>uri</code>, <code>canonical</code>, <code>url</code>, <code>oid</code>
+	 * and <code>uuid</code> elements, as well as extension URLs, so that repeated values (e.g. the same
+	 * <code>Coding.system</code> across a large Bundle of Observations) share a single String instance.
+	 * This reduces the heap held by large parsed documents and by cached resources, at the cost of an
+	 * interner lookup for each of these values while parsing.
+	 *
+	 * @return Returns a reference to <code>this</code> parser so that method calls can be chained together
+	 * @since 8.4.0
+	 */
+	public ParserOptions setInternRepeatedPrimitiveValues(boolean theInternRepeatedPrimitiveValues) {
+		myInternRepeatedPrimitiveValues = theInternRepeatedPrimitiveValues;
+		return this;
+	}
 }
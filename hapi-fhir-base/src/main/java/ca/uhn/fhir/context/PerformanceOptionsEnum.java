@@ -34,5 +34,19 @@ public enum PerformanceOptionsEnum {
 	 * Android or low powered devices.
 	 * </p>
 	 */
-	DEFERRED_MODEL_SCANNING
+	DEFERRED_MODEL_SCANNING,
+
+	/**
+	 * When this option is set, the class loading and reflection work needed to scan the
+	 * model is fanned out across all available cores before the (single threaded) scan
+	 * itself runs. The JVM caches loaded classes, reflected fields and parsed annotations,
+	 * so the scan then mostly hits warm caches.
+	 * <p>
+	 * This option is useful for reducing cold start time on multi-core hosts, and may be
+	 * combined with {@link #DEFERRED_MODEL_SCANNING}.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	PARALLEL_MODEL_SCANNING
 }
@@ -45,6 +45,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -525,8 +526,11 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 	private class HookInvoker extends BaseInvoker {
 
 		private final Method myMethod;
+		private final HookFunctions.IHookFunction myHookFunction;
 		private final Class<?>[] myParameterTypes;
+		private final Class<?>[] myBoxedParameterTypes;
 		private final int[] myParameterIndexes;
+		private final boolean[] myParameterIsPointcut;
 		private final POINTCUT myPointcut;
 
 		/**
@@ -537,6 +541,8 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 			super(theInterceptor, theOrder);
 			myPointcut = theHook.getPointcut();
 			myParameterTypes = theHookMethod.getParameterTypes();
+			myBoxedParameterTypes =
+					MethodType.methodType(void.class, myParameterTypes).wrap().parameterArray();
 			myMethod = theHookMethod;
 
 			Class<?> returnType = theHookMethod.getReturnType();
@@ -557,13 +563,16 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 			}
 
 			myParameterIndexes = new int[myParameterTypes.length];
+			myParameterIsPointcut = new boolean[myParameterTypes.length];
 			Map<Class<?>, AtomicInteger> typeToCount = new HashMap<>();
 			for (int i = 0; i < myParameterTypes.length; i++) {
 				AtomicInteger counter = typeToCount.computeIfAbsent(myParameterTypes[i], t -> new AtomicInteger(0));
 				myParameterIndexes[i] = counter.getAndIncrement();
+				myParameterIsPointcut[i] = myParameterTypes[i].equals(Pointcut.class);
 			}
 
 			myMethod.setAccessible(true);
+			myHookFunction = HookFunctions.create(theInterceptor, theHookMethod);
 		}
 
 		@Override
@@ -590,13 +599,10 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 
 			Object[] args = new Object[myParameterTypes.length];
 			for (int i = 0; i < myParameterTypes.length; i++) {
-				Class<?> nextParamType = myParameterTypes[i];
-				if (nextParamType.equals(Pointcut.class)) {
+				if (myParameterIsPointcut[i]) {
 					args[i] = myPointcut;
 				} else {
-					int nextParamIndex = myParameterIndexes[i];
-					Object nextParamValue = theParams.get(nextParamType, nextParamIndex);
-					args[i] = nextParamValue;
+					args[i] = theParams.get(myParameterTypes[i], myParameterIndexes[i]);
 				}
 			}
 
@@ -632,7 +638,38 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 					myMethod.getDeclaringClass().getName());
 			currentSpan.setAttribute(OTEL_INTERCEPTOR_METHOD_NAME_ATT_KEY, myMethod.getName());
 
-			return myMethod.invoke(getInterceptor(), args);
+			if (myHookFunction == null) {
+				return myMethod.invoke(getInterceptor(), args);
+			}
+
+			/*
+			 * The generated function throws whatever the hook throws, so wrap it the same
+			 * way Method#invoke does. The only other failure is a cast of an argument which
+			 * doesn't match its parameter type, which Method#invoke reports as an
+			 * IllegalArgumentException.
+			 */
+			try {
+				return myHookFunction.call(args);
+			} catch (ClassCastException | NullPointerException e) {
+				if (!isAssignableToParameters(args)) {
+					throw new IllegalArgumentException("argument type mismatch", e);
+				}
+				throw new InvocationTargetException(e);
+			} catch (Throwable e) {
+				throw new InvocationTargetException(e);
+			}
+		}
+
+		private boolean isAssignableToParameters(Object[] theArgs) {
+			for (int i = 0; i < theArgs.length; i++) {
+				boolean assignable = theArgs[i] != null
+						? myBoxedParameterTypes[i].isInstance(theArgs[i])
+						: !myParameterTypes[i].isPrimitive();
+				if (!assignable) {
+					return false;
+				}
+			}
+			return true;
 		}
 	}
 
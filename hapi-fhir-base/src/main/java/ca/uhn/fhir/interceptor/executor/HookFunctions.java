@@ -0,0 +1,250 @@
+/*-
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.interceptor.executor;
+
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Generates a class implementing one of the functional interfaces below for each
+ * {@link ca.uhn.fhir.interceptor.api.Hook hook method}, using {@link LambdaMetafactory}.
+ * The generated class calls the hook method directly, the same way a method reference
+ * compiled by javac would. This avoids the access checks and argument array handling of
+ * {@link Method#invoke(Object, Object...)} on every call, and the JIT can inline the hook.
+ * <p>
+ * The interfaces are only public because the generated classes are defined alongside the
+ * interceptor class, which may be in any package. They are not part of the HAPI FHIR API
+ * and may change at any time.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public final class HookFunctions {
+
+	/**
+	 * Hooks with more parameters than this are called using reflection
+	 */
+	static final int MAX_PARAMETER_COUNT = 5;
+
+	private static final Logger ourLog = LoggerFactory.getLogger(HookFunctions.class);
+
+	private static final Class<?>[] ourFunctionTypes = {
+		IFunction0.class, IFunction1.class, IFunction2.class, IFunction3.class, IFunction4.class, IFunction5.class
+	};
+	private static final Class<?>[] ourConsumerTypes = {
+		IConsumer0.class, IConsumer1.class, IConsumer2.class, IConsumer3.class, IConsumer4.class, IConsumer5.class
+	};
+
+	/**
+	 * Non instantiable
+	 */
+	private HookFunctions() {}
+
+	/**
+	 * Creates a function calling the given hook method on the given interceptor.
+	 *
+	 * @return The function, or <code>null</code> if no class could be generated for this hook (e.g. because
+	 * 	it has too many parameters, or because its class is in a module which isn't open to HAPI FHIR), in
+	 * 	which case the hook should be called using reflection.
+	 */
+	@Nullable
+	static IHookFunction create(Object theInterceptor, Method theHookMethod) {
+		int parameterCount = theHookMethod.getParameterCount();
+		if (parameterCount > MAX_PARAMETER_COUNT) {
+			return null;
+		}
+
+		try {
+			Class<?> declaringClass = theHookMethod.getDeclaringClass();
+			MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(declaringClass, MethodHandles.lookup());
+			MethodHandle implementation = lookup.unreflect(theHookMethod);
+
+			boolean isStatic = Modifier.isStatic(theHookMethod.getModifiers());
+			boolean isVoid = void.class.equals(theHookMethod.getReturnType());
+			Class<?> functionType = isVoid ? ourConsumerTypes[parameterCount] : ourFunctionTypes[parameterCount];
+
+			MethodType interfaceType = MethodType.genericMethodType(parameterCount);
+			MethodType instantiatedType =
+					MethodType.methodType(theHookMethod.getReturnType(), theHookMethod.getParameterTypes())
+							.wrap();
+			if (isVoid) {
+				interfaceType = interfaceType.changeReturnType(void.class);
+				instantiatedType = instantiatedType.changeReturnType(void.class);
+			}
+			MethodType factoryType = isStatic
+					? MethodType.methodType(functionType)
+					: MethodType.methodType(functionType, declaringClass);
+
+			CallSite callSite = LambdaMetafactory.metafactory(
+					lookup, "invoke", factoryType, interfaceType, implementation, instantiatedType);
+			Object function =
+					isStatic ? callSite.getTarget().invoke() : callSite.getTarget().invoke(theInterceptor);
+			return toHookFunction(function, parameterCount, isVoid);
+		} catch (Throwable e) {
+			// Anything can go wrong defining a class, and the hook still works using reflection
+			ourLog.debug("Unable to generate invoker for hook method {}, using reflection: {}", theHookMethod, e);
+			return null;
+		}
+	}
+
+	private static IHookFunction toHookFunction(Object theFunction, int theParameterCount, boolean theVoid) {
+		if (theVoid) {
+			switch (theParameterCount) {
+				case 0:
+					IConsumer0 c0 = (IConsumer0) theFunction;
+					return t -> {
+						c0.invoke();
+						return null;
+					};
+				case 1:
+					IConsumer1 c1 = (IConsumer1) theFunction;
+					return t -> {
+						c1.invoke(t[0]);
+						return null;
+					};
+				case 2:
+					IConsumer2 c2 = (IConsumer2) theFunction;
+					return t -> {
+						c2.invoke(t[0], t[1]);
+						return null;
+					};
+				case 3:
+					IConsumer3 c3 = (IConsumer3) theFunction;
+					return t -> {
+						c3.invoke(t[0], t[1], t[2]);
+						return null;
+					};
+				case 4:
+					IConsumer4 c4 = (IConsumer4) theFunction;
+					return t -> {
+						c4.invoke(t[0], t[1], t[2], t[3]);
+						return null;
+					};
+				default:
+					IConsumer5 c5 = (IConsumer5) theFunction;
+					return t -> {
+						c5.invoke(t[0], t[1], t[2], t[3], t[4]);
+						return null;
+					};
+			}
+		}
+
+		switch (theParameterCount) {
+			case 0:
+				IFunction0 f0 = (IFunction0) theFunction;
+				return t -> f0.invoke();
+			case 1:
+				IFunction1 f1 = (IFunction1) theFunction;
+				return t -> f1.invoke(t[0]);
+			case 2:
+				IFunction2 f2 = (IFunction2) theFunction;
+				return t -> f2.invoke(t[0], t[1]);
+			case 3:
+				IFunction3 f3 = (IFunction3) theFunction;
+				return t -> f3.invoke(t[0], t[1], t[2]);
+			case 4:
+				IFunction4 f4 = (IFunction4) theFunction;
+				return t -> f4.invoke(t[0], t[1], t[2], t[3]);
+			default:
+				IFunction5 f5 = (IFunction5) theFunction;
+				return t -> f5.invoke(t[0], t[1], t[2], t[3], t[4]);
+		}
+	}
+
+	/**
+	 * Calls a hook method with its arguments. Any exception thrown by the hook method is
+	 * thrown as-is.
+	 */
+	@FunctionalInterface
+	interface IHookFunction {
+		Object call(Object[] theArgs) throws Throwable;
+	}
+
+	@FunctionalInterface
+	public interface IFunction0 {
+		Object invoke() throws Throwable;
+	}
+
+	@FunctionalInterface
+	public interface IFunction1 {
+		Object invoke(Object theArg0) throws Throwable;
+	}
+
+	@FunctionalInterface
+	public interface IFunction2 {
+		Object invoke(Object theArg0, Object theArg1) throws Throwable;
+	}
+
+	@FunctionalInterface
+	public interface IFunction3 {
+		Object invoke(Object theArg0, Object theArg1, Object theArg2) throws Throwable;
+	}
+
+	@FunctionalInterface
+	public interface IFunction4 {
+		Object invoke(Object theArg0, Object theArg1, Object theArg2, Object theArg3) throws Throwable;
+	}
+
+	@FunctionalInterface
+	public interface IFunction5 {
+		Object invoke(Object theArg0, Object theArg1, Object theArg2, Object theArg3, Object theArg4)
+				throws Throwable;
+	}
+
+	@FunctionalInterface
+	public interface IConsumer0 {
+		void invoke() throws Throwable;
+	}
+
+	@FunctionalInterface
+	public interface IConsumer1 {
+		void invoke(Object theArg0) throws Throwable;
+	}
+
+	@FunctionalInterface
+	public interface IConsumer2 {
+		void invoke(Object theArg0, Object theArg1) throws Throwable;
+	}
+
+	@FunctionalInterface
+	public interface IConsumer3 {
+		void invoke(Object theArg0, Object theArg1, Object theArg2) throws Throwable;
+	}
+
+	@FunctionalInterface
+	public interface IConsumer4 {
+		void invoke(Object theArg0, Object theArg1, Object theArg2, Object theArg3) throws Throwable;
+	}
+
+	@FunctionalInterface
+	public interface IConsumer5 {
+		void invoke(Object theArg0, Object theArg1, Object theArg2, Object theArg3, Object theArg4)
+				throws Throwable;
+	}
+}
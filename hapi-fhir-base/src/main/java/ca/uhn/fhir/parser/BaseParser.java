@@ -70,10 +70,13 @@ import org.hl7.fhir.instance.model.api.IPrimitiveType;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.Writer;
 import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -321,19 +324,51 @@ public abstract class BaseParser implements IParser {
 		Validate.notNull(theWriter, "theWriter can not be null");
 		Validate.notNull(theEncodeContext, "theEncodeContext can not be null");
 
+		String resourceName = validateResourceVersionAndGetName(theResource);
+		theEncodeContext.pushPath(resourceName, true);
+
+		doEncodeResourceToWriter(theResource, theWriter, theEncodeContext);
+
+		theEncodeContext.popPath();
+	}
+
+	@Override
+	public final void encodeResourceToOutputStream(IBaseResource theResource, OutputStream theOutputStream)
+			throws IOException, DataFormatException {
+		Validate.notNull(theResource, "theResource can not be null");
+		Validate.notNull(theOutputStream, "theOutputStream can not be null");
+
+		EncodeContext encodeContext =
+				new EncodeContext(this, myContext.getParserOptions(), new FhirTerser.ContainedResources());
+		String resourceName = validateResourceVersionAndGetName(theResource);
+		encodeContext.pushPath(resourceName, true);
+
+		doEncodeResourceToOutputStream(theResource, theOutputStream, encodeContext);
+
+		encodeContext.popPath();
+	}
+
+	/**
+	 * Encodes a resource to a stream as UTF-8. Subclasses which can produce bytes directly
+	 * should override this method, the default implementation wraps the stream in a
+	 * {@link Writer}. The stream must be flushed but not closed.
+	 */
+	protected void doEncodeResourceToOutputStream(
+			IBaseResource theResource, OutputStream theOutputStream, EncodeContext theEncodeContext)
+			throws IOException, DataFormatException {
+		Writer writer = new OutputStreamWriter(theOutputStream, StandardCharsets.UTF_8);
+		doEncodeResourceToWriter(theResource, writer, theEncodeContext);
+		writer.flush();
+	}
+
+	private String validateResourceVersionAndGetName(IBaseResource theResource) {
 		if (theResource.getStructureFhirVersionEnum() != myContext.getVersion().getVersion()) {
 			throw new IllegalArgumentException(Msg.code(1829) + "This parser is for FHIR version "
 					+ myContext.getVersion().getVersion() + " - Can not encode a structure for version "
 					+ theResource.getStructureFhirVersionEnum());
 		}
 
-		String resourceName =
-				myContext.getElementDefinition(theResource.getClass()).getName();
-		theEncodeContext.pushPath(resourceName, true);
-
-		doEncodeResourceToWriter(theResource, theWriter, theEncodeContext);
-
-		theEncodeContext.popPath();
+		return myContext.getElementDefinition(theResource.getClass()).getName();
 	}
 
 	protected void encodeToWriter(IBase theElement, Writer theWriter, EncodeContext theEncodeContext)
@@ -544,6 +579,20 @@ public abstract class BaseParser implements IParser {
 		return myServerBaseUrl;
 	}
 
+	/**
+	 * Returns <code>true</code> if none of the options which filter or rewrite the encoded
+	 * content of a resource (element inclusion/exclusion, summary mode, narrative suppression,
+	 * and resource ID overrides) have been set on this parser.
+	 */
+	protected boolean hasDefaultEncodingSettings() {
+		return (myEncodeElements == null || myEncodeElements.isEmpty())
+				&& (myDontEncodeElements == null || myDontEncodeElements.isEmpty())
+				&& !mySummaryMode
+				&& !mySuppressNarratives
+				&& !myOmitResourceId
+				&& myEncodeForceResourceId == null;
+	}
+
 	@Override
 	public Boolean getStripVersionsFromReferences() {
 		return myStripVersionsFromReferences;
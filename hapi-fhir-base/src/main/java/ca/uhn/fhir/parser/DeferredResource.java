@@ -0,0 +1,238 @@
+/*-
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.parser;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.parser.json.jackson.JacksonResourceSplicer;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.Validate;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.function.Supplier;
+
+/**
+ * A handle to a resource which was loaded from storage in its JSON encoded form, and which
+ * is only parsed into the FHIR model the first time {@link #getResource()} is called.
+ * <p>
+ * A deferred resource carries a small <i>header</i> resource containing only the ID and
+ * <code>meta</code> of the resource, plus the stored JSON body. When the handle is
+ * encoded using {@link #encodeToWriter(IParser, Writer)} and nothing has asked for the
+ * full model, a {@link JsonParser} with default encoding settings splices the stored body
+ * directly into the output instead of parsing and re-encoding it. In every other case
+ * (the model was inflated, a non-JSON parser is used, or the parser has been configured to
+ * alter what is encoded) the resource is inflated and encoded normally, so the output is
+ * always the same as encoding {@link #getResource()}.
+ * </p>
+ * <p>
+ * The header of a handle created with {@link #forStoredJson(IBaseResource, String, Supplier)} carries
+ * the handle in its user data, so it can be passed through code which only deals in
+ * {@link IBaseResource} (e.g. a server <code>read</code> response). Code which needs the resource
+ * content must call {@link #inflate(IBaseResource)} on such a resource first.
+ * </p>
+ * <p>
+ * This class is thread safe, and inflates the resource at most once.
+ * </p>
+ *
+ * @param <T> The resource type
+ * @since 8.4.0
+ */
+public class DeferredResource<T extends IBaseResource> {
+
+	/**
+	 * User data key under which the header of a deferred resource carries its handle
+	 */
+	public static final String USER_DATA_KEY = DeferredResource.class.getName();
+
+	private final T myHeader;
+	private final String myStoredJson;
+	private final Supplier<T> myInflater;
+	private volatile T myResource;
+	private Boolean mySpliceable;
+
+	private DeferredResource(T theHeader, String theStoredJson, Supplier<T> theInflater, T theResource) {
+		myHeader = theHeader;
+		myStoredJson = theStoredJson;
+		myInflater = theInflater;
+		myResource = theResource;
+	}
+
+	/**
+	 * Returns the header resource, which contains the resource ID and <code>meta</code> but no
+	 * other content. Callers must not modify the header. If this handle was created around an
+	 * already parsed resource, that resource is returned.
+	 */
+	@Nonnull
+	public T getHeader() {
+		return myHeader;
+	}
+
+	/**
+	 * Returns the resource ID. This never causes the resource to be inflated.
+	 */
+	public IIdType getIdElement() {
+		return myHeader.getIdElement();
+	}
+
+	/**
+	 * Returns the fully parsed resource, parsing the stored body if this has not
+	 * already happened.
+	 */
+	@Nonnull
+	public T getResource() {
+		T retVal = myResource;
+		if (retVal == null) {
+			synchronized (this) {
+				retVal = myResource;
+				if (retVal == null) {
+					retVal = myInflater.get();
+					Validate.notNull(retVal, "Inflater returned null");
+					myResource = retVal;
+				}
+			}
+		}
+		return retVal;
+	}
+
+	/**
+	 * Returns <code>true</code> if the resource has been parsed into the FHIR model
+	 */
+	public boolean isInflated() {
+		return myResource != null;
+	}
+
+	/**
+	 * Returns the stored JSON body, or <code>null</code> if this handle was created
+	 * around an already parsed resource
+	 */
+	String getStoredJson() {
+		return myStoredJson;
+	}
+
+	/**
+	 * Returns <code>true</code> if the stored body has a shape which can be spliced into
+	 * encoded output. The body is scanned (but not parsed into the model) at most once.
+	 */
+	boolean isSpliceable() throws IOException {
+		if (myStoredJson == null) {
+			return false;
+		}
+		Boolean retVal = mySpliceable;
+		if (retVal == null) {
+			retVal = JacksonResourceSplicer.canSplice(myStoredJson);
+			mySpliceable = retVal;
+		}
+		return retVal;
+	}
+
+	/**
+	 * Encodes this resource using the given parser. If the resource has not been inflated and
+	 * the parser is a JSON parser with default encoding settings, the stored body is copied
+	 * into the output without being parsed.
+	 */
+	public void encodeToWriter(@Nonnull IParser theParser, @Nonnull Writer theWriter) throws IOException {
+		Validate.notNull(theParser, "theParser must not be null");
+		Validate.notNull(theWriter, "theWriter must not be null");
+		if (theParser instanceof JsonParser) {
+			((JsonParser) theParser).encodeDeferredResourceToWriter(this, theWriter);
+		} else {
+			theParser.encodeResourceToWriter(getResource(), theWriter);
+		}
+	}
+
+	/**
+	 * Encodes this resource to a string using the given parser.
+	 *
+	 * @see #encodeToWriter(IParser, Writer)
+	 */
+	public String encodeToString(@Nonnull IParser theParser) {
+		StringWriter writer = new StringWriter();
+		try {
+			encodeToWriter(theParser, writer);
+		} catch (IOException e) {
+			throw new DataFormatException(Msg.code(2777) + e.getMessage(), e);
+		}
+		return writer.toString();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + myHeader.getIdElement().getValue() + ", inflated=" + isInflated()
+				+ "]";
+	}
+
+	/**
+	 * Creates a handle around a stored JSON body which has not yet been parsed.
+	 *
+	 * @param theHeader     A resource of the correct type containing only the ID and <code>meta</code>
+	 *                      which should be encoded for this resource
+	 * @param theStoredJson The stored JSON body. Any <code>id</code> it contains is ignored in favour of
+	 *                      the header when splicing.
+	 * @param theInflater   Parses the stored body and returns the fully populated resource. Called at most once.
+	 */
+	public static <T extends IBaseResource> DeferredResource<T> forStoredJson(
+			@Nonnull T theHeader, @Nonnull String theStoredJson, @Nonnull Supplier<T> theInflater) {
+		Validate.notNull(theHeader, "theHeader must not be null");
+		Validate.notNull(theStoredJson, "theStoredJson must not be null");
+		Validate.notNull(theInflater, "theInflater must not be null");
+		DeferredResource<T> retVal = new DeferredResource<>(theHeader, theStoredJson, theInflater, null);
+		theHeader.setUserData(USER_DATA_KEY, retVal);
+		return retVal;
+	}
+
+	/**
+	 * Creates a handle around a resource which has already been parsed. Encoding this
+	 * handle is the same as encoding the resource.
+	 */
+	public static <T extends IBaseResource> DeferredResource<T> forResource(@Nonnull T theResource) {
+		Validate.notNull(theResource, "theResource must not be null");
+		return new DeferredResource<>(theResource, null, () -> theResource, theResource);
+	}
+
+	/**
+	 * Returns the handle carried by the given resource if it is the header of a deferred
+	 * resource, or <code>null</code> otherwise
+	 */
+	@Nullable
+	public static DeferredResource<?> fromResource(@Nullable IBaseResource theResource) {
+		if (theResource == null) {
+			return null;
+		}
+		Object retVal = theResource.getUserData(USER_DATA_KEY);
+		return retVal instanceof DeferredResource ? (DeferredResource<?>) retVal : null;
+	}
+
+	/**
+	 * If the given resource is the header of a deferred resource, returns the fully parsed
+	 * resource (parsing it if needed). Otherwise returns the given resource unchanged.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends IBaseResource> T inflate(@Nullable T theResource) {
+		DeferredResource<?> deferred = fromResource(theResource);
+		if (deferred == null) {
+			return theResource;
+		}
+		return (T) deferred.getResource();
+	}
+}
@@ -23,6 +23,7 @@ import ca.uhn.fhir.model.api.IResource;
 import ca.uhn.fhir.parser.json.BaseJsonLikeWriter;
 import ca.uhn.fhir.parser.json.JsonLikeStructure;
 import org.hl7.fhir.instance.model.api.IAnyResource;
+import org.hl7.fhir.instance.model.api.IBase;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 
 import java.io.IOException;
@@ -40,6 +41,27 @@ public interface IJsonLikeParser extends IParser {
 	void encodeResourceToJsonLikeWriter(IBaseResource theResource, BaseJsonLikeWriter theJsonLikeWriter)
 			throws IOException, DataFormatException;
 
+	/**
+	 * Encodes a resource to a JSON-like writer. If <code>theEndObject</code> is <code>false</code>,
+	 * the resource's JSON object is left open after its last element, so that the caller can append
+	 * more members to it (e.g. the entries of a Bundle, using
+	 * {@link #encodeToJsonLikeWriter(IBase, BaseJsonLikeWriter)}) and must end the object itself.
+	 *
+	 * @since 8.4.0
+	 */
+	void encodeResourceToJsonLikeWriter(
+			IBaseResource theResource, BaseJsonLikeWriter theJsonLikeWriter, boolean theEndObject)
+			throws IOException, DataFormatException;
+
+	/**
+	 * Encodes a composite element which is not a resource (e.g. a Bundle entry) as a JSON object, at
+	 * the current position of a JSON-like writer
+	 *
+	 * @since 8.4.0
+	 */
+	void encodeToJsonLikeWriter(IBase theElement, BaseJsonLikeWriter theJsonLikeWriter)
+			throws IOException, DataFormatException;
+
 	/**
 	 * Parses a resource from a JSON-like data structure
 	 *
@@ -36,9 +36,12 @@ import org.hl7.fhir.instance.model.api.IIdType;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
@@ -71,6 +74,28 @@ public interface IParser {
 	 */
 	void encodeResourceToWriter(IBaseResource theResource, Writer theWriter) throws IOException, DataFormatException;
 
+	/**
+	 * Encodes a resource using the parser's given encoding format, writing the result to
+	 * the given stream using the UTF-8 character set. The stream is flushed but not closed.
+	 * <p>
+	 * Parsers which support it (currently the JSON parser) write bytes directly to the stream
+	 * without creating any intermediate character data, which makes this method preferable to
+	 * {@link #encodeResourceToWriter(IBaseResource, Writer)} when the destination is a byte
+	 * stream such as a servlet response.
+	 * </p>
+	 *
+	 * @param theResource     The resource to encode. Must not be null.
+	 * @param theOutputStream The stream to write to.
+	 * @throws DataFormatException If any invalid elements within the contents to be encoded prevent successful encoding.
+	 * @since 8.4.0
+	 */
+	default void encodeResourceToOutputStream(IBaseResource theResource, OutputStream theOutputStream)
+			throws IOException, DataFormatException {
+		Writer writer = new OutputStreamWriter(theOutputStream, StandardCharsets.UTF_8);
+		encodeResourceToWriter(theResource, writer);
+		writer.flush();
+	}
+
 	/**
 	 * Encodes any FHIR element to a string.
 	 * If a {@link IBaseResource resource object} is passed in, the resource will be encoded using standard FHIR
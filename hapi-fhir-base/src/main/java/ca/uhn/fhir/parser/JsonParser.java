@@ -51,6 +51,9 @@ import ca.uhn.fhir.parser.json.BaseJsonLikeValue.ScalarType;
 import ca.uhn.fhir.parser.json.BaseJsonLikeValue.ValueType;
 import ca.uhn.fhir.parser.json.BaseJsonLikeWriter;
 import ca.uhn.fhir.parser.json.JsonLikeStructure;
+import ca.uhn.fhir.parser.json.jackson.JacksonResourceSplicer;
+import ca.uhn.fhir.parser.json.jackson.JacksonStreamingStructure;
+import ca.uhn.fhir.parser.json.jackson.JacksonStreamingStructure.CompactJsonObject;
 import ca.uhn.fhir.parser.json.jackson.JacksonStructure;
 import ca.uhn.fhir.rest.api.EncodingEnum;
 import ca.uhn.fhir.util.ElementUtil;
@@ -73,6 +76,7 @@ import org.hl7.fhir.instance.model.api.INarrative;
 import org.hl7.fhir.instance.model.api.IPrimitiveType;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
 import java.math.BigDecimal;
@@ -81,6 +85,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import static ca.uhn.fhir.context.BaseRuntimeElementDefinition.ChildTypeEnum.ID_DATATYPE;
 import static ca.uhn.fhir.context.BaseRuntimeElementDefinition.ChildTypeEnum.PRIMITIVE_DATATYPE;
@@ -205,16 +210,30 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		return jsonStructure.getJsonLikeWriter(theWriter);
 	}
 
+	private BaseJsonLikeWriter createJsonWriter(OutputStream theOutputStream) throws IOException {
+		return new JacksonStructure().getJsonLikeWriter(theOutputStream);
+	}
+
 	public void doEncodeResourceToJsonLikeWriter(
 			IBaseResource theResource, BaseJsonLikeWriter theEventWriter, EncodeContext theEncodeContext)
 			throws IOException {
+		doEncodeResourceToJsonLikeWriter(theResource, theEventWriter, theEncodeContext, true);
+	}
+
+	private void doEncodeResourceToJsonLikeWriter(
+			IBaseResource theResource,
+			BaseJsonLikeWriter theEventWriter,
+			EncodeContext theEncodeContext,
+			boolean theEndObject)
+			throws IOException {
 		if (myPrettyPrint) {
 			theEventWriter.setPrettyPrint(myPrettyPrint);
 		}
 		theEventWriter.init();
 
 		RuntimeResourceDefinition resDef = getContext().getResourceDefinition(theResource);
-		encodeResourceToJsonStreamWriter(resDef, theResource, theEventWriter, null, false, theEncodeContext);
+		encodeResourceToJsonStreamWriter(
+				resDef, theResource, theEventWriter, null, false, theEncodeContext, theEndObject);
 		theEventWriter.flush();
 	}
 
@@ -226,6 +245,62 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		eventWriter.close();
 	}
 
+	/**
+	 * Encodes a {@link DeferredResource}. If the resource has not been inflated and this parser
+	 * would encode the stored body unchanged, the header is encoded and the stored body is
+	 * spliced in after it without being parsed. Otherwise the inflated resource is encoded.
+	 */
+	void encodeDeferredResourceToWriter(DeferredResource<?> theResource, Writer theWriter) throws IOException {
+		if (!theResource.isInflated() && canSpliceStoredBody(theResource)) {
+			String header = encodeResourceToString(theResource.getHeader());
+			JacksonResourceSplicer.splice(header, theResource.getStoredJson(), theWriter);
+			return;
+		}
+		encodeResourceToWriter(theResource.getResource(), theWriter);
+	}
+
+	private boolean canSpliceStoredBody(DeferredResource<?> theResource) throws IOException {
+		if (myPrettyPrint || !hasDefaultEncodingSettings() || getContext().getNarrativeGenerator() != null) {
+			return false;
+		}
+
+		String storedJson = theResource.getStoredJson();
+		if (storedJson == null) {
+			return false;
+		}
+
+		/*
+		 * References are the only content rewritten by the encoder when none of the
+		 * options above are set: absolute references to the server base are made relative
+		 * and versions may be stripped. A cheap textual scan tells us whether either could
+		 * apply, in which case we fall back to a full parse.
+		 */
+		String serverBaseUrl = getServerBaseUrl();
+		if (isNotBlank(serverBaseUrl) && storedJson.contains(serverBaseUrl)) {
+			return false;
+		}
+		if (storedJson.contains("/_history/")) {
+			return false;
+		}
+
+		return theResource.isSpliceable();
+	}
+
+	/**
+	 * Encodes using Jackson's UTF-8 generator, which writes bytes directly into a recycled
+	 * buffer and flushes it to the stream, so no intermediate <code>char[]</code> or
+	 * <code>String</code> is created for the document.
+	 */
+	@Override
+	protected void doEncodeResourceToOutputStream(
+			IBaseResource theResource, OutputStream theOutputStream, EncodeContext theEncodeContext)
+			throws IOException {
+		BaseJsonLikeWriter eventWriter = createJsonWriter(theOutputStream);
+		doEncodeResourceToJsonLikeWriter(theResource, eventWriter, theEncodeContext);
+		eventWriter.close();
+		theOutputStream.flush();
+	}
+
 	@Override
 	protected void doEncodeToWriter(IBase theElement, Writer theWriter, EncodeContext theEncodeContext)
 			throws IOException, DataFormatException {
@@ -236,9 +311,16 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		eventWriter.close();
 	}
 
+	private JsonLikeStructure createJsonStructureForParsing() {
+		if (getContext().getParserOptions().isStreamingJsonParsing()) {
+			return new JacksonStreamingStructure();
+		}
+		return new JacksonStructure();
+	}
+
 	@Override
 	protected void doParseIntoComplexStructure(Reader theSource, IBase theTarget) {
-		JsonLikeStructure jsonStructure = new JacksonStructure();
+		JsonLikeStructure jsonStructure = createJsonStructureForParsing();
 		jsonStructure.load(theSource);
 
 		ParserState<IBase> state =
@@ -252,30 +334,51 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 
 	@Override
 	public <T extends IBaseResource> T doParseResource(Class<T> theResourceType, Reader theReader) {
-		JsonLikeStructure jsonStructure = new JacksonStructure();
+		JsonLikeStructure jsonStructure = createJsonStructureForParsing();
 		jsonStructure.load(theReader);
 
+		if (jsonStructure instanceof JacksonStreamingStructure
+				&& ((JacksonStreamingStructure) jsonStructure).hasStreamingRoot()) {
+			return doParseResource(theResourceType, (JacksonStreamingStructure) jsonStructure);
+		}
+
 		T retVal = doParseResource(theResourceType, jsonStructure);
 
 		return retVal;
 	}
 
 	public <T extends IBaseResource> T doParseResource(Class<T> theResourceType, JsonLikeStructure theJsonStructure) {
-		BaseJsonLikeObject object = theJsonStructure.getRootObject();
+		return doParseResource(theResourceType, theJsonStructure.getRootObject());
+	}
 
-		BaseJsonLikeValue resourceTypeObj = object.get("resourceType");
-		if (resourceTypeObj == null || !resourceTypeObj.isString() || isBlank(resourceTypeObj.getAsString())) {
-			throw new DataFormatException(
-					Msg.code(1838) + "Invalid JSON content detected, missing required element: 'resourceType'");
-		}
+	private <T extends IBaseResource> T doParseResource(Class<T> theResourceType, BaseJsonLikeObject theObject) {
+		String resourceType = toResourceType(theObject.get("resourceType"));
+		return doParseResource(theResourceType, resourceType, state -> parseChildren(theObject, state));
+	}
 
-		String resourceType = resourceTypeObj.getAsString();
+	private <T extends IBaseResource> T doParseResource(
+			Class<T> theResourceType, JacksonStreamingStructure theStream) {
+		T retVal;
+		String firstName = theStream.nextName();
+		ValueType firstType = firstName != null ? theStream.nextValue() : null;
+		if ("resourceType".equals(firstName) && firstType == ValueType.SCALAR) {
+			String resourceType = toResourceType(theStream.readValue());
+			retVal = doParseResource(theResourceType, resourceType, state -> parseChildren(theStream, state));
+		} else {
+			// The resource type has to be known before anything else can be parsed
+			retVal = doParseResource(theResourceType, theStream.readRemainingMembers(firstName));
+		}
+		theStream.finish();
+		return retVal;
+	}
 
+	private <T extends IBaseResource> T doParseResource(
+			Class<T> theResourceType, String theResourceTypeName, Consumer<ParserState<?>> theChildrenParser) {
 		ParserState<? extends IBaseResource> state =
 				ParserState.getPreResourceInstance(this, theResourceType, getContext(), true, getErrorHandler());
-		state.enteringNewElement(null, resourceType);
+		state.enteringNewElement(null, theResourceTypeName);
 
-		parseChildren(object, state);
+		theChildrenParser.accept(state);
 
 		state.endingElement();
 		state.endingElement();
@@ -286,6 +389,14 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		return retVal;
 	}
 
+	private static String toResourceType(BaseJsonLikeValue theResourceTypeObj) {
+		if (theResourceTypeObj == null || !theResourceTypeObj.isString() || isBlank(theResourceTypeObj.getAsString())) {
+			throw new DataFormatException(
+					Msg.code(1838) + "Invalid JSON content detected, missing required element: 'resourceType'");
+		}
+		return theResourceTypeObj.getAsString();
+	}
+
 	private void encodeChildElementToStreamWriter(
 			RuntimeResourceDefinition theResDef,
 			IBaseResource theResource,
@@ -418,7 +529,8 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 								null,
 								true,
 								fixContainedResourceId(value),
-								theEncodeContext);
+								theEncodeContext,
+								true);
 					}
 
 					theEventWriter.endArray();
@@ -449,7 +561,7 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 
 				theEncodeContext.pushPath(def.getName(), true);
 				encodeResourceToJsonStreamWriter(
-						def, resource, theEventWriter, theChildName, theContainedResource, theEncodeContext);
+						def, resource, theEventWriter, theChildName, theContainedResource, theEncodeContext, true);
 				theEncodeContext.popPath();
 
 				break;
@@ -847,6 +959,13 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 	@Override
 	public void encodeResourceToJsonLikeWriter(IBaseResource theResource, BaseJsonLikeWriter theJsonLikeWriter)
 			throws IOException, DataFormatException {
+		encodeResourceToJsonLikeWriter(theResource, theJsonLikeWriter, true);
+	}
+
+	@Override
+	public void encodeResourceToJsonLikeWriter(
+			IBaseResource theResource, BaseJsonLikeWriter theJsonLikeWriter, boolean theEndObject)
+			throws IOException, DataFormatException {
 		Validate.notNull(theResource, "theResource can not be null");
 		Validate.notNull(theJsonLikeWriter, "theJsonLikeWriter can not be null");
 
@@ -861,7 +980,25 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 				new EncodeContext(this, getContext().getParserOptions(), new FhirTerser.ContainedResources());
 		String resourceName = getContext().getResourceType(theResource);
 		encodeContext.pushPath(resourceName, true);
-		doEncodeResourceToJsonLikeWriter(theResource, theJsonLikeWriter, encodeContext);
+		doEncodeResourceToJsonLikeWriter(theResource, theJsonLikeWriter, encodeContext, theEndObject);
+	}
+
+	@Override
+	public void encodeToJsonLikeWriter(IBase theElement, BaseJsonLikeWriter theJsonLikeWriter)
+			throws IOException, DataFormatException {
+		Validate.notNull(theElement, "theElement can not be null");
+		Validate.notNull(theJsonLikeWriter, "theJsonLikeWriter can not be null");
+
+		EncodeContext encodeContext =
+				new EncodeContext(this, getContext().getParserOptions(), new FhirTerser.ContainedResources());
+		BaseRuntimeElementDefinition<?> def = getContext().getElementDefinition(theElement.getClass());
+		encodeContext.pushPath(def.getName(), true);
+
+		theJsonLikeWriter.beginObject();
+		encodeCompositeElementToStreamWriter(null, null, theElement, theJsonLikeWriter, false, null, encodeContext);
+		theJsonLikeWriter.endObject();
+
+		encodeContext.popPath();
 	}
 
 	private void encodeResourceToJsonStreamWriter(
@@ -870,7 +1007,8 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 			BaseJsonLikeWriter theEventWriter,
 			String theObjectNameOrNull,
 			boolean theContainedResource,
-			EncodeContext theEncodeContext)
+			EncodeContext theEncodeContext,
+			boolean theEndObject)
 			throws IOException {
 		IIdType resourceId = null;
 
@@ -896,7 +1034,8 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 				theObjectNameOrNull,
 				theContainedResource,
 				resourceId,
-				theEncodeContext);
+				theEncodeContext,
+				theEndObject);
 	}
 
 	private void encodeResourceToJsonStreamWriter(
@@ -906,7 +1045,8 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 			String theObjectNameOrNull,
 			boolean theContainedResource,
 			IIdType theResourceId,
-			EncodeContext theEncodeContext)
+			EncodeContext theEncodeContext,
+			boolean theEndObject)
 			throws IOException {
 
 		if (!super.shouldEncodeResource(theResDef.getName(), theEncodeContext)) {
@@ -967,7 +1107,9 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 				new CompositeChildElement(resDef, theEncodeContext),
 				theEncodeContext);
 
-		theEventWriter.endObject();
+		if (theEndObject) {
+			theEventWriter.endObject();
+		}
 	}
 
 	private void parseMetaForDSTU2(
@@ -1456,19 +1598,10 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 			theState.enteringNewElement(null, theName);
 			parseAlternates(theAlternateVal, theState, theAlternateName, theAlternateName);
 			BaseJsonLikeObject nextObject = theJsonVal.getAsObject();
-			boolean preResource = false;
 			if (theState.isPreResource()) {
-				BaseJsonLikeValue resType = nextObject.get("resourceType");
-				if (resType == null || !resType.isString()) {
-					throw new DataFormatException(Msg.code(1843)
-							+ "Missing required element 'resourceType' from JSON resource object, unable to parse");
-				}
-				theState.enteringNewElement(null, resType.getAsString());
-				preResource = true;
-			}
-			parseChildren(nextObject, theState);
-			if (preResource) {
-				theState.endingElement();
+				parseResourceChildren(nextObject, theState);
+			} else {
+				parseChildren(nextObject, theState);
 			}
 			theState.endingElement();
 		} else if (theJsonVal.isNull()) {
@@ -1485,6 +1618,165 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		}
 	}
 
+	private void parseResourceChildren(BaseJsonLikeObject theObject, ParserState<?> theState) {
+		BaseJsonLikeValue resType = theObject.get("resourceType");
+		if (resType == null || !resType.isString()) {
+			throw new DataFormatException(Msg.code(1843)
+					+ "Missing required element 'resourceType' from JSON resource object, unable to parse");
+		}
+		theState.enteringNewElement(null, resType.getAsString());
+		parseChildren(theObject, theState);
+		theState.endingElement();
+	}
+
+	/**
+	 * Counterpart of {@link #parseChildren(BaseJsonLikeObject, ParserState)} which reads the members of
+	 * the current object from the token stream. Members holding complex elements (or arrays of them) are
+	 * parsed as they are read, without ever being held in memory as a whole. All other members are
+	 * buffered and parsed from a tree once the end of the object is reached, since a primitive may
+	 * be followed by its <code>_element</code> sibling and extensions are parsed from a tree.
+	 */
+	private void parseChildren(JacksonStreamingStructure theStream, ParserState<?> theState) {
+		CompactJsonObject buffered = new CompactJsonObject();
+		List<String> streamedNames = null;
+
+		for (String nextName = theStream.nextName(); nextName != null; nextName = theStream.nextName()) {
+			ValueType valueType = theStream.nextValue();
+			boolean streamable = isStreamableName(nextName);
+
+			BaseJsonLikeValue nextValue;
+			if (streamable && valueType == ValueType.OBJECT) {
+				BaseJsonLikeValue alternateVal = buffered.remove('_' + nextName);
+				parseChildren(theStream, theState, nextName, alternateVal, false);
+				streamedNames = addStreamedName(streamedNames, nextName);
+				continue;
+			} else if (streamable && valueType == ValueType.ARRAY) {
+				ValueType firstElementType = theStream.nextArrayElement();
+				if (firstElementType == ValueType.OBJECT) {
+					BaseJsonLikeValue alternateVal = buffered.remove('_' + nextName);
+					parseArrayChildren(theStream, theState, nextName, alternateVal);
+					streamedNames = addStreamedName(streamedNames, nextName);
+					continue;
+				}
+				nextValue = theStream.readRemainingElements(firstElementType);
+			} else {
+				nextValue = theStream.readValue();
+			}
+			buffered.put(nextName, nextValue);
+		}
+
+		/*
+		 * An _element which follows its element can't be applied to it any
+		 * more if the element was streamed
+		 */
+		if (streamedNames != null) {
+			for (String nextName : streamedNames) {
+				String alternateName = '_' + nextName;
+				if (buffered.remove(alternateName) != null) {
+					getErrorHandler().unknownElement(null, alternateName);
+				}
+			}
+		}
+
+		if (!buffered.isEmpty()) {
+			parseChildren(buffered, theState);
+		}
+	}
+
+	private void parseArrayChildren(
+			JacksonStreamingStructure theStream,
+			ParserState<?> theState,
+			String theName,
+			BaseJsonLikeValue theAlternateVal) {
+		String alternateName = '_' + theName;
+		BaseJsonLikeValue alternateVal = theAlternateVal;
+		if (alternateVal != null && alternateVal.isArray() == false) {
+			getErrorHandler()
+					.incorrectJsonType(null, alternateName, ValueType.ARRAY, null, alternateVal.getJsonType(), null);
+			alternateVal = null;
+		}
+
+		BaseJsonLikeArray alternateArray = BaseJsonLikeValue.asArray(alternateVal); // could be null
+		int index = 0;
+		for (ValueType next = ValueType.OBJECT; next != null; next = theStream.nextArrayElement()) {
+			BaseJsonLikeValue nextAlternate = null;
+			if (alternateArray != null && alternateArray.size() > index) {
+				nextAlternate = alternateArray.get(index);
+			}
+			if (next == ValueType.OBJECT) {
+				parseChildren(theStream, theState, theName, nextAlternate, true);
+			} else {
+				parseChildren(theState, theName, theStream.readValue(), nextAlternate, alternateName, true);
+			}
+			index++;
+		}
+	}
+
+	/**
+	 * Parses the object the stream is positioned at, mirroring the object branch of
+	 * {@link #parseChildren(ParserState, String, BaseJsonLikeValue, BaseJsonLikeValue, String, boolean)}
+	 */
+	private void parseChildren(
+			JacksonStreamingStructure theStream,
+			ParserState<?> theState,
+			String theName,
+			BaseJsonLikeValue theAlternateVal,
+			boolean theInArray) {
+		if (!theInArray && theState.elementIsRepeating(theName)) {
+			getErrorHandler().incorrectJsonType(null, theName, ValueType.ARRAY, null, ValueType.OBJECT, null);
+		}
+
+		String alternateName = '_' + theName;
+		theState.enteringNewElement(null, theName);
+		parseAlternates(theAlternateVal, theState, alternateName, alternateName);
+		if (theState.isPreResource()) {
+			String firstName = theStream.nextName();
+			ValueType firstType = firstName != null ? theStream.nextValue() : null;
+			if ("resourceType".equals(firstName) && firstType == ValueType.SCALAR) {
+				BaseJsonLikeValue resType = theStream.readValue();
+				if (!resType.isString()) {
+					throw new DataFormatException(Msg.code(1843)
+							+ "Missing required element 'resourceType' from JSON resource object, unable to parse");
+				}
+				theState.enteringNewElement(null, resType.getAsString());
+				parseChildren(theStream, theState);
+				theState.endingElement();
+			} else {
+				// The resource type has to be known before anything else can be parsed
+				parseResourceChildren(theStream.readRemainingMembers(firstName), theState);
+			}
+		} else {
+			parseChildren(theStream, theState);
+		}
+		theState.endingElement();
+	}
+
+	private static List<String> addStreamedName(List<String> theStreamedNames, String theName) {
+		List<String> retVal = theStreamedNames;
+		if (retVal == null) {
+			retVal = new ArrayList<>();
+		}
+		retVal.add(theName);
+		return retVal;
+	}
+
+	/**
+	 * Members which are always parsed from a buffered tree, because they are handled
+	 * specially by {@link #parseChildren(BaseJsonLikeObject, ParserState)}
+	 */
+	private static boolean isStreamableName(String theName) {
+		switch (theName) {
+			case "id":
+			case "extension":
+			case "modifierExtension":
+			case "fhir_comments":
+			case "resourceType":
+				return false;
+			default:
+				return !theName.startsWith("_");
+		}
+	}
+
 	private void parseExtension(ParserState<?> theState, BaseJsonLikeArray theValues, boolean theIsModifier) {
 		int allUnderscoreNames = 0;
 		int handledUnderscoreNames = 0;
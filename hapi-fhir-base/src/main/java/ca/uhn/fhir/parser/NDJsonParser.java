@@ -27,11 +27,15 @@ import ca.uhn.fhir.util.BundleUtil;
 import org.hl7.fhir.instance.model.api.IBaseBundle;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 
-import java.io.BufferedReader;
+import java.io.CharArrayReader;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 /**
  * This class is the FHIR NDJSON parser/encoder. Users should not interact with this class directly, but should use
@@ -102,23 +106,171 @@ public class NDJsonParser extends BaseParser {
 					+ theResourceType.getName());
 		}
 
-		try {
-			// Now we go through line-by-line parsing the JSON and then stuffing it into a bundle.
-			BundleBuilder myBuilder = new BundleBuilder(myFhirContext);
-			myBuilder.setType("collection");
-			BufferedReader myBufferedReader = new BufferedReader(theReader);
-			String jsonString = myBufferedReader.readLine();
-			while (jsonString != null) {
-				// And add it to a collection in a Bundle.
-				// The string must be trimmed, as per the NDJson spec 3.2
-				myBuilder.addCollectionEntry(myJsonParser.parseResource(jsonString.trim()));
-				// Try to read another line.
-				jsonString = myBufferedReader.readLine();
+		// Now we go through line-by-line parsing the JSON and then stuffing it into a bundle.
+		BundleBuilder myBuilder = new BundleBuilder(myFhirContext);
+		myBuilder.setType("collection");
+		parseResources(theReader, myBuilder::addCollectionEntry);
+
+		return (T) myBuilder.getBundle();
+	}
+
+	/**
+	 * Parses an NDJSON stream one line at a time, passing each resource to the given consumer as soon
+	 * as it has been parsed. Unlike {@link #parseResource(Reader)}, the resources are never collected
+	 * into a Bundle, so arbitrarily large streams can be processed in constant memory. Blank lines
+	 * are skipped. The reader is not closed.
+	 *
+	 * @since 8.4.0
+	 */
+	public void parseResources(Reader theReader, Consumer<IBaseResource> theConsumer) throws DataFormatException {
+		Iterator<IBaseResource> iterator = iterateResources(theReader);
+		while (iterator.hasNext()) {
+			theConsumer.accept(iterator.next());
+		}
+	}
+
+	/**
+	 * Returns an iterator which lazily parses an NDJSON stream one line at a time. Each line is
+	 * read into a buffer which is reused for the following lines. Blank lines are skipped. The
+	 * reader is not closed.
+	 * <p>
+	 * The iterator methods throw {@link DataFormatException} if a line can not be parsed, or if
+	 * the reader fails.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public Iterator<IBaseResource> iterateResources(Reader theReader) {
+		return new ResourceIterator(theReader);
+	}
+
+	/**
+	 * Returns a writer which appends resources to the given stream as UTF-8 encoded NDJSON, one
+	 * resource per line.
+	 *
+	 * @since 8.4.0
+	 */
+	public NDJsonWriter newWriter(OutputStream theOutputStream) {
+		return new NDJsonWriter(myJsonParser, theOutputStream);
+	}
+
+	private class ResourceIterator implements Iterator<IBaseResource> {
+
+		private final LineReader myLineReader;
+		private IBaseResource myNext;
+
+		private ResourceIterator(Reader theReader) {
+			myLineReader = new LineReader(theReader);
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (myNext != null) {
+				return true;
+			}
+			try {
+				while (myLineReader.nextLine()) {
+					// The line must be trimmed, as per the NDJson spec 3.2
+					int start = 0;
+					int end = myLineReader.myLineLength;
+					char[] line = myLineReader.myLine;
+					while (start < end && Character.isWhitespace(line[start])) {
+						start++;
+					}
+					while (end > start && Character.isWhitespace(line[end - 1])) {
+						end--;
+					}
+					if (start < end) {
+						myNext = myJsonParser.parseResource(new CharArrayReader(line, start, end - start));
+						return true;
+					}
+				}
+			} catch (IOException err) {
+				throw new DataFormatException(Msg.code(1835) + err.getMessage());
+			}
+			return false;
+		}
+
+		@Override
+		public IBaseResource next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException(Msg.code(2778) + "No more resources in NDJSON stream");
 			}
+			IBaseResource retVal = myNext;
+			myNext = null;
+			return retVal;
+		}
+	}
+
+	/**
+	 * Splits a stream into lines, reading each line into the same (growable) buffer. Lines may
+	 * end with <code>\n</code>, <code>\r\n</code> or a bare <code>\r</code>.
+	 */
+	private static class LineReader {
 
-			return (T) myBuilder.getBundle();
-		} catch (IOException err) {
-			throw new DataFormatException(Msg.code(1835) + err.getMessage());
+		private final Reader myReader;
+		private final char[] myReadBuffer = new char[8192];
+		private int myReadPosition;
+		private int myReadLimit;
+		private char[] myLine = new char[1024];
+		private int myLineLength;
+		private boolean mySkipLineFeed;
+
+		private LineReader(Reader theReader) {
+			myReader = theReader;
+		}
+
+		/**
+		 * Reads the next line into {@link #myLine}, returning <code>false</code> at the end of the stream
+		 */
+		private boolean nextLine() throws IOException {
+			myLineLength = 0;
+			boolean haveContent = false;
+			while (true) {
+				if (myReadPosition == myReadLimit) {
+					int count = myReader.read(myReadBuffer, 0, myReadBuffer.length);
+					if (count == -1) {
+						return haveContent;
+					}
+					myReadPosition = 0;
+					myReadLimit = count;
+				}
+
+				// The previous line ended with \r, which may be the first half of a \r\n
+				if (mySkipLineFeed) {
+					mySkipLineFeed = false;
+					if (myReadBuffer[myReadPosition] == '\n') {
+						myReadPosition++;
+						continue;
+					}
+				}
+				haveContent = true;
+
+				int start = myReadPosition;
+				while (myReadPosition < myReadLimit
+						&& myReadBuffer[myReadPosition] != '\n'
+						&& myReadBuffer[myReadPosition] != '\r') {
+					myReadPosition++;
+				}
+				append(start, myReadPosition - start);
+
+				if (myReadPosition < myReadLimit) {
+					// Skip the line terminator
+					mySkipLineFeed = myReadBuffer[myReadPosition] == '\r';
+					myReadPosition++;
+					return true;
+				}
+			}
+		}
+
+		private void append(int theOffset, int theLength) {
+			if (myLineLength + theLength > myLine.length) {
+				char[] newLine = new char[Math.max(myLine.length * 2, myLineLength + theLength)];
+				System.arraycopy(myLine, 0, newLine, 0, myLineLength);
+				myLine = newLine;
+			}
+			System.arraycopy(myReadBuffer, theOffset, myLine, myLineLength, theLength);
+			myLineLength += theLength;
 		}
 	}
 }
@@ -0,0 +1,92 @@
+/*-
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.parser;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.apache.commons.lang3.Validate;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Appends resources to an {@link OutputStream} as UTF-8 encoded NDJSON, one resource per line.
+ * Each resource is encoded directly to the stream as it is written, so nothing is buffered beyond
+ * what the stream itself buffers. Instances are obtained using
+ * {@link NDJsonParser#newWriter(OutputStream)}, e.g.:
+ * <pre>
+ * NDJsonParser parser = (NDJsonParser) myFhirContext.newNDJsonParser();
+ * try (NDJsonWriter writer = parser.newWriter(outputStream)) {
+ *    for (IBaseResource next : resources) {
+ *       writer.write(next);
+ *    }
+ * }
+ * </pre>
+ * <p>
+ * Thread safety: This class is not thread safe.
+ * </p>
+ *
+ * @see FhirContext#newNDJsonParser()
+ * @since 8.4.0
+ */
+public class NDJsonWriter implements Closeable, Flushable {
+
+	private final IParser myJsonParser;
+	private final OutputStream myOutputStream;
+	private int myCount;
+
+	NDJsonWriter(IParser theJsonParser, OutputStream theOutputStream) {
+		Validate.notNull(theOutputStream, "theOutputStream must not be null");
+		myJsonParser = theJsonParser;
+		myOutputStream = theOutputStream;
+	}
+
+	/**
+	 * Encodes the given resource and appends it to the stream, followed by a newline
+	 */
+	public NDJsonWriter write(IBaseResource theResource) throws IOException {
+		myJsonParser.encodeResourceToOutputStream(theResource, myOutputStream);
+		myOutputStream.write('\n');
+		myCount++;
+		return this;
+	}
+
+	/**
+	 * Returns the number of resources written so far
+	 */
+	public int getCount() {
+		return myCount;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		myOutputStream.flush();
+	}
+
+	/**
+	 * Flushes and closes the underlying stream
+	 */
+	@Override
+	public void close() throws IOException {
+		myOutputStream.close();
+	}
+}
@@ -52,6 +52,8 @@ import ca.uhn.fhir.util.BundleUtil;
 import ca.uhn.fhir.util.FhirTerser;
 import ca.uhn.fhir.util.ReflectionUtil;
 import ca.uhn.fhir.util.XmlUtil;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
@@ -91,6 +93,15 @@ import static org.apache.commons.lang3.StringUtils.isNotEmpty;
 class ParserState<T> {
 
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(ParserState.class);
+
+	/**
+	 * Datatypes whose values are drawn from a small set of strings which repeat heavily
+	 * across resources, and are therefore worth interning
+	 */
+	private static final Set<String> INTERNABLE_PRIMITIVE_TYPES =
+			Set.of("code", "uri", "canonical", "url", "oid", "uuid");
+
+	private static final Interner<String> ourPrimitiveValueInterner = Interners.newWeakInterner();
 	private final FhirContext myContext;
 	private final IParserErrorHandler myErrorHandler;
 	private final boolean myJsonMode;
@@ -101,6 +112,7 @@ class ParserState<T> {
 	private BaseState myState;
 	private final List<IBaseResource> myGlobalResources = new ArrayList<>();
 	private final List<IBaseReference> myGlobalReferences = new ArrayList<>();
+	private final boolean myInternPrimitiveValues;
 
 	private ParserState(
 			IParser theParser, FhirContext theContext, boolean theJsonMode, IParserErrorHandler theErrorHandler) {
@@ -108,6 +120,14 @@ class ParserState<T> {
 		myContext = theContext;
 		myJsonMode = theJsonMode;
 		myErrorHandler = theErrorHandler;
+		myInternPrimitiveValues = theContext.getParserOptions().isInternRepeatedPrimitiveValues();
+	}
+
+	private String internIfEnabled(String theValue) {
+		if (myInternPrimitiveValues && theValue != null) {
+			return ourPrimitiveValueInterner.intern(theValue);
+		}
+		return theValue;
 	}
 
 	public void attributeValue(String theName, String theValue) throws DataFormatException {
@@ -141,7 +161,7 @@ class ParserState<T> {
 
 	void enteringNewElementExtension(
 			StartElement theElem, String theUrlAttr, boolean theIsModifier, final String baseServerUrl) {
-		myState.enteringNewElementExtension(theElem, theUrlAttr, theIsModifier, baseServerUrl);
+		myState.enteringNewElementExtension(theElem, internIfEnabled(theUrlAttr), theIsModifier, baseServerUrl);
 	}
 
 	public T getObject() {
@@ -1464,6 +1484,10 @@ class ParserState<T> {
 						}
 					}
 
+					if (INTERNABLE_PRIMITIVE_TYPES.contains(myTypeName)) {
+						value = internIfEnabled(value);
+					}
+
 					try {
 						myInstance.setValueAsString(value);
 					} catch (DataFormatException | IllegalArgumentException e) {
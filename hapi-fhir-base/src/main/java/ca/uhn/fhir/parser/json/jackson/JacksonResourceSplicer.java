@@ -0,0 +1,150 @@
+/*-
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.parser.json.jackson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+/**
+ * Combines a freshly encoded resource "header" (<code>resourceType</code>, <code>id</code> and
+ * <code>meta</code>) with the remaining top-level members of a previously encoded resource body,
+ * copying the body token by token so that it never has to be parsed into the FHIR model.
+ * <p>
+ * Numbers are copied using their original text so that decimal precision is preserved exactly.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public final class JacksonResourceSplicer {
+
+	/**
+	 * Top-level members which are always taken from the header and never from the body
+	 */
+	private static final Set<String> HEADER_MEMBERS = Set.of("resourceType", "id", "_id", "meta", "_meta");
+
+	/**
+	 * Non-instantiable
+	 */
+	private JacksonResourceSplicer() {}
+
+	/**
+	 * Returns <code>true</code> if the given body can be spliced, meaning that it is a JSON object
+	 * which does not carry any <code>meta</code> of its own (which would need to be merged with
+	 * the header).
+	 */
+	public static boolean canSplice(String theBodyJson) throws IOException {
+		try (JsonParser parser = JacksonStructure.getJsonFactory().createParser(theBodyJson)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return false;
+			}
+			for (JsonToken token = parser.nextToken(); token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+				String name = parser.currentName();
+				if ("meta".equals(name) || "_meta".equals(name)) {
+					return false;
+				}
+				parser.nextToken();
+				parser.skipChildren();
+			}
+			return true;
+		} catch (JsonParseException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Writes a single JSON object consisting of all members of <code>theHeaderJson</code> followed by
+	 * all members of <code>theBodyJson</code> except for the header members. The body must have been
+	 * checked using {@link #canSplice(String)} first.
+	 */
+	public static void splice(String theHeaderJson, String theBodyJson, Writer theWriter) throws IOException {
+		try (JsonGenerator generator = JacksonStructure.getJsonFactory().createGenerator(theWriter)) {
+			generator.writeStartObject();
+			copyMembers(theHeaderJson, generator, false);
+			copyMembers(theBodyJson, generator, true);
+			generator.writeEndObject();
+		}
+	}
+
+	private static void copyMembers(String theJson, JsonGenerator theGenerator, boolean theSkipHeaderMembers)
+			throws IOException {
+		try (JsonParser parser = JacksonStructure.getJsonFactory().createParser(theJson)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new JsonParseException(parser, "Content must be a valid JSON Object");
+			}
+			for (JsonToken token = parser.nextToken(); token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+				String name = parser.currentName();
+				parser.nextToken();
+				if (theSkipHeaderMembers && HEADER_MEMBERS.contains(name)) {
+					parser.skipChildren();
+					continue;
+				}
+				theGenerator.writeFieldName(name);
+				copyValue(parser, theGenerator);
+			}
+		}
+	}
+
+	private static void copyValue(JsonParser theParser, JsonGenerator theGenerator) throws IOException {
+		JsonToken token = theParser.currentToken();
+		switch (token) {
+			case START_OBJECT:
+				theGenerator.writeStartObject();
+				while (theParser.nextToken() == JsonToken.FIELD_NAME) {
+					theGenerator.writeFieldName(theParser.currentName());
+					theParser.nextToken();
+					copyValue(theParser, theGenerator);
+				}
+				theGenerator.writeEndObject();
+				break;
+			case START_ARRAY:
+				theGenerator.writeStartArray();
+				while (theParser.nextToken() != JsonToken.END_ARRAY) {
+					copyValue(theParser, theGenerator);
+				}
+				theGenerator.writeEndArray();
+				break;
+			case VALUE_STRING:
+				theGenerator.writeString(
+						theParser.getTextCharacters(), theParser.getTextOffset(), theParser.getTextLength());
+				break;
+			case VALUE_NUMBER_INT:
+			case VALUE_NUMBER_FLOAT:
+				theGenerator.writeNumber(theParser.getText());
+				break;
+			case VALUE_TRUE:
+				theGenerator.writeBoolean(true);
+				break;
+			case VALUE_FALSE:
+				theGenerator.writeBoolean(false);
+				break;
+			case VALUE_NULL:
+				theGenerator.writeNull();
+				break;
+			default:
+				throw new JsonParseException(theParser, "Unexpected token: " + token);
+		}
+	}
+}
@@ -0,0 +1,400 @@
+/*-
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.parser.json.jackson;
+
+import ca.uhn.fhir.context.ParserOptions;
+import ca.uhn.fhir.parser.DataFormatException;
+import ca.uhn.fhir.parser.json.BaseJsonLikeArray;
+import ca.uhn.fhir.parser.json.BaseJsonLikeObject;
+import ca.uhn.fhir.parser.json.BaseJsonLikeValue;
+import ca.uhn.fhir.parser.json.BaseJsonLikeValue.ScalarType;
+import ca.uhn.fhir.parser.json.BaseJsonLikeValue.ValueType;
+import ca.uhn.fhir.parser.json.JsonLikeStructure;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link JsonLikeStructure} which lets the {@link ca.uhn.fhir.parser.JsonParser} consume the Jackson
+ * token stream directly, member by member, instead of reading the whole document into a tree first.
+ * The parser asks for the next member name and the type of its value, and then either descends into
+ * the value as it is streamed or reads it into a small buffered tree with {@link #readValue()}.
+ * <p>
+ * Only documents with an object at the root are streamed. Documents with an array at the root are
+ * loaded exactly as they are by {@link JacksonStructure}, and calling {@link #getRootObject()} on a
+ * streamed document before any of it has been consumed reads the remainder of it into a buffered tree.
+ * </p>
+ * <p>
+ * This structure is used when {@link ParserOptions#setStreamingJsonParsing(boolean)} is enabled.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public class JacksonStreamingStructure extends JacksonStructure {
+
+	private static final CompactJsonScalar TRUE_VALUE = new CompactJsonScalar(Boolean.TRUE, ScalarType.BOOLEAN);
+	private static final CompactJsonScalar FALSE_VALUE = new CompactJsonScalar(Boolean.FALSE, ScalarType.BOOLEAN);
+
+	private JsonParser myParser;
+	private boolean myConsumed;
+	private CompactJsonObject myRoot;
+
+	@Override
+	public JsonLikeStructure getInstance() {
+		return new JacksonStreamingStructure();
+	}
+
+	@Override
+	protected void loadNative(Reader theReader, boolean theObject) throws IOException {
+		if (!theObject) {
+			super.loadNative(theReader, false);
+			return;
+		}
+
+		myParser = getJsonFactory().createParser(theReader);
+		JsonToken token = myParser.nextToken();
+		if (token != JsonToken.START_OBJECT) {
+			throw new JsonParseException(myParser, "Expected the start of an object but found: " + token);
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the root object is being streamed, i.e. if the document has an
+	 * object at the root and {@link #getRootObject()} has not been called
+	 */
+	public boolean hasStreamingRoot() {
+		return myParser != null && myRoot == null;
+	}
+
+	@Override
+	public BaseJsonLikeObject getRootObject() throws DataFormatException {
+		if (myRoot == null && myParser != null) {
+			if (myConsumed) {
+				throw new IllegalStateException("The root object has already been partially streamed");
+			}
+			myRoot = readRemainingMembers(null);
+			finish();
+		}
+		if (myRoot != null) {
+			return myRoot;
+		}
+		return super.getRootObject();
+	}
+
+	/**
+	 * Advances to the next member of the current object.
+	 *
+	 * @return The name of the member, or <code>null</code> if the end of the current object was reached
+	 */
+	public String nextName() {
+		myConsumed = true;
+		try {
+			JsonToken token = myParser.nextToken();
+			if (token == JsonToken.END_OBJECT) {
+				return null;
+			}
+			if (token != JsonToken.FIELD_NAME) {
+				throw new JsonParseException(myParser, "Expected a field name but found: " + token);
+			}
+			return myParser.currentName();
+		} catch (IOException e) {
+			throw newParseException(e);
+		}
+	}
+
+	/**
+	 * Advances to the value of the member returned by {@link #nextName()}. If the value is an object
+	 * or an array, the caller either consumes its contents with {@link #nextName()} or
+	 * {@link #nextArrayElement()}, or reads it with {@link #readValue()}.
+	 */
+	public ValueType nextValue() {
+		try {
+			return toValueType(myParser.nextToken());
+		} catch (IOException e) {
+			throw newParseException(e);
+		}
+	}
+
+	/**
+	 * Advances to the next element of the current array.
+	 *
+	 * @return The type of the element, or <code>null</code> if the end of the current array was reached
+	 */
+	public ValueType nextArrayElement() {
+		try {
+			JsonToken token = myParser.nextToken();
+			if (token == JsonToken.END_ARRAY) {
+				return null;
+			}
+			return toValueType(token);
+		} catch (IOException e) {
+			throw newParseException(e);
+		}
+	}
+
+	/**
+	 * Reads the value the stream is positioned at, including all of its contents if it is an
+	 * object or an array, into a buffered tree
+	 */
+	public BaseJsonLikeValue readValue() {
+		try {
+			return readValue(myParser, myParser.currentToken());
+		} catch (IOException e) {
+			throw newParseException(e);
+		}
+	}
+
+	/**
+	 * Reads the remaining members of the current object into a buffered tree.
+	 *
+	 * @param theCurrentName The name of the member whose value the stream is positioned at (i.e. the
+	 *                       last name returned by {@link #nextName()} if {@link #nextValue()} has been
+	 *                       called since), or <code>null</code> if {@link #nextName()} has just returned
+	 *                       <code>null</code>
+	 */
+	public CompactJsonObject readRemainingMembers(String theCurrentName) {
+		try {
+			CompactJsonObject retVal = new CompactJsonObject();
+			if (theCurrentName != null) {
+				retVal.put(theCurrentName, readValue(myParser, myParser.currentToken()));
+			} else if (myParser.currentToken() == JsonToken.END_OBJECT) {
+				return retVal;
+			}
+			readMembers(myParser, retVal);
+			return retVal;
+		} catch (IOException e) {
+			throw newParseException(e);
+		}
+	}
+
+	/**
+	 * Reads the remaining elements of the current array into a buffered tree.
+	 *
+	 * @param theCurrent The type returned by the last call to {@link #nextArrayElement()}, which is
+	 *                   read as the first element, or <code>null</code> if the array is empty
+	 */
+	public BaseJsonLikeArray readRemainingElements(ValueType theCurrent) {
+		try {
+			CompactJsonArray retVal = new CompactJsonArray();
+			if (theCurrent != null) {
+				retVal.myElements.add(readValue(myParser, myParser.currentToken()));
+				readElements(myParser, retVal);
+			}
+			return retVal;
+		} catch (IOException e) {
+			throw newParseException(e);
+		}
+	}
+
+	/**
+	 * Verifies that nothing follows the root object, and releases the underlying parser
+	 */
+	public void finish() {
+		try {
+			JsonToken trailing = myParser.nextToken();
+			if (trailing != null) {
+				throw new JsonParseException(
+						myParser,
+						"Trailing token (of type " + trailing + ") found after value (bound as FHIR content)");
+			}
+			myParser.close();
+		} catch (IOException e) {
+			throw newParseException(e);
+		}
+	}
+
+	private ValueType toValueType(JsonToken theToken) throws IOException {
+		if (theToken == null) {
+			throw new JsonParseException(myParser, "Unexpected end-of-input");
+		}
+		switch (theToken) {
+			case START_OBJECT:
+				return ValueType.OBJECT;
+			case START_ARRAY:
+				return ValueType.ARRAY;
+			case VALUE_NULL:
+				return ValueType.NULL;
+			default:
+				return ValueType.SCALAR;
+		}
+	}
+
+	private static BaseJsonLikeValue readValue(JsonParser theParser, JsonToken theToken) throws IOException {
+		if (theToken == null) {
+			throw new JsonParseException(theParser, "Unexpected end-of-input");
+		}
+		switch (theToken) {
+			case START_OBJECT:
+				CompactJsonObject object = new CompactJsonObject();
+				readMembers(theParser, object);
+				return object;
+			case START_ARRAY:
+				CompactJsonArray array = new CompactJsonArray();
+				readElements(theParser, array);
+				return array;
+			case VALUE_STRING:
+				return new CompactJsonScalar(theParser.getText(), ScalarType.STRING);
+			case VALUE_NUMBER_INT:
+				return new CompactJsonScalar(theParser.getNumberValue(), ScalarType.NUMBER);
+			case VALUE_NUMBER_FLOAT:
+				return new CompactJsonScalar(theParser.getDecimalValue(), ScalarType.NUMBER);
+			case VALUE_TRUE:
+				return TRUE_VALUE;
+			case VALUE_FALSE:
+				return FALSE_VALUE;
+			case VALUE_NULL:
+				return BaseJsonLikeValue.NULL;
+			default:
+				throw new JsonParseException(theParser, "Unexpected token: " + theToken);
+		}
+	}
+
+	private static void readMembers(JsonParser theParser, CompactJsonObject theObject) throws IOException {
+		for (JsonToken token = theParser.nextToken(); token != JsonToken.END_OBJECT; token = theParser.nextToken()) {
+			if (token != JsonToken.FIELD_NAME) {
+				throw new JsonParseException(theParser, "Expected a field name but found: " + token);
+			}
+			String name = theParser.currentName();
+			theObject.put(name, readValue(theParser, theParser.nextToken()));
+		}
+	}
+
+	private static void readElements(JsonParser theParser, CompactJsonArray theArray) throws IOException {
+		for (JsonToken token = theParser.nextToken(); token != JsonToken.END_ARRAY; token = theParser.nextToken()) {
+			theArray.myElements.add(readValue(theParser, token));
+		}
+	}
+
+	/**
+	 * A buffered JSON object read from the stream
+	 */
+	public static class CompactJsonObject extends BaseJsonLikeObject {
+		private final Map<String, BaseJsonLikeValue> myMembers = new LinkedHashMap<>();
+
+		public void put(String theName, BaseJsonLikeValue theValue) {
+			myMembers.put(theName, theValue);
+		}
+
+		public BaseJsonLikeValue remove(String theName) {
+			return myMembers.remove(theName);
+		}
+
+		public boolean isEmpty() {
+			return myMembers.isEmpty();
+		}
+
+		@Override
+		public Object getValue() {
+			return null;
+		}
+
+		@Override
+		public Iterator<String> keyIterator() {
+			return myMembers.keySet().iterator();
+		}
+
+		@Override
+		public BaseJsonLikeValue get(String key) {
+			return myMembers.get(key);
+		}
+	}
+
+	private static class CompactJsonArray extends BaseJsonLikeArray {
+		private final List<BaseJsonLikeValue> myElements = new ArrayList<>();
+
+		@Override
+		public Object getValue() {
+			return null;
+		}
+
+		@Override
+		public int size() {
+			return myElements.size();
+		}
+
+		@Override
+		public BaseJsonLikeValue get(int index) {
+			if (index < 0 || index >= myElements.size()) {
+				return null;
+			}
+			return myElements.get(index);
+		}
+	}
+
+	private static class CompactJsonScalar extends BaseJsonLikeValue {
+		private final Object myValue;
+		private final ScalarType myScalarType;
+
+		CompactJsonScalar(Object theValue, ScalarType theScalarType) {
+			myValue = theValue;
+			myScalarType = theScalarType;
+		}
+
+		@Override
+		public ValueType getJsonType() {
+			return ValueType.SCALAR;
+		}
+
+		@Override
+		public ScalarType getDataType() {
+			return myScalarType;
+		}
+
+		@Override
+		public Object getValue() {
+			return myValue;
+		}
+
+		@Override
+		public Number getAsNumber() {
+			return myValue instanceof Number ? (Number) myValue : null;
+		}
+
+		@Override
+		public boolean getAsBoolean() {
+			if (myValue instanceof Boolean) {
+				return (Boolean) myValue;
+			}
+			return super.getAsBoolean();
+		}
+
+		@Override
+		public String getAsString() {
+			if (myValue instanceof BigDecimal) {
+				return ((BigDecimal) myValue).toPlainString();
+			}
+			return myValue.toString();
+		}
+
+		@Override
+		public String toString() {
+			return getAsString();
+		}
+	}
+}
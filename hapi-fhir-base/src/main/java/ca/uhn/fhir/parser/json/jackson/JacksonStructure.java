@@ -26,6 +26,7 @@ import ca.uhn.fhir.parser.json.BaseJsonLikeObject;
 import ca.uhn.fhir.parser.json.BaseJsonLikeValue;
 import ca.uhn.fhir.parser.json.BaseJsonLikeWriter;
 import ca.uhn.fhir.parser.json.JsonLikeStructure;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -41,6 +42,7 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PushbackReader;
 import java.io.Reader;
 import java.io.Writer;
@@ -110,44 +112,63 @@ public class JacksonStructure implements JsonLikeStructure {
 						+ (char) nextInt + "' (must be '{')");
 			}
 
-			if (nextInt == '{') {
-				setNativeObject((ObjectNode) OBJECT_MAPPER.readTree(pbr));
-			} else {
-				setNativeArray((ArrayNode) OBJECT_MAPPER.readTree(pbr));
-			}
+			loadNative(pbr, nextInt == '{');
 		} catch (Exception e) {
-			String message;
-			if (e instanceof JsonProcessingException) {
-				/*
-				 * Currently there is no way of preventing Jackson from adding this
-				 * annoying REDACTED message from certain messages we get back from
-				 * the parser, so we just manually strip them. Hopefully Jackson
-				 * will accept this request at some point:
-				 * https://github.com/FasterXML/jackson-core/issues/1158
-				 */
-				JsonProcessingException jpe = (JsonProcessingException) e;
-				StringBuilder messageBuilder = new StringBuilder();
-				String originalMessage = jpe.getOriginalMessage();
-				originalMessage = originalMessage.replace(
-						"Source: REDACTED (`StreamReadFeature.INCLUDE_SOURCE_IN_LOCATION` disabled); ", "");
-				messageBuilder.append(originalMessage);
-				if (jpe.getLocation() != null) {
-					messageBuilder.append("\n at [");
-					jpe.getLocation().appendOffsetDescription(messageBuilder);
-					messageBuilder.append("]");
-				}
-				message = messageBuilder.toString();
-			} else {
-				message = e.getMessage();
-			}
+			throw newParseException(e);
+		}
+	}
 
-			if (message.startsWith("Unexpected char 39")) {
-				throw new DataFormatException(
-						Msg.code(1860) + "Failed to parse JSON encoded FHIR content: " + message + " - "
-								+ "This may indicate that single quotes are being used as JSON escapes where double quotes are required",
-						e);
+	/**
+	 * Creates the exception thrown when the JSON content can not be read
+	 */
+	static DataFormatException newParseException(Exception theException) {
+		String message;
+		if (theException instanceof JsonProcessingException) {
+			/*
+			 * Currently there is no way of preventing Jackson from adding this
+			 * annoying REDACTED message from certain messages we get back from
+			 * the parser, so we just manually strip them. Hopefully Jackson
+			 * will accept this request at some point:
+			 * https://github.com/FasterXML/jackson-core/issues/1158
+			 */
+			JsonProcessingException jpe = (JsonProcessingException) theException;
+			StringBuilder messageBuilder = new StringBuilder();
+			String originalMessage = jpe.getOriginalMessage();
+			originalMessage = originalMessage.replace(
+					"Source: REDACTED (`StreamReadFeature.INCLUDE_SOURCE_IN_LOCATION` disabled); ", "");
+			messageBuilder.append(originalMessage);
+			if (jpe.getLocation() != null) {
+				messageBuilder.append("\n at [");
+				jpe.getLocation().appendOffsetDescription(messageBuilder);
+				messageBuilder.append("]");
 			}
-			throw new DataFormatException(Msg.code(1861) + "Failed to parse JSON encoded FHIR content: " + message, e);
+			message = messageBuilder.toString();
+		} else {
+			message = theException.getMessage();
+		}
+
+		if (message.startsWith("Unexpected char 39")) {
+			return new DataFormatException(
+					Msg.code(1860) + "Failed to parse JSON encoded FHIR content: " + message + " - "
+							+ "This may indicate that single quotes are being used as JSON escapes where double quotes are required",
+					theException);
+		}
+		return new DataFormatException(
+				Msg.code(1861) + "Failed to parse JSON encoded FHIR content: " + message, theException);
+	}
+
+	/**
+	 * Reads the actual JSON content once the first character has been validated. Subclasses
+	 * may override this in order to build a different in-memory representation of the document.
+	 *
+	 * @param theReader The reader, positioned at the opening <code>{</code> or <code>[</code>
+	 * @param theObject <code>true</code> if the root is an object, <code>false</code> if it is an array
+	 */
+	protected void loadNative(Reader theReader, boolean theObject) throws IOException {
+		if (theObject) {
+			setNativeObject((ObjectNode) OBJECT_MAPPER.readTree(theReader));
+		} else {
+			setNativeArray((ArrayNode) OBJECT_MAPPER.readTree(theReader));
 		}
 	}
 
@@ -160,6 +181,21 @@ public class JacksonStructure implements JsonLikeStructure {
 		return jacksonWriter;
 	}
 
+	/**
+	 * Returns a writer which encodes to the given stream as UTF-8. Jackson's
+	 * UTF-8 generator writes bytes straight into a recycled buffer, so no
+	 * intermediate character data is created.
+	 *
+	 * @since 8.4.0
+	 */
+	public BaseJsonLikeWriter getJsonLikeWriter(OutputStream theOutputStream) throws IOException {
+		if (null == jacksonWriter) {
+			jacksonWriter = new JacksonWriter(OBJECT_MAPPER.getFactory(), theOutputStream);
+		}
+
+		return jacksonWriter;
+	}
+
 	@Override
 	public BaseJsonLikeWriter getJsonLikeWriter() {
 		if (null == jacksonWriter) {
@@ -406,6 +442,14 @@ public class JacksonStructure implements JsonLikeStructure {
 		}
 	}
 
+	/**
+	 * Returns the shared Jackson factory, which is configured with the same read
+	 * features as the tree-based parser.
+	 */
+	static JsonFactory getJsonFactory() {
+		return OBJECT_MAPPER.getFactory();
+	}
+
 	private static ObjectMapper createObjectMapper() {
 		ObjectMapper retVal = JsonMapper.builder()
 				.enable(JsonReadFeature.ALLOW_LEADING_PLUS_SIGN_FOR_NUMBERS)
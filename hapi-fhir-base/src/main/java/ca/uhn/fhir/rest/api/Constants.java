@@ -209,6 +209,15 @@ public class Constants {
 	public static final String PARAM_REVINCLUDE_RECURSE = PARAM_REVINCLUDE + PARAM_INCLUDE_QUALIFIER_RECURSE;
 	public static final String PARAM_REVINCLUDE_ITERATE = PARAM_REVINCLUDE + PARAM_INCLUDE_QUALIFIER_ITERATE;
 	public static final String PARAM_SEARCH = "_search";
+	/**
+	 * Opaque keyset (seek) pagination token added to <code>_offset</code> paging links by servers
+	 * which support it. It identifies the last row of the previous page so that the next page can
+	 * be fetched without the database scanning and discarding every earlier row.
+	 *
+	 * @since 8.4.0
+	 */
+	public static final String PARAM_SEARCH_AFTER = "_searchAfter";
+
 	public static final String PARAM_SECURITY = "_security";
 	public static final String PARAM_SINCE = "_since";
 	public static final String PARAM_SORT = "_sort";
@@ -0,0 +1,294 @@
+/*-
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.util;
+
+import ca.uhn.fhir.context.BaseRuntimeChildDefinition;
+import ca.uhn.fhir.context.BaseRuntimeElementCompositeDefinition;
+import ca.uhn.fhir.context.BaseRuntimeElementDefinition;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.FhirVersionEnum;
+import ca.uhn.fhir.context.RuntimeChildChoiceDefinition;
+import ca.uhn.fhir.model.api.ExtensionDt;
+import ca.uhn.fhir.model.api.ISupportsUndeclaredExtensions;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.Validate;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.instance.model.api.IBaseExtension;
+import org.hl7.fhir.instance.model.api.IBaseHasExtensions;
+import org.hl7.fhir.instance.model.api.IBaseHasModifierExtensions;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link FhirTerser} path which has been tokenized and resolved against the model
+ * definitions once, so that it can be evaluated repeatedly without any string processing.
+ * Instances are immutable and thread safe, and are obtained using
+ * {@link FhirTerser#compilePath(Class, String)} which caches them per {@link FhirContext}.
+ * <p>
+ * A compiled path supports the same syntax as {@link FhirTerser#getValues(IBase, String)},
+ * including choice elements (e.g. <code>Observation.valueQuantity</code>) and
+ * <code>extension('url')</code> / <code>modifierExtension('url')</code> segments. Compiled
+ * paths are read-only: they never create missing elements.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ * <pre>
+ * private static final CompiledTerserPath CODE_PATH =
+ *       myFhirContext.newTerser().compilePath(Observation.class, "Observation.code.coding.code");
+ * ...
+ * List&lt;IPrimitiveType&gt; codes = CODE_PATH.getValues(observation, IPrimitiveType.class);
+ * </pre>
+ *
+ * @since 8.4.0
+ */
+public final class CompiledTerserPath {
+
+	private final FhirContext myContext;
+	private final String myPath;
+	private final Step[] mySteps;
+
+	CompiledTerserPath(
+			@Nonnull FhirContext theContext,
+			@Nonnull BaseRuntimeElementCompositeDefinition<?> theRootDefinition,
+			@Nonnull String thePath) {
+		myContext = theContext;
+		myPath = thePath;
+
+		List<String> parts = FhirTerser.parsePath(theRootDefinition, thePath);
+		mySteps = new Step[parts.size()];
+		for (int i = 0; i < parts.size(); i++) {
+			mySteps[i] = new Step(parts.get(i));
+		}
+
+		/*
+		 * Resolve as much of the path as possible up front. This validates the path (so that
+		 * an invalid path fails when it is compiled instead of when it is first used) and
+		 * pre-populates the per-type child lookups. Resolution stops at the first segment
+		 * whose type can only be known at runtime (extensions, resources, and [x] choices).
+		 */
+		BaseRuntimeElementCompositeDefinition<?> currentDef = theRootDefinition;
+		for (Step nextStep : mySteps) {
+			if (currentDef == null || nextStep.myExtensionUrl != null) {
+				break;
+			}
+			BaseRuntimeChildDefinition childDef = nextStep.resolveChild(currentDef);
+			BaseRuntimeElementDefinition<?> childElementDef = childDef.getChildByName(nextStep.myName);
+			currentDef = null;
+			if (!nextStep.myName.endsWith("[x]")
+					&& childElementDef instanceof BaseRuntimeElementCompositeDefinition<?> compositeDef
+					&& childElementDef.getChildType() != BaseRuntimeElementDefinition.ChildTypeEnum.RESOURCE) {
+				currentDef = compositeDef;
+			}
+		}
+	}
+
+	/**
+	 * Returns the path string this accessor was compiled from
+	 */
+	public String getPath() {
+		return myPath;
+	}
+
+	/**
+	 * Returns all values found at this path within the given element.
+	 *
+	 * @see FhirTerser#getValues(IBase, String)
+	 */
+	public List<IBase> getValues(@Nonnull IBase theElement) {
+		return getValues(theElement, IBase.class);
+	}
+
+	/**
+	 * Returns all values found at this path within the given element which are
+	 * instances of <code>theWantedClass</code>.
+	 *
+	 * @see FhirTerser#getValues(IBase, String, Class)
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends IBase> List<T> getValues(@Nonnull IBase theElement, @Nonnull Class<T> theWantedClass) {
+		Validate.notNull(theElement, "theElement must not be null");
+		if (mySteps.length == 0) {
+			return Collections.emptyList();
+		}
+
+		List<IBase> current = Collections.singletonList(theElement);
+		for (Step nextStep : mySteps) {
+			List<IBase> next = new ArrayList<>();
+			for (IBase nextElement : current) {
+				nextStep.collect(nextElement, next);
+			}
+			if (next.isEmpty()) {
+				return Collections.emptyList();
+			}
+			current = next;
+		}
+
+		List<T> retVal = new ArrayList<>(current.size());
+		for (IBase next : current) {
+			if (theWantedClass.isAssignableFrom(next.getClass())) {
+				retVal.add((T) next);
+			}
+		}
+		return retVal;
+	}
+
+	/**
+	 * Returns the first value found at this path which is an instance of <code>theWantedClass</code>,
+	 * if any.
+	 */
+	public <T extends IBase> Optional<T> getSingleValue(@Nonnull IBase theElement, @Nonnull Class<T> theWantedClass) {
+		List<T> values = getValues(theElement, theWantedClass);
+		if (values.isEmpty()) {
+			return Optional.empty();
+		}
+		return Optional.of(values.get(0));
+	}
+
+	/**
+	 * Returns the string value of the first primitive found at this path, or <code>null</code>
+	 *
+	 * @see FhirTerser#getSinglePrimitiveValueOrNull(IBase, String)
+	 */
+	@Nullable
+	public String getSinglePrimitiveValueOrNull(@Nonnull IBase theElement) {
+		return getSingleValue(theElement, IPrimitiveType.class)
+				.map(IPrimitiveType::getValueAsString)
+				.orElse(null);
+	}
+
+	@Override
+	public String toString() {
+		return myPath;
+	}
+
+	private class Step {
+
+		private final String myName;
+		private final String myExtensionUrl;
+		private final boolean myModifierExtension;
+		private final Map<Class<?>, BaseRuntimeChildDefinition> myChildDefinitionByParentType =
+				new ConcurrentHashMap<>();
+
+		private Step(String theName) {
+			myName = theName;
+
+			String extensionUrl = null;
+			boolean modifier = false;
+			if (theName.startsWith("extension('")) {
+				extensionUrl = extractUrl(theName, "extension('");
+			} else if (theName.startsWith("modifierExtension('")) {
+				extensionUrl = extractUrl(theName, "modifierExtension('");
+				modifier = true;
+			}
+			myExtensionUrl = extensionUrl;
+			myModifierExtension = modifier;
+		}
+
+		private BaseRuntimeChildDefinition resolveChild(BaseRuntimeElementCompositeDefinition<?> theParentDef) {
+			BaseRuntimeChildDefinition retVal = myChildDefinitionByParentType.get(theParentDef.getImplementingClass());
+			if (retVal == null) {
+				retVal = theParentDef.getChildByNameOrThrowDataFormatException(myName);
+				myChildDefinitionByParentType.put(theParentDef.getImplementingClass(), retVal);
+			}
+			return retVal;
+		}
+
+		private void collect(IBase theElement, List<IBase> theTarget) {
+			if (myExtensionUrl != null) {
+				collectExtensions(theElement, theTarget);
+				return;
+			}
+
+			BaseRuntimeChildDefinition childDef = myChildDefinitionByParentType.get(theElement.getClass());
+			if (childDef == null) {
+				BaseRuntimeElementDefinition<?> elementDef = myContext.getElementDefinition(theElement.getClass());
+				if (!(elementDef instanceof BaseRuntimeElementCompositeDefinition<?> compositeDef)) {
+					// A primitive was reached before the end of the path, so there is nothing to find
+					return;
+				}
+				childDef = resolveChild(compositeDef);
+			}
+
+			boolean filterChoice = childDef instanceof RuntimeChildChoiceDefinition && !myName.endsWith("[x]");
+			for (IBase next : childDef.getAccessor().getValues(theElement)) {
+				if (next == null) {
+					continue;
+				}
+				if (filterChoice && !myName.equals(childDef.getChildNameByDatatype(next.getClass()))) {
+					continue;
+				}
+				theTarget.add(next);
+			}
+		}
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private void collectExtensions(IBase theElement, List<IBase> theTarget) {
+			if (myContext.getVersion().getVersion().isOlderThan(FhirVersionEnum.DSTU3)) {
+				if (theElement instanceof ISupportsUndeclaredExtensions) {
+					ISupportsUndeclaredExtensions element = (ISupportsUndeclaredExtensions) theElement;
+					List<ExtensionDt> extensions = myModifierExtension
+							? element.getUndeclaredModifierExtensions()
+							: element.getUndeclaredExtensions();
+					for (ExtensionDt next : extensions) {
+						if (myExtensionUrl.equals(next.getUrl())) {
+							theTarget.add(next);
+						}
+					}
+				} else if (theElement instanceof IBaseExtension) {
+					theTarget.addAll(((IBaseExtension) theElement).getExtension());
+				}
+				return;
+			}
+
+			List<? extends IBaseExtension<?, ?>> extensions = null;
+			if (myModifierExtension) {
+				if (theElement instanceof IBaseHasModifierExtensions) {
+					extensions = ((IBaseHasModifierExtensions) theElement).getModifierExtension();
+				}
+			} else if (theElement instanceof IBaseHasExtensions) {
+				extensions = ((IBaseHasExtensions) theElement).getExtension();
+			}
+			if (extensions != null) {
+				for (IBaseExtension<?, ?> next : extensions) {
+					if (myExtensionUrl.equals(next.getUrl())) {
+						theTarget.add(next);
+					}
+				}
+			}
+		}
+
+		private String extractUrl(String theName, String thePrefix) {
+			String retVal = theName.substring(thePrefix.length());
+			int endIndex = retVal.indexOf('\'');
+			if (endIndex != -1) {
+				retVal = retVal.substring(0, endIndex);
+			}
+			return retVal;
+		}
+	}
+}
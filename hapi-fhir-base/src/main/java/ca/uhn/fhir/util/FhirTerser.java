@@ -722,6 +722,27 @@ public class FhirTerser {
 		return retVal;
 	}
 
+	/**
+	 * Compiles a path (using the same syntax as {@link #getValues(IBase, String)}) into a reusable
+	 * accessor for elements of the given type. The path is tokenized and resolved against the
+	 * model definitions only once, so this should be preferred over {@link #getValues(IBase, String)}
+	 * for paths which are evaluated repeatedly. Compiled paths are cached by the {@link FhirContext},
+	 * so calling this method repeatedly with the same arguments returns the same instance.
+	 *
+	 * @param theType The element or resource type the path starts from, e.g. <code>Patient.class</code>
+	 * @param thePath The path, e.g. <code>Patient.name.family</code>
+	 * @since 8.4.0
+	 */
+	public CompiledTerserPath compilePath(Class<? extends IBase> theType, String thePath) {
+		Validate.notNull(theType, "theType must not be null");
+		Validate.notBlank(thePath, "thePath must not be blank");
+		return myContext.getCompiledTerserPath(theType, thePath, () -> {
+			BaseRuntimeElementCompositeDefinition<?> def =
+					(BaseRuntimeElementCompositeDefinition<?>) myContext.getElementDefinition(theType);
+			return new CompiledTerserPath(myContext, def, thePath);
+		});
+	}
+
 	/**
 	 * Returns values stored in an element identified by its path. The list of values is of
 	 * type {@link Object}.
@@ -823,7 +844,7 @@ public class FhirTerser {
 		return getValues(def, theElement, parts, theWantedClass, theCreate, theAddExtension);
 	}
 
-	private List<String> parsePath(BaseRuntimeElementCompositeDefinition<?> theElementDef, String thePath) {
+	static List<String> parsePath(BaseRuntimeElementCompositeDefinition<?> theElementDef, String thePath) {
 		List<String> parts = new ArrayList<>();
 
 		int currentStart = 0;
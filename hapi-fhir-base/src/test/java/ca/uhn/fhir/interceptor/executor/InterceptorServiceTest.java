@@ -18,6 +18,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Supplier;
@@ -29,6 +30,7 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -70,6 +72,83 @@ class InterceptorServiceTest {
 
 	}
 
+	@Test
+	void testInterceptorThrowsCheckedException() {
+
+		class InterceptorThrowingCheckedException {
+			@Hook(Pointcut.TEST_RB)
+			public void test(String theValue, Pointcut thePointcut) throws Exception {
+				throw new Exception(theValue + " " + thePointcut.name());
+			}
+		}
+
+		InterceptorService svc = new InterceptorService();
+		svc.registerInterceptor(new InterceptorThrowingCheckedException());
+
+		assertThatThrownBy(() -> svc.callHooks(Pointcut.TEST_RB, new HookParams("A MESSAGE", "B")))
+			.isInstanceOf(InternalErrorException.class)
+			.hasMessageContaining(Msg.code(1910))
+			.cause()
+			.hasMessage("A MESSAGE TEST_RB");
+	}
+
+	@Test
+	void testInterceptorThrowsClassCastException() {
+
+		class InterceptorThrowingClassCastException {
+			@Hook(Pointcut.TEST_RB)
+			public boolean test(String theValue) {
+				throw new ClassCastException(theValue);
+			}
+		}
+
+		InterceptorService svc = new InterceptorService();
+		svc.registerInterceptor(new InterceptorThrowingClassCastException());
+
+		assertThatThrownBy(() -> svc.callHooks(Pointcut.TEST_RB, new HookParams("A MESSAGE", "B")))
+			.isExactlyInstanceOf(ClassCastException.class)
+			.hasMessage("A MESSAGE");
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	@Test
+	void testInterceptorCalledWithMismatchedArgument() {
+
+		class InterceptorWithStringParameter {
+			@Hook(Pointcut.TEST_RB)
+			public void test(String theValue) {
+				fail();
+			}
+		}
+
+		InterceptorService svc = new InterceptorService();
+		svc.registerInterceptor(new InterceptorWithStringParameter());
+
+		// callHooks asserts the param types, so call the invoker directly
+		HookParams params = new HookParams().add((Class) String.class, 123).add(String.class, "B");
+		IBaseInterceptorBroadcaster.IInvoker invoker = svc.getInvokersForPointcut(Pointcut.TEST_RB).get(0);
+		assertThatThrownBy(() -> invoker.invoke(params))
+			.isInstanceOf(InternalErrorException.class)
+			.hasMessageContaining(Msg.code(1911));
+	}
+
+	@Test
+	void testHookFunctionGeneratedForLocalClass() throws Throwable {
+
+		class LocalInterceptor {
+			@Hook(Pointcut.TEST_RB)
+			public boolean test(String theValue, Pointcut thePointcut) {
+				return theValue.equals(thePointcut.name());
+			}
+		}
+
+		Method method = LocalInterceptor.class.getMethod("test", String.class, Pointcut.class);
+		HookFunctions.IHookFunction function = HookFunctions.create(new LocalInterceptor(), method);
+		assertNotNull(function);
+		assertEquals(true, function.call(new Object[] {"TEST_RB", Pointcut.TEST_RB}));
+		assertEquals(false, function.call(new Object[] {"FOO", Pointcut.TEST_RB}));
+	}
+
 	@Test
 	void testInterceptorReturnsClass() {
 
@@ -0,0 +1,148 @@
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files (typically a baseline produced by {@link BenchmarkRunner}
+ * for a previous release, and a run against the current build) and prints the relative change
+ * of every benchmark present in both files.
+ * <p>
+ * Usage: <code>BaselineComparison [baseline.json] [current.json] [threshold percent, default 10]</code>
+ * </p>
+ * <p>
+ * Whether a change is a regression depends on the benchmark mode recorded in the results: for
+ * throughput (<code>thrpt</code>) a lower score is worse, and for the time based modes
+ * (<code>avgt</code>, <code>sample</code> and <code>ss</code>) a higher score is worse. The
+ * process exits with status 1 if any benchmark regressed by more than the threshold, which
+ * makes it suitable for use in a CI job.
+ * </p>
+ */
+public class BaselineComparison {
+
+	private static final ObjectMapper ourObjectMapper = new ObjectMapper();
+	private static final String MODE_THROUGHPUT = "thrpt";
+
+	public static void main(String[] theArgs) throws IOException {
+		if (theArgs.length < 2) {
+			System.err.println("Usage: BaselineComparison [baseline.json] [current.json] [threshold percent]");
+			System.exit(2);
+		}
+
+		double threshold = theArgs.length > 2 ? Double.parseDouble(theArgs[2]) : 10.0;
+		Map<String, Score> baseline = loadScores(new File(theArgs[0]));
+		Map<String, Score> current = loadScores(new File(theArgs[1]));
+
+		int regressions = 0;
+		System.out.println(
+				String.format("%-90s %14s %14s %-8s %9s", "Benchmark", "Baseline", "Current", "Unit", "Change"));
+		for (Map.Entry<String, Score> next : current.entrySet()) {
+			Score baselineScore = baseline.get(next.getKey());
+			if (baselineScore == null) {
+				System.out.println(String.format(
+						"%-90s %14s %14.3f %-8s %9s",
+						next.getKey(),
+						"-",
+						next.getValue().myScore,
+						next.getValue().myUnit,
+						"new"));
+				continue;
+			}
+
+			double change = ((next.getValue().myScore - baselineScore.myScore) / baselineScore.myScore) * 100.0;
+			boolean regressed = isRegression(next.getValue().myMode, change, threshold);
+			if (regressed) {
+				regressions++;
+			}
+			System.out.println(String.format(
+					"%-90s %14.3f %14.3f %-8s %+8.1f%%%s",
+					next.getKey(),
+					baselineScore.myScore,
+					next.getValue().myScore,
+					next.getValue().myUnit,
+					change,
+					regressed ? "  <-- REGRESSION" : ""));
+		}
+
+		if (regressions > 0) {
+			System.out.println(regressions + " benchmark(s) regressed by more than " + threshold + "%");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * @param theChange The relative change from the baseline score to the current score, in percent
+	 */
+	static boolean isRegression(String theMode, double theChange, double theThreshold) {
+		if (MODE_THROUGHPUT.equals(theMode)) {
+			return theChange < -theThreshold;
+		}
+		return theChange > theThreshold;
+	}
+
+	static Map<String, Score> loadScores(File theFile) throws IOException {
+		Map<String, Score> retVal = new TreeMap<>();
+		JsonNode results = ourObjectMapper.readTree(theFile);
+		for (JsonNode nextResult : results) {
+			String mode = nextResult.get("mode").asText();
+			StringBuilder key = new StringBuilder(nextResult.get("benchmark").asText());
+			JsonNode params = nextResult.get("params");
+			if (params != null) {
+				Map<String, String> sortedParams = new TreeMap<>();
+				for (Iterator<String> iter = params.fieldNames(); iter.hasNext(); ) {
+					String nextName = iter.next();
+					sortedParams.put(nextName, params.get(nextName).asText());
+				}
+				key.append(sortedParams);
+			}
+			// The same benchmark may be run in more than one mode
+			key.append(':').append(mode);
+
+			JsonNode primaryMetric = nextResult.get("primaryMetric");
+			retVal.put(
+					key.toString(),
+					new Score(
+							primaryMetric.get("score").asDouble(),
+							primaryMetric.get("scoreUnit").asText(),
+							mode));
+		}
+		return retVal;
+	}
+
+	static class Score {
+		private final double myScore;
+		private final String myUnit;
+		private final String myMode;
+
+		Score(double theScore, String theUnit, String theMode) {
+			myScore = theScore;
+			myUnit = theUnit;
+			myMode = theMode;
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.benchmark;
+
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.ContactPoint;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.HumanName;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.Reference;
+
+import java.util.Date;
+
+/**
+ * Builds the R4 resources used by the benchmarks. Payloads are generated
+ * deterministically so that results from different releases are comparable.
+ */
+public final class BenchmarkPayloads {
+
+	/**
+	 * Fixed base timestamp so that every run generates identical content
+	 */
+	private static final long BASE_TIME = 1704067200000L;
+
+	private BenchmarkPayloads() {}
+
+	public static Patient createPatient(int theIndex) {
+		Patient retVal = new Patient();
+		retVal.setId("Patient/P" + theIndex);
+		retVal.getMeta().setVersionId("1").setLastUpdated(new Date(BASE_TIME));
+		retVal.getMeta().addProfile("http://hl7.org/fhir/us/core/StructureDefinition/us-core-patient");
+		retVal.addIdentifier(new Identifier().setSystem("http://hospital.example.org/mrn").setValue("MRN" + theIndex));
+		retVal.addIdentifier(new Identifier().setSystem("http://hl7.org/fhir/sid/us-ssn").setValue("999-00-" + theIndex));
+		retVal.setActive(true);
+		retVal.addName(new HumanName()
+				.setUse(HumanName.NameUse.OFFICIAL)
+				.setFamily("Family" + theIndex)
+				.addGiven("Given" + theIndex)
+				.addGiven("Middle"));
+		retVal.setGender(theIndex % 2 == 0 ? Enumerations.AdministrativeGender.FEMALE : Enumerations.AdministrativeGender.MALE);
+		retVal.getBirthDateElement().setValueAsString("1970-01-" + String.format("%02d", (theIndex % 28) + 1));
+		retVal.addAddress()
+				.addLine(theIndex + " Main Street")
+				.setCity("Toronto")
+				.setState("ON")
+				.setPostalCode("M5V 2T6")
+				.setCountry("CA");
+		retVal.addTelecom().setSystem(ContactPoint.ContactPointSystem.PHONE).setValue("555-0100");
+		retVal.addExtension()
+				.setUrl("http://hl7.org/fhir/us/core/StructureDefinition/us-core-birthsex")
+				.setValue(new CodeType("F"));
+		return retVal;
+	}
+
+	public static Observation createObservation(int theIndex, String thePatientId) {
+		Observation retVal = new Observation();
+		retVal.setId("Observation/O" + theIndex);
+		retVal.getMeta().setVersionId("1").setLastUpdated(new Date(BASE_TIME + theIndex));
+		retVal.setStatus(Observation.ObservationStatus.FINAL);
+		retVal.addCategory(new CodeableConcept()
+				.addCoding(new Coding(
+						"http://terminology.hl7.org/CodeSystem/observation-category", "vital-signs", "Vital Signs")));
+		retVal.setCode(new CodeableConcept()
+				.addCoding(new Coding("http://loinc.org", "8867-4", "Heart rate"))
+				.setText("Heart rate"));
+		retVal.setSubject(new Reference(thePatientId));
+		retVal.setEffective(new DateTimeType(new Date(BASE_TIME + (theIndex * 60000L))));
+		retVal.setValue(new Quantity()
+				.setValue(60 + (theIndex % 40))
+				.setUnit("beats/minute")
+				.setSystem("http://unitsofmeasure.org")
+				.setCode("/min"));
+		retVal.addInterpretation()
+				.addCoding()
+				.setSystem("http://terminology.hl7.org/CodeSystem/v3-ObservationInterpretation")
+				.setCode("N");
+		return retVal;
+	}
+
+	/**
+	 * Creates a transaction Bundle containing the given number of Observations, all
+	 * referring to a single Patient
+	 */
+	public static Bundle createObservationTransaction(int theCount) {
+		Bundle retVal = new Bundle();
+		retVal.setType(Bundle.BundleType.TRANSACTION);
+		Patient patient = createPatient(0);
+		retVal.addEntry()
+				.setFullUrl(patient.getIdElement().getValue())
+				.setResource(patient)
+				.getRequest()
+				.setMethod(Bundle.HTTPVerb.PUT)
+				.setUrl(patient.getIdElement().getValue());
+		for (int i = 0; i < theCount; i++) {
+			Observation obs = createObservation(i, patient.getIdElement().getValue());
+			retVal.addEntry()
+					.setFullUrl(obs.getIdElement().getValue())
+					.setResource(obs)
+					.getRequest()
+					.setMethod(Bundle.HTTPVerb.PUT)
+					.setUrl(obs.getIdElement().getValue());
+		}
+		return retVal;
+	}
+
+	/**
+	 * Creates a searchset Bundle with the given number of Observation matches
+	 */
+	public static Bundle createSearchSet(int theCount) {
+		Bundle retVal = new Bundle();
+		retVal.setType(Bundle.BundleType.SEARCHSET);
+		retVal.setTotal(theCount);
+		retVal.addLink().setRelation("self").setUrl("http://example.com/fhir/Observation?code=8867-4");
+		for (int i = 0; i < theCount; i++) {
+			Observation obs = createObservation(i, "Patient/P" + (i % 100));
+			retVal.addEntry()
+					.setFullUrl("http://example.com/fhir/" + obs.getIdElement().getValue())
+					.setResource(obs)
+					.getSearch()
+					.setMode(Bundle.SearchEntryMode.MATCH);
+		}
+		return retVal;
+	}
+}
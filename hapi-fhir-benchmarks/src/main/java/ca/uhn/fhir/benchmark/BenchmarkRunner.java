@@ -0,0 +1,68 @@
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.util.VersionUtil;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Entry point for the benchmarks jar. Accepts the standard JMH command line options and,
+ * unless a result file is explicitly requested, writes the results in JMH JSON format to
+ * <code>jmh-results/hapi-fhir-[version].json</code>. These files are the baseline format:
+ * keep the file produced for a release and compare a later run against it using
+ * {@link BaselineComparison}.
+ * <p>
+ * Example:
+ * </p>
+ * <pre>
+ * mvn -P BENCHMARKS -pl hapi-fhir-benchmarks -am package -DskipTests
+ * java -jar hapi-fhir-benchmarks/target/hapi-fhir-benchmarks.jar ParserBenchmark
+ * java -cp hapi-fhir-benchmarks/target/hapi-fhir-benchmarks.jar ca.uhn.fhir.benchmark.BaselineComparison \
+ *      jmh-results/hapi-fhir-8.2.0.json jmh-results/hapi-fhir-8.4.0.json
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+	public static final String RESULTS_DIRECTORY = "jmh-results";
+
+	public static void main(String[] theArgs) throws CommandLineOptionException, RunnerException {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(theArgs);
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+
+		if (!commandLineOptions.getResult().hasValue()) {
+			File resultsDirectory = new File(RESULTS_DIRECTORY);
+			if (!resultsDirectory.exists() && !resultsDirectory.mkdirs()) {
+				throw new IllegalStateException("Unable to create directory: " + resultsDirectory.getAbsolutePath());
+			}
+			File resultFile = new File(resultsDirectory, "hapi-fhir-" + VersionUtil.getVersion() + ".json");
+			options.resultFormat(ResultFormatType.JSON).result(resultFile.getPath());
+		}
+
+		new Runner(options.build()).run();
+	}
+}
@@ -0,0 +1,95 @@
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.interceptor.api.Hook;
+import ca.uhn.fhir.interceptor.api.HookParams;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.interceptor.executor.InterceptorService;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.api.server.storage.TransactionDetails;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatch overhead of {@link InterceptorService#callHooks(Pointcut, HookParams)} with a
+ * varying number of registered interceptors on a storage pointcut.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class InterceptorBenchmark {
+
+	@Param({"1", "12"})
+	public int myInterceptorCount;
+
+	private InterceptorService myInterceptorService;
+	private HookParams myParams;
+
+	@Setup
+	public void setup() {
+		myInterceptorService = new InterceptorService();
+		for (int i = 0; i < myInterceptorCount; i++) {
+			myInterceptorService.registerInterceptor(new PreStorageInterceptor());
+		}
+
+		ServletRequestDetails requestDetails = new ServletRequestDetails();
+		myParams = new HookParams()
+				.add(IBaseResource.class, BenchmarkPayloads.createPatient(0))
+				.add(RequestDetails.class, requestDetails)
+				.addIfMatchesType(ServletRequestDetails.class, requestDetails)
+				.add(TransactionDetails.class, new TransactionDetails())
+				.add(RequestPartitionId.class, RequestPartitionId.defaultPartition());
+	}
+
+	@Benchmark
+	public boolean callHooks() {
+		return myInterceptorService.callHooks(Pointcut.STORAGE_PRESTORAGE_RESOURCE_CREATED, myParams);
+	}
+
+	public static class PreStorageInterceptor {
+
+		private int myInvocationCount;
+
+		@Hook(Pointcut.STORAGE_PRESTORAGE_RESOURCE_CREATED)
+		public void preStorage(IBaseResource theResource, RequestDetails theRequestDetails) {
+			if (theResource != null && theRequestDetails != null) {
+				myInvocationCount++;
+			}
+		}
+	}
+}
@@ -0,0 +1,69 @@
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.FhirVersionEnum;
+import ca.uhn.fhir.context.PerformanceOptionsEnum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start cost of scanning the R4 model with and without
+ * {@link PerformanceOptionsEnum#PARALLEL_MODEL_SCANNING}. Class loading and reflection data
+ * are only cold once per JVM, so each measurement is a single shot in a fresh fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class ModelScanningBenchmark {
+
+	private static final List<String> RESOURCE_TYPES =
+			List.of("Patient", "Observation", "Encounter", "Condition", "Bundle", "OperationOutcome");
+
+	@Param({"false", "true"})
+	public boolean myParallel;
+
+	@Benchmark
+	public FhirContext scanCommonResourceTypes() {
+		FhirContext retVal = new FhirContext(FhirVersionEnum.R4);
+		if (myParallel) {
+			retVal.setPerformanceOptions(PerformanceOptionsEnum.PARALLEL_MODEL_SCANNING);
+		}
+		for (String next : RESOURCE_TYPES) {
+			retVal.getResourceDefinition(next);
+		}
+		return retVal;
+	}
+}
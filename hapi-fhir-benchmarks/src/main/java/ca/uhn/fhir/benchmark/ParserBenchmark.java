@@ -0,0 +1,122 @@
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.ParserOptions;
+import ca.uhn.fhir.parser.IParser;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse and encode throughput of {@link ca.uhn.fhir.parser.JsonParser} and
+ * {@link ca.uhn.fhir.parser.XmlParser} for a single Patient, a transaction
+ * Bundle of Observations, and a 10,000 entry searchset.
+ * <p>
+ * {@link #parseJsonStreaming()} parses with {@link ParserOptions#setStreamingJsonParsing(boolean)}
+ * enabled. Run with <code>-prof gc</code> and compare its <code>gc.alloc.rate.norm</code>
+ * (bytes allocated per parse) and average time against {@link #parseJson()}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ParserBenchmark {
+
+	private static final FhirContext ourCtx = FhirContext.forR4Cached();
+	private static final FhirContext ourStreamingJsonCtx = FhirContext.forR4();
+
+	static {
+		ourStreamingJsonCtx.getParserOptions().setStreamingJsonParsing(true);
+	}
+
+	@Param({"PATIENT", "OBSERVATION_TRANSACTION_500", "SEARCHSET_10000"})
+	public String myPayload;
+
+	private IBaseResource myResource;
+	private String myJson;
+	private String myXml;
+
+	@Setup
+	public void setup() {
+		switch (myPayload) {
+			case "PATIENT":
+				myResource = BenchmarkPayloads.createPatient(0);
+				break;
+			case "OBSERVATION_TRANSACTION_500":
+				myResource = BenchmarkPayloads.createObservationTransaction(500);
+				break;
+			case "SEARCHSET_10000":
+				myResource = BenchmarkPayloads.createSearchSet(10000);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown payload: " + myPayload);
+		}
+		myJson = ourCtx.newJsonParser().encodeResourceToString(myResource);
+		myXml = ourCtx.newXmlParser().encodeResourceToString(myResource);
+	}
+
+	@Benchmark
+	public IBaseResource parseJson() {
+		return ourCtx.newJsonParser().parseResource(myJson);
+	}
+
+	@Benchmark
+	public IBaseResource parseJsonStreaming() {
+		return ourStreamingJsonCtx.newJsonParser().parseResource(myJson);
+	}
+
+	@Benchmark
+	public IBaseResource parseXml() {
+		return ourCtx.newXmlParser().parseResource(myXml);
+	}
+
+	@Benchmark
+	public String encodeJson() {
+		return ourCtx.newJsonParser().encodeResourceToString(myResource);
+	}
+
+	@Benchmark
+	public String encodeXml() {
+		return ourCtx.newXmlParser().encodeResourceToString(myResource);
+	}
+
+	@Benchmark
+	public String encodeJsonPretty() {
+		IParser parser = ourCtx.newJsonParser();
+		parser.setPrettyPrint(true);
+		return parser.encodeResourceToString(myResource);
+	}
+}
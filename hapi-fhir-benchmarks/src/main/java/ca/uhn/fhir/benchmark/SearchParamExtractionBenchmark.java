@@ -0,0 +1,91 @@
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.jpa.model.config.PartitionSettings;
+import ca.uhn.fhir.jpa.model.entity.StorageSettings;
+import ca.uhn.fhir.jpa.searchparam.extractor.ISearchParamExtractor;
+import ca.uhn.fhir.jpa.searchparam.extractor.SearchParamExtractorR4;
+import ca.uhn.fhir.rest.server.util.FhirContextSearchParamRegistry;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index extraction cost of the R4 {@link ca.uhn.fhir.jpa.searchparam.extractor.BaseSearchParamExtractor}
+ * for the built-in search parameters of a Patient and an Observation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SearchParamExtractionBenchmark {
+
+	private static final FhirContext ourCtx = FhirContext.forR4Cached();
+
+	private ISearchParamExtractor myExtractor;
+	private Patient myPatient;
+	private Observation myObservation;
+
+	@Setup
+	public void setup() {
+		FhirContextSearchParamRegistry searchParamRegistry = new FhirContextSearchParamRegistry(ourCtx);
+		myExtractor = new SearchParamExtractorR4(
+				new StorageSettings(), new PartitionSettings(), ourCtx, searchParamRegistry);
+		myPatient = BenchmarkPayloads.createPatient(0);
+		myObservation = BenchmarkPayloads.createObservation(0, "Patient/P0");
+	}
+
+	@Benchmark
+	public void extractPatient(Blackhole theBlackhole) {
+		extractAll(myPatient, theBlackhole);
+	}
+
+	@Benchmark
+	public void extractObservation(Blackhole theBlackhole) {
+		extractAll(myObservation, theBlackhole);
+	}
+
+	private void extractAll(IBaseResource theResource, Blackhole theBlackhole) {
+		theBlackhole.consume(myExtractor.extractSearchParamTokens(theResource));
+		theBlackhole.consume(myExtractor.extractSearchParamStrings(theResource));
+		theBlackhole.consume(myExtractor.extractSearchParamDates(theResource));
+		theBlackhole.consume(myExtractor.extractSearchParamQuantity(theResource));
+		theBlackhole.consume(myExtractor.extractSearchParamNumber(theResource));
+		theBlackhole.consume(myExtractor.extractSearchParamUri(theResource));
+		theBlackhole.consume(myExtractor.extractResourceLinks(theResource, false));
+	}
+}
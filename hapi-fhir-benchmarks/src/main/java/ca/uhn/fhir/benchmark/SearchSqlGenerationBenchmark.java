@@ -0,0 +1,138 @@
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.config.HibernatePropertiesProvider;
+import ca.uhn.fhir.jpa.model.config.PartitionSettings;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.model.entity.StorageSettings;
+import ca.uhn.fhir.jpa.search.builder.predicate.ResourceTablePredicateBuilder;
+import ca.uhn.fhir.jpa.search.builder.sql.GeneratedSql;
+import ca.uhn.fhir.jpa.search.builder.sql.GeneratedSqlTemplateCache;
+import ca.uhn.fhir.jpa.search.builder.sql.SearchQueryBuilder;
+import ca.uhn.fhir.jpa.search.builder.sql.SearchQueryShape;
+import ca.uhn.fhir.jpa.search.builder.sql.SqlObjectFactory;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link SearchQueryBuilder#generate(Integer, Integer)} for a repeated query shape with
+ * changing values and pages, with and without the {@link GeneratedSqlTemplateCache}. Each
+ * invocation builds the predicates as a search would, so the difference between the two runs
+ * is the rendering, validation and limit handling which a cache hit skips.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SearchSqlGenerationBenchmark {
+
+	private static final FhirContext ourCtx = FhirContext.forR4Cached();
+
+	@Param({"true", "false"})
+	public boolean myTemplateCacheEnabled;
+
+	private AnnotationConfigApplicationContext myAppCtx;
+	private SqlObjectFactory mySqlObjectFactory;
+	private SearchQueryShape myQueryShape;
+	private HibernatePropertiesProvider myDialectProvider;
+	private StorageSettings myStorageSettings;
+	private PartitionSettings myPartitionSettings;
+	private long myInvocationCount;
+
+	@Setup
+	public void setup() {
+		myAppCtx = new AnnotationConfigApplicationContext(SqlBuilderConfig.class);
+		mySqlObjectFactory = new SqlObjectFactory();
+		myAppCtx.getAutowireCapableBeanFactory().autowireBean(mySqlObjectFactory);
+
+		// Searches without a shape are never cached
+		if (myTemplateCacheEnabled) {
+			myQueryShape = SearchQueryShape.builder()
+					.add("Observation")
+					.add("ids")
+					.add(3)
+					.add("_lastUpdated")
+					.build();
+		}
+
+		myDialectProvider = new HibernatePropertiesProvider();
+		myDialectProvider.setDialectForUnitTest(new PostgreSQLDialect());
+		myStorageSettings = new StorageSettings();
+		myPartitionSettings = new PartitionSettings();
+	}
+
+	@TearDown
+	public void tearDown() {
+		myAppCtx.close();
+	}
+
+	@Benchmark
+	public GeneratedSql generate() {
+		long base = myInvocationCount++;
+		int page = (int) (base % 10);
+
+		SearchQueryBuilder builder = new SearchQueryBuilder(
+				ourCtx,
+				myStorageSettings,
+				myPartitionSettings,
+				RequestPartitionId.allPartitions(),
+				"Observation",
+				mySqlObjectFactory,
+				myDialectProvider,
+				false);
+		builder.setQueryShape(myQueryShape);
+		builder.addResourceIdsPredicate(
+				List.of(JpaPid.fromId(base), JpaPid.fromId(base + 1), JpaPid.fromId(base + 2)));
+		builder.addSortDate(builder.getOrCreateResourceTablePredicateBuilder().getColumnLastUpdated(), true);
+		return builder.generate(page * 20, 20);
+	}
+
+	@Configuration
+	public static class SqlBuilderConfig {
+
+		@Bean
+		@org.springframework.context.annotation.Scope("prototype")
+		public ResourceTablePredicateBuilder resourceTablePredicateBuilder(SearchQueryBuilder theSearchQueryBuilder) {
+			return new ResourceTablePredicateBuilder(theSearchQueryBuilder);
+		}
+	}
+}
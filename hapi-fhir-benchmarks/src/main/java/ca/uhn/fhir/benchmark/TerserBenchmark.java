@@ -0,0 +1,91 @@
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.util.FhirTerser;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Path navigation cost of {@link FhirTerser#getValues(IBase, String)}, which is
+ * used heavily by search parameter extraction, MDM and the bundle utilities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TerserBenchmark {
+
+	private static final FhirContext ourCtx = FhirContext.forR4Cached();
+
+	private FhirTerser myTerser;
+	private Patient myPatient;
+	private Observation myObservation;
+
+	@Setup
+	public void setup() {
+		myTerser = ourCtx.newTerser();
+		myPatient = BenchmarkPayloads.createPatient(0);
+		myObservation = BenchmarkPayloads.createObservation(0, "Patient/P0");
+	}
+
+	@Benchmark
+	public List<IBase> getValuesShallow() {
+		return myTerser.getValues(myPatient, "Patient.identifier");
+	}
+
+	@Benchmark
+	public List<IBase> getValuesDeep() {
+		return myTerser.getValues(myObservation, "Observation.code.coding.code");
+	}
+
+	@Benchmark
+	public List<IBase> getValuesChoiceType() {
+		return myTerser.getValues(myObservation, "Observation.valueQuantity.value");
+	}
+
+	@Benchmark
+	public List<IBase> getValuesExtension() {
+		return myTerser.getValues(
+				myPatient, "Patient.extension('http://hl7.org/fhir/us/core/StructureDefinition/us-core-birthsex')");
+	}
+
+	@Benchmark
+	public String getSinglePrimitiveValue() {
+		return myTerser.getSinglePrimitiveValueOrNull(myObservation, "Observation.subject.reference");
+	}
+}
@@ -28,6 +28,7 @@ import org.hibernate.dialect.Dialect;
 import org.hibernate.search.engine.cfg.BackendSettings;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.transaction.annotation.Isolation;
 
 import javax.sql.DataSource;
 
@@ -79,4 +80,28 @@ public class HibernatePropertiesProvider {
 	public boolean isOracleDialect() {
 		return getDialect() instanceof org.hibernate.dialect.OracleDialect;
 	}
+
+	/**
+	 * @since 8.4.0
+	 */
+	public boolean isPostgresDialect() {
+		return getDialect() instanceof org.hibernate.dialect.PostgreSQLDialect;
+	}
+
+	/**
+	 * Returns the lowest isolation level at which all reads in a transaction see one
+	 * consistent snapshot of the database. This is REPEATABLE_READ, except on Oracle
+	 * which has no such level, but whose SERIALIZABLE level is snapshot based and takes
+	 * no read locks. Note that on SQL Server (unless snapshot isolation is enabled)
+	 * REPEATABLE_READ is implemented by holding shared locks on every row read until the
+	 * transaction ends.
+	 *
+	 * @since 8.4.0
+	 */
+	public Isolation getSnapshotIsolation() {
+		if (isOracleDialect()) {
+			return Isolation.SERIALIZABLE;
+		}
+		return Isolation.REPEATABLE_READ;
+	}
 }
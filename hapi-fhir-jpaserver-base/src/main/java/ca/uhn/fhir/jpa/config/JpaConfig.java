@@ -58,8 +58,13 @@ import ca.uhn.fhir.jpa.dao.ISearchBuilder;
 import ca.uhn.fhir.jpa.dao.JpaStorageResourceParser;
 import ca.uhn.fhir.jpa.dao.MatchResourceUrlService;
 import ca.uhn.fhir.jpa.dao.ResourceHistoryCalculator;
+import ca.uhn.fhir.jpa.dao.ResourceHistoryDeltaSvc;
 import ca.uhn.fhir.jpa.dao.SearchBuilderFactory;
 import ca.uhn.fhir.jpa.dao.TransactionProcessor;
+import ca.uhn.fhir.jpa.dao.codec.DictionaryResourceBodyCodec;
+import ca.uhn.fhir.jpa.dao.codec.IResourceBodyCodec;
+import ca.uhn.fhir.jpa.dao.codec.ResourceBodyCodecRegistry;
+import ca.uhn.fhir.jpa.dao.codec.ResourceBodyDictionarySvc;
 import ca.uhn.fhir.jpa.dao.data.IResourceIndexedSearchParamIdentityDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceLinkDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceModifiedDao;
@@ -76,6 +81,7 @@ import ca.uhn.fhir.jpa.dao.expunge.ResourceTableFKProvider;
 import ca.uhn.fhir.jpa.dao.index.DaoResourceLinkResolver;
 import ca.uhn.fhir.jpa.dao.index.DaoSearchParamSynchronizer;
 import ca.uhn.fhir.jpa.dao.index.IdHelperService;
+import ca.uhn.fhir.jpa.dao.index.ResourceIndexBulkWriter;
 import ca.uhn.fhir.jpa.dao.index.SearchParamWithInlineReferencesExtractor;
 import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
 import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
@@ -143,6 +149,7 @@ import ca.uhn.fhir.jpa.search.builder.predicate.TagPredicateBuilder;
 import ca.uhn.fhir.jpa.search.builder.predicate.TokenPredicateBuilder;
 import ca.uhn.fhir.jpa.search.builder.predicate.UriPredicateBuilder;
 import ca.uhn.fhir.jpa.search.builder.sql.GeneratedSql;
+import ca.uhn.fhir.jpa.search.builder.sql.QueryPlanEstimateExecutor;
 import ca.uhn.fhir.jpa.search.builder.sql.SearchQueryBuilder;
 import ca.uhn.fhir.jpa.search.builder.sql.SearchQueryExecutor;
 import ca.uhn.fhir.jpa.search.builder.sql.SqlObjectFactory;
@@ -151,7 +158,9 @@ import ca.uhn.fhir.jpa.search.cache.DatabaseSearchCacheSvcImpl;
 import ca.uhn.fhir.jpa.search.cache.DatabaseSearchResultCacheSvcImpl;
 import ca.uhn.fhir.jpa.search.cache.ISearchCacheSvc;
 import ca.uhn.fhir.jpa.search.cache.ISearchResultCacheSvc;
+import ca.uhn.fhir.jpa.search.cache.PackedSearchResultCacheSvcImpl;
 import ca.uhn.fhir.jpa.search.elastic.IndexNamePrefixLayoutStrategy;
+import ca.uhn.fhir.jpa.search.reindex.DeferredIndexingSvc;
 import ca.uhn.fhir.jpa.search.reindex.IInstanceReindexService;
 import ca.uhn.fhir.jpa.search.reindex.IResourceReindexingSvc;
 import ca.uhn.fhir.jpa.search.reindex.InstanceReindexServiceImpl;
@@ -220,6 +229,7 @@ import org.springframework.scheduling.concurrent.ScheduledExecutorFactoryBean;
 import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.Date;
+import java.util.List;
 
 @Configuration
 // repositoryFactoryBeanClass: EnversRevisionRepositoryFactoryBean is needed primarily for unit testing
@@ -429,6 +439,9 @@ public class JpaConfig {
 
 	@Bean
 	public ISearchResultCacheSvc searchResultCacheSvc() {
+		if (myStorageSettings.isPackedSearchResultCacheEnabled()) {
+			return new PackedSearchResultCacheSvcImpl();
+		}
 		return new DatabaseSearchResultCacheSvcImpl();
 	}
 
@@ -475,6 +488,11 @@ public class JpaConfig {
 		return new ResourceReindexer(theFhirContext);
 	}
 
+	@Bean
+	public DeferredIndexingSvc deferredIndexingSvc() {
+		return new DeferredIndexingSvc();
+	}
+
 	@Bean
 	public HapiFhirHibernateJpaDialect hibernateJpaDialect(FhirContext theFhirContext) {
 		return new HapiFhirHibernateJpaDialect(theFhirContext.getLocalizer());
@@ -782,6 +800,12 @@ public class JpaConfig {
 		return new SearchQueryExecutor(theGeneratedSql, theMaxResultsToFetch);
 	}
 
+	@Bean
+	@Scope("prototype")
+	public QueryPlanEstimateExecutor newQueryPlanEstimateExecutor(GeneratedSql theGeneratedSql) {
+		return new QueryPlanEstimateExecutor(theGeneratedSql);
+	}
+
 	@Bean(name = HISTORY_BUILDER)
 	@Scope("prototype")
 	public HistoryBuilder newHistoryBuilder(
@@ -863,6 +887,11 @@ public class JpaConfig {
 		return new DaoSearchParamSynchronizer();
 	}
 
+	@Bean
+	public ResourceIndexBulkWriter resourceIndexBulkWriter() {
+		return new ResourceIndexBulkWriter();
+	}
+
 	@Bean
 	public ResourceTableFKProvider resourceTableFKProvider() {
 		return new ResourceTableFKProvider();
@@ -976,8 +1005,34 @@ public class JpaConfig {
 
 	@Bean
 	public ResourceHistoryCalculator resourceHistoryCalculator(
-			FhirContext theFhirContext, HibernatePropertiesProvider theHibernatePropertiesProvider) {
-		return new ResourceHistoryCalculator(theFhirContext, theHibernatePropertiesProvider.isOracleDialect());
+			FhirContext theFhirContext,
+			HibernatePropertiesProvider theHibernatePropertiesProvider,
+			ResourceBodyCodecRegistry theResourceBodyCodecRegistry) {
+		return new ResourceHistoryCalculator(
+				theFhirContext,
+				theHibernatePropertiesProvider.isOracleDialect(),
+				theHibernatePropertiesProvider.isPostgresDialect(),
+				theResourceBodyCodecRegistry);
+	}
+
+	@Bean
+	public ResourceHistoryDeltaSvc resourceHistoryDeltaSvc() {
+		return new ResourceHistoryDeltaSvc();
+	}
+
+	@Bean
+	public ResourceBodyCodecRegistry resourceBodyCodecRegistry(List<IResourceBodyCodec> theCodecs) {
+		return new ResourceBodyCodecRegistry(theCodecs);
+	}
+
+	@Bean
+	public DictionaryResourceBodyCodec dictionaryResourceBodyCodec(ResourceBodyDictionarySvc theDictionarySvc) {
+		return new DictionaryResourceBodyCodec(theDictionarySvc);
+	}
+
+	@Bean
+	public ResourceBodyDictionarySvc resourceBodyDictionarySvc() {
+		return new ResourceBodyDictionarySvc();
 	}
 
 	@Bean
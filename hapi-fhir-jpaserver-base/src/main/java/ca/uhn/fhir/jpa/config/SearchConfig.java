@@ -23,6 +23,7 @@ import ca.uhn.fhir.context.ConfigurationException;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
+import ca.uhn.fhir.interceptor.api.IInterceptorService;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
 import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
@@ -40,15 +41,19 @@ import ca.uhn.fhir.jpa.search.ISynchronousSearchSvc;
 import ca.uhn.fhir.jpa.search.PersistedJpaBundleProviderFactory;
 import ca.uhn.fhir.jpa.search.SearchCoordinatorSvcImpl;
 import ca.uhn.fhir.jpa.search.SearchStrategyFactory;
+import ca.uhn.fhir.jpa.search.SearchTotalEstimator;
 import ca.uhn.fhir.jpa.search.builder.SearchBuilder;
+import ca.uhn.fhir.jpa.search.builder.sql.SearchIndexAdvisor;
 import ca.uhn.fhir.jpa.search.builder.sql.SqlObjectFactory;
 import ca.uhn.fhir.jpa.search.builder.tasks.SearchContinuationTask;
 import ca.uhn.fhir.jpa.search.builder.tasks.SearchTask;
 import ca.uhn.fhir.jpa.search.builder.tasks.SearchTaskParameters;
+import ca.uhn.fhir.jpa.search.cache.HotSearchResultCache;
 import ca.uhn.fhir.jpa.search.cache.ISearchCacheSvc;
 import ca.uhn.fhir.jpa.search.cache.ISearchResultCacheSvc;
 import ca.uhn.fhir.rest.server.IPagingProvider;
 import ca.uhn.fhir.rest.server.util.ISearchParamRegistry;
+import ca.uhn.fhir.util.ThreadPoolUtil;
 import jakarta.annotation.PostConstruct;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.springframework.beans.factory.BeanFactory;
@@ -56,12 +61,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Scope;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
 
 @Configuration
 public class SearchConfig {
 	public static final String SEARCH_TASK = "searchTask";
 	public static final String CONTINUE_TASK = "continueTask";
+	public static final String INCLUDE_TASK_EXECUTOR = "searchIncludeTaskExecutor";
+	public static final String CHUNKED_QUERY_TASK_EXECUTOR = "searchChunkedQueryTaskExecutor";
 
 	@Autowired
 	private JpaStorageSettings myStorageSettings;
@@ -84,6 +92,9 @@ public class SearchConfig {
 	@Autowired
 	protected IInterceptorBroadcaster myInterceptorBroadcaster;
 
+	@Autowired
+	protected IInterceptorService myInterceptorService;
+
 	@Autowired
 	protected IResourceTagDao myResourceTagDao;
 
@@ -137,7 +148,7 @@ public class SearchConfig {
 
 	@Bean
 	public ISearchCoordinatorSvc searchCoordinatorSvc() {
-		return new SearchCoordinatorSvcImpl(
+		SearchCoordinatorSvcImpl retVal = new SearchCoordinatorSvcImpl(
 				myContext,
 				myStorageSettings,
 				myInterceptorBroadcaster,
@@ -152,6 +163,23 @@ public class SearchConfig {
 				mySearchStrategyFactory,
 				exceptionService(),
 				myBeanFactory);
+		retVal.setHotSearchResultCache(hotSearchResultCache());
+		return retVal;
+	}
+
+	@Bean
+	public HotSearchResultCache hotSearchResultCache() {
+		return new HotSearchResultCache(myContext, myStorageSettings, myInterceptorService);
+	}
+
+	@Bean
+	public SearchIndexAdvisor searchIndexAdvisor() {
+		return new SearchIndexAdvisor(myStorageSettings, myDialectProvider);
+	}
+
+	@Bean
+	public SearchTotalEstimator searchTotalEstimator() {
+		return new SearchTotalEstimator(myContext, myHapiTransactionService, mySearchBuilderFactory);
 	}
 
 	@Bean
@@ -159,6 +187,28 @@ public class SearchConfig {
 		return new ExceptionService(myContext);
 	}
 
+	/**
+	 * Executor used by {@link SearchBuilder} to resolve the includes within a round concurrently
+	 *
+	 * @see JpaStorageSettings#setIncludeLoadingThreadCount(int)
+	 */
+	@Bean(name = INCLUDE_TASK_EXECUTOR)
+	public ThreadPoolTaskExecutor searchIncludeTaskExecutor() {
+		int threadCount = myStorageSettings.getIncludeLoadingThreadCount();
+		return ThreadPoolUtil.newThreadPool(threadCount, threadCount, "search-include-");
+	}
+
+	/**
+	 * Executor used by {@link SearchBuilder} to run the chunk queries of a search concurrently
+	 *
+	 * @see JpaStorageSettings#setChunkedQueryThreadCount(int)
+	 */
+	@Bean(name = CHUNKED_QUERY_TASK_EXECUTOR)
+	public ThreadPoolTaskExecutor searchChunkedQueryTaskExecutor() {
+		int threadCount = myStorageSettings.getChunkedQueryThreadCount();
+		return ThreadPoolUtil.newThreadPool(threadCount, threadCount, "search-chunk-");
+	}
+
 	@Bean(name = ISearchBuilder.SEARCH_BUILDER_BEAN_NAME)
 	@Scope("prototype")
 	public ISearchBuilder newSearchBuilder(String theResourceName, Class<? extends IBaseResource> theResourceType) {
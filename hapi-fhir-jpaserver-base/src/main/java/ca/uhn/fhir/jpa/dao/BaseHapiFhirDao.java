@@ -234,6 +234,9 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 	@Autowired
 	protected ResourceHistoryCalculator myResourceHistoryCalculator;
 
+	@Autowired
+	private ResourceHistoryDeltaSvc myResourceHistoryDeltaSvc;
+
 	@Autowired
 	protected CacheTagDefinitionDao cacheTagDefinitionDao;
 
@@ -575,7 +578,7 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 					// TODO:  LD: Once 2024-02 it out the door we should consider further refactoring here to move
 					// more of this logic within the calculator and eliminate more local variables
 					changed = myResourceHistoryCalculator.isResourceHistoryChanged(
-							currentHistoryVersion, resourceBinary, resourceText);
+							currentHistoryVersion, resourceBinary, resourceText, encoding);
 				}
 			}
 		}
@@ -908,6 +911,8 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 
 		ResourceIndexedSearchParams newParams = null;
 
+		boolean deferIndexing = false;
+
 		EncodedResource changed;
 		if (theDeletedTimestampOrNull != null) {
 			// DELETE
@@ -946,8 +951,27 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 			}
 			entity.setDeleted(null);
 
-			// TODO: is this IF statement always true? Try removing it
-			if (thePerformIndexing || theEntity.getVersion() == 1) {
+			deferIndexing = isDeferIndexing(theResource, entity, thePerformIndexing);
+			if (deferIndexing) {
+
+				// Inline match URLs change the stored body so they can't wait, but all other
+				// index extraction is left to DeferredIndexingSvc
+				mySearchParamWithInlineReferencesExtractor.extractInlineReferences(
+						theRequest, theResource, theTransactionDetails);
+
+				changed = populateResourceIntoEntity(theTransactionDetails, theRequest, theResource, entity, true);
+
+				if (theForceUpdate) {
+					changed.setChanged(true);
+				}
+
+				if (changed.isChanged()) {
+					entity.setUpdated(theTransactionDetails.getTransactionDate());
+					entity.setIndexStatus(EntityIndexStatusEnum.INDEXING_PENDING);
+				}
+
+			} else if (thePerformIndexing || theEntity.getVersion() == 1) {
+				// TODO: is this IF statement always true? Try removing it
 
 				newParams = ResourceIndexedSearchParams.withSets();
 
@@ -1090,7 +1114,7 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 		/*
 		 * Indexing
 		 */
-		if (thePerformIndexing) {
+		if (thePerformIndexing && !deferIndexing) {
 			if (newParams == null) {
 				myExpungeService.deleteAllSearchParams(entity.getPersistentId());
 				entity.clearAllParamsPopulated();
@@ -1141,6 +1165,25 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 				HapiTransactionService.XACT_USERDATA_KEY_EXISTING_SEARCH_PARAMS, IdentityHashMap::new);
 	}
 
+	/**
+	 * Should the search parameter indexes for this create/update be left for
+	 * {@link ca.uhn.fhir.jpa.search.reindex.DeferredIndexingSvc} to build?
+	 * Conditional operations and reindexing always index immediately, since
+	 * they depend on the indexes being current.
+	 */
+	private boolean isDeferIndexing(IBaseResource theResource, ResourceTable theEntity, boolean thePerformIndexing) {
+		if (!thePerformIndexing || theResource == null) {
+			return false;
+		}
+		if (!myStorageSettings.isDeferredIndexingEnabled(myContext.getResourceType(theResource))) {
+			return false;
+		}
+		if (CURRENTLY_REINDEXING.get(theResource) == Boolean.TRUE) {
+			return false;
+		}
+		return theEntity.getCreatedByMatchUrl() == null && theEntity.getUpdatedByMatchUrl() == null;
+	}
+
 	/**
 	 * This methor returns the {@link EntityIndexStatusEnum} value that should be
 	 * used for a successfully fully indexed resource. This method will return
@@ -1265,14 +1308,16 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 			historyEntity.setDeleted(null);
 
 			// Check if resource is the same
-			ResourceEncodingEnum encoding = myStorageSettings.getResourceEncoding();
+			ResourceEncodingEnum encoding =
+					myResourceHistoryCalculator.getStorageEncoding(myStorageSettings.getResourceEncoding());
 			List<String> excludeElements = new ArrayList<>(8);
 			getExcludedElements(historyEntity.getResourceType(), excludeElements, theResource.getMeta());
 			String encodedResourceString =
 					myResourceHistoryCalculator.encodeResource(theResource, encoding, excludeElements);
-			byte[] resourceBinary = ResourceHistoryCalculator.getResourceBinary(encoding, encodedResourceString);
+			byte[] resourceBinary = myResourceHistoryCalculator.encodeResourceBinary(
+					encoding, historyEntity.getResourceType(), encodedResourceString);
 			final boolean changed = myResourceHistoryCalculator.isResourceHistoryChanged(
-					historyEntity, resourceBinary, encodedResourceString);
+					historyEntity, resourceBinary, encodedResourceString, encoding);
 
 			historyEntity.setUpdated(theTransactionDetails.getTransactionDate());
 
@@ -1284,6 +1329,9 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 				return historyEntity;
 			}
 
+			// Newer versions may be stored as deltas against the body we're about to replace
+			myResourceHistoryDeltaSvc.materializeDeltasBasedOn(historyEntity);
+
 			myResourceHistoryCalculator.populateEncodedResource(
 					encodedResource, encodedResourceString, resourceBinary, encoding);
 		}
@@ -1318,6 +1366,10 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 
 		ResourceHistoryTable historyEntry = null;
 		long resourceVersion = theEntity.getVersion();
+		if (myStorageSettings.isResourceDbHistoryEnabled()
+				&& myStorageSettings.getResourceHistoryDeltaSnapshotInterval() > 1) {
+			myResourceHistoryDeltaSvc.encodePreviousVersionAsDelta(theEntity, resourceVersion);
+		}
 		if (!myStorageSettings.isResourceDbHistoryEnabled() && resourceVersion > 1L) {
 			/*
 			 * If we're not storing history, then just pull the current history
@@ -57,7 +57,6 @@ import ca.uhn.fhir.jpa.model.entity.EntityIndexStatusEnum;
 import ca.uhn.fhir.jpa.model.entity.IBaseResourceEntity;
 import ca.uhn.fhir.jpa.model.entity.IdAndPartitionId;
 import ca.uhn.fhir.jpa.model.entity.PartitionablePartitionId;
-import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryProvenanceEntity;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
@@ -72,6 +71,7 @@ import ca.uhn.fhir.jpa.search.ResourceSearchUrlSvc;
 import ca.uhn.fhir.jpa.search.builder.SearchBuilder;
 import ca.uhn.fhir.jpa.search.builder.StorageInterceptorHooksFacade;
 import ca.uhn.fhir.jpa.search.cache.SearchCacheStatusEnum;
+import ca.uhn.fhir.jpa.search.reindex.DeferredIndexingSvc;
 import ca.uhn.fhir.jpa.searchparam.MatchUrlService;
 import ca.uhn.fhir.jpa.searchparam.ResourceSearch;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
@@ -83,6 +83,7 @@ import ca.uhn.fhir.model.api.StorageResponseCodeEnum;
 import ca.uhn.fhir.model.dstu2.resource.BaseResource;
 import ca.uhn.fhir.model.dstu2.resource.ListResource;
 import ca.uhn.fhir.model.primitive.IdDt;
+import ca.uhn.fhir.parser.DeferredResource;
 import ca.uhn.fhir.rest.api.CacheControlDirective;
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.EncodingEnum;
@@ -103,6 +104,7 @@ import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
 import ca.uhn.fhir.rest.api.server.storage.TransactionDetails;
 import ca.uhn.fhir.rest.param.HasParam;
 import ca.uhn.fhir.rest.param.HistorySearchDateRangeParam;
+import ca.uhn.fhir.rest.server.EncodedResponseCache;
 import ca.uhn.fhir.rest.server.IPagingProvider;
 import ca.uhn.fhir.rest.server.IRestfulServerDefaults;
 import ca.uhn.fhir.rest.server.RestfulServerUtils;
@@ -237,6 +239,9 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 	@Autowired
 	private IFhirSystemDao<?, ?> mySystemDao;
 
+	@Autowired
+	private DeferredIndexingSvc myDeferredIndexingSvc;
+
 	private StorageInterceptorHooksFacade myStorageInterceptorHooks;
 
 	@Nullable
@@ -1598,19 +1603,80 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 				.withRequest(theRequest)
 				.withTransactionDetails(transactionDetails)
 				.withRequestPartitionId(requestPartitionId)
-				.read(() -> doReadInTransaction(theId, theRequest, theDeletedOk, requestPartitionId));
+				.read(() -> doReadInTransaction(theId, theRequest, theDeletedOk, requestPartitionId, false, null));
+	}
+
+	@Override
+	public T readForResponse(IIdType theId, RequestDetails theRequest) {
+		if (!isResponseUnchangedByInterceptors(theRequest)) {
+			return read(theId, theRequest);
+		}
+		boolean deferParsing = getStorageSettings().isDeferredParsingForReadsEnabled();
+		EncodedResponseCache encodedResponseCache =
+				theRequest.getServer() != null ? theRequest.getServer().getEncodedResponseCache() : null;
+		if (!deferParsing && encodedResponseCache == null) {
+			return read(theId, theRequest);
+		}
+
+		validateResourceTypeAndThrowInvalidRequestException(theId);
+		TransactionDetails transactionDetails = new TransactionDetails();
+
+		RequestPartitionId requestPartitionId = myRequestPartitionHelperService.determineReadPartitionForRequestForRead(
+				theRequest, myResourceName, theId);
+
+		return myTransactionService
+				.withRequest(theRequest)
+				.withTransactionDetails(transactionDetails)
+				.withRequestPartitionId(requestPartitionId)
+				.read(() -> doReadInTransaction(
+						theId, theRequest, false, requestPartitionId, deferParsing, encodedResponseCache));
+	}
+
+	/**
+	 * A read response can only skip loading or parsing the resource if nothing is going to look
+	 * at its content before it is written to the client
+	 */
+	private boolean isResponseUnchangedByInterceptors(RequestDetails theRequest) {
+		if (theRequest == null || "Binary".equals(myResourceName)) {
+			return false;
+		}
+		IInterceptorBroadcaster compositeBroadcaster =
+				CompositeInterceptorBroadcaster.newCompositeBroadcaster(myInterceptorBroadcaster, theRequest);
+		if (compositeBroadcaster.hasHooks(Pointcut.STORAGE_PREACCESS_RESOURCES)
+				|| compositeBroadcaster.hasHooks(Pointcut.STORAGE_PRESHOW_RESOURCES)) {
+			return false;
+		}
+		IInterceptorBroadcaster serverBroadcaster = theRequest.getInterceptorBroadcaster();
+		return serverBroadcaster == null || !serverBroadcaster.hasHooks(Pointcut.SERVER_OUTGOING_RESPONSE);
 	}
 
 	private T doReadInTransaction(
-			IIdType theId, RequestDetails theRequest, boolean theDeletedOk, RequestPartitionId theRequestPartitionId) {
+			IIdType theId,
+			RequestDetails theRequest,
+			boolean theDeletedOk,
+			RequestPartitionId theRequestPartitionId,
+			boolean theDeferParsing,
+			@Nullable EncodedResponseCache theEncodedResponseCache) {
 		assert TransactionSynchronizationManager.isActualTransactionActive();
 
 		StopWatch w = new StopWatch();
 		BaseHasResource<?> entity = readEntity(theId, true, theRequest, theRequestPartitionId);
 		validateResourceType(entity);
 
-		T retVal = myJpaStorageResourceParser.toResource(
-				myResourceType, (IBaseResourceEntity<JpaPid>) entity, null, false);
+		T retVal = null;
+		if (theEncodedResponseCache != null && entity.getDeleted() == null) {
+			retVal = readCachedResponseHeader(theRequest, entity, theEncodedResponseCache);
+		}
+		if (retVal != null) {
+			ourLog.debug("Found cached response for {}", theId.getValue());
+		} else if (theDeferParsing) {
+			DeferredResource<T> deferred = myJpaStorageResourceParser.toDeferredResource(
+					myResourceType, (IBaseResourceEntity<JpaPid>) entity, null, false);
+			retVal = deferred != null ? deferred.getHeader() : null;
+		} else {
+			retVal = myJpaStorageResourceParser.toResource(
+					myResourceType, (IBaseResourceEntity<JpaPid>) entity, null, false);
+		}
 
 		if (!theDeletedOk) {
 			if (isDeleted(entity)) {
@@ -1627,6 +1693,23 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 		return retVal;
 	}
 
+	/**
+	 * If the encoded response for the current version of the entity is in the response cache,
+	 * returns a resource containing only the ID and metadata held by the entity itself, carrying
+	 * the cached response. Otherwise returns <code>null</code>. The stored resource body,
+	 * tags and source are not loaded.
+	 */
+	@Nullable
+	private T readCachedResponseHeader(
+			RequestDetails theRequest, BaseHasResource<?> theEntity, EncodedResponseCache theEncodedResponseCache) {
+		T header = myResourceType.cast(getContext().getResourceDefinition(myResourceType).newInstance());
+		myJpaStorageResourceParser.updateResourceMetadata(theEntity, header);
+		if (theEncodedResponseCache.attachCachedResponse(theRequest, header)) {
+			return header;
+		}
+		return null;
+	}
+
 	@Nullable
 	private T invokeStoragePreShowResources(RequestDetails theRequest, T retVal) {
 		retVal = invokeStoragePreShowResources(myInterceptorBroadcaster, theRequest, retVal);
@@ -1773,14 +1856,8 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 	 * in order to avoid growing the number of resources in memory to be too big
 	 */
 	private void reindexOptimizeStorageHistoryEntity(ResourceTable entity, ResourceHistoryTable historyEntity) {
-		if (historyEntity.getEncoding() == ResourceEncodingEnum.JSONC
-				|| historyEntity.getEncoding() == ResourceEncodingEnum.JSON) {
-			byte[] resourceBytes = historyEntity.getResource();
-			if (resourceBytes != null) {
-				String resourceText = decodeResource(resourceBytes, historyEntity.getEncoding());
-				myResourceHistoryCalculator.conditionallyAlterHistoryEntity(entity, historyEntity, resourceText);
-			}
-		}
+		myResourceHistoryCalculator.optimizeHistoryEntityStorage(
+				entity, historyEntity, myStorageSettings.getResourceEncoding());
 		if (myStorageSettings.isAccessMetaSourceInformationFromProvenanceTable()) {
 			if (isBlank(historyEntity.getSourceUri()) && isBlank(historyEntity.getRequestId())) {
 				IdAndPartitionId id = historyEntity.getId().asIdAndPartitionId();
@@ -2046,6 +2123,22 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 		RequestPartitionId requestPartitionId =
 				myRequestPartitionHelperService.determineReadPartitionForRequestForSearchType(
 						theRequest, getResourceName(), theParams);
+
+		/*
+		 * Resources of this type may have been stored with deferred indexing, in which case the
+		 * client can ask for them to be indexed now so that the search sees its own writes. A
+		 * cached search result from before the write would not see them either, so don't reuse one.
+		 */
+		if (theRequest != null
+				&& myStorageSettings.isDeferredIndexingEnabled(getResourceName())
+				&& JpaConstants.HEADER_INDEX_CONSISTENCY_READ_YOUR_WRITES.equals(
+						theRequest.getHeader(JpaConstants.HEADER_INDEX_CONSISTENCY))) {
+			myDeferredIndexingSvc.indexPendingResources(
+					getResourceName(),
+					requestPartitionId,
+					myStorageSettings.getDeferredIndexingReadYourWritesLimit());
+			cacheControlDirective.setNoCache(true);
+		}
 		IBundleProvider retVal = mySearchCoordinatorSvc.registerSearch(
 				this, theParams, getResourceName(), cacheControlDirective, theRequest, requestPartitionId);
 
@@ -2112,6 +2205,12 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 					Validate.inclusiveBetween(0, Integer.MAX_VALUE, offset, "Offset must be a positive integer");
 				}
 				theParams.setOffset(offset);
+				if (offset != null) {
+					String[] searchAfter = theRequest.getParameters().get(Constants.PARAM_SEARCH_AFTER);
+					if (searchAfter != null && searchAfter.length > 0) {
+						theParams.setSearchAfter(searchAfter[0]);
+					}
+				}
 			}
 
 			Integer count = RestfulServerUtils.extractCountParameter(theRequest);
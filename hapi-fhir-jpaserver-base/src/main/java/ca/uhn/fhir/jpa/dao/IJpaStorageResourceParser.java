@@ -22,6 +22,7 @@ package ca.uhn.fhir.jpa.dao;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.model.entity.BaseTag;
 import ca.uhn.fhir.jpa.model.entity.IBaseResourceEntity;
+import ca.uhn.fhir.parser.DeferredResource;
 import jakarta.annotation.Nullable;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 
@@ -39,6 +40,22 @@ public interface IJpaStorageResourceParser extends IStorageResourceParser<JpaPid
 			Collection<BaseTag> theTagList,
 			boolean theForHistoryOperation);
 
+	/**
+	 * Like {@link #toResource(Class, IBaseResourceEntity, Collection, boolean)}, but returns a handle
+	 * which only parses the stored resource body when the resource model is actually requested. When
+	 * the handle is encoded as JSON without being inflated, the stored body is copied into the output
+	 * as-is. Resources which can not be deferred (e.g. non-JSON storage or custom profile types) are
+	 * returned as already-inflated handles. This method may return null under the same conditions
+	 * as {@link #toResource(Class, IBaseResourceEntity, Collection, boolean)}.
+	 *
+	 * @since 8.4.0
+	 */
+	<R extends IBaseResource> DeferredResource<R> toDeferredResource(
+			Class<R> theResourceType,
+			IBaseResourceEntity<?> theEntity,
+			Collection<BaseTag> theTagList,
+			boolean theForHistoryOperation);
+
 	/**
 	 * Populate the metadata (Resource.meta.*) from a storage entity and other related
 	 * objects pulled from the database
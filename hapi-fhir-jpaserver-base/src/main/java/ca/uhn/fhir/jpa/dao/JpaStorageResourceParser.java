@@ -26,6 +26,7 @@ import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.api.dao.IDao;
+import ca.uhn.fhir.jpa.dao.codec.ResourceBodyCodecRegistry;
 import ca.uhn.fhir.jpa.dao.data.IResourceHistoryProvenanceDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceHistoryTableDao;
 import ca.uhn.fhir.jpa.entity.PartitionEntity;
@@ -53,6 +54,7 @@ import ca.uhn.fhir.model.primitive.IdDt;
 import ca.uhn.fhir.model.primitive.InstantDt;
 import ca.uhn.fhir.model.valueset.BundleEntryTransactionMethodEnum;
 import ca.uhn.fhir.parser.DataFormatException;
+import ca.uhn.fhir.parser.DeferredResource;
 import ca.uhn.fhir.parser.IParser;
 import ca.uhn.fhir.parser.LenientErrorHandler;
 import ca.uhn.fhir.rest.api.Constants;
@@ -76,7 +78,6 @@ import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
-import static ca.uhn.fhir.jpa.dao.BaseHapiFhirDao.decodeResource;
 import static java.util.Objects.nonNull;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
@@ -109,6 +110,12 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 	@Autowired
 	IMetaTagSorter myMetaTagSorter;
 
+	@Autowired(required = false)
+	private ResourceBodyCodecRegistry myResourceBodyCodecRegistry = new ResourceBodyCodecRegistry();
+
+	@Autowired
+	private ResourceHistoryDeltaSvc myResourceHistoryDeltaSvc;
+
 	@Override
 	public IBaseResource toResource(IBasePersistedResource theEntity, boolean theForHistoryOperation) {
 		RuntimeResourceDefinition type = myFhirContext.getResourceDefinition(theEntity.getResourceType());
@@ -123,6 +130,56 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 			Collection<BaseTag> theTagList,
 			boolean theForHistoryOperation) {
 
+		StoredResource<R> stored = loadStoredResource(theResourceType, theEntity, theTagList);
+		if (stored == null) {
+			return null;
+		}
+		return inflate(stored, theEntity, theForHistoryOperation);
+	}
+
+	@Override
+	public <R extends IBaseResource> DeferredResource<R> toDeferredResource(
+			Class<R> theResourceType,
+			IBaseResourceEntity<?> theEntity,
+			Collection<BaseTag> theTagList,
+			boolean theForHistoryOperation) {
+
+		StoredResource<R> stored = loadStoredResource(theResourceType, theEntity, theTagList);
+		if (stored == null) {
+			return null;
+		}
+
+		/*
+		 * Only plain JSON bodies of the requested type can be deferred. Custom profile
+		 * types, deleted and externally stored resources, and resources from a different
+		 * FHIR version are parsed immediately.
+		 */
+		boolean deferrable = (stored.myEncoding == ResourceEncodingEnum.JSON
+						|| stored.myEncoding == ResourceEncodingEnum.JSONC
+						|| stored.myEncoding == ResourceEncodingEnum.JSOND)
+				&& stored.myResourceType.equals(theResourceType)
+				&& theEntity.getDeleted() == null
+				&& theEntity.getFhirVersion() == myFhirContext.getVersion().getVersion();
+		if (!deferrable) {
+			return DeferredResource.forResource(inflate(stored, theEntity, theForHistoryOperation));
+		}
+
+		R header = stored.myResourceType.cast(
+				myFhirContext.getResourceDefinition(stored.myResourceType).newInstance());
+		header = populateParsedResource(stored, theEntity, theForHistoryOperation, header);
+
+		return DeferredResource.forStoredJson(
+				header, stored.myResourceText, () -> inflate(stored, theEntity, theForHistoryOperation));
+	}
+
+	/**
+	 * Performs steps 1-3 of loading a resource: fetch the stored body and its tags, decode it,
+	 * and determine the model type to parse it into
+	 */
+	@Nullable
+	private <R extends IBaseResource> StoredResource<R> loadStoredResource(
+			Class<R> theResourceType, IBaseResourceEntity<?> theEntity, Collection<BaseTag> theTagList) {
+
 		// 1. get resource, it's encoding and the tags if any
 		byte[] resourceBytes;
 		String resourceText;
@@ -137,6 +194,11 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 			resourceBytes = history.getResource();
 			resourceText = history.getResourceTextVc();
 			resourceEncoding = history.getEncoding();
+			if (resourceEncoding == ResourceEncodingEnum.DIFF) {
+				resourceText = myResourceHistoryDeltaSvc.reconstruct(history);
+				resourceBytes = null;
+				resourceEncoding = ResourceEncodingEnum.JSON;
+			}
 
 			// For search results we get the list of tags passed in because we load it
 			// in bulk for all resources we're going to return, but for read results
@@ -199,6 +261,12 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 			resourceBytes = history.getResource();
 			resourceEncoding = history.getEncoding();
 			resourceText = history.getResourceTextVc();
+			if (resourceEncoding == ResourceEncodingEnum.DIFF) {
+				// Only possible if the current version has been expunged
+				resourceText = myResourceHistoryDeltaSvc.reconstruct(history);
+				resourceBytes = null;
+				resourceEncoding = ResourceEncodingEnum.JSON;
+			}
 			switch (myStorageSettings.getTagStorageMode()) {
 				case VERSIONED:
 				case NON_VERSIONED:
@@ -238,14 +306,35 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 		// 3. Use the appropriate custom type if one is specified in the context
 		Class<R> resourceType = determineTypeToParse(theResourceType, tagList);
 
+		return new StoredResource<>(
+				resourceType,
+				resourceEncoding,
+				decodedResourceText,
+				tagList,
+				version,
+				provenanceSourceUri,
+				provenanceRequestId);
+	}
+
+	private <R extends IBaseResource> R inflate(
+			StoredResource<R> theStored, IBaseResourceEntity<?> theEntity, boolean theForHistoryOperation) {
 		// 4. parse the text to FHIR
-		R retVal = parseResource(theEntity, resourceEncoding, decodedResourceText, resourceType);
+		R retVal = parseResource(theEntity, theStored.myEncoding, theStored.myResourceText, theStored.myResourceType);
+		return populateParsedResource(theStored, theEntity, theForHistoryOperation, retVal);
+	}
 
+	private <R extends IBaseResource> R populateParsedResource(
+			StoredResource<R> theStored,
+			IBaseResourceEntity<?> theEntity,
+			boolean theForHistoryOperation,
+			R theResource) {
 		// 5. fill MetaData
-		retVal = populateResourceMetadata(theEntity, theForHistoryOperation, tagList, version, retVal);
+		R retVal = populateResourceMetadata(
+				theEntity, theForHistoryOperation, theStored.myTagList, theStored.myVersion, theResource);
 
 		// 6. Handle source (provenance)
-		MetaUtil.populateResourceSource(myFhirContext, provenanceSourceUri, provenanceRequestId, retVal);
+		MetaUtil.populateResourceSource(
+				myFhirContext, theStored.myProvenanceSourceUri, theStored.myProvenanceRequestId, retVal);
 
 		// 7. Add partition information
 		populateResourcePartitionInformation(theEntity, retVal);
@@ -567,13 +656,13 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 		return FhirContext.forCached(theVersion);
 	}
 
-	private static String decodedResourceText(
+	private String decodedResourceText(
 			byte[] resourceBytes, String resourceText, ResourceEncodingEnum resourceEncoding) {
 		String decodedResourceText;
 		if (resourceText != null) {
 			decodedResourceText = resourceText;
 		} else {
-			decodedResourceText = decodeResource(resourceBytes, resourceEncoding);
+			decodedResourceText = myResourceBodyCodecRegistry.decode(resourceEncoding, resourceBytes);
 		}
 		return decodedResourceText;
 	}
@@ -585,4 +674,34 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 		}
 		return retVal;
 	}
+
+	/**
+	 * A stored resource body and the metadata needed to turn it into a resource
+	 */
+	private static class StoredResource<R extends IBaseResource> {
+		private final Class<R> myResourceType;
+		private final ResourceEncodingEnum myEncoding;
+		private final String myResourceText;
+		private final Collection<? extends BaseTag> myTagList;
+		private final long myVersion;
+		private final String myProvenanceSourceUri;
+		private final String myProvenanceRequestId;
+
+		private StoredResource(
+				Class<R> theResourceType,
+				ResourceEncodingEnum theEncoding,
+				String theResourceText,
+				@Nullable Collection<? extends BaseTag> theTagList,
+				long theVersion,
+				String theProvenanceSourceUri,
+				String theProvenanceRequestId) {
+			myResourceType = theResourceType;
+			myEncoding = theEncoding;
+			myResourceText = theResourceText;
+			myTagList = theTagList;
+			myVersion = theVersion;
+			myProvenanceSourceUri = theProvenanceSourceUri;
+			myProvenanceRequestId = theProvenanceRequestId;
+		}
+	}
 }
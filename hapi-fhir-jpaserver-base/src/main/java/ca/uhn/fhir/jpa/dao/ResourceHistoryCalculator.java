@@ -20,10 +20,24 @@
 package ca.uhn.fhir.jpa.dao;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.dao.codec.ResourceBodyCodecRegistry;
 import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
+import ca.uhn.fhir.parser.DataFormatException;
 import ca.uhn.fhir.parser.IParser;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.JsonPatchException;
+import com.github.fge.jsonpatch.diff.JsonDiff;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
@@ -32,6 +46,7 @@ import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
@@ -44,28 +59,70 @@ import java.util.List;
 public class ResourceHistoryCalculator {
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(ResourceHistoryCalculator.class);
 	private static final HashFunction SHA_256 = Hashing.sha256();
+	private static final String HISTORY_DELTA_BASE_VERSION = "baseVersion";
+	private static final String HISTORY_DELTA_PATCH = "patch";
+	private static final ObjectMapper ourHistoryDeltaMapper = createHistoryDeltaMapper();
 
 	private final FhirContext myFhirContext;
 	private final boolean myIsOracleDialect;
+	private final boolean myIsPostgresDialect;
+	private final ResourceBodyCodecRegistry myResourceBodyCodecRegistry;
 
 	public ResourceHistoryCalculator(FhirContext theFhirContext, boolean theIsOracleDialect) {
+		this(theFhirContext, theIsOracleDialect, false, new ResourceBodyCodecRegistry());
+	}
+
+	/**
+	 * @param theIsPostgresDialect On Postgres, the binary <code>RES_TEXT</code> column is an <code>oid</code>
+	 *                             large object rather than a real blob, so {@link ResourceEncodingEnum#JSOND JSOND}
+	 *                             bodies are not used there (see {@link #getStorageEncoding(ResourceEncodingEnum)})
+	 * @since 8.4.0
+	 */
+	public ResourceHistoryCalculator(
+			FhirContext theFhirContext,
+			boolean theIsOracleDialect,
+			boolean theIsPostgresDialect,
+			ResourceBodyCodecRegistry theResourceBodyCodecRegistry) {
 		myFhirContext = theFhirContext;
 		myIsOracleDialect = theIsOracleDialect;
+		myIsPostgresDialect = theIsPostgresDialect;
+		myResourceBodyCodecRegistry = theResourceBodyCodecRegistry;
+	}
+
+	/**
+	 * Returns the encoding which bodies are actually stored with when <code>theEncoding</code> is configured.
+	 * {@link ResourceEncodingEnum#JSOND JSOND} bodies can only be stored in the binary <code>RES_TEXT</code>
+	 * column. On Postgres that column is an <code>oid</code>, and every body written to it creates a large
+	 * object, so {@link ResourceEncodingEnum#JSONC JSONC} is used there instead (which is stored as
+	 * inline text).
+	 *
+	 * @since 8.4.0
+	 */
+	public ResourceEncodingEnum getStorageEncoding(ResourceEncodingEnum theEncoding) {
+		if (theEncoding == ResourceEncodingEnum.JSOND && myIsPostgresDialect) {
+			return ResourceEncodingEnum.JSONC;
+		}
+		return theEncoding;
 	}
 
 	ResourceHistoryState calculateResourceHistoryState(
 			IBaseResource theResource, ResourceEncodingEnum theEncoding, List<String> theExcludeElements) {
-		final String encodedResource = encodeResource(theResource, theEncoding, theExcludeElements);
+		final ResourceEncodingEnum storageEncoding = getStorageEncoding(theEncoding);
+		final String encodedResource = encodeResource(theResource, storageEncoding, theExcludeElements);
 		final byte[] resourceBinary;
 		final String resourceText;
 		final ResourceEncodingEnum encoding;
 		final HashCode hashCode;
 
-		if (myIsOracleDialect) {
+		if (myIsOracleDialect || storageEncoding == ResourceEncodingEnum.JSOND) {
+			String resourceType = myFhirContext.getResourceType(theResource);
 			resourceText = null;
-			resourceBinary = getResourceBinary(theEncoding, encodedResource);
-			encoding = theEncoding;
-			hashCode = SHA_256.hashBytes(resourceBinary);
+			resourceBinary = encodeResourceBinary(storageEncoding, resourceType, encodedResource);
+			encoding = storageEncoding;
+			// Dictionary encoded bodies change whenever a new dictionary is trained, so hash the text instead
+			hashCode = storageEncoding == ResourceEncodingEnum.JSOND
+					? SHA_256.hashUnencodedChars(encodedResource)
+					: SHA_256.hashBytes(resourceBinary);
 		} else {
 			resourceText = encodedResource;
 			resourceBinary = null;
@@ -92,10 +149,79 @@ public class ResourceHistoryCalculator {
 		return false;
 	}
 
+	/**
+	 * Rewrites the body of a stored version for <code>$reindex</code> with <code>optimizeStorage</code>.
+	 * If the configured encoding is {@link ResourceEncodingEnum#JSOND JSOND}, JSON, JSONC and JSOND bodies
+	 * are re-encoded with the newest dictionary for the resource type. Otherwise, binary bodies in any of
+	 * these encodings are decoded and moved to inline text as described in
+	 * {@link #conditionallyAlterHistoryEntity(ResourceTable, ResourceHistoryTable, String)}.
+	 *
+	 * @return <code>true</code> if the body was changed
+	 * @since 8.4.0
+	 */
+	boolean optimizeHistoryEntityStorage(
+			ResourceTable theEntity, ResourceHistoryTable theHistoryEntity, ResourceEncodingEnum theEncoding) {
+		ResourceEncodingEnum currentEncoding = theHistoryEntity.getEncoding();
+		if (currentEncoding != ResourceEncodingEnum.JSON
+				&& currentEncoding != ResourceEncodingEnum.JSONC
+				&& currentEncoding != ResourceEncodingEnum.JSOND) {
+			return false;
+		}
+
+		if (getStorageEncoding(theEncoding) == ResourceEncodingEnum.JSOND) {
+			String resourceText = theHistoryEntity.getResourceTextVc();
+			if (resourceText == null) {
+				resourceText = decodeResourceBinary(currentEncoding, theHistoryEntity.getResource());
+			}
+			if (resourceText == null) {
+				return false;
+			}
+			theHistoryEntity.setResource(
+					encodeResourceBinary(ResourceEncodingEnum.JSOND, theHistoryEntity.getResourceType(), resourceText));
+			theHistoryEntity.setResourceTextVc(null);
+			theHistoryEntity.setEncoding(ResourceEncodingEnum.JSOND);
+			return true;
+		}
+
+		byte[] resourceBytes = theHistoryEntity.getResource();
+		if (resourceBytes == null) {
+			return false;
+		}
+		String resourceText = decodeResourceBinary(currentEncoding, resourceBytes);
+		return conditionallyAlterHistoryEntity(theEntity, theHistoryEntity, resourceText);
+	}
+
 	boolean isResourceHistoryChanged(
 			ResourceHistoryTable theCurrentHistoryVersion,
 			@Nullable byte[] theResourceBinary,
 			@Nullable String resourceText) {
+		return isResourceHistoryChanged(theCurrentHistoryVersion, theResourceBinary, resourceText, null);
+	}
+
+	/**
+	 * @param theEncoding The encoding of <code>theResourceBinary</code>, if known
+	 * @since 8.4.0
+	 */
+	boolean isResourceHistoryChanged(
+			ResourceHistoryTable theCurrentHistoryVersion,
+			@Nullable byte[] theResourceBinary,
+			@Nullable String resourceText,
+			@Nullable ResourceEncodingEnum theEncoding) {
+		if (theEncoding == ResourceEncodingEnum.JSOND
+				|| theCurrentHistoryVersion.getEncoding() == ResourceEncodingEnum.JSOND) {
+			// Dictionary encoded bodies of the same text differ if a new dictionary was trained in between
+			String currentText = theCurrentHistoryVersion.getResourceTextVc();
+			if (currentText == null) {
+				currentText = myResourceBodyCodecRegistry.decode(
+						theCurrentHistoryVersion.getEncoding(), theCurrentHistoryVersion.getResource());
+			}
+			String newText = resourceText;
+			if (newText == null) {
+				newText = myResourceBodyCodecRegistry.decode(theEncoding, theResourceBinary);
+			}
+			return !StringUtils.equals(currentText, newText);
+		}
+
 		if (myIsOracleDialect) {
 			return !Arrays.equals(theCurrentHistoryVersion.getResource(), theResourceBinary);
 		}
@@ -129,12 +255,176 @@ public class ResourceHistoryCalculator {
 		}
 	}
 
+	/**
+	 * Returns the encoded byte array of the input resource string using the registered
+	 * codec for the given encoding
+	 *
+	 * @since 8.4.0
+	 */
+	@Nonnull
+	byte[] encodeResourceBinary(ResourceEncodingEnum theEncoding, String theResourceType, String theEncodedResource) {
+		return myResourceBodyCodecRegistry.encode(theEncoding, theResourceType, theEncodedResource);
+	}
+
+	/**
+	 * Decodes a stored binary resource body using the registered codec for the given encoding
+	 *
+	 * @since 8.4.0
+	 */
+	@Nullable
+	String decodeResourceBinary(ResourceEncodingEnum theEncoding, @Nullable byte[] theResourceBinary) {
+		return myResourceBodyCodecRegistry.decode(theEncoding, theResourceBinary);
+	}
+
+	/**
+	 * Encodes <code>theText</code> as the text of a {@link ResourceEncodingEnum#DIFF DIFF} body, i.e. a
+	 * JSON Patch against the body of version <code>theBaseVersion</code> of the same resource.
+	 *
+	 * @return The delta, or <code>null</code> if the text can not be reproduced exactly from a patch
+	 * @since 8.4.0
+	 */
+	@Nullable
+	String encodeHistoryDelta(long theBaseVersion, String theBaseText, String theText) {
+		try {
+			JsonNode base = ourHistoryDeltaMapper.readTree(theBaseText);
+			JsonNode target = ourHistoryDeltaMapper.readTree(theText);
+			JsonNode patch = JsonDiff.asJson(base, target);
+			if (!JsonPatch.fromJson(patch).apply(base).equals(target)) {
+				return null;
+			}
+
+			ObjectNode delta = ourHistoryDeltaMapper.createObjectNode();
+			delta.put(HISTORY_DELTA_BASE_VERSION, theBaseVersion);
+			delta.set(HISTORY_DELTA_PATCH, patch);
+			return ourHistoryDeltaMapper.writeValueAsString(delta);
+		} catch (IOException | JsonPatchException e) {
+			ourLog.warn("Failed to calculate history delta, storing full body instead: {}", e.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Replaces the body of a history entity with a {@link ResourceEncodingEnum#DIFF DIFF} body, as long
+	 * as it is smaller than the body currently stored. Like full bodies, deltas are stored as inline
+	 * text unless an Oracle database is being used, in which case they are compressed into the binary
+	 * column.
+	 *
+	 * @return <code>true</code> if the body was replaced
+	 * @since 8.4.0
+	 */
+	boolean populateHistoryDelta(ResourceHistoryTable theHistoryEntity, String theDelta) {
+		String resourceText = null;
+		byte[] resourceBinary = null;
+		int size;
+		if (myIsOracleDialect) {
+			resourceBinary = GZipUtil.compress(theDelta);
+			size = resourceBinary.length;
+		} else {
+			resourceText = theDelta;
+			size = resourceText.length();
+		}
+
+		if (size >= getStoredSize(theHistoryEntity)) {
+			return false;
+		}
+
+		theHistoryEntity.setEncoding(ResourceEncodingEnum.DIFF);
+		theHistoryEntity.setResourceTextVc(resourceText);
+		theHistoryEntity.setResource(resourceBinary);
+		return true;
+	}
+
+	/**
+	 * Returns the text of the {@link ResourceEncodingEnum#DIFF DIFF} body stored in a history entity
+	 *
+	 * @since 8.4.0
+	 */
+	String getHistoryDelta(ResourceHistoryTable theHistoryEntity) {
+		if (theHistoryEntity.getResourceTextVc() != null) {
+			return theHistoryEntity.getResourceTextVc();
+		}
+		return GZipUtil.decompress(theHistoryEntity.getResource());
+	}
+
+	/**
+	 * Returns the version number of the full body which a {@link ResourceEncodingEnum#DIFF DIFF} body is based on
+	 *
+	 * @since 8.4.0
+	 */
+	long getHistoryDeltaBaseVersion(String theDelta) {
+		return readHistoryDelta(theDelta).path(HISTORY_DELTA_BASE_VERSION).asLong();
+	}
+
+	/**
+	 * Reconstructs the text of a {@link ResourceEncodingEnum#DIFF DIFF} body from the text of the
+	 * version it is based on
+	 *
+	 * @since 8.4.0
+	 */
+	String applyHistoryDelta(String theBaseText, String theDelta) {
+		try {
+			JsonNode patch = readHistoryDelta(theDelta).get(HISTORY_DELTA_PATCH);
+			JsonNode base = ourHistoryDeltaMapper.readTree(theBaseText);
+			return ourHistoryDeltaMapper.writeValueAsString(JsonPatch.fromJson(patch).apply(base));
+		} catch (IOException | JsonPatchException e) {
+			throw new DataFormatException(Msg.code(2795) + "Failed to apply resource history delta", e);
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the given version of a resource is kept as a full snapshot
+	 * when history deltas use the given snapshot interval
+	 *
+	 * @since 8.4.0
+	 */
+	static boolean isHistoryDeltaSnapshotVersion(long theVersion, int theSnapshotInterval) {
+		return theSnapshotInterval <= 1 || (theVersion - 1) % theSnapshotInterval == 0;
+	}
+
+	/**
+	 * Returns the snapshot version which the given version is stored as a delta against
+	 *
+	 * @since 8.4.0
+	 */
+	static long getHistoryDeltaSnapshotVersion(long theVersion, int theSnapshotInterval) {
+		return theVersion - ((theVersion - 1) % theSnapshotInterval);
+	}
+
+	private static int getStoredSize(ResourceHistoryTable theHistoryEntity) {
+		if (theHistoryEntity.getResourceTextVc() != null) {
+			return theHistoryEntity.getResourceTextVc().length();
+		}
+		return theHistoryEntity.getResource().length;
+	}
+
+	private static JsonNode readHistoryDelta(String theDelta) {
+		try {
+			return ourHistoryDeltaMapper.readTree(theDelta);
+		} catch (IOException e) {
+			throw new DataFormatException(Msg.code(2796) + "Invalid resource history delta", e);
+		}
+	}
+
+	private static ObjectMapper createHistoryDeltaMapper() {
+		// Decimals must survive the round trip exactly, e.g. "1.50" must not become "1.5"
+		ObjectMapper retVal = JsonMapper.builder()
+				.nodeFactory(new JsonNodeFactory(true))
+				.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+				.enable(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN)
+				.build();
+		retVal.getFactory()
+				.setStreamReadConstraints(StreamReadConstraints.builder()
+						.maxStringLength(Integer.MAX_VALUE)
+						.build());
+		return retVal;
+	}
+
 	void populateEncodedResource(
 			EncodedResource theEncodedResource,
 			String theEncodedResourceString,
 			@Nullable byte[] theResourceBinary,
 			ResourceEncodingEnum theEncoding) {
-		if (myIsOracleDialect) {
+		if (myIsOracleDialect || theEncoding == ResourceEncodingEnum.JSOND) {
 			populateEncodedResourceInner(theEncodedResource, null, theResourceBinary, theEncoding);
 		} else {
 			populateEncodedResourceInner(theEncodedResource, theEncodedResourceString, null, ResourceEncodingEnum.JSON);
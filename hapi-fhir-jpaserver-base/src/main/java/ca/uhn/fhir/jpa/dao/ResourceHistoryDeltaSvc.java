@@ -0,0 +1,161 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.dao.data.IResourceHistoryTableDao;
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
+import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
+import ca.uhn.fhir.jpa.model.entity.ResourceTable;
+import ca.uhn.fhir.parser.DataFormatException;
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+
+/**
+ * Stores historical resource versions as {@link ResourceEncodingEnum#DIFF DIFF} bodies, i.e. JSON
+ * Patches against the nearest earlier snapshot version, and reconstructs them again when they are read.
+ *
+ * @see JpaStorageSettings#setResourceHistoryDeltaSnapshotInterval(int)
+ * @since 8.4.0
+ */
+public class ResourceHistoryDeltaSvc {
+	private static final Logger ourLog = LoggerFactory.getLogger(ResourceHistoryDeltaSvc.class);
+
+	@Autowired
+	private JpaStorageSettings myStorageSettings;
+
+	@Autowired
+	private IResourceHistoryTableDao myResourceHistoryTableDao;
+
+	@Autowired
+	private ResourceHistoryCalculator myResourceHistoryCalculator;
+
+	/**
+	 * Called just before version <code>theNewVersion</code> of a resource is stored. If history
+	 * deltas are enabled and the previous version is not a snapshot version, its body is replaced
+	 * with a delta against its snapshot.
+	 */
+	public void encodePreviousVersionAsDelta(ResourceTable theEntity, long theNewVersion) {
+		int snapshotInterval = myStorageSettings.getResourceHistoryDeltaSnapshotInterval();
+		long previousVersion = theNewVersion - 1;
+		if (previousVersion < 1
+				|| ResourceHistoryCalculator.isHistoryDeltaSnapshotVersion(previousVersion, snapshotInterval)) {
+			return;
+		}
+
+		ResourceHistoryTable previous = theEntity.getCurrentVersionEntity();
+		if (previous == null || previous.getVersion() != previousVersion) {
+			previous = myResourceHistoryTableDao.findForIdAndVersion(theEntity.getResourceId().toFk(), previousVersion);
+		}
+		if (previous == null || !isFullBody(previous)) {
+			return;
+		}
+
+		long snapshotVersion =
+				ResourceHistoryCalculator.getHistoryDeltaSnapshotVersion(previousVersion, snapshotInterval);
+		ResourceHistoryTable snapshot =
+				myResourceHistoryTableDao.findForIdAndVersion(theEntity.getResourceId().toFk(), snapshotVersion);
+		if (snapshot == null || !isFullBody(snapshot)) {
+			return;
+		}
+
+		String delta = myResourceHistoryCalculator.encodeHistoryDelta(
+				snapshotVersion, decodeFullBody(snapshot), decodeFullBody(previous));
+		if (delta == null || !myResourceHistoryCalculator.populateHistoryDelta(previous, delta)) {
+			return;
+		}
+
+		ourLog.debug(
+				"Storing version {} of resource {} as a delta against version {}",
+				previousVersion,
+				theEntity.getIdDt().toUnqualifiedVersionless(),
+				snapshotVersion);
+	}
+
+	/**
+	 * Returns the full text of a version stored as a {@link ResourceEncodingEnum#DIFF DIFF} body
+	 */
+	public String reconstruct(ResourceHistoryTable theDelta) {
+		String delta = myResourceHistoryCalculator.getHistoryDelta(theDelta);
+		long baseVersion = myResourceHistoryCalculator.getHistoryDeltaBaseVersion(delta);
+		ResourceHistoryTable base =
+				myResourceHistoryTableDao.findForIdAndVersion(theDelta.getResourceId().toFk(), baseVersion);
+		if (base == null || !isFullBody(base)) {
+			throw new DataFormatException(Msg.code(2797) + "Unable to load version " + baseVersion
+					+ " which resource version " + theDelta.getIdDt().toUnqualified().getValue() + " is based on");
+		}
+		return myResourceHistoryCalculator.applyHistoryDelta(decodeFullBody(base), delta);
+	}
+
+	/**
+	 * Must be called before the body of a stored version is replaced or the version is deleted.
+	 * Any deltas based on that version are converted back into full bodies.
+	 */
+	public void materializeDeltasBasedOn(ResourceHistoryTable theBase) {
+		if (!isFullBody(theBase)) {
+			return;
+		}
+
+		List<ResourceHistoryTable> deltas = myResourceHistoryTableDao.findNewerVersionsWithEncoding(
+				theBase.getResourceId().toFk(), theBase.getVersion(), ResourceEncodingEnum.DIFF);
+		String baseText = null;
+		for (ResourceHistoryTable next : deltas) {
+			String delta = myResourceHistoryCalculator.getHistoryDelta(next);
+			if (myResourceHistoryCalculator.getHistoryDeltaBaseVersion(delta) != theBase.getVersion()) {
+				continue;
+			}
+			if (baseText == null) {
+				baseText = decodeFullBody(theBase);
+			}
+
+			String text = myResourceHistoryCalculator.applyHistoryDelta(baseText, delta);
+			ResourceEncodingEnum encoding =
+					myResourceHistoryCalculator.getStorageEncoding(myStorageSettings.getResourceEncoding());
+			byte[] binary = myResourceHistoryCalculator.encodeResourceBinary(encoding, next.getResourceType(), text);
+			EncodedResource encodedResource = new EncodedResource();
+			myResourceHistoryCalculator.populateEncodedResource(encodedResource, text, binary, encoding);
+			next.setEncoding(encodedResource.getEncoding());
+			next.setResource(encodedResource.getResourceBinary());
+			next.setResourceTextVc(encodedResource.getResourceText());
+		}
+	}
+
+	@Nullable
+	private String decodeFullBody(ResourceHistoryTable theHistoryEntity) {
+		if (theHistoryEntity.getResourceTextVc() != null) {
+			return theHistoryEntity.getResourceTextVc();
+		}
+		return myResourceHistoryCalculator.decodeResourceBinary(
+				theHistoryEntity.getEncoding(), theHistoryEntity.getResource());
+	}
+
+	private static boolean isFullBody(ResourceHistoryTable theHistoryEntity) {
+		ResourceEncodingEnum encoding = theHistoryEntity.getEncoding();
+		return theHistoryEntity.hasResource()
+				&& (encoding == ResourceEncodingEnum.JSON
+						|| encoding == ResourceEncodingEnum.JSONC
+						|| encoding == ResourceEncodingEnum.JSOND);
+	}
+}
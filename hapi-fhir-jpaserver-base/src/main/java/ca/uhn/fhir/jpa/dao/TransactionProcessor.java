@@ -28,6 +28,7 @@ import ca.uhn.fhir.jpa.api.model.DaoMethodOutcome;
 import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
 import ca.uhn.fhir.jpa.api.svc.ResolveIdentityMode;
 import ca.uhn.fhir.jpa.config.HapiFhirHibernateJpaDialect;
+import ca.uhn.fhir.jpa.dao.index.ResourceIndexBulkWriter;
 import ca.uhn.fhir.jpa.model.cross.IResourceLookup;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamToken;
@@ -134,6 +135,9 @@ public class TransactionProcessor extends BaseTransactionProcessor {
 	@Autowired
 	private IRequestPartitionHelperSvc myRequestPartitionHelperSvc;
 
+	@Autowired(required = false)
+	private ResourceIndexBulkWriter myResourceIndexBulkWriter;
+
 	public void setEntityManagerForUnitTest(EntityManager theEntityManager) {
 		myEntityManager = theEntityManager;
 	}
@@ -454,6 +458,7 @@ public class TransactionProcessor extends BaseTransactionProcessor {
 		super.handleVerbChangeInTransactionWriteOperations();
 
 		myEntityManager.flush();
+		flushResourceIndexBulkWriter();
 	}
 
 	@SuppressWarnings({"rawtypes", "unchecked"})
@@ -857,6 +862,7 @@ public class TransactionProcessor extends BaseTransactionProcessor {
 
 			StopWatch sw = new StopWatch();
 			myEntityManager.flush();
+			flushResourceIndexBulkWriter();
 			ourLog.debug(
 					"Session flush took {}ms for {} inserts and {} updates",
 					sw.getMillis(),
@@ -872,6 +878,16 @@ public class TransactionProcessor extends BaseTransactionProcessor {
 		}
 	}
 
+	/**
+	 * Index rows collected by the {@link ResourceIndexBulkWriter} are not part of the Hibernate
+	 * session, so they are written here too in order to be visible to subsequent operations
+	 */
+	private void flushResourceIndexBulkWriter() {
+		if (myResourceIndexBulkWriter != null) {
+			myResourceIndexBulkWriter.flush();
+		}
+	}
+
 	@VisibleForTesting
 	public void setIdHelperServiceForUnitTest(IIdHelperService<JpaPid> theIdHelperService) {
 		myIdHelperService = theIdHelperService;
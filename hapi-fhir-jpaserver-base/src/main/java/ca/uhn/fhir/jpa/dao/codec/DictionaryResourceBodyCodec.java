@@ -0,0 +1,145 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao.codec;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.entity.ResourceBodyDictionaryEntity;
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
+import ca.uhn.fhir.parser.DataFormatException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.LongFunction;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Codec for the {@link ResourceEncodingEnum#JSOND JSOND} encoding. Bodies are deflate compressed
+ * using a preset dictionary trained from other bodies of the same resource type (see
+ * {@link ResourceBodyDictionarySvc}). Resource bodies are small and very repetitive across
+ * resources of the same type, so a preset dictionary lets even the first bytes of a body refer
+ * back to common keys, systems and codes, which a plain gzip stream has not yet seen.
+ * <p>
+ * Each body starts with a one byte format version followed by the eight byte PID of the
+ * dictionary it was compressed with, or <code>0</code> if no dictionary was available yet for
+ * the resource type. The remainder is a zlib stream.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public class DictionaryResourceBodyCodec implements IResourceBodyCodec {
+
+	static final byte FORMAT_VERSION = 1;
+	private static final int HEADER_LENGTH = 1 + Long.BYTES;
+	private static final long NO_DICTIONARY = 0L;
+
+	private final ResourceBodyDictionarySvc myDictionarySvc;
+
+	/**
+	 * Constructor
+	 */
+	public DictionaryResourceBodyCodec(ResourceBodyDictionarySvc theDictionarySvc) {
+		myDictionarySvc = theDictionarySvc;
+	}
+
+	@Nonnull
+	@Override
+	public ResourceEncodingEnum getEncoding() {
+		return ResourceEncodingEnum.JSOND;
+	}
+
+	@Nonnull
+	@Override
+	public byte[] encode(@Nonnull String theResourceType, @Nonnull String theEncodedResource) {
+		ResourceBodyDictionaryEntity dictionary = myDictionarySvc.getCurrentDictionary(theResourceType);
+		if (dictionary == null) {
+			return encode(theEncodedResource, NO_DICTIONARY, null);
+		}
+		return encode(theEncodedResource, dictionary.getId(), dictionary.getDictionary());
+	}
+
+	@Nonnull
+	@Override
+	public String decode(@Nonnull byte[] theResourceBytes) {
+		return decode(theResourceBytes, myDictionarySvc::getDictionary);
+	}
+
+	static byte[] encode(String theEncodedResource, long theDictionaryId, @Nullable byte[] theDictionary) {
+		byte[] input = theEncodedResource.getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream output = new ByteArrayOutputStream(HEADER_LENGTH + input.length / 4);
+		output.write(FORMAT_VERSION);
+		output.writeBytes(ByteBuffer.allocate(Long.BYTES).putLong(theDictionaryId).array());
+
+		Deflater deflater = new Deflater();
+		try {
+			if (theDictionary != null) {
+				deflater.setDictionary(theDictionary);
+			}
+			deflater.setInput(input);
+			deflater.finish();
+			byte[] buffer = new byte[4096];
+			while (!deflater.finished()) {
+				int count = deflater.deflate(buffer);
+				output.write(buffer, 0, count);
+			}
+		} finally {
+			deflater.end();
+		}
+		return output.toByteArray();
+	}
+
+	static String decode(byte[] theResourceBytes, LongFunction<byte[]> theDictionaryLoader) {
+		if (theResourceBytes.length < HEADER_LENGTH || theResourceBytes[0] != FORMAT_VERSION) {
+			throw new DataFormatException(Msg.code(2791) + "Unsupported JSOND resource body format");
+		}
+		long dictionaryId = ByteBuffer.wrap(theResourceBytes, 1, Long.BYTES).getLong();
+
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(theResourceBytes, HEADER_LENGTH, theResourceBytes.length - HEADER_LENGTH);
+			ByteArrayOutputStream output = new ByteArrayOutputStream(theResourceBytes.length * 4);
+			byte[] buffer = new byte[4096];
+			while (!inflater.finished()) {
+				int count = inflater.inflate(buffer);
+				if (count == 0) {
+					if (inflater.needsDictionary()) {
+						byte[] dictionary = theDictionaryLoader.apply(dictionaryId);
+						if (dictionary == null) {
+							throw new DataFormatException(
+									Msg.code(2792) + "Unknown resource body dictionary: " + dictionaryId);
+						}
+						inflater.setDictionary(dictionary);
+					} else if (inflater.needsInput()) {
+						throw new DataFormatException(Msg.code(2793) + "Truncated JSOND resource body");
+					}
+				}
+				output.write(buffer, 0, count);
+			}
+			return output.toString(StandardCharsets.UTF_8);
+		} catch (java.util.zip.DataFormatException e) {
+			throw new DataFormatException(Msg.code(2794) + "Failed to decompress contents", e);
+		} finally {
+			inflater.end();
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao.codec;
+
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
+import jakarta.annotation.Nonnull;
+
+/**
+ * Converts the serialized (JSON) body of a resource to and from the binary form stored in
+ * the <code>RES_TEXT</code> column of the resource history table, for a single
+ * {@link ResourceEncodingEnum encoding}.
+ * <p>
+ * Codecs are registered with the {@link ResourceBodyCodecRegistry}. Any Spring bean implementing
+ * this interface is registered automatically, and replaces the built-in codec for the same
+ * encoding if one exists.
+ * </p>
+ * <p>
+ * Implementations must be thread safe. A body encoded by a codec must remain decodable by that
+ * codec for as long as it is stored, since existing rows are never re-encoded automatically.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public interface IResourceBodyCodec {
+
+	/**
+	 * The encoding stored alongside bodies produced by this codec
+	 */
+	@Nonnull
+	ResourceEncodingEnum getEncoding();
+
+	/**
+	 * Encodes a resource body
+	 *
+	 * @param theResourceType    The resource type, e.g. <code>Patient</code>
+	 * @param theEncodedResource The serialized resource
+	 */
+	@Nonnull
+	byte[] encode(@Nonnull String theResourceType, @Nonnull String theEncodedResource);
+
+	/**
+	 * Decodes a resource body previously produced by {@link #encode(String, String)}
+	 */
+	@Nonnull
+	String decode(@Nonnull byte[] theResourceBytes);
+}
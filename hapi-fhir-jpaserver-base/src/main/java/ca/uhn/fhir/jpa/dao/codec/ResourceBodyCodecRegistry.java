@@ -0,0 +1,144 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao.codec;
+
+import ca.uhn.fhir.jpa.dao.GZipUtil;
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.Validate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the {@link IResourceBodyCodec codecs} used to store resource bodies, keyed by
+ * {@link ResourceEncodingEnum encoding}. Codecs for {@link ResourceEncodingEnum#JSON JSON}
+ * and {@link ResourceEncodingEnum#JSONC JSONC} are always registered.
+ *
+ * @since 8.4.0
+ */
+public class ResourceBodyCodecRegistry {
+
+	private final Map<ResourceEncodingEnum, IResourceBodyCodec> myCodecs = new EnumMap<>(ResourceEncodingEnum.class);
+
+	/**
+	 * Constructor which registers only the built-in codecs
+	 */
+	public ResourceBodyCodecRegistry() {
+		this(Collections.emptyList());
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param theCodecs Additional codecs. These replace the built-in codec for the same encoding if one exists.
+	 */
+	public ResourceBodyCodecRegistry(@Nonnull List<IResourceBodyCodec> theCodecs) {
+		register(new JsonCodec());
+		register(new GZipJsonCodec());
+		theCodecs.forEach(this::register);
+	}
+
+	private void register(IResourceBodyCodec theCodec) {
+		Validate.notNull(theCodec.getEncoding(), "Codec %s has no encoding", theCodec);
+		myCodecs.put(theCodec.getEncoding(), theCodec);
+	}
+
+	public boolean hasCodec(ResourceEncodingEnum theEncoding) {
+		return myCodecs.containsKey(theEncoding);
+	}
+
+	/**
+	 * Encodes a resource body using the codec for the given encoding. Returns an empty array if
+	 * there is no codec for the encoding (e.g. {@link ResourceEncodingEnum#DEL DEL}).
+	 */
+	@Nonnull
+	public byte[] encode(ResourceEncodingEnum theEncoding, String theResourceType, String theEncodedResource) {
+		IResourceBodyCodec codec = myCodecs.get(theEncoding);
+		if (codec == null) {
+			return new byte[0];
+		}
+		return codec.encode(theResourceType, theEncodedResource);
+	}
+
+	/**
+	 * Decodes a stored resource body. Returns <code>null</code> if there is no body, or if the
+	 * encoding does not store one ({@link ResourceEncodingEnum#DEL DEL} and
+	 * {@link ResourceEncodingEnum#ESR ESR}).
+	 */
+	@Nullable
+	public String decode(@Nullable ResourceEncodingEnum theEncoding, @Nullable byte[] theResourceBytes) {
+		if (theResourceBytes == null
+				|| theEncoding == null
+				|| theEncoding == ResourceEncodingEnum.DEL
+				|| theEncoding == ResourceEncodingEnum.ESR) {
+			return null;
+		}
+		IResourceBodyCodec codec = myCodecs.get(theEncoding);
+		Validate.notNull(codec, "No resource body codec is registered for encoding %s", theEncoding);
+		return codec.decode(theResourceBytes);
+	}
+
+	private static class JsonCodec implements IResourceBodyCodec {
+
+		@Nonnull
+		@Override
+		public ResourceEncodingEnum getEncoding() {
+			return ResourceEncodingEnum.JSON;
+		}
+
+		@Nonnull
+		@Override
+		public byte[] encode(@Nonnull String theResourceType, @Nonnull String theEncodedResource) {
+			return theEncodedResource.getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Nonnull
+		@Override
+		public String decode(@Nonnull byte[] theResourceBytes) {
+			return new String(theResourceBytes, StandardCharsets.UTF_8);
+		}
+	}
+
+	private static class GZipJsonCodec implements IResourceBodyCodec {
+
+		@Nonnull
+		@Override
+		public ResourceEncodingEnum getEncoding() {
+			return ResourceEncodingEnum.JSONC;
+		}
+
+		@Nonnull
+		@Override
+		public byte[] encode(@Nonnull String theResourceType, @Nonnull String theEncodedResource) {
+			return GZipUtil.compress(theEncodedResource);
+		}
+
+		@Nonnull
+		@Override
+		public String decode(@Nonnull byte[] theResourceBytes) {
+			return GZipUtil.decompress(theResourceBytes);
+		}
+	}
+}
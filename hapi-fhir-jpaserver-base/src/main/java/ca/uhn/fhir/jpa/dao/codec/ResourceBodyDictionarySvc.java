@@ -0,0 +1,247 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao.codec;
+
+import ca.uhn.fhir.jpa.dao.BaseHapiFhirDao;
+import ca.uhn.fhir.jpa.dao.data.IResourceBodyDictionaryDao;
+import ca.uhn.fhir.jpa.dao.data.IResourceHistoryTableDao;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
+import ca.uhn.fhir.jpa.entity.ResourceBodyDictionaryEntity;
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
+import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
+import ca.uhn.fhir.jpa.model.sched.HapiJob;
+import ca.uhn.fhir.jpa.model.sched.IHasScheduledJobs;
+import ca.uhn.fhir.jpa.model.sched.ISchedulerService;
+import ca.uhn.fhir.jpa.model.sched.ScheduledJobDefinition;
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.time.DateUtils;
+import org.quartz.JobExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores and caches the per-resource-type dictionaries used by the {@link DictionaryResourceBodyCodec}.
+ * <p>
+ * When a body is encoded for a resource type which has no dictionary yet, the type is queued
+ * and a scheduled job trains a dictionary for it from the most recently stored bodies of that
+ * type once enough of them exist. Dictionaries are versioned and immutable: calling
+ * {@link #trainDictionary(String)} again creates a new version which is used for bodies encoded
+ * from then on, while older bodies continue to reference the version they were written with.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public class ResourceBodyDictionarySvc implements IHasScheduledJobs {
+
+	public static final int TRAINING_SAMPLE_SIZE = 500;
+	public static final int MINIMUM_TRAINING_SAMPLES = 20;
+	private static final long CURRENT_DICTIONARY_REFRESH_MILLIS = 10 * DateUtils.MILLIS_PER_MINUTE;
+	private static final Logger ourLog = LoggerFactory.getLogger(ResourceBodyDictionarySvc.class);
+
+	private final Map<Long, byte[]> myDictionaryIdToDictionary = new ConcurrentHashMap<>();
+	private final Map<String, CurrentDictionary> myResourceTypeToCurrentDictionary = new ConcurrentHashMap<>();
+	private final Set<String> myResourceTypesNeedingTraining = ConcurrentHashMap.newKeySet();
+
+	@Autowired
+	private IResourceBodyDictionaryDao myResourceBodyDictionaryDao;
+
+	@Autowired
+	private IResourceHistoryTableDao myResourceHistoryTableDao;
+
+	@Autowired
+	private IHapiTransactionService myTransactionService;
+
+	/**
+	 * Returns the newest dictionary for the given resource type, or <code>null</code> if none has
+	 * been trained yet (in which case training is scheduled)
+	 */
+	@Nullable
+	public ResourceBodyDictionaryEntity getCurrentDictionary(String theResourceType) {
+		CurrentDictionary current = myResourceTypeToCurrentDictionary.get(theResourceType);
+		if (current == null || current.isExpired()) {
+			ResourceBodyDictionaryEntity dictionary = findNewestDictionary(theResourceType);
+			if (dictionary != null) {
+				myDictionaryIdToDictionary.putIfAbsent(dictionary.getId(), dictionary.getDictionary());
+			}
+			current = new CurrentDictionary(dictionary);
+			myResourceTypeToCurrentDictionary.put(theResourceType, current);
+		}
+
+		if (current.myDictionary == null) {
+			myResourceTypesNeedingTraining.add(theResourceType);
+		}
+		return current.myDictionary;
+	}
+
+	/**
+	 * Returns the contents of the dictionary with the given PID, or <code>null</code> if it does not exist
+	 */
+	@Nullable
+	public byte[] getDictionary(long theDictionaryId) {
+		return myDictionaryIdToDictionary.computeIfAbsent(theDictionaryId, id -> myResourceBodyDictionaryDao
+				.findById(id)
+				.map(ResourceBodyDictionaryEntity::getDictionary)
+				.orElse(null));
+	}
+
+	/**
+	 * Trains and stores a new version of the dictionary for the given resource type, using the
+	 * most recently stored bodies of that type as samples.
+	 *
+	 * @return The new dictionary, or <code>null</code> if there are not enough stored bodies to train from
+	 */
+	@Nullable
+	public ResourceBodyDictionaryEntity trainDictionary(String theResourceType) {
+		ResourceBodyDictionaryEntity retVal = myTransactionService
+				.withSystemRequestOnDefaultPartition()
+				.execute(() -> trainDictionaryInTransaction(theResourceType));
+
+		if (retVal != null) {
+			myDictionaryIdToDictionary.put(retVal.getId(), retVal.getDictionary());
+			myResourceTypeToCurrentDictionary.put(theResourceType, new CurrentDictionary(retVal));
+			myResourceTypesNeedingTraining.remove(theResourceType);
+		}
+		return retVal;
+	}
+
+	private ResourceBodyDictionaryEntity trainDictionaryInTransaction(String theResourceType) {
+		List<String> samples = new ArrayList<>();
+		for (ResourceHistoryTable next : myResourceHistoryTableDao
+				.findNewestForResourceType(PageRequest.of(0, TRAINING_SAMPLE_SIZE), theResourceType)
+				.getContent()) {
+			String sample = decodeSample(next);
+			if (sample != null) {
+				samples.add(sample);
+			}
+		}
+
+		if (samples.size() < MINIMUM_TRAINING_SAMPLES) {
+			ourLog.debug(
+					"Only {} stored bodies of type {}, not training a dictionary yet", samples.size(), theResourceType);
+			return null;
+		}
+
+		byte[] dictionary = ResourceBodyDictionaryTrainer.train(samples);
+		if (dictionary.length == 0) {
+			return null;
+		}
+
+		ResourceBodyDictionaryEntity previous = findNewestDictionary(theResourceType);
+		int version = previous != null ? previous.getVersion() + 1 : 1;
+		ResourceBodyDictionaryEntity retVal = myResourceBodyDictionaryDao.save(
+				new ResourceBodyDictionaryEntity(theResourceType, version, dictionary));
+		ourLog.info(
+				"Trained resource body dictionary version {} for type {} ({} bytes from {} samples)",
+				version,
+				theResourceType,
+				dictionary.length,
+				samples.size());
+		return retVal;
+	}
+
+	@Nullable
+	private String decodeSample(ResourceHistoryTable theHistoryEntity) {
+		ResourceEncodingEnum encoding = theHistoryEntity.getEncoding();
+		if (encoding == ResourceEncodingEnum.ESR || encoding == ResourceEncodingEnum.DEL) {
+			return null;
+		}
+		if (theHistoryEntity.getResourceTextVc() != null) {
+			return theHistoryEntity.getResourceTextVc();
+		}
+		byte[] resourceBytes = theHistoryEntity.getResource();
+		if (resourceBytes == null) {
+			return null;
+		}
+		if (encoding == ResourceEncodingEnum.JSOND) {
+			return DictionaryResourceBodyCodec.decode(resourceBytes, this::getDictionary);
+		}
+		return BaseHapiFhirDao.decodeResource(resourceBytes, encoding);
+	}
+
+	@Nullable
+	private ResourceBodyDictionaryEntity findNewestDictionary(String theResourceType) {
+		return myResourceBodyDictionaryDao.findNewestForResourceType(PageRequest.of(0, 1), theResourceType).stream()
+				.findFirst()
+				.orElse(null);
+	}
+
+	@VisibleForTesting
+	public void clearCaches() {
+		myDictionaryIdToDictionary.clear();
+		myResourceTypeToCurrentDictionary.clear();
+		myResourceTypesNeedingTraining.clear();
+	}
+
+	@Override
+	public void scheduleJobs(ISchedulerService theSchedulerService) {
+		ScheduledJobDefinition jobDetail = new ScheduledJobDefinition();
+		jobDetail.setId(getClass().getName());
+		jobDetail.setJobClass(Job.class);
+		theSchedulerService.scheduleLocalJob(DateUtils.MILLIS_PER_MINUTE, jobDetail);
+	}
+
+	private void trainPendingDictionaries() {
+		for (String next : List.copyOf(myResourceTypesNeedingTraining)) {
+			myResourceTypesNeedingTraining.remove(next);
+			try {
+				trainDictionary(next);
+			} catch (DataIntegrityViolationException e) {
+				// Another server trained the same version first - we'll pick it up on the next refresh
+				ourLog.info("Resource body dictionary for type {} was trained concurrently: {}", next, e.toString());
+				myResourceTypeToCurrentDictionary.remove(next);
+			}
+		}
+	}
+
+	private static class CurrentDictionary {
+
+		private final ResourceBodyDictionaryEntity myDictionary;
+		private final long myExpiry;
+
+		private CurrentDictionary(@Nullable ResourceBodyDictionaryEntity theDictionary) {
+			myDictionary = theDictionary;
+			myExpiry = System.currentTimeMillis() + CURRENT_DICTIONARY_REFRESH_MILLIS;
+		}
+
+		private boolean isExpired() {
+			return System.currentTimeMillis() > myExpiry;
+		}
+	}
+
+	public static class Job implements HapiJob {
+		@Autowired
+		private ResourceBodyDictionarySvc myTarget;
+
+		@Override
+		public void execute(JobExecutionContext theContext) {
+			myTarget.trainPendingDictionaries();
+		}
+	}
+}
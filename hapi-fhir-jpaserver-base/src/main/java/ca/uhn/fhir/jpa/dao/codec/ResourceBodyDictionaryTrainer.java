@@ -0,0 +1,124 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao.codec;
+
+import jakarta.annotation.Nonnull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds a deflate preset dictionary from a sample of serialized resource bodies.
+ * <p>
+ * Each sample is split into fragments ending after a <code>,</code>, <code>{</code> or
+ * <code>[</code>, which for JSON means fragments such as <code>"system":"http://loinc.org",</code>.
+ * Fragments which appear in more than one sample are scored by the number of bytes they would
+ * save across the sample, and the best scoring fragments are concatenated with the most
+ * valuable ones last, since deflate encodes short back-references more cheaply.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public class ResourceBodyDictionaryTrainer {
+
+	/**
+	 * Deflate can only refer back 32KB, and the body itself uses part of that window
+	 */
+	public static final int MAXIMUM_DICTIONARY_SIZE = 16 * 1024;
+
+	private static final int MINIMUM_FRAGMENT_LENGTH = 4;
+	private static final int MAXIMUM_FRAGMENT_LENGTH = 256;
+
+	/**
+	 * Non instantiable
+	 */
+	private ResourceBodyDictionaryTrainer() {
+		// nothing
+	}
+
+	/**
+	 * Builds a dictionary from the given samples. Returns an empty array if the samples have
+	 * nothing in common.
+	 */
+	@Nonnull
+	public static byte[] train(@Nonnull Collection<String> theSamples) {
+		Map<String, Integer> documentFrequency = new HashMap<>();
+		for (String nextSample : theSamples) {
+			for (String nextFragment : splitIntoFragments(nextSample)) {
+				documentFrequency.merge(nextFragment, 1, Integer::sum);
+			}
+		}
+
+		List<String> candidates = new ArrayList<>();
+		for (Map.Entry<String, Integer> next : documentFrequency.entrySet()) {
+			if (next.getValue() > 1) {
+				candidates.add(next.getKey());
+			}
+		}
+		Comparator<String> byScore = Comparator.comparingLong(t -> score(t, documentFrequency.get(t)));
+		candidates.sort(byScore.reversed().thenComparing(Comparator.naturalOrder()));
+
+		List<String> chosen = new ArrayList<>();
+		int size = 0;
+		for (String next : candidates) {
+			int length = next.getBytes(StandardCharsets.UTF_8).length;
+			if (size + length <= MAXIMUM_DICTIONARY_SIZE) {
+				chosen.add(next);
+				size += length;
+			}
+		}
+
+		StringBuilder retVal = new StringBuilder(size);
+		for (int i = chosen.size() - 1; i >= 0; i--) {
+			retVal.append(chosen.get(i));
+		}
+		return retVal.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the distinct fragments of a sample which are worth considering for the dictionary
+	 */
+	static Set<String> splitIntoFragments(String theSample) {
+		Set<String> retVal = new HashSet<>();
+		int start = 0;
+		for (int i = 0; i < theSample.length(); i++) {
+			char next = theSample.charAt(i);
+			if (next == ',' || next == '{' || next == '[' || i == theSample.length() - 1) {
+				int length = i + 1 - start;
+				if (length >= MINIMUM_FRAGMENT_LENGTH && length <= MAXIMUM_FRAGMENT_LENGTH) {
+					retVal.add(theSample.substring(start, i + 1));
+				}
+				start = i + 1;
+			}
+		}
+		return retVal;
+	}
+
+	private static long score(String theFragment, int theDocumentFrequency) {
+		return (long) (theDocumentFrequency - 1) * theFragment.length();
+	}
+}
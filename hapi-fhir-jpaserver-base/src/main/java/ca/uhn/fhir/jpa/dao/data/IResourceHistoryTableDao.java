@@ -21,6 +21,7 @@ package ca.uhn.fhir.jpa.dao.data;
 
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.model.dao.JpaPidFk;
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTablePk;
 import org.springframework.data.domain.Pageable;
@@ -45,6 +46,18 @@ public interface IResourceHistoryTableDao
 	@Query("SELECT t FROM ResourceHistoryTable t WHERE t.myResourcePid = :id AND t.myResourceVersion = :version")
 	ResourceHistoryTable findForIdAndVersion(@Param("id") JpaPidFk theId, @Param("version") long theVersion);
 
+	/**
+	 * Returns the versions of a resource newer than the given version which are stored with the given encoding
+	 *
+	 * @since 8.4.0
+	 */
+	@Query(
+			"SELECT t FROM ResourceHistoryTable t WHERE t.myResourcePid = :resId AND t.myResourceVersion > :version AND t.myEncoding = :encoding")
+	List<ResourceHistoryTable> findNewerVersionsWithEncoding(
+			@Param("resId") JpaPidFk theId,
+			@Param("version") long theVersion,
+			@Param("encoding") ResourceEncodingEnum theEncoding);
+
 	@Query(
 			"SELECT t.myId FROM ResourceHistoryTable t WHERE t.myResourcePid = :resId AND t.myResourceVersion <> :dontWantVersion")
 	Slice<ResourceHistoryTablePk> findForResourceId(
@@ -74,6 +87,15 @@ public interface IResourceHistoryTableDao
 			+ "WHERE v.myResourceVersion <> t.myVersion")
 	Slice<ResourceHistoryTablePk> findIdsOfPreviousVersionsOfResources(Pageable thePage);
 
+	/**
+	 * Returns the most recently updated versions of resources of the given type, newest first
+	 *
+	 * @since 8.4.0
+	 */
+	@Query(
+			"SELECT t FROM ResourceHistoryTable t WHERE t.myResourceType = :resType AND t.myDeleted IS NULL ORDER BY t.myUpdated DESC")
+	Slice<ResourceHistoryTable> findNewestForResourceType(Pageable thePage, @Param("resType") String theResourceType);
+
 	@Modifying
 	@Query(
 			"UPDATE ResourceHistoryTable r SET r.myResourceVersion = :newVersion WHERE r.myResourcePid = :id AND r.myResourceVersion = :oldVersion")
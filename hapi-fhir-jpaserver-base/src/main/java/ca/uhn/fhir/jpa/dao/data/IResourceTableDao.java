@@ -93,6 +93,39 @@ public interface IResourceTableDao
 			@Param("low") Date theLow,
 			@Param("high") Date theHigh);
 
+	@Query("SELECT DISTINCT t.myResourceType FROM ResourceTable t WHERE t.myIndexStatus = :status")
+	List<String> findResourceTypesWithIndexStatus(@Param("status") EntityIndexStatusEnum theIndexStatus);
+
+	@Query(
+			"SELECT t.myPid FROM ResourceTable t WHERE t.myIndexStatus = :status AND t.myResourceType = :restype ORDER BY t.myPid.myId ASC")
+	Slice<JpaPid> findIdsOfResourcesWithIndexStatus(
+			Pageable thePage,
+			@Param("restype") String theResourceType,
+			@Param("status") EntityIndexStatusEnum theIndexStatus);
+
+	@Query(
+			"SELECT t.myPid FROM ResourceTable t WHERE t.myIndexStatus = :status AND t.myResourceType = :restype AND t.myPartitionIdValue IN (:partition_ids) ORDER BY t.myPid.myId ASC")
+	Slice<JpaPid> findIdsOfResourcesWithIndexStatusInPartitionIds(
+			Pageable thePage,
+			@Param("restype") String theResourceType,
+			@Param("status") EntityIndexStatusEnum theIndexStatus,
+			@Param("partition_ids") Collection<Integer> thePartitionIds);
+
+	@Query(
+			"SELECT t.myPid FROM ResourceTable t WHERE t.myIndexStatus = :status AND t.myResourceType = :restype AND (t.myPartitionIdValue IS NULL OR t.myPartitionIdValue IN (:partition_ids)) ORDER BY t.myPid.myId ASC")
+	Slice<JpaPid> findIdsOfResourcesWithIndexStatusInPartitionIdsOrNullPartition(
+			Pageable thePage,
+			@Param("restype") String theResourceType,
+			@Param("status") EntityIndexStatusEnum theIndexStatus,
+			@Param("partition_ids") Collection<Integer> thePartitionIds);
+
+	@Query(
+			"SELECT t.myPid FROM ResourceTable t WHERE t.myIndexStatus = :status AND t.myResourceType = :restype AND t.myPartitionIdValue IS NULL ORDER BY t.myPid.myId ASC")
+	Slice<JpaPid> findIdsOfResourcesWithIndexStatusInNullPartition(
+			Pageable thePage,
+			@Param("restype") String theResourceType,
+			@Param("status") EntityIndexStatusEnum theIndexStatus);
+
 	@Modifying
 	@Query("UPDATE ResourceTable t SET t.myIndexStatus = :status WHERE t.myPid = :id")
 	void updateIndexStatus(@Param("id") JpaPid theId, @Param("status") EntityIndexStatusEnum theIndexStatus);
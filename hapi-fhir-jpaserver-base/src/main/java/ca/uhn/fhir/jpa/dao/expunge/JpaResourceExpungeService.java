@@ -25,6 +25,7 @@ import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
 import ca.uhn.fhir.interceptor.api.Pointcut;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.dao.IJpaStorageResourceParser;
+import ca.uhn.fhir.jpa.dao.ResourceHistoryDeltaSvc;
 import ca.uhn.fhir.jpa.dao.data.IResourceHistoryProvenanceDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceHistoryTableDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceHistoryTagDao;
@@ -84,6 +85,9 @@ public class JpaResourceExpungeService implements IResourceExpungeService<JpaPid
 	@Autowired
 	private IResourceHistoryTableDao myResourceHistoryTableDao;
 
+	@Autowired
+	private ResourceHistoryDeltaSvc myResourceHistoryDeltaSvc;
+
 	@Autowired
 	private IResourceIndexedSearchParamUriDao myResourceIndexedSearchParamUriDao;
 
@@ -241,6 +245,9 @@ public class JpaResourceExpungeService implements IResourceExpungeService<JpaPid
 			provenanceOpt.ifPresent(entity -> myResourceHistoryProvenanceTableDao.deleteByPid(entity.getId()));
 		}
 
+		// Newer versions may be stored as deltas against this one
+		myResourceHistoryDeltaSvc.materializeDeltasBasedOn(version);
+
 		myResourceHistoryTagDao.deleteByPid(version.getId());
 		myResourceHistoryTableDao.deleteByPid(version.getId());
 
@@ -69,6 +69,9 @@ public class DaoSearchParamSynchronizer {
 	@Autowired
 	private FhirContext myFhirContext;
 
+	@Autowired(required = false)
+	private ResourceIndexBulkWriter myResourceIndexBulkWriter;
+
 	public AddRemoveCount synchronizeSearchParamsToDatabase(
 			ResourceIndexedSearchParams theParams,
 			ResourceTable theEntity,
@@ -118,6 +121,11 @@ public class DaoSearchParamSynchronizer {
 		myStorageSettings = theStorageSettings;
 	}
 
+	@VisibleForTesting
+	public void setResourceIndexBulkWriter(ResourceIndexBulkWriter theResourceIndexBulkWriter) {
+		myResourceIndexBulkWriter = theResourceIndexBulkWriter;
+	}
+
 	private <T extends BaseResourceIndex> void synchronize(
 			ResourceTable theEntity,
 			AddRemoveCount theAddRemoveCount,
@@ -171,19 +179,20 @@ public class DaoSearchParamSynchronizer {
 		updateExistingParamsIfRequired(theExistingParams, paramsToAdd, newParams, paramsToRemove);
 
 		for (T next : paramsToRemove) {
-			if (!myEntityManager.contains(next)) {
-				// If a resource is created and deleted in the same transaction, we can end up
-				// in a state where we're deleting entities that don't actually exist. Hibernate
-				// 6 is stricter about this, so we skip here.
-				continue;
-			}
-			myEntityManager.remove(next);
+			removeIndex(next);
 		}
 
+		boolean bulkInsert = isBulkIndexInsertEnabled();
 		for (T next : paramsToAdd) {
 			findOrCreateSearchParamIdentity(next);
+			if (bulkInsert && myResourceIndexBulkWriter.isPending(next)) {
+				// A pending row which was reused above, it will be written with its new values
+				continue;
+			}
 			if (next.getId() == null) {
-				myEntityManager.persist(next);
+				if (!bulkInsert || !myResourceIndexBulkWriter.addPending(next)) {
+					myEntityManager.persist(next);
+				}
 			} else {
 				myEntityManager.merge(next);
 			}
@@ -202,6 +211,33 @@ public class DaoSearchParamSynchronizer {
 		theNewParams.removeAll(paramsToRemove);
 	}
 
+	private boolean isBulkIndexInsertEnabled() {
+		return myResourceIndexBulkWriter != null && myStorageSettings.isBulkIndexInsertEnabled();
+	}
+
+	/**
+	 * Removes an index row, taking into account that rows handed to the {@link ResourceIndexBulkWriter}
+	 * in the current transaction are not managed by the entity manager
+	 */
+	private <T extends BaseResourceIndex> void removeIndex(T theIndex) {
+		if (isBulkIndexInsertEnabled()) {
+			if (myResourceIndexBulkWriter.removePending(theIndex)) {
+				return;
+			}
+			if (myResourceIndexBulkWriter.isWritten(theIndex)) {
+				myEntityManager.remove(myEntityManager.merge(theIndex));
+				return;
+			}
+		}
+		if (!myEntityManager.contains(theIndex)) {
+			// If a resource is created and deleted in the same transaction, we can end up
+			// in a state where we're deleting entities that don't actually exist. Hibernate
+			// 6 is stricter about this, so we skip here.
+			return;
+		}
+		myEntityManager.remove(theIndex);
+	}
+
 	/**
 	 * Checks whether the Indexed Search Parameter hash identity exists in the cache.
 	 * If the identity is missing, a new {@link IndexedSearchParamIdentity} will be
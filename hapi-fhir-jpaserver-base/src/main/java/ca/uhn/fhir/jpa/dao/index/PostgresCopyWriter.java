@@ -0,0 +1,51 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao.index;
+
+import org.postgresql.PGConnection;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Writes rows using the PostgreSQL <code>COPY</code> protocol. This is the only class used by
+ * {@link ResourceIndexBulkWriter} which refers to the PostgreSQL driver, which is an optional
+ * dependency, so it must only be used once the driver is known to be on the classpath.
+ */
+final class PostgresCopyWriter {
+
+	/**
+	 * Non-instantiable
+	 */
+	private PostgresCopyWriter() {}
+
+	static boolean isPostgresConnection(Connection theConnection) throws SQLException {
+		return theConnection.isWrapperFor(PGConnection.class);
+	}
+
+	/**
+	 * Executes a <code>COPY ... FROM STDIN</code> statement using the given data
+	 */
+	static void copyIn(Connection theConnection, String theSql, String theData) throws SQLException, IOException {
+		theConnection.unwrap(PGConnection.class).getCopyAPI().copyIn(theSql, new StringReader(theData));
+	}
+}
@@ -0,0 +1,381 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao.index;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.model.entity.BaseResourceIndex;
+import ca.uhn.fhir.jpa.model.entity.BaseResourceIndexedSearchParam;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.util.StopWatch;
+import com.google.common.collect.Lists;
+import jakarta.annotation.Nullable;
+import jakarta.persistence.Column;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceContextType;
+import jakarta.persistence.Table;
+import org.apache.commons.lang3.Validate;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.generator.Generator;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the new search parameter index rows (the rows in the <code>HFJ_SPIDX_*</code> tables)
+ * created within a database transaction, and writes them using JDBC batch inserts per table (or
+ * the <code>COPY</code> protocol on PostgreSQL, if the PostgreSQL driver is on the classpath)
+ * instead of persisting each row as a separate Hibernate entity. Pending rows are written when
+ * {@link #flush()} is called, and automatically just before the transaction commits.
+ * <p>
+ * Rows written by this class are not managed by the Hibernate session, so callers which later
+ * remove or modify one of them within the same transaction must check {@link #isPending(BaseResourceIndex)}
+ * and {@link #isWritten(BaseResourceIndex)} first.
+ * </p>
+ *
+ * @see JpaStorageSettings#setBulkIndexInsertEnabled(boolean)
+ * @since 8.4.0
+ */
+public class ResourceIndexBulkWriter {
+
+	static final int INSERT_BATCH_SIZE = 500;
+	private static final Logger ourLog = LoggerFactory.getLogger(ResourceIndexBulkWriter.class);
+	private static final Map<Class<?>, IndexTable> ourIndexTables = new ConcurrentHashMap<>();
+	private static final boolean ourPostgresDriverAvailable = isPostgresDriverAvailable();
+
+	@PersistenceContext(type = PersistenceContextType.TRANSACTION)
+	private EntityManager myEntityManager;
+
+	/**
+	 * Adds a new index row to the rows which will be written when the current transaction commits.
+	 *
+	 * @return Returns <code>false</code> if the row can not be written by this class (because it is not
+	 * a search parameter index row, because it already has an ID, or because no transaction is active),
+	 * in which case the caller must persist it normally
+	 */
+	public boolean addPending(BaseResourceIndex theIndex) {
+		if (!(theIndex instanceof BaseResourceIndexedSearchParam) || theIndex.getId() != null) {
+			return false;
+		}
+		TransactionState state = getTransactionState(true);
+		if (state == null) {
+			return false;
+		}
+		state.myPending.computeIfAbsent(theIndex.getClass(), t -> newIdentitySet()).add(theIndex);
+		return true;
+	}
+
+	/**
+	 * Returns <code>true</code> if the given row was passed to {@link #addPending(BaseResourceIndex)}
+	 * in the current transaction and has not been written yet
+	 */
+	public boolean isPending(BaseResourceIndex theIndex) {
+		TransactionState state = getTransactionState(false);
+		if (state == null) {
+			return false;
+		}
+		Set<BaseResourceIndex> pending = state.myPending.get(theIndex.getClass());
+		return pending != null && pending.contains(theIndex);
+	}
+
+	/**
+	 * Removes the given row from the rows waiting to be written in the current transaction
+	 *
+	 * @return Returns <code>true</code> if the row was pending (and therefore never needs to be deleted)
+	 */
+	public boolean removePending(BaseResourceIndex theIndex) {
+		TransactionState state = getTransactionState(false);
+		if (state == null) {
+			return false;
+		}
+		Set<BaseResourceIndex> pending = state.myPending.get(theIndex.getClass());
+		return pending != null && pending.remove(theIndex);
+	}
+
+	/**
+	 * Returns <code>true</code> if the given row was written to the database by this class
+	 * in the current transaction. Such rows exist in the database but are not managed by the
+	 * Hibernate session.
+	 */
+	public boolean isWritten(BaseResourceIndex theIndex) {
+		TransactionState state = getTransactionState(false);
+		return state != null && state.myWritten.contains(theIndex);
+	}
+
+	/**
+	 * Writes all pending rows for the current transaction to the database
+	 */
+	public void flush() {
+		TransactionState state = getTransactionState(false);
+		if (state != null) {
+			flush(state);
+		}
+	}
+
+	private void flush(TransactionState theState) {
+		if (theState.myPending.values().stream().allMatch(Set::isEmpty)) {
+			return;
+		}
+
+		// The resource rows referenced by the index rows need to be written first
+		theState.mySession.flush();
+
+		StopWatch sw = new StopWatch();
+		int count = 0;
+		for (Map.Entry<Class<?>, Set<BaseResourceIndex>> next : theState.myPending.entrySet()) {
+			if (next.getValue().isEmpty()) {
+				continue;
+			}
+			IndexTable table = ourIndexTables.computeIfAbsent(next.getKey(), IndexTable::new);
+			List<BaseResourceIndex> rows = new ArrayList<>(next.getValue());
+			table.assignIds(theState.mySession, rows);
+			theState.mySession.doWork(connection -> table.write(connection, rows));
+			theState.myWritten.addAll(rows);
+			count += rows.size();
+		}
+		theState.myPending.clear();
+
+		ourLog.debug("Wrote {} search parameter index rows in {}", count, sw);
+	}
+
+	@Nullable
+	private TransactionState getTransactionState(boolean theCreateIfMissing) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			return null;
+		}
+
+		/*
+		 * The state is keyed by the Hibernate session rather than by this object so that a nested
+		 * transaction (which gets its own session) never writes rows belonging to the outer one
+		 */
+		SessionImplementor session = myEntityManager.unwrap(SessionImplementor.class);
+		TransactionState retVal = (TransactionState) TransactionSynchronizationManager.getResource(session);
+		if (retVal == null && theCreateIfMissing) {
+			TransactionState state = new TransactionState(session);
+			TransactionSynchronizationManager.bindResource(session, state);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void beforeCommit(boolean readOnly) {
+					flush(state);
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(session);
+				}
+			});
+			retVal = state;
+		}
+		return retVal;
+	}
+
+	/**
+	 * The PostgreSQL driver is an optional dependency, so {@link PostgresCopyWriter} (which is the only
+	 * class referring to it) must not be loaded unless the driver is present
+	 */
+	private static boolean isPostgresDriverAvailable() {
+		try {
+			Class.forName("org.postgresql.PGConnection", false, ResourceIndexBulkWriter.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	private static Set<BaseResourceIndex> newIdentitySet() {
+		return Collections.newSetFromMap(new IdentityHashMap<>());
+	}
+
+	private static class TransactionState {
+
+		private final SessionImplementor mySession;
+		private final Map<Class<?>, Set<BaseResourceIndex>> myPending = new LinkedHashMap<>();
+		private final Set<BaseResourceIndex> myWritten = newIdentitySet();
+
+		private TransactionState(SessionImplementor theSession) {
+			mySession = theSession;
+		}
+	}
+
+	/**
+	 * The insertable columns of an index entity, read from its JPA mapping annotations
+	 */
+	private static class IndexTable {
+
+		private final Class<?> myType;
+		private final String myTableName;
+		private final List<String> myColumnNames = new ArrayList<>();
+		private final List<Field> myFields = new ArrayList<>();
+
+		private IndexTable(Class<?> theType) {
+			myType = theType;
+			Table table = theType.getAnnotation(Table.class);
+			Validate.notNull(table, "No @Table found on %s", theType);
+			myTableName = table.name();
+
+			for (Class<?> next = theType; next != Object.class; next = next.getSuperclass()) {
+				for (Field field : next.getDeclaredFields()) {
+					Column column = field.getAnnotation(Column.class);
+					if (column == null || !column.insertable() || Modifier.isStatic(field.getModifiers())) {
+						continue;
+					}
+					field.setAccessible(true);
+					myColumnNames.add(column.name());
+					myFields.add(field);
+				}
+			}
+		}
+
+		private void assignIds(SessionImplementor theSession, List<BaseResourceIndex> theRows) {
+			EntityPersister persister = theSession.getFactory().getMappingMetamodel().getEntityDescriptor(myType);
+			Generator generator = persister.getGenerator();
+			Validate.isTrue(generator instanceof IdentifierGenerator, "Unsupported ID generator for %s", myType);
+			for (BaseResourceIndex next : theRows) {
+				next.setId((Long) ((IdentifierGenerator) generator).generate(theSession, next));
+			}
+		}
+
+		private void write(Connection theConnection, List<BaseResourceIndex> theRows) throws SQLException {
+			boolean postgres = ourPostgresDriverAvailable && PostgresCopyWriter.isPostgresConnection(theConnection);
+			for (List<BaseResourceIndex> nextBatch : Lists.partition(theRows, INSERT_BATCH_SIZE)) {
+				if (postgres) {
+					copy(theConnection, nextBatch);
+				} else {
+					insert(theConnection, nextBatch);
+				}
+			}
+		}
+
+		private void insert(Connection theConnection, List<BaseResourceIndex> theRows) throws SQLException {
+			String sql = "INSERT INTO " + myTableName + " (" + String.join(", ", myColumnNames) + ") VALUES ("
+					+ String.join(", ", Collections.nCopies(myColumnNames.size(), "?")) + ")";
+			try (PreparedStatement statement = theConnection.prepareStatement(sql)) {
+				for (BaseResourceIndex nextRow : theRows) {
+					for (int i = 0; i < myFields.size(); i++) {
+						bind(statement, i + 1, myFields.get(i).getType(), getValue(nextRow, i));
+					}
+					statement.addBatch();
+				}
+				statement.executeBatch();
+			}
+		}
+
+		private void copy(Connection theConnection, List<BaseResourceIndex> theRows) throws SQLException {
+			String sql = "COPY " + myTableName + " (" + String.join(", ", myColumnNames)
+					+ ") FROM STDIN WITH (FORMAT csv)";
+
+			// In CSV format an unquoted empty value is NULL, so every non-null value is quoted
+			StringBuilder csv = new StringBuilder();
+			for (BaseResourceIndex nextRow : theRows) {
+				for (int i = 0; i < myFields.size(); i++) {
+					if (i > 0) {
+						csv.append(',');
+					}
+					Object value = getValue(nextRow, i);
+					if (value != null) {
+						csv.append('"').append(toCopyText(value).replace("\"", "\"\"")).append('"');
+					}
+				}
+				csv.append('\n');
+			}
+
+			try {
+				PostgresCopyWriter.copyIn(theConnection, sql, csv.toString());
+			} catch (IOException e) {
+				throw new InternalErrorException(Msg.code(2789) + "Failed to write to " + myTableName, e);
+			}
+		}
+
+		private Object getValue(BaseResourceIndex theRow, int theColumnIndex) {
+			try {
+				return myFields.get(theColumnIndex).get(theRow);
+			} catch (IllegalAccessException e) {
+				throw new InternalErrorException(Msg.code(2790) + e.getMessage(), e);
+			}
+		}
+
+		private static void bind(PreparedStatement theStatement, int theIndex, Class<?> theType, Object theValue)
+				throws SQLException {
+			if (theValue == null) {
+				theStatement.setNull(theIndex, toSqlType(theType));
+			} else if (theValue instanceof Date date) {
+				theStatement.setTimestamp(theIndex, new Timestamp(date.getTime()));
+			} else if (theValue instanceof LocalDate localDate) {
+				theStatement.setDate(theIndex, java.sql.Date.valueOf(localDate));
+			} else if (theValue instanceof Boolean bool) {
+				theStatement.setBoolean(theIndex, bool);
+			} else {
+				theStatement.setObject(theIndex, theValue);
+			}
+		}
+
+		private static String toCopyText(Object theValue) {
+			if (theValue instanceof Date date) {
+				return new Timestamp(date.getTime()).toString();
+			} else if (theValue instanceof BigDecimal decimal) {
+				return decimal.toPlainString();
+			}
+			return theValue.toString();
+		}
+
+		private static int toSqlType(Class<?> theType) {
+			if (theType == String.class) {
+				return Types.VARCHAR;
+			} else if (theType == Long.class) {
+				return Types.BIGINT;
+			} else if (theType == Integer.class) {
+				return Types.INTEGER;
+			} else if (theType == Double.class) {
+				return Types.DOUBLE;
+			} else if (theType == BigDecimal.class) {
+				return Types.DECIMAL;
+			} else if (Date.class.isAssignableFrom(theType)) {
+				return Types.TIMESTAMP;
+			} else if (theType == LocalDate.class) {
+				return Types.DATE;
+			}
+			return Types.NULL;
+		}
+	}
+}
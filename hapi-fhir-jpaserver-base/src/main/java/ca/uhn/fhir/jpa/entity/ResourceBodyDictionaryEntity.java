@@ -0,0 +1,124 @@
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.hibernate.Length;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * A compression dictionary trained from the stored bodies of a single resource type, used to
+ * compress resource bodies stored with the
+ * {@link ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum#JSOND JSOND} encoding.
+ * <p>
+ * Dictionaries are never modified or deleted once created, since every resource body compressed
+ * with one refers to it by its PID. Retraining the dictionary for a resource type creates a new
+ * row with a higher version.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+@Entity
+@Table(
+		name = "HFJ_RES_BODY_DICT",
+		indexes = {@Index(name = "IDX_RES_BODY_DICT_TYPE_VER", columnList = "RES_TYPE,DICT_VERSION", unique = true)})
+public class ResourceBodyDictionaryEntity implements Serializable {
+
+	public static final int RES_TYPE_LENGTH = 100;
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.AUTO, generator = "SEQ_RES_BODY_DICT")
+	@SequenceGenerator(name = "SEQ_RES_BODY_DICT", sequenceName = "SEQ_RES_BODY_DICT", allocationSize = 1)
+	@Column(name = "PID")
+	private Long myId;
+
+	@Column(name = "RES_TYPE", nullable = false, updatable = false, length = RES_TYPE_LENGTH)
+	private String myResourceType;
+
+	@Column(name = "DICT_VERSION", nullable = false, updatable = false)
+	private int myVersion;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "CREATED", nullable = false, updatable = false)
+	private Date myCreated;
+
+	@Column(name = "DICT_DATA", nullable = false, updatable = false, length = Length.LONG32)
+	private byte[] myDictionary;
+
+	/**
+	 * Constructor
+	 */
+	public ResourceBodyDictionaryEntity() {
+		// nothing
+	}
+
+	/**
+	 * Constructor
+	 */
+	public ResourceBodyDictionaryEntity(String theResourceType, int theVersion, byte[] theDictionary) {
+		myResourceType = theResourceType;
+		myVersion = theVersion;
+		myDictionary = theDictionary;
+		myCreated = new Date();
+	}
+
+	public Long getId() {
+		return myId;
+	}
+
+	public String getResourceType() {
+		return myResourceType;
+	}
+
+	public int getVersion() {
+		return myVersion;
+	}
+
+	public Date getCreated() {
+		return myCreated;
+	}
+
+	public byte[] getDictionary() {
+		return myDictionary;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this)
+				.append("id", myId)
+				.append("resourceType", myResourceType)
+				.append("version", myVersion)
+				.append("bytes", myDictionary != null ? myDictionary.length : 0)
+				.toString();
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.hibernate.Length;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A block of consecutive search result PIDs, stored in a single row as a compressed,
+ * delta-encoded byte array. This is an alternative to storing one {@link SearchResult}
+ * row per matched resource, and is used by the
+ * {@link ca.uhn.fhir.jpa.search.cache.PackedSearchResultCacheSvcImpl packed search result cache}.
+ * <p>
+ * A block holds the results with orders <code>[firstOrder, firstOrder + pidCount)</code>.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+@Entity
+@Table(name = "HFJ_SEARCH_RESULT_BLOCK")
+@IdClass(SearchResultBlock.SearchResultBlockPk.class)
+public class SearchResultBlock implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@Column(name = "SEARCH_PID", nullable = false, updatable = false)
+	private Long mySearchPid;
+
+	@Id
+	@Column(name = "FIRST_ORDER", nullable = false, updatable = false)
+	private int myFirstOrder;
+
+	@Column(name = "PID_COUNT", nullable = false, updatable = false)
+	private int myPidCount;
+
+	@Column(name = "PID_DATA", nullable = false, updatable = false, length = Length.LONG32)
+	private byte[] myPidData;
+
+	/**
+	 * Constructor
+	 */
+	public SearchResultBlock() {
+		// nothing
+	}
+
+	/**
+	 * Constructor
+	 */
+	public SearchResultBlock(Search theSearch, int theFirstOrder, int thePidCount, byte[] thePidData) {
+		Validate.notNull(theSearch.getId());
+		mySearchPid = theSearch.getId();
+		myFirstOrder = theFirstOrder;
+		myPidCount = thePidCount;
+		myPidData = thePidData;
+	}
+
+	public Long getSearchPid() {
+		return mySearchPid;
+	}
+
+	public int getFirstOrder() {
+		return myFirstOrder;
+	}
+
+	public int getPidCount() {
+		return myPidCount;
+	}
+
+	public byte[] getPidData() {
+		return myPidData;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this)
+				.append("search", mySearchPid)
+				.append("firstOrder", myFirstOrder)
+				.append("pidCount", myPidCount)
+				.append("bytes", myPidData != null ? myPidData.length : 0)
+				.toString();
+	}
+
+	public static class SearchResultBlockPk implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private Long mySearchPid;
+		private int myFirstOrder;
+
+		/**
+		 * Constructor
+		 */
+		public SearchResultBlockPk() {
+			// nothing
+		}
+
+		/**
+		 * Constructor
+		 */
+		public SearchResultBlockPk(Long theSearchPid, int theFirstOrder) {
+			mySearchPid = theSearchPid;
+			myFirstOrder = theFirstOrder;
+		}
+
+		@Override
+		public boolean equals(Object theO) {
+			if (this == theO) {
+				return true;
+			}
+			if (!(theO instanceof SearchResultBlockPk)) {
+				return false;
+			}
+			SearchResultBlockPk that = (SearchResultBlockPk) theO;
+			return myFirstOrder == that.myFirstOrder && Objects.equals(mySearchPid, that.mySearchPid);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(mySearchPid, myFirstOrder);
+		}
+	}
+}
@@ -169,6 +169,42 @@ public class HapiFhirJpaMigrationTasks extends BaseMigrationTasks<VersionEnum> {
 			resLink.addColumn("20250515.501", "SRC_RES_TYPE_ID").nullable().type(ColumnTypeEnum.SMALLINT);
 			resLink.addColumn("20250515.502", "TARGET_RES_TYPE_ID").nullable().type(ColumnTypeEnum.SMALLINT);
 		}
+
+		{
+			// Add HFJ_SEARCH_RESULT_BLOCK table
+			Builder.BuilderAddTableByColumns resultBlock =
+					version.addTableByColumns("20251017.1", "HFJ_SEARCH_RESULT_BLOCK", "SEARCH_PID", "FIRST_ORDER");
+			resultBlock.addColumn("SEARCH_PID").nonNullable().type(ColumnTypeEnum.LONG);
+			resultBlock.addColumn("FIRST_ORDER").nonNullable().type(ColumnTypeEnum.INT);
+			resultBlock.addColumn("PID_COUNT").nonNullable().type(ColumnTypeEnum.INT);
+			resultBlock.addColumn("PID_DATA").nonNullable().type(ColumnTypeEnum.BINARY);
+		}
+
+		{
+			// Add HFJ_RES_BODY_DICT table
+			version.addIdGenerator("20251017.10", "SEQ_RES_BODY_DICT", 1);
+			Builder.BuilderAddTableByColumns bodyDictionary =
+					version.addTableByColumns("20251017.11", "HFJ_RES_BODY_DICT", "PID");
+			bodyDictionary.addColumn("PID").nonNullable().type(ColumnTypeEnum.LONG);
+			bodyDictionary.addColumn("RES_TYPE").nonNullable().type(ColumnTypeEnum.STRING, 100);
+			bodyDictionary.addColumn("DICT_VERSION").nonNullable().type(ColumnTypeEnum.INT);
+			bodyDictionary.addColumn("CREATED").nonNullable().type(ColumnTypeEnum.DATE_TIMESTAMP);
+			bodyDictionary.addColumn("DICT_DATA").nonNullable().type(ColumnTypeEnum.BINARY);
+
+			bodyDictionary
+					.addIndex("20251017.12", "IDX_RES_BODY_DICT_TYPE_VER")
+					.unique(true)
+					.withColumns("RES_TYPE", "DICT_VERSION");
+		}
+
+		{
+			// Allow resources with deferred indexing to be found without scanning HFJ_RESOURCE
+			version.onTable("HFJ_RESOURCE")
+					.addIndex("20251017.20", "IDX_RES_IDXSTATUS_TYPE")
+					.unique(false)
+					.online(true)
+					.withColumns("SP_INDEX_STATUS", "RES_TYPE", "RES_ID");
+		}
 	}
 
 	protected void init820() {
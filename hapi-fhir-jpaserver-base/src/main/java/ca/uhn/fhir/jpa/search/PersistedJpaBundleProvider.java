@@ -28,6 +28,7 @@ import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
 import ca.uhn.fhir.jpa.api.svc.ISearchCoordinatorSvc;
+import ca.uhn.fhir.jpa.config.HibernatePropertiesProvider;
 import ca.uhn.fhir.jpa.dao.HistoryBuilder;
 import ca.uhn.fhir.jpa.dao.HistoryBuilderFactory;
 import ca.uhn.fhir.jpa.dao.IJpaStorageResourceParser;
@@ -40,12 +41,14 @@ import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.model.entity.BaseHasResource;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
 import ca.uhn.fhir.jpa.partition.IRequestPartitionHelperSvc;
+import ca.uhn.fhir.jpa.search.cache.HotSearchResultCache;
 import ca.uhn.fhir.jpa.search.cache.ISearchCacheSvc;
 import ca.uhn.fhir.jpa.search.cache.SearchCacheStatusEnum;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.jpa.util.QueryParameterUtils;
 import ca.uhn.fhir.model.primitive.InstantDt;
+import ca.uhn.fhir.rest.api.SearchTotalModeEnum;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.api.server.IPreResourceAccessDetails;
 import ca.uhn.fhir.rest.api.server.IPreResourceShowDetails;
@@ -58,6 +61,7 @@ import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
 import ca.uhn.fhir.rest.server.util.CompositeInterceptorBroadcaster;
 import com.google.common.annotations.VisibleForTesting;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import org.hl7.fhir.instance.model.api.IBaseResource;
@@ -70,6 +74,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 public class PersistedJpaBundleProvider implements IBundleProvider {
@@ -119,6 +124,15 @@ public class PersistedJpaBundleProvider implements IBundleProvider {
 
 	@Autowired
 	private IJpaStorageResourceParser myJpaStorageResourceParser;
+
+	@Autowired
+	private HibernatePropertiesProvider myHibernatePropertiesProvider;
+
+	@Autowired(required = false)
+	private HotSearchResultCache myHotSearchResultCache;
+
+	@Autowired(required = false)
+	private SearchTotalEstimator mySearchTotalEstimator;
 	/*
 	 * Non autowired fields (will be different for every instance
 	 * of this class, since it's a prototype
@@ -282,6 +296,12 @@ public class PersistedJpaBundleProvider implements IBundleProvider {
 	 * Returns false if the entity can't be found
 	 */
 	public boolean ensureSearchEntityLoaded() {
+		if (mySearchEntity == null && myHotSearchResultCache != null) {
+			Search hotSearch = myHotSearchResultCache.getSearch(myUuid);
+			if (hotSearch != null) {
+				setSearchEntity(hotSearch);
+			}
+		}
 		if (mySearchEntity == null) {
 			Optional<Search> searchOpt = myTxService
 					.withRequest(myRequest)
@@ -403,6 +423,107 @@ public class PersistedJpaBundleProvider implements IBundleProvider {
 		}
 	}
 
+	/**
+	 * Loads the page of search results and resolves the _include and _revinclude targets up front,
+	 * then loads the resources themselves and passes each batch to the consumer as soon as it has
+	 * been loaded. History results are loaded as a single batch.
+	 */
+	@Override
+	public void streamResources(
+			int theFromIndex,
+			int theToIndex,
+			@Nonnull ResponsePage.ResponsePageBuilder theResponsePageBuilder,
+			int theBatchSize,
+			@Nonnull Consumer<List<IBaseResource>> theConsumer) {
+		boolean entityLoaded = ensureSearchEntityLoaded();
+		assert entityLoaded;
+		assert mySearchEntity != null;
+		assert mySearchEntity.getSearchType() != null;
+
+		if (mySearchEntity.getSearchType() == SearchTypeEnum.HISTORY || theBatchSize <= 0) {
+			IBundleProvider.super.streamResources(
+					theFromIndex, theToIndex, theResponsePageBuilder, theBatchSize, theConsumer);
+			return;
+		}
+		if (mySearchEntity.getTotalCount() != null && mySearchEntity.getNumFound() <= 0) {
+			// No resources to fetch (e.g. we did a _summary=count search)
+			return;
+		}
+
+		String resourceName = mySearchEntity.getResourceType();
+		Class<? extends IBaseResource> resourceType =
+				myContext.getResourceDefinition(resourceName).getImplementingClass();
+		final ISearchBuilder sb = mySearchBuilderFactory.newSearchBuilder(resourceName, resourceType);
+
+		RequestPartitionId requestPartitionId = getRequestPartitionId();
+		// we request 1 more resource than we need, as in doSearchOrEverything
+		final List<JpaPid> pidsSubList = mySearchCoordinatorSvc.getResources(
+				myUuid, theFromIndex, theToIndex + 1, myRequest, requestPartitionId);
+		int maxSize = Math.min(theToIndex - theFromIndex, pidsSubList.size());
+		theResponsePageBuilder.setTotalRequestedResourcesFetched(pidsSubList.size());
+
+		int resourceCount = streamResourceList(
+				sb,
+				pidsSubList.subList(0, maxSize),
+				requestPartitionId,
+				theResponsePageBuilder,
+				theBatchSize,
+				theConsumer);
+
+		// See getResources(int, int, ResponsePageBuilder)
+		if (resourceCount < theToIndex - theFromIndex) {
+			mySearchEntity = null;
+		}
+	}
+
+	/**
+	 * Streaming equivalent of {@link #toResourceList(ISearchBuilder, List, ResponsePage.ResponsePageBuilder)}:
+	 * resolves the _include and _revinclude targets for the given PIDs, then loads the resources
+	 * in batches and passes each batch to the consumer as soon as it has been loaded.
+	 * <p>
+	 * The includes and all of the batches are loaded in a single read-only transaction using
+	 * {@link HibernatePropertiesProvider#getSnapshotIsolation() snapshot isolation}, so the whole
+	 * page reflects one consistent state of the database, as it would if it was loaded in one go.
+	 * Note that this means a database connection is held until the consumer has written the last
+	 * batch.
+	 * </p>
+	 *
+	 * @return The number of resources passed to the consumer
+	 */
+	protected int streamResourceList(
+			ISearchBuilder theSearchBuilder,
+			List<JpaPid> thePids,
+			RequestPartitionId theRequestPartitionId,
+			ResponsePage.ResponsePageBuilder theResponsePageBuilder,
+			int theBatchSize,
+			Consumer<List<IBaseResource>> theConsumer) {
+		List<JpaPid> pids = new ArrayList<>(thePids);
+		Integer retVal = myTxService
+				.withRequest(myRequest)
+				.withRequestPartitionId(theRequestPartitionId)
+				.readOnly()
+				.withIsolation(myHibernatePropertiesProvider.getSnapshotIsolation())
+				.execute(() -> {
+					List<JpaPid> includedPidList = loadIncludedPids(theSearchBuilder, pids);
+					theResponsePageBuilder.setIncludedResourceCount(includedPidList.size());
+
+					int count = 0;
+					for (int i = 0; i < pids.size(); i += theBatchSize) {
+						List<JpaPid> batchPids = pids.subList(i, Math.min(i + theBatchSize, pids.size()));
+						ResponsePage.ResponsePageBuilder batchResponsePageBuilder =
+								new ResponsePage.ResponsePageBuilder();
+						List<IBaseResource> resources = loadResourcesAndFirePreshow(
+								theSearchBuilder, batchPids, includedPidList, batchResponsePageBuilder);
+						theResponsePageBuilder.combineWith(batchResponsePageBuilder);
+
+						count += resources.size();
+						theConsumer.accept(resources);
+					}
+					return count;
+				});
+		return retVal != null ? retVal : 0;
+	}
+
 	@Override
 	public String getUuid() {
 		return myUuid;
@@ -459,6 +580,32 @@ public class PersistedJpaBundleProvider implements IBundleProvider {
 		}
 	}
 
+	@Nullable
+	@Override
+	public Integer estimatedSize() {
+		if (mySearchTotalEstimator == null || !ensureSearchEntityLoaded()) {
+			return null;
+		}
+		if (mySearchEntity.getSearchType() != SearchTypeEnum.SEARCH) {
+			return null;
+		}
+
+		SearchParameterMap params = mySearchEntity.getSearchParameterMap().orElse(null);
+		if (params == null) {
+			return null;
+		}
+		SearchTotalModeEnum totalMode = params.getSearchTotalMode();
+		if (totalMode == null) {
+			totalMode = myStorageSettings.getDefaultTotalMode();
+		}
+		if (totalMode != SearchTotalModeEnum.ESTIMATED) {
+			return null;
+		}
+
+		return mySearchTotalEstimator.estimateTotal(
+				mySearchEntity.getResourceType(), params, myRequest, getRequestPartitionId());
+	}
+
 	protected boolean hasIncludes() {
 		ensureSearchEntityLoaded();
 		return !mySearchEntity.getIncludes().isEmpty();
@@ -470,6 +617,21 @@ public class PersistedJpaBundleProvider implements IBundleProvider {
 			ISearchBuilder theSearchBuilder,
 			List<JpaPid> thePids,
 			ResponsePage.ResponsePageBuilder theResponsePageBuilder) {
+		List<JpaPid> includedPidList = loadIncludedPids(theSearchBuilder, thePids);
+
+		List<IBaseResource> resources =
+				loadResourcesAndFirePreshow(theSearchBuilder, thePids, includedPidList, theResponsePageBuilder);
+		theResponsePageBuilder.setResources(resources);
+		theResponsePageBuilder.setIncludedResourceCount(includedPidList.size());
+
+		return resources;
+	}
+
+	/**
+	 * Resolves the _include and _revinclude targets for the given search result PIDs. The
+	 * included PIDs are added to the end of <code>thePids</code> and are also returned.
+	 */
+	private List<JpaPid> loadIncludedPids(ISearchBuilder theSearchBuilder, List<JpaPid> thePids) {
 		List<JpaPid> includedPidList = new ArrayList<>();
 		if (mySearchEntity.getSearchType() == SearchTypeEnum.SEARCH) {
 			Integer maxIncludes = myStorageSettings.getMaximumIncludesToLoadPerPage();
@@ -539,10 +701,17 @@ public class PersistedJpaBundleProvider implements IBundleProvider {
 			thePids.addAll(iterateIncludedPids);
 			includedPidList.addAll(iterateIncludedPids);
 		}
+		return includedPidList;
+	}
 
+	private List<IBaseResource> loadResourcesAndFirePreshow(
+			ISearchBuilder theSearchBuilder,
+			List<JpaPid> thePids,
+			List<JpaPid> theIncludedPids,
+			ResponsePage.ResponsePageBuilder theResponsePageBuilder) {
 		// Execute the query and make sure we return distinct results
 		List<IBaseResource> resources = new ArrayList<>();
-		theSearchBuilder.loadResourcesByPid(thePids, includedPidList, resources, false, myRequest);
+		theSearchBuilder.loadResourcesByPid(thePids, theIncludedPids, resources, false, myRequest);
 
 		// we will send the resource list to our interceptors
 		// this can (potentially) change the results being returned.
@@ -550,8 +719,6 @@ public class PersistedJpaBundleProvider implements IBundleProvider {
 		resources = ServerInterceptorUtil.fireStoragePreshowResource(resources, myRequest, myInterceptorBroadcaster);
 		// we only care about omitted results from this page
 		theResponsePageBuilder.setOmittedResourceCount(precount - resources.size());
-		theResponsePageBuilder.setResources(resources);
-		theResponsePageBuilder.setIncludedResourceCount(includedPidList.size());
 
 		return resources;
 	}
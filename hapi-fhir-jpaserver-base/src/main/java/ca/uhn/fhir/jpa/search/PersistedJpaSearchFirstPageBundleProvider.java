@@ -35,8 +35,12 @@ import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class PersistedJpaSearchFirstPageBundleProvider extends PersistedJpaBundleProvider {
@@ -91,10 +95,83 @@ public class PersistedJpaSearchFirstPageBundleProvider extends PersistedJpaBundl
 				.withRequestPartitionId(requestPartitionId)
 				.execute(() -> toResourceList(mySearchBuilder, firstBatch, thePageBuilder));
 
-		long totalCountWanted = theToIndex - theFromIndex;
 		long totalCountMatch = (int) retVal.stream().filter(t -> !isInclude(t)).count();
+		Set<String> existingIds = retVal.stream()
+				.map(t -> t.getIdElement().getValue())
+				.filter(t -> t != null)
+				.collect(Collectors.toSet());
+		retVal.addAll(loadRemainingResources(theFromIndex, theToIndex, totalCountMatch, existingIds, thePageBuilder));
+		ourLog.trace("Loaded resources to return");
+
+		return retVal;
+	}
+
+	@Override
+	public void streamResources(
+			int theFromIndex,
+			int theToIndex,
+			@Nonnull ResponsePage.ResponsePageBuilder thePageBuilder,
+			int theBatchSize,
+			@Nonnull Consumer<List<IBaseResource>> theConsumer) {
+		if (theBatchSize <= 0) {
+			super.streamResources(theFromIndex, theToIndex, thePageBuilder, theBatchSize, theConsumer);
+			return;
+		}
+
+		ensureSearchEntityLoaded();
+		QueryParameterUtils.verifySearchHasntFailedOrThrowInternalErrorException(getSearchEntity());
+
+		mySearchTask.awaitInitialSync();
+
+		// request 1 more than we need to, in order to know if there are extra values
+		final List<JpaPid> pids = mySearchTask.getResourcePids(theFromIndex, theToIndex + 1);
+		int countOfPids = pids.size();
 
-		if (totalCountMatch < totalCountWanted) {
+		int maxSize = Math.min(theToIndex - theFromIndex, countOfPids);
+		thePageBuilder.setTotalRequestedResourcesFetched(countOfPids);
+
+		AtomicLong totalCountMatch = new AtomicLong();
+		Set<String> existingIds = new HashSet<>();
+		streamResourceList(
+				mySearchBuilder,
+				pids.subList(0, maxSize),
+				getRequestPartitionId(),
+				thePageBuilder,
+				theBatchSize,
+				batch -> {
+					for (IBaseResource next : batch) {
+						if (!isInclude(next)) {
+							totalCountMatch.incrementAndGet();
+						}
+						if (next.getIdElement().getValue() != null) {
+							existingIds.add(next.getIdElement().getValue());
+						}
+					}
+					theConsumer.accept(batch);
+				});
+
+		List<IBaseResource> remaining = loadRemainingResources(
+				theFromIndex, theToIndex, totalCountMatch.get(), existingIds, thePageBuilder);
+		if (!remaining.isEmpty()) {
+			theConsumer.accept(remaining);
+		}
+	}
+
+	/**
+	 * If fewer matching resources than requested were loaded, but the search has found enough
+	 * results in the meantime, this loads the rest of the page from the search results which have
+	 * been saved so far (skipping any resources that were already loaded)
+	 */
+	private List<IBaseResource> loadRemainingResources(
+			int theFromIndex,
+			int theToIndex,
+			long theTotalCountMatch,
+			Set<String> theExistingIds,
+			ResponsePage.ResponsePageBuilder thePageBuilder) {
+		List<IBaseResource> retVal = new ArrayList<>();
+		long totalCountWanted = theToIndex - theFromIndex;
+
+		if (theTotalCountMatch < totalCountWanted) {
 			if (getSearchEntity().getStatus() == SearchStatusEnum.PASSCMPLET
 					|| ((getSearchEntity().getStatus() == SearchStatusEnum.FINISHED
 							&& getSearchEntity().getNumFound() >= theToIndex))) {
@@ -103,26 +180,19 @@ public class PersistedJpaSearchFirstPageBundleProvider extends PersistedJpaBundl
 				 * This is a bit of complexity to account for the possibility that
 				 * the consent service has filtered some results.
 				 */
-				Set<String> existingIds = retVal.stream()
-						.map(t -> t.getIdElement().getValue())
-						.filter(t -> t != null)
-						.collect(Collectors.toSet());
-
-				long remainingWanted = totalCountWanted - totalCountMatch;
+				long remainingWanted = totalCountWanted - theTotalCountMatch;
 				long fromIndex = theToIndex - remainingWanted;
 				ResponsePage.ResponsePageBuilder pageBuilder = new ResponsePage.ResponsePageBuilder();
 				pageBuilder.setBundleProvider(this);
 				List<IBaseResource> remaining = super.getResources((int) fromIndex, theToIndex, pageBuilder);
 				remaining.forEach(t -> {
-					if (!existingIds.contains(t.getIdElement().getValue())) {
+					if (!theExistingIds.contains(t.getIdElement().getValue())) {
 						retVal.add(t);
 					}
 				});
 				thePageBuilder.combineWith(pageBuilder);
 			}
 		}
-		ourLog.trace("Loaded resources to return");
-
 		return retVal;
 	}
 
@@ -43,6 +43,7 @@ import ca.uhn.fhir.jpa.search.builder.StorageInterceptorHooksFacade;
 import ca.uhn.fhir.jpa.search.builder.tasks.SearchContinuationTask;
 import ca.uhn.fhir.jpa.search.builder.tasks.SearchTask;
 import ca.uhn.fhir.jpa.search.builder.tasks.SearchTaskParameters;
+import ca.uhn.fhir.jpa.search.cache.HotSearchResultCache;
 import ca.uhn.fhir.jpa.search.cache.ISearchCacheSvc;
 import ca.uhn.fhir.jpa.search.cache.ISearchResultCacheSvc;
 import ca.uhn.fhir.jpa.search.cache.SearchCacheStatusEnum;
@@ -77,6 +78,7 @@ import org.springframework.transaction.support.TransactionSynchronizationManager
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -119,6 +121,7 @@ public class SearchCoordinatorSvcImpl implements ISearchCoordinatorSvc<JpaPid> {
 	private long myMaxMillisToWaitForRemoteResults = DateUtils.MILLIS_PER_MINUTE;
 	private boolean myNeverUseLocalSearchForUnitTests;
 	private int mySyncSize = DEFAULT_SYNC_SIZE;
+	private HotSearchResultCache myHotSearchResultCache;
 
 	/**
 	 * Constructor
@@ -157,6 +160,10 @@ public class SearchCoordinatorSvcImpl implements ISearchCoordinatorSvc<JpaPid> {
 		myStorageInterceptorHooks = new StorageInterceptorHooksFacade(myInterceptorBroadcaster);
 	}
 
+	public void setHotSearchResultCache(HotSearchResultCache theHotSearchResultCache) {
+		myHotSearchResultCache = theHotSearchResultCache;
+	}
+
 	@VisibleForTesting
 	Set<String> getActiveSearchIds() {
 		return myIdToSearchTask.keySet();
@@ -221,6 +228,14 @@ public class SearchCoordinatorSvcImpl implements ISearchCoordinatorSvc<JpaPid> {
 			RequestPartitionId theRequestPartitionId) {
 		assert !TransactionSynchronizationManager.isActualTransactionActive();
 
+		if (isHotSearchCacheEnabled()) {
+			List<JpaPid> cachedPids = myHotSearchResultCache.getResourcePids(theUuid, theFrom, theTo);
+			if (cachedPids != null) {
+				ourLog.trace("Returning {} pids for search {} from the hot search cache", cachedPids.size(), theUuid);
+				return cachedPids;
+			}
+		}
+
 		// If we're actively searching right now, don't try to do anything until at least one batch has been
 		// persisted in the DB
 		SearchTask searchTask = myIdToSearchTask.get(theUuid);
@@ -328,7 +343,24 @@ public class SearchCoordinatorSvcImpl implements ISearchCoordinatorSvc<JpaPid> {
 
 		ourLog.trace("Finished looping");
 
-		List<JpaPid> pids = fetchResultPids(theUuid, theFrom, theTo, theRequestDetails, search, theRequestPartitionId);
+		List<JpaPid> pids;
+		int maxPidsToCache = isHotSearchCacheEnabled() ? myHotSearchResultCache.getMaxPidsPerEntry() : 0;
+		if (maxPidsToCache > 0
+				&& search.getStatus() == SearchStatusEnum.FINISHED
+				&& theFrom == 0
+				&& theTo <= maxPidsToCache) {
+			/*
+			 * Fetch a bit more than requested so that the next identical search can be served
+			 * entirely from memory, including the "one more than requested" fetch used to detect
+			 * the last page
+			 */
+			List<JpaPid> pidsToCache =
+					fetchResultPids(theUuid, 0, maxPidsToCache, theRequestDetails, search, theRequestPartitionId);
+			myHotSearchResultCache.put(search, pidsToCache, pidsToCache.size() < maxPidsToCache);
+			pids = new ArrayList<>(pidsToCache.subList(0, Math.min(theTo, pidsToCache.size())));
+		} else {
+			pids = fetchResultPids(theUuid, theFrom, theTo, theRequestDetails, search, theRequestPartitionId);
+		}
 
 		ourLog.trace("Fetched {} results", pids.size());
 
@@ -629,24 +661,34 @@ public class SearchCoordinatorSvcImpl implements ISearchCoordinatorSvc<JpaPid> {
 			RequestDetails theRequestDetails,
 			String theQueryString,
 			RequestPartitionId theRequestPartitionId) {
+		IInterceptorBroadcaster compositeBroadcaster =
+				CompositeInterceptorBroadcaster.newCompositeBroadcaster(myInterceptorBroadcaster, theRequestDetails);
+
+		/*
+		 * Searches in the hot search cache are reused without opening a transaction
+		 * at all, so the precheck needs to happen before the database is involved
+		 */
+		if (isHotSearchCacheEnabled()) {
+			if (!canUseCachedSearch(compositeBroadcaster, theParams, theRequestDetails)) {
+				return null;
+			}
+
+			Search hotSearch =
+					myHotSearchResultCache.findSearch(theResourceType, theQueryString, theRequestPartitionId);
+			if (hotSearch != null) {
+				ourLog.debug("Reusing search {} from hot search cache", hotSearch.getUuid());
+				callReusingCachedSearchHook(compositeBroadcaster, theParams, theRequestDetails);
+				return myPersistedJpaBundleProviderFactory.newInstance(theRequestDetails, hotSearch);
+			}
+		}
+
 		// May be null
 		return myTxService
 				.withRequest(theRequestDetails)
 				.withRequestPartitionId(theRequestPartitionId)
 				.execute(() -> {
-					IInterceptorBroadcaster compositeBroadcaster =
-							CompositeInterceptorBroadcaster.newCompositeBroadcaster(
-									myInterceptorBroadcaster, theRequestDetails);
-
-					// Interceptor call: STORAGE_PRECHECK_FOR_CACHED_SEARCH
-
-					HookParams params = new HookParams()
-							.add(SearchParameterMap.class, theParams)
-							.add(RequestDetails.class, theRequestDetails)
-							.addIfMatchesType(ServletRequestDetails.class, theRequestDetails);
-					boolean canUseCache =
-							compositeBroadcaster.callHooks(Pointcut.STORAGE_PRECHECK_FOR_CACHED_SEARCH, params);
-					if (!canUseCache) {
+					if (!isHotSearchCacheEnabled()
+							&& !canUseCachedSearch(compositeBroadcaster, theParams, theRequestDetails)) {
 						return null;
 					}
 
@@ -657,17 +699,40 @@ public class SearchCoordinatorSvcImpl implements ISearchCoordinatorSvc<JpaPid> {
 					}
 
 					ourLog.debug("Reusing search {} from cache", searchToUse.getUuid());
-					// Interceptor call: JPA_PERFTRACE_SEARCH_REUSING_CACHED
-					params = new HookParams()
-							.add(SearchParameterMap.class, theParams)
-							.add(RequestDetails.class, theRequestDetails)
-							.addIfMatchesType(ServletRequestDetails.class, theRequestDetails);
-					compositeBroadcaster.callHooks(Pointcut.JPA_PERFTRACE_SEARCH_REUSING_CACHED, params);
+					callReusingCachedSearchHook(compositeBroadcaster, theParams, theRequestDetails);
 
 					return myPersistedJpaBundleProviderFactory.newInstance(theRequestDetails, searchToUse.getUuid());
 				});
 	}
 
+	private boolean canUseCachedSearch(
+			IInterceptorBroadcaster theCompositeBroadcaster,
+			SearchParameterMap theParams,
+			RequestDetails theRequestDetails) {
+		// Interceptor call: STORAGE_PRECHECK_FOR_CACHED_SEARCH
+		HookParams params = new HookParams()
+				.add(SearchParameterMap.class, theParams)
+				.add(RequestDetails.class, theRequestDetails)
+				.addIfMatchesType(ServletRequestDetails.class, theRequestDetails);
+		return theCompositeBroadcaster.callHooks(Pointcut.STORAGE_PRECHECK_FOR_CACHED_SEARCH, params);
+	}
+
+	private void callReusingCachedSearchHook(
+			IInterceptorBroadcaster theCompositeBroadcaster,
+			SearchParameterMap theParams,
+			RequestDetails theRequestDetails) {
+		// Interceptor call: JPA_PERFTRACE_SEARCH_REUSING_CACHED
+		HookParams params = new HookParams()
+				.add(SearchParameterMap.class, theParams)
+				.add(RequestDetails.class, theRequestDetails)
+				.addIfMatchesType(ServletRequestDetails.class, theRequestDetails);
+		theCompositeBroadcaster.callHooks(Pointcut.JPA_PERFTRACE_SEARCH_REUSING_CACHED, params);
+	}
+
+	private boolean isHotSearchCacheEnabled() {
+		return myHotSearchResultCache != null && myHotSearchResultCache.isEnabled();
+	}
+
 	@Nullable
 	private Search findSearchToUseOrNull(
 			String theQueryString, String theResourceType, RequestPartitionId theRequestPartitionId) {
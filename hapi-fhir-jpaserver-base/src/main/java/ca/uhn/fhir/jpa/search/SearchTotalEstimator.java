@@ -0,0 +1,126 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.dao.ISearchBuilder;
+import ca.uhn.fhir.jpa.dao.SearchBuilderFactory;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.sl.cache.Cache;
+import ca.uhn.fhir.sl.cache.CacheFactory;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.time.DateUtils;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Produces the <code>Bundle.total</code> for searches using <code>_total=estimated</code>.
+ * <p>
+ * Estimates come from the database query planner where the database supports this, and
+ * otherwise from a bounded sample of the matching resource IDs (see
+ * {@link ca.uhn.fhir.jpa.api.config.JpaStorageSettings#setEstimatedTotalSampleSize(int)}).
+ * Because estimates do not need to be exact, they are cached for a few minutes per resource
+ * type, request partition and normalized query, so repeated requests (e.g. a UI paging
+ * through results) do not hit the database again.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public class SearchTotalEstimator {
+
+	public static final long CACHE_TIMEOUT_MILLIS = 5 * DateUtils.MILLIS_PER_MINUTE;
+	public static final int CACHE_MAXIMUM_SIZE = 10000;
+
+	private static final Logger ourLog = LoggerFactory.getLogger(SearchTotalEstimator.class);
+	private static final Long NO_ESTIMATE = -1L;
+
+	private final FhirContext myContext;
+	private final IHapiTransactionService myTxService;
+	private final SearchBuilderFactory<?> mySearchBuilderFactory;
+	private final Cache<String, Long> myQueryKeyToEstimate;
+
+	/**
+	 * Constructor
+	 */
+	public SearchTotalEstimator(
+			FhirContext theContext,
+			IHapiTransactionService theTxService,
+			SearchBuilderFactory<?> theSearchBuilderFactory) {
+		myContext = theContext;
+		myTxService = theTxService;
+		mySearchBuilderFactory = theSearchBuilderFactory;
+		myQueryKeyToEstimate = CacheFactory.build(CACHE_TIMEOUT_MILLIS, CACHE_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * Returns the estimated number of resources matching the given search, or <code>null</code>
+	 * if no estimate is available
+	 */
+	@Nullable
+	public Integer estimateTotal(
+			@Nonnull String theResourceType,
+			@Nonnull SearchParameterMap theParams,
+			RequestDetails theRequest,
+			@Nonnull RequestPartitionId theRequestPartitionId) {
+		String queryKey = theResourceType
+				+ Search.createSearchQueryStringForStorage(
+						theParams.toNormalizedQueryString(myContext), theRequestPartitionId);
+
+		Long estimate = myQueryKeyToEstimate.getIfPresent(queryKey);
+		if (estimate == null) {
+			estimate = fetchEstimate(theResourceType, theParams, theRequest, theRequestPartitionId);
+			myQueryKeyToEstimate.put(queryKey, estimate);
+		}
+
+		if (NO_ESTIMATE.equals(estimate)) {
+			return null;
+		}
+		return (int) Math.min(Integer.MAX_VALUE, estimate);
+	}
+
+	@Nonnull
+	private Long fetchEstimate(
+			String theResourceType,
+			SearchParameterMap theParams,
+			RequestDetails theRequest,
+			RequestPartitionId theRequestPartitionId) {
+		Class<? extends IBaseResource> resourceType =
+				myContext.getResourceDefinition(theResourceType).getImplementingClass();
+		ISearchBuilder<?> sb = mySearchBuilderFactory.newSearchBuilder(theResourceType, resourceType);
+		try {
+			Long estimate = myTxService
+					.withRequest(theRequest)
+					.withRequestPartitionId(theRequestPartitionId)
+					.readOnly()
+					.execute(() -> sb.createEstimatedCountQuery(theParams, null, theRequest, theRequestPartitionId));
+			return estimate != null ? Math.max(0, estimate) : NO_ESTIMATE;
+		} catch (Exception e) {
+			// An estimate is only ever informational, so never fail the search because of it
+			ourLog.warn("Failed to estimate total for {} search: {}", theResourceType, e.toString());
+			return NO_ESTIMATE;
+		}
+	}
+}
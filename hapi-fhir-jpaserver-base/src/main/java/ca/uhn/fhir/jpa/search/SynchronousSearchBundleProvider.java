@@ -0,0 +1,135 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search;
+
+import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.dao.ISearchBuilder;
+import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.SimpleBundleProvider;
+import ca.uhn.fhir.rest.server.interceptor.ServerInterceptorUtil;
+import ca.uhn.fhir.rest.server.method.ResponsePage;
+import jakarta.annotation.Nonnull;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.springframework.transaction.annotation.Isolation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The results of a synchronous search, where the search has resolved the PIDs of the matching
+ * and included resources but the resources themselves are only loaded when they are requested.
+ * This is used when results may be streamed to the client (see
+ * {@link ca.uhn.fhir.rest.server.RestfulServer#setBundleStreamingBatchSize(int)}), so that
+ * the page can be loaded and written a batch at a time instead of being loaded up front.
+ * <p>
+ * The size of this provider is the number of PIDs, so it must only be used when no
+ * <code>STORAGE_PRESHOW_RESOURCES</code> hooks could remove resources from the results.
+ * </p>
+ */
+class SynchronousSearchBundleProvider extends SimpleBundleProvider {
+
+	private final List<JpaPid> myPids;
+	private final List<JpaPid> myIncludedPids;
+	private final ISearchBuilder<JpaPid> mySearchBuilder;
+	private final RequestDetails myRequestDetails;
+	private final RequestPartitionId myRequestPartitionId;
+	private final HapiTransactionService myTxService;
+	private final Isolation mySnapshotIsolation;
+	private final IInterceptorBroadcaster myInterceptorBroadcaster;
+
+	SynchronousSearchBundleProvider(
+			List<JpaPid> thePids,
+			List<JpaPid> theIncludedPids,
+			ISearchBuilder<JpaPid> theSearchBuilder,
+			RequestDetails theRequestDetails,
+			RequestPartitionId theRequestPartitionId,
+			HapiTransactionService theTxService,
+			Isolation theSnapshotIsolation,
+			IInterceptorBroadcaster theInterceptorBroadcaster) {
+		super(Collections.emptyList());
+		myPids = thePids;
+		myIncludedPids = theIncludedPids;
+		mySearchBuilder = theSearchBuilder;
+		myRequestDetails = theRequestDetails;
+		myRequestPartitionId = theRequestPartitionId;
+		myTxService = theTxService;
+		mySnapshotIsolation = theSnapshotIsolation;
+		myInterceptorBroadcaster = theInterceptorBroadcaster;
+		setSize(thePids.size());
+	}
+
+	@Nonnull
+	@Override
+	public List<IBaseResource> getResources(
+			int theFromIndex, int theToIndex, @Nonnull ResponsePage.ResponsePageBuilder theResponsePageBuilder) {
+		theResponsePageBuilder.setTotalRequestedResourcesFetched(getTotalResourcesRequestedReturned());
+		List<JpaPid> pids = subList(theFromIndex, theToIndex);
+		return myTxService
+				.withRequest(myRequestDetails)
+				.withRequestPartitionId(myRequestPartitionId)
+				.readOnly()
+				.execute(() -> loadResources(pids));
+	}
+
+	/**
+	 * Loads all batches in a single read-only transaction using snapshot isolation, so that
+	 * the page reflects one consistent state of the database
+	 */
+	@Override
+	public void streamResources(
+			int theFromIndex,
+			int theToIndex,
+			@Nonnull ResponsePage.ResponsePageBuilder theResponsePageBuilder,
+			int theBatchSize,
+			@Nonnull Consumer<List<IBaseResource>> theConsumer) {
+		if (theBatchSize <= 0) {
+			super.streamResources(theFromIndex, theToIndex, theResponsePageBuilder, theBatchSize, theConsumer);
+			return;
+		}
+
+		theResponsePageBuilder.setTotalRequestedResourcesFetched(getTotalResourcesRequestedReturned());
+		List<JpaPid> pids = subList(theFromIndex, theToIndex);
+		myTxService
+				.withRequest(myRequestDetails)
+				.withRequestPartitionId(myRequestPartitionId)
+				.readOnly()
+				.withIsolation(mySnapshotIsolation)
+				.execute(() -> {
+					for (int i = 0; i < pids.size(); i += theBatchSize) {
+						theConsumer.accept(loadResources(pids.subList(i, Math.min(i + theBatchSize, pids.size()))));
+					}
+				});
+	}
+
+	private List<JpaPid> subList(int theFromIndex, int theToIndex) {
+		return myPids.subList(Math.min(theFromIndex, myPids.size()), Math.min(theToIndex, myPids.size()));
+	}
+
+	private List<IBaseResource> loadResources(List<JpaPid> thePids) {
+		List<IBaseResource> resources = new ArrayList<>();
+		mySearchBuilder.loadResourcesByPid(thePids, myIncludedPids, resources, false, myRequestDetails);
+		return ServerInterceptorUtil.fireStoragePreshowResource(resources, myRequestDetails, myInterceptorBroadcaster);
+	}
+}
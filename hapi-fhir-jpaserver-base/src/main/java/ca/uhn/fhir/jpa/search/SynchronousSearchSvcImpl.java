@@ -27,17 +27,21 @@ import ca.uhn.fhir.interceptor.api.Pointcut;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
+import ca.uhn.fhir.jpa.config.HibernatePropertiesProvider;
 import ca.uhn.fhir.jpa.dao.IResultIterator;
 import ca.uhn.fhir.jpa.dao.ISearchBuilder;
 import ca.uhn.fhir.jpa.dao.SearchBuilderFactory;
 import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
 import ca.uhn.fhir.jpa.interceptor.JpaPreResourceAccessDetails;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.model.search.SearchRuntimeDetails;
 import ca.uhn.fhir.jpa.partition.IRequestPartitionHelperSvc;
+import ca.uhn.fhir.jpa.search.builder.models.SearchKeyset;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.model.api.IQueryParameterType;
 import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.SortSpec;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.api.server.IPreResourceAccessDetails;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
@@ -46,6 +50,7 @@ import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.interceptor.ServerInterceptorUtil;
 import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
 import ca.uhn.fhir.rest.server.util.CompositeInterceptorBroadcaster;
+import jakarta.annotation.Nullable;
 import jakarta.persistence.EntityManager;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -87,6 +92,9 @@ public class SynchronousSearchSvcImpl implements ISynchronousSearchSvc {
 	@Autowired
 	private IRequestPartitionHelperSvc myRequestPartitionHelperSvc;
 
+	@Autowired
+	private HibernatePropertiesProvider myHibernatePropertiesProvider;
+
 	private int mySyncSize = 250;
 
 	@Override
@@ -179,6 +187,12 @@ public class SynchronousSearchSvcImpl implements ISynchronousSearchSvc {
 						pids = pids.subList(0, resourcesToReturn);
 					}
 
+					// If there are more results, note where the next page starts
+					String nextPageSearchAfter = null;
+					if (receivedResourceCount > pids.size() && !pids.isEmpty()) {
+						nextPageSearchAfter = createNextPageSearchAfter(theParams, pids.get(pids.size() - 1));
+					}
+
 					JpaPreResourceAccessDetails accessDetails = new JpaPreResourceAccessDetails(pids, () -> theSb);
 					IInterceptorBroadcaster compositeBroadcaster =
 							CompositeInterceptorBroadcaster.newCompositeBroadcaster(
@@ -242,28 +256,45 @@ public class SynchronousSearchSvcImpl implements ISynchronousSearchSvc {
 						includedPidsList.addAll(revIncludedPids);
 					}
 
-					List<IBaseResource> resources = new ArrayList<>();
-					theSb.loadResourcesByPid(pids, includedPidsList, resources, false, theRequestDetails);
-					// Hook: STORAGE_PRESHOW_RESOURCES
-					resources = ServerInterceptorUtil.fireStoragePreshowResource(
-							resources, theRequestDetails, myInterceptorBroadcaster);
-
-					SimpleBundleProvider bundleProvider = new SimpleBundleProvider(resources);
+					SimpleBundleProvider bundleProvider;
+					int resultCount;
+					if (isLoadResourcesWhenRequested(theRequestDetails, compositeBroadcaster)) {
+						bundleProvider = new SynchronousSearchBundleProvider(
+								pids,
+								includedPidsList,
+								theSb,
+								theRequestDetails,
+								theRequestPartitionId,
+								myTxService,
+								myHibernatePropertiesProvider.getSnapshotIsolation(),
+								myInterceptorBroadcaster);
+						resultCount = pids.size();
+					} else {
+						List<IBaseResource> resources = new ArrayList<>();
+						theSb.loadResourcesByPid(pids, includedPidsList, resources, false, theRequestDetails);
+						// Hook: STORAGE_PRESHOW_RESOURCES
+						resources = ServerInterceptorUtil.fireStoragePreshowResource(
+								resources, theRequestDetails, myInterceptorBroadcaster);
+
+						bundleProvider = new SimpleBundleProvider(resources);
+						resultCount = resources.size();
+					}
 					if (hasACount && theSb.requiresTotal()) {
 						bundleProvider.setTotalResourcesRequestedReturned(receivedResourceCount);
 					}
 					if (theParams.isOffsetQuery()) {
 						bundleProvider.setCurrentPageOffset(theParams.getOffset());
 						bundleProvider.setCurrentPageSize(theParams.getCount());
+						bundleProvider.setNextPageSearchAfter(nextPageSearchAfter);
 					}
 
 					if (wantCount) {
 						bundleProvider.setSize(count.intValue());
 					} else {
 						Integer queryCount = getQueryCount(theLoadSynchronousUpTo, theParams);
-						if (queryCount == null || queryCount > resources.size()) {
+						if (queryCount == null || queryCount > resultCount) {
 							// No limit, last page or everything was fetched within the limit
-							bundleProvider.setSize(getTotalCount(queryCount, theParams.getOffset(), resources.size()));
+							bundleProvider.setSize(getTotalCount(queryCount, theParams.getOffset(), resultCount));
 						} else {
 							bundleProvider.setSize(null);
 						}
@@ -295,6 +326,50 @@ public class SynchronousSearchSvcImpl implements ISynchronousSearchSvc {
 				theRequestPartitionId);
 	}
 
+	/**
+	 * If the results may be streamed to the client a batch at a time, only the PIDs are resolved
+	 * by the search and the resources are loaded when they are requested (so that they can also
+	 * be loaded a batch at a time). The size of the results is then known from the PIDs, which is
+	 * only accurate if no STORAGE_PRESHOW_RESOURCES hooks could remove resources.
+	 */
+	private static boolean isLoadResourcesWhenRequested(
+			RequestDetails theRequestDetails, IInterceptorBroadcaster theCompositeBroadcaster) {
+		return theRequestDetails != null
+				&& !theRequestDetails.isSubRequest()
+				&& theRequestDetails.getServer() != null
+				&& theRequestDetails.getServer().getBundleStreamingBatchSize() > 0
+				&& !theCompositeBroadcaster.hasHooks(Pointcut.STORAGE_PRESHOW_RESOURCES);
+	}
+
+	/**
+	 * Creates the keyset pagination token for the page following the one ending with the
+	 * given PID, or returns <code>null</code> if this search can't be paged using a keyset.
+	 */
+	@Nullable
+	private String createNextPageSearchAfter(SearchParameterMap theParams, JpaPid theLastPid) {
+		if (!myStorageSettings.isKeysetPagingEnabled()
+				|| !theParams.isOffsetQuery()
+				|| theParams.getEverythingMode() != null) {
+			return null;
+		}
+		SortSpec sort = theParams.getSort();
+		SearchKeyset.SortKeyEnum sortKey = SearchKeyset.getSortKey(sort);
+		if (sortKey == null) {
+			return null;
+		}
+
+		ResourceTable entity = myEntityManager.find(ResourceTable.class, theLastPid);
+		if (entity == null) {
+			return null;
+		}
+		Object value =
+				sortKey == SearchKeyset.SortKeyEnum.LAST_UPDATED ? entity.getUpdatedDate() : entity.getFhirId();
+		if (value == null) {
+			return null;
+		}
+		return new SearchKeyset(sortKey, SearchKeyset.isAscending(sort), theLastPid.getId(), value).encode();
+	}
+
 	@Autowired
 	public void setContext(FhirContext theContext) {
 		myContext = theContext;
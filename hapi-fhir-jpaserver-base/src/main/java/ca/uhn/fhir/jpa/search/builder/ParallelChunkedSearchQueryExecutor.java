@@ -0,0 +1,137 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.builder;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.util.IoUtil;
+import org.apache.commons.lang3.Validate;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Runs a list of chunk queries (e.g. the queries for each chunk of a large PID list) on a
+ * task executor, with at most a fixed number of chunks in flight at any time, and returns
+ * their results in the order of the chunks, as if the queries had been run one after another.
+ * <p>
+ * Each chunk is fully loaded by <code>theChunkLoader</code> on a worker thread, so the loader
+ * is responsible for opening a transaction (and therefore a connection) for the chunk. The
+ * number of chunks in flight bounds the number of connections used by a single search, and
+ * the size of the task executor bounds the number used by all searches together.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public class ParallelChunkedSearchQueryExecutor implements ISearchQueryExecutor {
+
+	private final Iterator<ISearchQueryExecutor> myChunksToSubmit;
+	private final Deque<Future<List<JpaPid>>> myChunksInFlight = new ArrayDeque<>();
+	private final int myMaximumChunksInFlight;
+	private final AsyncTaskExecutor myTaskExecutor;
+	private final Function<ISearchQueryExecutor, List<JpaPid>> myChunkLoader;
+	private Iterator<JpaPid> myCurrentChunk = Collections.emptyIterator();
+
+	/**
+	 * Constructor
+	 *
+	 * @param theChunks                The chunk queries, in the order their results should be returned
+	 * @param theMaximumChunksInFlight The maximum number of chunks to load concurrently
+	 * @param theTaskExecutor          The executor to load chunks on
+	 * @param theChunkLoader           Loads all results of a chunk query. Called on a worker thread.
+	 */
+	public ParallelChunkedSearchQueryExecutor(
+			List<ISearchQueryExecutor> theChunks,
+			int theMaximumChunksInFlight,
+			AsyncTaskExecutor theTaskExecutor,
+			Function<ISearchQueryExecutor, List<JpaPid>> theChunkLoader) {
+		Validate.isTrue(theMaximumChunksInFlight >= 1, "theMaximumChunksInFlight must be at least 1");
+		myChunksToSubmit = theChunks.iterator();
+		myMaximumChunksInFlight = theMaximumChunksInFlight;
+		myTaskExecutor = theTaskExecutor;
+		myChunkLoader = theChunkLoader;
+		submitChunks();
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!myCurrentChunk.hasNext()) {
+			Future<List<JpaPid>> nextChunk = myChunksInFlight.poll();
+			if (nextChunk == null) {
+				return false;
+			}
+			myCurrentChunk = awaitChunk(nextChunk).iterator();
+			submitChunks();
+		}
+		return true;
+	}
+
+	@Override
+	public JpaPid next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return myCurrentChunk.next();
+	}
+
+	@Override
+	public void close() {
+		myChunksInFlight.forEach(t -> t.cancel(false));
+		myChunksInFlight.clear();
+		myChunksToSubmit.forEachRemaining(IoUtil::closeQuietly);
+		myCurrentChunk = Collections.emptyIterator();
+	}
+
+	private void submitChunks() {
+		while (myChunksInFlight.size() < myMaximumChunksInFlight && myChunksToSubmit.hasNext()) {
+			ISearchQueryExecutor nextChunk = myChunksToSubmit.next();
+			myChunksInFlight.add(myTaskExecutor.submit(() -> {
+				try (nextChunk) {
+					return myChunkLoader.apply(nextChunk);
+				}
+			}));
+		}
+	}
+
+	private List<JpaPid> awaitChunk(Future<List<JpaPid>> theChunk) {
+		try {
+			return theChunk.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			close();
+			throw new InternalErrorException(Msg.code(2787) + "Interrupted while loading search results", e);
+		} catch (ExecutionException e) {
+			close();
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new InternalErrorException(Msg.code(2788) + "Failed to load search results: " + e.getCause(), e);
+		}
+	}
+}
@@ -37,6 +37,7 @@ import ca.uhn.fhir.jpa.search.builder.models.MissingQueryParameterPredicateParam
 import ca.uhn.fhir.jpa.search.builder.models.PredicateBuilderCacheKey;
 import ca.uhn.fhir.jpa.search.builder.models.PredicateBuilderCacheLookupResult;
 import ca.uhn.fhir.jpa.search.builder.models.PredicateBuilderTypeEnum;
+import ca.uhn.fhir.jpa.search.builder.models.SearchKeyset;
 import ca.uhn.fhir.jpa.search.builder.predicate.BaseJoiningPredicateBuilder;
 import ca.uhn.fhir.jpa.search.builder.predicate.BaseQuantityPredicateBuilder;
 import ca.uhn.fhir.jpa.search.builder.predicate.BaseSearchParamPredicateBuilder;
@@ -302,6 +303,48 @@ public class QueryStack {
 		mySqlBuilder.addSortString(predicateBuilder.getResourceIdColumn(), theAscending);
 	}
 
+	/**
+	 * Sorts on a keyset sort key, using the resource PID to break ties so that the order is
+	 * total. If a keyset is supplied, only rows which sort after it are returned, which lets
+	 * the database seek directly to the next page instead of using an OFFSET.
+	 */
+	public void addKeysetSort(
+			SearchKeyset.SortKeyEnum theSortKey, boolean theAscending, @Nullable SearchKeyset theSearchAfter) {
+		ResourceTablePredicateBuilder resourceTablePredicateBuilder;
+		BaseJoiningPredicateBuilder firstPredicateBuilder = mySqlBuilder.getOrCreateFirstPredicateBuilder();
+		if (firstPredicateBuilder instanceof ResourceTablePredicateBuilder) {
+			resourceTablePredicateBuilder = (ResourceTablePredicateBuilder) firstPredicateBuilder;
+		} else {
+			resourceTablePredicateBuilder =
+					mySqlBuilder.addResourceTablePredicateBuilder(firstPredicateBuilder.getJoinColumns());
+		}
+
+		DbColumn sortColumn = theSortKey == SearchKeyset.SortKeyEnum.LAST_UPDATED
+				? resourceTablePredicateBuilder.getColumnLastUpdated()
+				: resourceTablePredicateBuilder.getColumnFhirId();
+		DbColumn pidColumn = resourceTablePredicateBuilder.getResourceIdColumn();
+
+		if (theSearchAfter != null) {
+			Object value = theSearchAfter.getValue();
+			Long pid = theSearchAfter.getPid();
+			Condition pastSortKey = theAscending
+					? BinaryCondition.greaterThan(sortColumn, mySqlBuilder.generatePlaceholder(value))
+					: BinaryCondition.lessThan(sortColumn, mySqlBuilder.generatePlaceholder(value));
+			Condition pastPid = theAscending
+					? BinaryCondition.greaterThan(pidColumn, mySqlBuilder.generatePlaceholder(pid))
+					: BinaryCondition.lessThan(pidColumn, mySqlBuilder.generatePlaceholder(pid));
+			Condition sameSortKey = BinaryCondition.equalTo(sortColumn, mySqlBuilder.generatePlaceholder(value));
+			mySqlBuilder.addPredicate(ComboCondition.or(pastSortKey, ComboCondition.and(sameSortKey, pastPid)));
+		}
+
+		if (theSortKey == SearchKeyset.SortKeyEnum.LAST_UPDATED) {
+			mySqlBuilder.addSortDate(sortColumn, theAscending, myUseAggregate);
+		} else {
+			mySqlBuilder.addSortString(sortColumn, theAscending, myUseAggregate);
+		}
+		addSortOnResourcePID(theAscending);
+	}
+
 	public void addSortOnResourceLink(
 			String theResourceName,
 			String theReferenceTargetType,
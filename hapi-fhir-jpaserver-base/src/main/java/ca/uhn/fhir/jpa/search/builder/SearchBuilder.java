@@ -37,6 +37,7 @@ import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
 import ca.uhn.fhir.jpa.api.svc.ResolveIdentityMode;
 import ca.uhn.fhir.jpa.config.HapiFhirLocalContainerEntityManagerFactoryBean;
 import ca.uhn.fhir.jpa.config.HibernatePropertiesProvider;
+import ca.uhn.fhir.jpa.config.SearchConfig;
 import ca.uhn.fhir.jpa.dao.BaseStorageDao;
 import ca.uhn.fhir.jpa.dao.IFulltextSearchSvc;
 import ca.uhn.fhir.jpa.dao.IJpaStorageResourceParser;
@@ -46,6 +47,8 @@ import ca.uhn.fhir.jpa.dao.data.IResourceHistoryTableDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceHistoryTagDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceTagDao;
 import ca.uhn.fhir.jpa.dao.search.ResourceNotFoundInIndexException;
+import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
 import ca.uhn.fhir.jpa.interceptor.JpaPreResourceAccessDetails;
 import ca.uhn.fhir.jpa.model.config.PartitionSettings;
 import ca.uhn.fhir.jpa.model.cross.IResourceLookup;
@@ -63,10 +66,13 @@ import ca.uhn.fhir.jpa.model.search.StorageProcessingMessage;
 import ca.uhn.fhir.jpa.partition.IRequestPartitionHelperSvc;
 import ca.uhn.fhir.jpa.search.SearchConstants;
 import ca.uhn.fhir.jpa.search.builder.models.ResolvedSearchQueryExecutor;
+import ca.uhn.fhir.jpa.search.builder.models.SearchKeyset;
 import ca.uhn.fhir.jpa.search.builder.models.SearchQueryProperties;
 import ca.uhn.fhir.jpa.search.builder.sql.GeneratedSql;
+import ca.uhn.fhir.jpa.search.builder.sql.QueryPlanEstimateExecutor;
 import ca.uhn.fhir.jpa.search.builder.sql.SearchQueryBuilder;
 import ca.uhn.fhir.jpa.search.builder.sql.SearchQueryExecutor;
+import ca.uhn.fhir.jpa.search.builder.sql.SearchQueryShape;
 import ca.uhn.fhir.jpa.search.builder.sql.SqlObjectFactory;
 import ca.uhn.fhir.jpa.search.lastn.IElasticsearchSvc;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
@@ -98,12 +104,14 @@ import ca.uhn.fhir.rest.param.ParameterUtil;
 import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
 import ca.uhn.fhir.rest.server.util.CompositeInterceptorBroadcaster;
 import ca.uhn.fhir.rest.server.util.ISearchParamRegistry;
 import ca.uhn.fhir.system.HapiSystemProperties;
+import ca.uhn.fhir.util.IoUtil;
 import ca.uhn.fhir.util.StopWatch;
 import ca.uhn.fhir.util.StringUtil;
 import ca.uhn.fhir.util.UrlUtil;
@@ -132,7 +140,10 @@ import org.hl7.fhir.instance.model.api.IIdType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerProxy;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.ArrayList;
@@ -147,6 +158,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 import static ca.uhn.fhir.jpa.model.util.JpaConstants.UNDESIRED_RESOURCE_LINKAGES_FOR_EVERYTHING_ON_PATIENT_INSTANCE;
@@ -240,6 +254,17 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 	@Autowired
 	private IRequestPartitionHelperSvc myPartitionHelperSvc;
 
+	@Autowired
+	private IHapiTransactionService myHapiTransactionService;
+
+	@Autowired(required = false)
+	@Qualifier(SearchConfig.INCLUDE_TASK_EXECUTOR)
+	private AsyncTaskExecutor myIncludeTaskExecutor;
+
+	@Autowired(required = false)
+	@Qualifier(SearchConfig.CHUNKED_QUERY_TASK_EXECUTOR)
+	private AsyncTaskExecutor myChunkedQueryTaskExecutor;
+
 	/**
 	 * Constructor
 	 */
@@ -396,6 +421,66 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		}
 	}
 
+	@Nullable
+	@Override
+	public Long createEstimatedCountQuery(
+			SearchParameterMap theParams,
+			String theSearchUuid,
+			RequestDetails theRequest,
+			@Nonnull RequestPartitionId theRequestPartitionId) {
+
+		assert theRequestPartitionId != null;
+		assert TransactionSynchronizationManager.isActualTransactionActive();
+
+		init(theParams, theSearchUuid, theRequestPartitionId);
+
+		if (checkUseHibernateSearch()) {
+			return myFulltextSearchSvc.count(myResourceName, theParams.clone());
+		}
+		if (myParams.getEverythingMode() != null) {
+			return null;
+		}
+
+		/*
+		 * If the database query planner can tell us how many rows it expects the query to
+		 * return we use that. Otherwise we fetch a bounded sample of the matching IDs, which
+		 * gives an exact count for small results and no estimate at all for large ones.
+		 */
+		boolean usePlanner = QueryPlanEstimateExecutor.isSupported(myDialectProvider.getDialect());
+		int sampleSize = myStorageSettings.getEstimatedTotalSampleSize();
+		if (!usePlanner && sampleSize == 0) {
+			return null;
+		}
+
+		SearchQueryProperties properties = mySearchProperties.clone();
+		properties.setEstimateCountOnlyFlag(usePlanner);
+		properties.setSortSpec(null); // counts don't require sorts
+		properties.setMaxResultsRequested(usePlanner ? null : sampleSize + 1);
+		properties.setOffset(null);
+		properties.setDeduplicateInDatabase(true);
+		List<ISearchQueryExecutor> queries = createQuery(theParams.clone(), properties, theRequest, null);
+		try {
+			if (queries.isEmpty()) {
+				return 0L;
+			}
+			if (usePlanner) {
+				ISearchQueryExecutor estimateExecutor = queries.get(0);
+				return estimateExecutor.hasNext() ? estimateExecutor.next().getId() : null;
+			}
+
+			long count = 0;
+			for (ISearchQueryExecutor next : queries) {
+				while (next.hasNext() && count <= sampleSize) {
+					next.next();
+					count++;
+				}
+			}
+			return count <= sampleSize ? count : null;
+		} finally {
+			queries.forEach(IoUtil::closeQuietly);
+		}
+	}
+
 	/**
 	 * @param thePidSet May be null
 	 */
@@ -527,6 +612,12 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 						// for each list of (SearchBuilder.getMaximumPageSize())
 						// we create a chunked query and add it to 'queries'
 						t -> doCreateChunkedQueries(theParams, t, theSearchProperties, theRequest, queries));
+
+				if (queries.size() > 1 && canRunChunkedQueriesInParallel(theRequest)) {
+					ISearchQueryExecutor parallelExecutor = runChunkedQueriesInParallel(queries, theRequest);
+					queries.clear();
+					queries.add(parallelExecutor);
+				}
 			}
 		} else {
 			// do everything in the database.
@@ -636,6 +727,45 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		createChunkedQuery(theParams, theSearchQueryProperties, theRequest, thePids, theQueries);
 	}
 
+	/**
+	 * Chunk queries are only run concurrently if this has been enabled, and if it is safe to run
+	 * them on other threads. The same restrictions apply as for
+	 * {@link #canLoadIncludesInParallel(EntityManager, RequestDetails, IInterceptorBroadcaster)}.
+	 */
+	private boolean canRunChunkedQueriesInParallel(RequestDetails theRequest) {
+		if (myStorageSettings.getChunkedQueryThreadCount() <= 1 || myChunkedQueryTaskExecutor == null) {
+			return false;
+		}
+		if (theRequest != null && theRequest.isSubRequest()) {
+			return false;
+		}
+		IInterceptorBroadcaster compositeBroadcaster =
+				CompositeInterceptorBroadcaster.newCompositeBroadcaster(myInterceptorBroadcaster, theRequest);
+		return !compositeBroadcaster.hasHooks(Pointcut.JPA_PERFTRACE_RAW_SQL);
+	}
+
+	/**
+	 * Returns a single executor which runs the given chunk queries on the chunk query executor,
+	 * each in its own read-only transaction, and returns their results in order
+	 */
+	private ISearchQueryExecutor runChunkedQueriesInParallel(
+			List<ISearchQueryExecutor> theChunkQueries, RequestDetails theRequest) {
+		RequestPartitionId requestPartitionId = myRequestPartitionId;
+		return new ParallelChunkedSearchQueryExecutor(
+				new ArrayList<>(theChunkQueries),
+				myStorageSettings.getChunkedQueryThreadCount(),
+				myChunkedQueryTaskExecutor,
+				chunk -> myHapiTransactionService
+						.withRequest(theRequest)
+						.withRequestPartitionId(requestPartitionId)
+						.readOnly()
+						.execute(() -> {
+							List<JpaPid> pids = new ArrayList<>();
+							chunk.forEachRemaining(pids::add);
+							return pids;
+						}));
+	}
+
 	/**
 	 * Combs through the params for any _id parameters and extracts the PIDs for them
 	 */
@@ -720,6 +850,9 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 				mySearchParamRegistry,
 				myPartitionSettings);
 
+		// Computed before any predicates are built, since building them can modify the parameters
+		sqlBuilder.setQueryShape(getQueryShape(theParams, theSearchProperties, thePidList));
+
 		if (theParams.keySet().size() > 1
 				|| theParams.getSort() != null
 				|| theParams.keySet().contains(Constants.PARAM_HAS)
@@ -784,6 +917,7 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		if (myHasNextIteratorQuery) {
 			if (myPidSet.size() + sqlBuilder.countBindVariables() < 900) {
 				sqlBuilder.excludeResourceIdsPredicate(myPidSet);
+				sqlBuilder.setQueryShape(null);
 			}
 		}
 
@@ -807,7 +941,25 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		if (theSearchProperties.hasSort()) {
 			assert !theSearchProperties.isDoCountOnlyFlag();
 
-			createSort(queryStack3, theSearchProperties.getSortSpec(), theParams);
+			SortSpec sort = theSearchProperties.getSortSpec();
+			SearchKeyset.SortKeyEnum keysetSortKey = getKeysetSortKey(theParams, sort);
+			if (keysetSortKey != null) {
+				/*
+				 * Keyset pagination: if the client supplied the position of the last row of the
+				 * previous page, seek past it instead of skipping over all earlier rows using
+				 * an OFFSET. If the token doesn't belong to this sort we just use the offset.
+				 */
+				SearchKeyset searchAfter = SearchKeyset.parse(theParams.getSearchAfter());
+				if (searchAfter != null && !searchAfter.matches(sort)) {
+					searchAfter = null;
+				}
+				queryStack3.addKeysetSort(keysetSortKey, SearchKeyset.isAscending(sort), searchAfter);
+				if (searchAfter != null) {
+					theSearchProperties.setOffset(null);
+				}
+			} else {
+				createSort(queryStack3, sort, theParams);
+			}
 		}
 
 		/*
@@ -816,6 +968,86 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		executeSearch(theSearchProperties, theSearchQueryExecutors, sqlBuilder);
 	}
 
+	/**
+	 * Returns the shape of a normal search, which identifies its generated SQL in the
+	 * {@link ca.uhn.fhir.jpa.search.builder.sql.GeneratedSqlTemplateCache}, or <code>null</code>
+	 * if the SQL for this search depends on more than its shape and can't be cached.
+	 */
+	@Nullable
+	private SearchQueryShape getQueryShape(
+			SearchParameterMap theParams, SearchQueryProperties theSearchProperties, List<JpaPid> thePidList) {
+		if (thePidList != null
+				|| theParams.isLastN()
+				|| theParams.getNearDistanceParam() != null
+				|| theParams.getSearchAfter() != null
+				|| theParams.getSearchContainedMode() != SearchContainedModeEnum.FALSE
+				|| isPotentiallyContainedReferenceParameterExistsAtRoot(theParams)) {
+			return null;
+		}
+
+		// Combo parameters are selected based on which parameters have values
+		if (!mySearchParamRegistry
+				.getActiveComboSearchParams(myResourceName, ISearchParamRegistry.SearchParamLookupContextEnum.SEARCH)
+				.isEmpty()) {
+			return null;
+		}
+
+		SearchQueryShape.Builder retVal = SearchQueryShape.builder()
+				.add(myResourceName)
+				.add(myRequestPartitionId)
+				.add(theSearchProperties.isDoCountOnlyFlag())
+				.add(theSearchProperties.isDeduplicateInDatabase())
+				.add(theParams.getOffset() != null)
+				.add(myStorageSettings.getIndexMissingFields())
+				.add(myStorageSettings.isAccountForDateIndexNulls())
+				.add(myStorageSettings.getUseOrdinalDatesForDayPrecisionSearches())
+				.add(myStorageSettings.getNormalizedQuantitySearchLevel())
+				.add(myStorageSettings.isIncludeHashIdentityForTokenSearches())
+				.add(myStorageSettings.isIndexStorageOptimized())
+				.add(myStorageSettings.getTagStorageMode())
+				.add(myStorageSettings.isAllowContainsSearches())
+				.add(myStorageSettings.isKeysetPagingEnabled())
+				.add(myStorageSettings.isUniqueIndexesEnabled())
+				.add(myPartitionSettings.isPartitioningEnabled())
+				.add(myPartitionSettings.isIncludePartitionInSearchHashes())
+				.add(myPartitionSettings.isDatabasePartitionMode())
+				.add(myPartitionSettings.getDefaultPartitionId());
+
+		for (Map.Entry<String, List<List<IQueryParameterType>>> nextEntry : theParams.entrySet()) {
+			// Special parameters (_id, _tag, _has, _filter, etc.) resolve or interpret their values
+			if (nextEntry.getKey().startsWith("_")) {
+				return null;
+			}
+			RuntimeSearchParam searchParam = mySearchParamRegistry.getActiveSearchParam(
+					myResourceName, nextEntry.getKey(), ISearchParamRegistry.SearchParamLookupContextEnum.SEARCH);
+			if (searchParam == null) {
+				return null;
+			}
+			retVal.addSearchParameter(searchParam, nextEntry.getValue());
+		}
+
+		retVal.addDateRange(theParams.getLastUpdated());
+		for (SortSpec next = theParams.getSort(); next != null; next = next.getChain()) {
+			retVal.add(next.getParamName()).add(next.getOrder());
+		}
+
+		return retVal.build();
+	}
+
+	/**
+	 * Returns the keyset sort key to use for the given sort, or <code>null</code> if this
+	 * search should not use keyset pagination
+	 */
+	@Nullable
+	private SearchKeyset.SortKeyEnum getKeysetSortKey(SearchParameterMap theParams, SortSpec theSort) {
+		if (!myStorageSettings.isKeysetPagingEnabled()
+				|| theParams.getOffset() == null
+				|| theParams.getEverythingMode() != null) {
+			return null;
+		}
+		return SearchKeyset.getSortKey(theSort);
+	}
+
 	private void executeSearch(
 			SearchQueryProperties theProperties,
 			List<ISearchQueryExecutor> theSearchQueryExecutors,
@@ -823,6 +1055,10 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		GeneratedSql generatedSql =
 				sqlBuilder.generate(theProperties.getOffset(), theProperties.getMaxResultsRequested());
 		if (!generatedSql.isMatchNothing()) {
+			if (theProperties.isEstimateCountOnlyFlag()) {
+				theSearchQueryExecutors.add(mySqlBuilderFactory.newQueryPlanEstimateExecutor(generatedSql));
+				return;
+			}
 			SearchQueryExecutor executor =
 					mySqlBuilderFactory.newSearchQueryExecutor(generatedSql, theProperties.getMaxResultsRequested());
 			theSearchQueryExecutors.add(executor);
@@ -1526,10 +1762,9 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		String findPartitionIdFieldName =
 				reverseMode ? MY_SOURCE_RESOURCE_PARTITION_ID : MY_TARGET_RESOURCE_PARTITION_ID;
 		String findResourceTypeFieldName = reverseMode ? MY_SOURCE_RESOURCE_TYPE : MY_TARGET_RESOURCE_TYPE;
-		String findVersionFieldName = null;
-		if (!reverseMode && myStorageSettings.isRespectVersionsForSearchIncludes()) {
-			findVersionFieldName = MY_TARGET_RESOURCE_VERSION;
-		}
+		String findVersionFieldName = !reverseMode && myStorageSettings.isRespectVersionsForSearchIncludes()
+				? MY_TARGET_RESOURCE_VERSION
+				: null;
 
 		List<JpaPid> nextRoundMatches = new ArrayList<>(matches);
 		HashSet<JpaPid> allAdded = new HashSet<>();
@@ -1539,62 +1774,75 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		int roundCounts = 0;
 		StopWatch w = new StopWatch();
 
+		/*
+		 * Loads the PIDs matched by a single include within the current round into the
+		 * given set. Includes within a round are independent of each other, so this may
+		 * be invoked concurrently for different includes.
+		 */
+		BiConsumer<Include, HashSet<JpaPid>> includeLoader = (nextInclude, pidsToInclude) -> {
+			// Account for _include=*
+			boolean matchAll = "*".equals(nextInclude.getValue());
+
+			// Account for _include=[resourceType]:*
+			String wantResourceType = null;
+			if (!matchAll) {
+				if ("*".equals(nextInclude.getParamName())) {
+					wantResourceType = nextInclude.getParamType();
+					matchAll = true;
+				}
+			}
+
+			if (matchAll) {
+				loadIncludesMatchAll(
+						findPidFieldName,
+						findPartitionIdFieldName,
+						findResourceTypeFieldName,
+						findVersionFieldName,
+						searchPidFieldName,
+						searchPartitionIdFieldName,
+						wantResourceType,
+						reverseMode,
+						hasDesiredResourceTypes,
+						nextRoundMatches,
+						entityManager,
+						maxCount,
+						desiredResourceTypes,
+						pidsToInclude,
+						request);
+			} else {
+				loadIncludesMatchSpecific(
+						nextInclude,
+						fhirContext,
+						findPidFieldName,
+						findPartitionIdFieldName,
+						findVersionFieldName,
+						searchPidFieldName,
+						searchPartitionIdFieldName,
+						reverseMode,
+						nextRoundMatches,
+						entityManager,
+						maxCount,
+						pidsToInclude,
+						request);
+			}
+		};
+
+		boolean canLoadInParallel = canLoadIncludesInParallel(entityManager, request, compositeBroadcaster);
+
 		boolean addedSomeThisRound;
 		do {
 			roundCounts++;
 
 			HashSet<JpaPid> pidsToInclude = new HashSet<>();
 
-			for (Iterator<Include> iter = includes.iterator(); iter.hasNext(); ) {
-				Include nextInclude = iter.next();
-				if (!nextInclude.isRecurse()) {
-					iter.remove();
-				}
+			List<Include> includesThisRound = new ArrayList<>(includes);
+			includes.removeIf(t -> !t.isRecurse());
 
-				// Account for _include=*
-				boolean matchAll = "*".equals(nextInclude.getValue());
-
-				// Account for _include=[resourceType]:*
-				String wantResourceType = null;
-				if (!matchAll) {
-					if ("*".equals(nextInclude.getParamName())) {
-						wantResourceType = nextInclude.getParamType();
-						matchAll = true;
-					}
-				}
-
-				if (matchAll) {
-					loadIncludesMatchAll(
-							findPidFieldName,
-							findPartitionIdFieldName,
-							findResourceTypeFieldName,
-							findVersionFieldName,
-							searchPidFieldName,
-							searchPartitionIdFieldName,
-							wantResourceType,
-							reverseMode,
-							hasDesiredResourceTypes,
-							nextRoundMatches,
-							entityManager,
-							maxCount,
-							desiredResourceTypes,
-							pidsToInclude,
-							request);
-				} else {
-					loadIncludesMatchSpecific(
-							nextInclude,
-							fhirContext,
-							findPidFieldName,
-							findPartitionIdFieldName,
-							findVersionFieldName,
-							searchPidFieldName,
-							searchPartitionIdFieldName,
-							reverseMode,
-							nextRoundMatches,
-							entityManager,
-							maxCount,
-							pidsToInclude,
-							request);
+			if (canLoadInParallel && includesThisRound.size() > 1) {
+				loadIncludesInParallel(includesThisRound, includeLoader, request, pidsToInclude);
+			} else {
+				for (Include nextInclude : includesThisRound) {
+					includeLoader.accept(nextInclude, pidsToInclude);
 				}
 			}
 
@@ -1658,6 +1906,72 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		return allAdded;
 	}
 
+	/**
+	 * Includes are only resolved concurrently if this has been enabled, and if it is safe
+	 * to resolve them on other threads. Each worker uses its own transaction, so it can
+	 * not see anything written by the calling thread's transaction (which is why requests
+	 * within a transaction/batch Bundle are excluded), and SQL capture for the
+	 * {@link Pointcut#JPA_PERFTRACE_RAW_SQL} pointcut only covers the calling thread.
+	 */
+	private boolean canLoadIncludesInParallel(
+			EntityManager theEntityManager,
+			RequestDetails theRequest,
+			IInterceptorBroadcaster theCompositeBroadcaster) {
+		if (myStorageSettings.getIncludeLoadingThreadCount() <= 1 || myIncludeTaskExecutor == null) {
+			return false;
+		}
+		// Only a shared EntityManager is bound to the transaction of the thread using it
+		if (!(theEntityManager instanceof EntityManagerProxy)) {
+			return false;
+		}
+		if (theRequest != null && theRequest.isSubRequest()) {
+			return false;
+		}
+		return !theCompositeBroadcaster.hasHooks(Pointcut.JPA_PERFTRACE_RAW_SQL);
+	}
+
+	/**
+	 * Resolves each of the given includes on the include executor, each in its own
+	 * read-only transaction, and merges the results into <code>thePidsToInclude</code>
+	 * once all of them have completed.
+	 */
+	private void loadIncludesInParallel(
+			List<Include> theIncludes,
+			BiConsumer<Include, HashSet<JpaPid>> theIncludeLoader,
+			RequestDetails theRequest,
+			HashSet<JpaPid> thePidsToInclude) {
+		RequestPartitionId requestPartitionId = HapiTransactionService.getRequestPartitionAssociatedWithThread();
+
+		List<Future<HashSet<JpaPid>>> futures = new ArrayList<>(theIncludes.size());
+		for (Include nextInclude : theIncludes) {
+			futures.add(myIncludeTaskExecutor.submit(() -> myHapiTransactionService
+					.withRequest(theRequest)
+					.withRequestPartitionId(requestPartitionId)
+					.readOnly()
+					.execute(() -> {
+						HashSet<JpaPid> pids = new HashSet<>();
+						theIncludeLoader.accept(nextInclude, pids);
+						return pids;
+					})));
+		}
+
+		try {
+			for (Future<HashSet<JpaPid>> nextFuture : futures) {
+				thePidsToInclude.addAll(nextFuture.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InternalErrorException(Msg.code(2781) + "Interrupted while loading includes", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new InternalErrorException(Msg.code(2782) + "Failed to load includes: " + e.getCause(), e);
+		} finally {
+			futures.forEach(t -> t.cancel(false));
+		}
+	}
+
 	private void loadIncludesMatchSpecific(
 			Include nextInclude,
 			FhirContext fhirContext,
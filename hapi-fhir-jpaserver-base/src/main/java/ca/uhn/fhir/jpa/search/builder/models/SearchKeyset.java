@@ -0,0 +1,185 @@
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.builder.models;
+
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.SortOrderEnum;
+import ca.uhn.fhir.rest.api.SortSpec;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.Validate;
+import org.hl7.fhir.instance.model.api.IAnyResource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/**
+ * The position of the last result of a page in a keyset (seek) paginated search. This is
+ * the sort key value and the resource PID (which breaks ties between equal sort keys) of
+ * that result, plus the sort it was produced for. It is carried between requests as the
+ * opaque {@link Constants#PARAM_SEARCH_AFTER} token.
+ *
+ * @since 8.4.0
+ */
+public class SearchKeyset {
+
+	private static final String SEPARATOR = "|";
+
+	private final SortKeyEnum mySortKey;
+	private final boolean myAscending;
+	private final long myPid;
+	private final Object myValue;
+
+	public SearchKeyset(@Nonnull SortKeyEnum theSortKey, boolean theAscending, long thePid, @Nonnull Object theValue) {
+		Validate.notNull(theSortKey, "theSortKey must not be null");
+		Validate.isTrue(
+				theSortKey.getValueType().isInstance(theValue),
+				"Value for sort key %s must be a %s",
+				theSortKey,
+				theSortKey.getValueType().getSimpleName());
+		mySortKey = theSortKey;
+		myAscending = theAscending;
+		myPid = thePid;
+		myValue = theValue;
+	}
+
+	public SortKeyEnum getSortKey() {
+		return mySortKey;
+	}
+
+	public boolean isAscending() {
+		return myAscending;
+	}
+
+	public long getPid() {
+		return myPid;
+	}
+
+	/**
+	 * Returns the sort key value, which is a {@link Date} for {@link SortKeyEnum#LAST_UPDATED}
+	 * and a {@link String} for {@link SortKeyEnum#RESOURCE_ID}
+	 */
+	public Object getValue() {
+		return myValue;
+	}
+
+	/**
+	 * Returns <code>true</code> if this keyset was produced for the given sort
+	 */
+	public boolean matches(@Nullable SortSpec theSort) {
+		return mySortKey == getSortKey(theSort) && myAscending == isAscending(theSort);
+	}
+
+	/**
+	 * Encodes this keyset as a URL safe token
+	 */
+	public String encode() {
+		String value = myValue instanceof Date ? Long.toString(((Date) myValue).getTime()) : (String) myValue;
+		String token = mySortKey.getCode() + SEPARATOR + (myAscending ? "a" : "d") + SEPARATOR + myPid + SEPARATOR
+				+ value;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Parses a token created by {@link #encode()}. Tokens are supplied by clients, so this
+	 * method returns <code>null</code> instead of failing if the token can not be parsed.
+	 */
+	@Nullable
+	public static SearchKeyset parse(@Nullable String theToken) {
+		if (isBlank(theToken)) {
+			return null;
+		}
+		try {
+			String token = new String(Base64.getUrlDecoder().decode(theToken), StandardCharsets.UTF_8);
+			String[] parts = token.split("\\|", 4);
+			if (parts.length != 4 || isBlank(parts[3])) {
+				return null;
+			}
+			SortKeyEnum sortKey = SortKeyEnum.forCode(parts[0]);
+			if (sortKey == null || !("a".equals(parts[1]) || "d".equals(parts[1]))) {
+				return null;
+			}
+			long pid = Long.parseLong(parts[2]);
+			Object value = sortKey == SortKeyEnum.LAST_UPDATED ? new Date(Long.parseLong(parts[3])) : parts[3];
+			return new SearchKeyset(sortKey, "a".equals(parts[1]), pid, value);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the keyset sort key for the given sort, or <code>null</code> if the sort can
+	 * not be paged using a keyset. Only a single sort on <code>_lastUpdated</code> or
+	 * <code>_id</code> is supported, since those are single valued columns on the resource
+	 * table. Sorts on other search parameters are backed by index tables which can hold
+	 * several rows per resource.
+	 */
+	@Nullable
+	public static SortKeyEnum getSortKey(@Nullable SortSpec theSort) {
+		if (theSort == null || theSort.getChain() != null) {
+			return null;
+		}
+		if (Constants.PARAM_LASTUPDATED.equals(theSort.getParamName())) {
+			return SortKeyEnum.LAST_UPDATED;
+		}
+		if (IAnyResource.SP_RES_ID.equals(theSort.getParamName())) {
+			return SortKeyEnum.RESOURCE_ID;
+		}
+		return null;
+	}
+
+	public static boolean isAscending(@Nonnull SortSpec theSort) {
+		return theSort.getOrder() == null || theSort.getOrder() == SortOrderEnum.ASC;
+	}
+
+	public enum SortKeyEnum {
+		LAST_UPDATED("lu", Date.class),
+		RESOURCE_ID("id", String.class);
+
+		private final String myCode;
+		private final Class<?> myValueType;
+
+		SortKeyEnum(String theCode, Class<?> theValueType) {
+			myCode = theCode;
+			myValueType = theValueType;
+		}
+
+		public String getCode() {
+			return myCode;
+		}
+
+		public Class<?> getValueType() {
+			return myValueType;
+		}
+
+		@Nullable
+		static SortKeyEnum forCode(String theCode) {
+			for (SortKeyEnum next : values()) {
+				if (next.myCode.equals(theCode)) {
+					return next;
+				}
+			}
+			return null;
+		}
+	}
+}
@@ -30,6 +30,11 @@ public class SearchQueryProperties {
 	 * True means this is a count only query
 	 */
 	private boolean myDoCountOnlyFlag;
+	/**
+	 * True if this query is only to fetch an estimate of the number of results,
+	 * using the database query planner (and not any results).
+	 */
+	private boolean myEstimateCountOnlyFlag;
 	/**
 	 * Whether or not we do deduplication of results in memory
 	 * (using a hashset, etc), or push this to the database
@@ -65,6 +70,15 @@ public class SearchQueryProperties {
 		return this;
 	}
 
+	public boolean isEstimateCountOnlyFlag() {
+		return myEstimateCountOnlyFlag;
+	}
+
+	public SearchQueryProperties setEstimateCountOnlyFlag(boolean theEstimateCountOnlyFlag) {
+		myEstimateCountOnlyFlag = theEstimateCountOnlyFlag;
+		return this;
+	}
+
 	public boolean isDeduplicateInDatabase() {
 		return myDeduplicateInDB;
 	}
@@ -138,6 +152,7 @@ public class SearchQueryProperties {
 				.setSortSpec(mySortSpec)
 				.setOffset(myOffset)
 				.setDoCountOnlyFlag(myDoCountOnlyFlag)
+				.setEstimateCountOnlyFlag(myEstimateCountOnlyFlag)
 				.setDeduplicateInDatabase(myDeduplicateInDB);
 	}
 }
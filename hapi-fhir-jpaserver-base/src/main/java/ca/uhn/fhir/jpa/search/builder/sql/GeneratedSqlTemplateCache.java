@@ -0,0 +1,269 @@
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.builder.sql;
+
+import ca.uhn.fhir.sl.cache.Cache;
+import ca.uhn.fhir.sl.cache.CacheFactory;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.SQLServerDialect;
+import org.hibernate.dialect.pagination.AbstractLimitHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Caches the final form of the SQL generated by {@link SearchQueryBuilder#generate(Integer, Integer)}.
+ * <p>
+ * The cache is keyed on the {@link SearchQueryShape} of a search, which is computed from the
+ * search parameters before any predicates are built. Searches with the same shape generate the
+ * same SQL, with only the values of their bind variables differing, so on a hit the query builder
+ * can skip rendering and validating the SQL and applying the dialect limit handling, and only
+ * needs to bind its values into the cached template.
+ * </p>
+ * <p>
+ * When the dialect binds the offset and limit as variables, they are bound into the template as
+ * well, so every page of a search shares one entry. Otherwise (e.g. on SQL Server, where the
+ * limit SQL depends on the values) the offset and limit are part of the key.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public class GeneratedSqlTemplateCache {
+
+	public static final int DEFAULT_MAXIMUM_SIZE = 1000;
+
+	/**
+	 * Queries with very large generated SQL (typically long <code>IN</code> lists) are not
+	 * cached, since their shape is unlikely to repeat
+	 */
+	static final int MAXIMUM_SQL_LENGTH = 20000;
+
+	/**
+	 * Stands in for the offset or limit in a key when they are bound as variables
+	 */
+	private static final int BOUND_LIMIT_VALUE = -1;
+
+	private final Cache<Key, GeneratedSqlTemplate> myCache;
+
+	/**
+	 * Constructor
+	 */
+	public GeneratedSqlTemplateCache() {
+		this(DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * Constructor
+	 */
+	public GeneratedSqlTemplateCache(int theMaximumSize) {
+		myCache = CacheFactory.buildEternal(Math.min(theMaximumSize, 100), theMaximumSize);
+	}
+
+	@Nullable
+	GeneratedSqlTemplate get(
+			@Nonnull Dialect theDialect,
+			@Nonnull SearchQueryShape theShape,
+			@Nullable Integer theOffset,
+			@Nullable Integer theMaxResultsToFetch) {
+		return myCache.getIfPresent(newKey(theDialect, theShape, theOffset, theMaxResultsToFetch));
+	}
+
+	void put(
+			@Nonnull Dialect theDialect,
+			@Nonnull SearchQueryShape theShape,
+			@Nullable Integer theOffset,
+			@Nullable Integer theMaxResultsToFetch,
+			@Nonnull GeneratedSqlTemplate theTemplate) {
+		if (theTemplate.getSql().length() > MAXIMUM_SQL_LENGTH) {
+			return;
+		}
+		myCache.put(newKey(theDialect, theShape, theOffset, theMaxResultsToFetch), theTemplate);
+	}
+
+	public long size() {
+		return myCache.estimatedSize();
+	}
+
+	public void invalidateAll() {
+		myCache.invalidateAll();
+	}
+
+	/**
+	 * Returns a reference to one of the bind variables of a query (by the index the value was
+	 * given when it was added to the query builder), for use in the bind variable template of a
+	 * {@link GeneratedSqlTemplate}
+	 */
+	static Object newQueryBindVariable(int theIndex) {
+		return new QueryBindVariable(theIndex);
+	}
+
+	/**
+	 * Returns <code>true</code> if the limit handling of the given dialect adds the offset and
+	 * limit as bind variables without otherwise depending on their values. For these dialects,
+	 * the limit handling adds the {@link LimitBindVariable} markers to the bind variable
+	 * template instead of the actual values.
+	 */
+	static boolean isLimitBoundAsVariables(@Nonnull Dialect theDialect) {
+		if (theDialect instanceof SQLServerDialect) {
+			return false;
+		}
+		return ((AbstractLimitHandler) theDialect.getLimitHandler()).supportsVariableLimit();
+	}
+
+	private static Key newKey(
+			Dialect theDialect, SearchQueryShape theShape, Integer theOffset, Integer theMaxResultsToFetch) {
+		Integer offset = theOffset;
+		Integer maxResultsToFetch = theMaxResultsToFetch;
+		if (isLimitBoundAsVariables(theDialect)) {
+			// The limit handling leaves out the limit entirely if it isn't positive
+			offset = offset != null ? BOUND_LIMIT_VALUE : null;
+			if (maxResultsToFetch != null && maxResultsToFetch > 0) {
+				maxResultsToFetch = BOUND_LIMIT_VALUE;
+			}
+		}
+		return new Key(theDialect, theShape, offset, maxResultsToFetch);
+	}
+
+	/**
+	 * The final SQL for a query shape, and the bind variables it needs. Each bind variable is
+	 * either a reference to one of the query's own bind variables, a reference to the query's
+	 * offset or limit, or a constant value added by the limit handling.
+	 */
+	static class GeneratedSqlTemplate {
+
+		private final String mySql;
+		private final Object[] myBindVariableTemplate;
+		private final int myQueryBindVariableCount;
+
+		/**
+		 * Constructor
+		 *
+		 * @param theQueryBindVariableCount The number of bind variables the query builder held
+		 *                                  when the template was generated
+		 */
+		GeneratedSqlTemplate(String theSql, List<Object> theBindVariableTemplate, int theQueryBindVariableCount) {
+			mySql = theSql;
+			myBindVariableTemplate = theBindVariableTemplate.toArray();
+			myQueryBindVariableCount = theQueryBindVariableCount;
+		}
+
+		String getSql() {
+			return mySql;
+		}
+
+		/**
+		 * Returns <code>true</code> if this template can bind the given values. A query with the
+		 * same shape always creates the same number of bind variables, so a different number
+		 * means the predicate builders made a choice the shape doesn't capture.
+		 */
+		boolean canBind(List<Object> theQueryBindVariables) {
+			return theQueryBindVariables.size() == myQueryBindVariableCount;
+		}
+
+		List<Object> bind(
+				List<Object> theQueryBindVariables,
+				@Nullable Integer theOffset,
+				@Nullable Integer theMaxResultsToFetch) {
+			List<Object> retVal = new ArrayList<>(myBindVariableTemplate.length);
+			for (Object next : myBindVariableTemplate) {
+				if (next instanceof QueryBindVariable queryBindVariable) {
+					retVal.add(theQueryBindVariables.get(queryBindVariable.myIndex));
+				} else if (next instanceof LimitBindVariable limitBindVariable) {
+					retVal.add(limitBindVariable.getValue(theOffset, theMaxResultsToFetch));
+				} else {
+					retVal.add(next);
+				}
+			}
+			return retVal;
+		}
+	}
+
+	/**
+	 * Added to a bind variable template by the limit handling in place of the offset and limit
+	 * when they are bound as variables
+	 */
+	enum LimitBindVariable {
+		OFFSET,
+		MAX_RESULTS,
+		MAX_RESULTS_PLUS_OFFSET;
+
+		private Integer getValue(Integer theOffset, Integer theMaxResultsToFetch) {
+			switch (this) {
+				case OFFSET:
+					return theOffset;
+				case MAX_RESULTS:
+					return theMaxResultsToFetch;
+				case MAX_RESULTS_PLUS_OFFSET:
+				default:
+					return theMaxResultsToFetch + theOffset;
+			}
+		}
+	}
+
+	private static class QueryBindVariable {
+
+		private final int myIndex;
+
+		private QueryBindVariable(int theIndex) {
+			myIndex = theIndex;
+		}
+	}
+
+	private static class Key {
+
+		private final Dialect myDialect;
+		private final SearchQueryShape myShape;
+		private final Integer myOffset;
+		private final Integer myMaxResultsToFetch;
+		private final int myHashCode;
+
+		private Key(Dialect theDialect, SearchQueryShape theShape, Integer theOffset, Integer theMaxResultsToFetch) {
+			myDialect = theDialect;
+			myShape = theShape;
+			myOffset = theOffset;
+			myMaxResultsToFetch = theMaxResultsToFetch;
+			myHashCode = Objects.hash(System.identityHashCode(theDialect), theShape, theOffset, theMaxResultsToFetch);
+		}
+
+		@Override
+		public boolean equals(Object theO) {
+			if (this == theO) {
+				return true;
+			}
+			if (!(theO instanceof Key)) {
+				return false;
+			}
+			Key that = (Key) theO;
+			return myHashCode == that.myHashCode
+					&& myDialect == that.myDialect
+					&& Objects.equals(myOffset, that.myOffset)
+					&& Objects.equals(myMaxResultsToFetch, that.myMaxResultsToFetch)
+					&& myShape.equals(that.myShape);
+		}
+
+		@Override
+		public int hashCode() {
+			return myHashCode;
+		}
+	}
+}
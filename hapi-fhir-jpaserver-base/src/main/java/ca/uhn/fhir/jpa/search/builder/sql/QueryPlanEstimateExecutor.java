@@ -0,0 +1,130 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.builder.sql;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.search.builder.ISearchQueryExecutor;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.FlushModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceContextType;
+import jakarta.persistence.Query;
+import org.apache.commons.lang3.Validate;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Asks the database query planner how many rows a generated search query is expected to
+ * return (using <code>EXPLAIN</code>), without actually executing the query. The estimate
+ * is returned as the ID of the single result, the same way a count query returns its count.
+ * <p>
+ * Planner estimates are only as good as the database statistics, so they must only be used
+ * where an approximate value is acceptable (i.e. <code>_total=estimated</code>).
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public class QueryPlanEstimateExecutor implements ISearchQueryExecutor {
+
+	private static final Pattern ROWS_PATTERN = Pattern.compile("\\brows=(\\d+)");
+	private static final Logger ourLog = LoggerFactory.getLogger(QueryPlanEstimateExecutor.class);
+	private final GeneratedSql myGeneratedSql;
+
+	@PersistenceContext(type = PersistenceContextType.TRANSACTION)
+	private EntityManager myEntityManager;
+
+	private boolean myQueryExecuted;
+	private JpaPid myNext;
+
+	/**
+	 * Constructor
+	 */
+	public QueryPlanEstimateExecutor(GeneratedSql theGeneratedSql) {
+		Validate.notNull(theGeneratedSql, "theGeneratedSql must not be null");
+		myGeneratedSql = theGeneratedSql;
+	}
+
+	@Override
+	public void close() {
+		// nothing
+	}
+
+	@Override
+	public boolean hasNext() {
+		executeIfNeeded();
+		return myNext != null;
+	}
+
+	@Override
+	public JpaPid next() {
+		Validate.isTrue(hasNext(), "Can not call next() right now, no data remains");
+		JpaPid next = myNext;
+		myNext = null;
+		return next;
+	}
+
+	private void executeIfNeeded() {
+		if (myQueryExecuted) {
+			return;
+		}
+		myQueryExecuted = true;
+
+		String sql = "EXPLAIN " + myGeneratedSql.getSql();
+		List<Object> args = myGeneratedSql.getBindVariables();
+		try {
+			HapiTransactionService.requireTransaction();
+			ourLog.trace("About to execute SQL: {}. Parameters: {}", sql, args);
+
+			Query nativeQuery = myEntityManager.createNativeQuery(sql);
+			for (int i = 1; i <= args.size(); i++) {
+				nativeQuery.setParameter(i, args.get(i - 1));
+			}
+			nativeQuery.setFlushMode(FlushModeType.COMMIT);
+
+			// The first line of the plan describes the top node, which carries the row estimate for the whole query
+			List<?> plan = nativeQuery.getResultList();
+			if (!plan.isEmpty()) {
+				Matcher matcher = ROWS_PATTERN.matcher(String.valueOf(plan.get(0)));
+				if (matcher.find()) {
+					myNext = JpaPid.fromId(Long.parseLong(matcher.group(1)));
+				}
+			}
+		} catch (Exception e) {
+			ourLog.error("Failed to estimate row count for SQL query", e);
+			throw new InternalErrorException(Msg.code(2786) + e, e);
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the given dialect produces query plans this executor can read
+	 */
+	public static boolean isSupported(Dialect theDialect) {
+		return theDialect instanceof PostgreSQLDialect;
+	}
+}
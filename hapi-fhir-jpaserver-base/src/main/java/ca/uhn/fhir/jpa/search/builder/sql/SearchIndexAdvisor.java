@@ -0,0 +1,590 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.builder.sql;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.config.HibernatePropertiesProvider;
+import ca.uhn.fhir.jpa.migrate.DriverTypeEnum;
+import ca.uhn.fhir.jpa.migrate.JdbcUtils;
+import ca.uhn.fhir.jpa.migrate.taskdef.BaseTask;
+import ca.uhn.fhir.jpa.migrate.tasks.api.Builder;
+import ca.uhn.fhir.jpa.model.dialect.IHapiFhirDialect;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamCoords;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamDate;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamNumber;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamQuantity;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamQuantityNormalized;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamString;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamToken;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamUri;
+import ca.uhn.fhir.jpa.model.sched.HapiJob;
+import ca.uhn.fhir.jpa.model.sched.IHasScheduledJobs;
+import ca.uhn.fhir.jpa.model.sched.ISchedulerService;
+import ca.uhn.fhir.jpa.model.sched.ScheduledJobDefinition;
+import ca.uhn.fhir.util.VersionEnum;
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.annotation.Nullable;
+import jakarta.persistence.Column;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import org.apache.commons.lang3.time.DateUtils;
+import org.hibernate.dialect.Dialect;
+import org.quartz.JobExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.lang.reflect.Field;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Records the shape and latency of the SQL queries run against the search parameter index
+ * tables (<code>HFJ_SPIDX_*</code>) and recommends composite indexes for slow query shapes.
+ * <p>
+ * For each index table joined by a query, the columns compared against bind values are
+ * collected. Shapes which compare at least one hash column for equality produce a candidate
+ * index made of the equality columns (hash columns first), followed by the first range
+ * (<code>&lt;</code>, <code>&gt;</code>, <code>LIKE</code>) column, and then
+ * <code>RES_ID</code> and <code>PARTITION_ID</code> so that the index covers the query,
+ * the same way the built-in <code>HFJ_SPIDX_*</code> indexes are laid out. A candidate
+ * is recommended once enough slow queries would have used it, unless a built-in index
+ * already starts with the same columns.
+ * </p>
+ * <p>
+ * Recommendations can be created using {@link #createRecommendedIndexes()}, which uses the
+ * schema migration {@link Builder} to add the indexes online where the database supports
+ * this. If {@link JpaStorageSettings#setIndexAdvisorAutomaticIndexCreationEnabled(boolean)}
+ * is enabled this also happens periodically. See that setting for the locking behaviour of
+ * each database.
+ * </p>
+ * <p>
+ * Index names are derived from the table and the positions of the index columns within the
+ * (alphabetically sorted) columns of the table, so different column lists never produce the
+ * same name. Before creating an index, the column lists of the existing indexes on the table
+ * are compared with the recommendation, and nothing is created if an index with the same
+ * columns (under any name) already exists, or if the name is taken by a different index.
+ * </p>
+ * <p>
+ * Indexes created by the advisor are not recorded in the schema migration history. Each one
+ * is logged at <code>WARN</code> level along with the statement used to create it, and is
+ * available from {@link #getCreatedIndexes()}, so that operators can add it to their own
+ * migrations (or drop it) and keep every environment consistent.
+ * </p>
+ *
+ * @see JpaStorageSettings#setIndexAdvisorEnabled(boolean)
+ * @since 8.4.0
+ */
+public class SearchIndexAdvisor implements IHasScheduledJobs {
+
+	public static final long DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS = 500;
+	public static final int DEFAULT_MINIMUM_SLOW_EXECUTIONS = 10;
+	public static final String INDEX_NAME_PREFIX = "IDX_ADV_";
+
+	/**
+	 * Limits the memory used by the advisor if the server produces many distinct query shapes
+	 */
+	static final int MAXIMUM_TRACKED_ENTRIES = 1000;
+
+	private static final Logger ourLog = LoggerFactory.getLogger(SearchIndexAdvisor.class);
+	private static final String INDEX_TABLE_PREFIX = "HFJ_SPIDX_";
+	private static final String SCHEMA_VERSION = "1";
+	private static final String RES_ID = "RES_ID";
+	private static final String PARTITION_ID = "PARTITION_ID";
+	private static final Pattern IN_LIST_PATTERN = Pattern.compile("IN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+	private static final Pattern TABLE_ALIAS_PATTERN =
+			Pattern.compile("\\b(?:FROM|JOIN)\\s+(" + INDEX_TABLE_PREFIX + "\\w+)\\s+(t\\d+)\\b");
+	private static final Pattern EQUALITY_PATTERN =
+			Pattern.compile("\\b(t\\d+)\\.(\\w+)\\s*(?:=\\s*+(?!t\\d+\\.)|IN\\s*\\()");
+	private static final Pattern RANGE_PATTERN =
+			Pattern.compile("\\b(t\\d+)\\.(\\w+)\\s*(?:>=|<=|>|<(?!>)|LIKE\\b)\\s*+(?!t\\d+\\.)");
+	private static final List<Class<?>> INDEX_ENTITY_TYPES = List.of(
+			ResourceIndexedSearchParamCoords.class,
+			ResourceIndexedSearchParamDate.class,
+			ResourceIndexedSearchParamNumber.class,
+			ResourceIndexedSearchParamQuantity.class,
+			ResourceIndexedSearchParamQuantityNormalized.class,
+			ResourceIndexedSearchParamString.class,
+			ResourceIndexedSearchParamToken.class,
+			ResourceIndexedSearchParamUri.class);
+
+	private final JpaStorageSettings myStorageSettings;
+	private final HibernatePropertiesProvider myDialectProvider;
+	private final Map<String, List<IndexCandidate>> myQueryShapeToCandidates = new ConcurrentHashMap<>();
+	private final Map<IndexCandidate, CandidateStatistics> myCandidateToStatistics = new ConcurrentHashMap<>();
+	private final Set<String> myHandledIndexNames = ConcurrentHashMap.newKeySet();
+	private final Map<String, List<List<String>>> myTableToBuiltInIndexes;
+	private final Map<String, List<String>> myTableToColumnNames;
+	private final List<SearchIndexRecommendation> myCreatedIndexes = new CopyOnWriteArrayList<>();
+	private long mySlowQueryThresholdMillis = DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS;
+	private int myMinimumSlowExecutions = DEFAULT_MINIMUM_SLOW_EXECUTIONS;
+
+	/**
+	 * Constructor
+	 */
+	public SearchIndexAdvisor(JpaStorageSettings theStorageSettings, HibernatePropertiesProvider theDialectProvider) {
+		myStorageSettings = theStorageSettings;
+		myDialectProvider = theDialectProvider;
+		myTableToBuiltInIndexes = loadBuiltInIndexes();
+		myTableToColumnNames = loadColumnNames();
+	}
+
+	public boolean isEnabled() {
+		return myStorageSettings.isIndexAdvisorEnabled();
+	}
+
+	/**
+	 * Queries taking at least this long count towards a recommendation
+	 * (default is {@value #DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS})
+	 */
+	public void setSlowQueryThresholdMillis(long theSlowQueryThresholdMillis) {
+		mySlowQueryThresholdMillis = theSlowQueryThresholdMillis;
+	}
+
+	/**
+	 * The number of slow queries which must have been able to use an index before it is
+	 * recommended (default is {@value #DEFAULT_MINIMUM_SLOW_EXECUTIONS})
+	 */
+	public void setMinimumSlowExecutions(int theMinimumSlowExecutions) {
+		myMinimumSlowExecutions = theMinimumSlowExecutions;
+	}
+
+	/**
+	 * Records a query which was executed.
+	 *
+	 * @param theSql           The SQL, with <code>?</code> placeholders for bind values
+	 * @param theElapsedMillis The time taken to execute the query
+	 */
+	public void recordQuery(String theSql, long theElapsedMillis) {
+		if (!isEnabled() || theSql == null) {
+			return;
+		}
+
+		String queryShape = IN_LIST_PATTERN.matcher(theSql).replaceAll("IN (?)");
+		List<IndexCandidate> candidates = myQueryShapeToCandidates.get(queryShape);
+		if (candidates == null) {
+			candidates = parseCandidates(queryShape);
+			if (myQueryShapeToCandidates.size() < MAXIMUM_TRACKED_ENTRIES) {
+				myQueryShapeToCandidates.put(queryShape, candidates);
+			}
+		}
+
+		boolean slow = theElapsedMillis >= mySlowQueryThresholdMillis;
+		for (IndexCandidate nextCandidate : candidates) {
+			CandidateStatistics statistics = myCandidateToStatistics.get(nextCandidate);
+			if (statistics == null) {
+				if (myCandidateToStatistics.size() >= MAXIMUM_TRACKED_ENTRIES) {
+					continue;
+				}
+				statistics = myCandidateToStatistics.computeIfAbsent(nextCandidate, t -> new CandidateStatistics());
+			}
+			statistics.record(queryShape, theElapsedMillis, slow);
+		}
+	}
+
+	/**
+	 * Returns the currently recommended indexes, most expensive first. Indexes which have
+	 * already been created (or failed to be created) by this advisor are not included.
+	 */
+	public List<SearchIndexRecommendation> getRecommendations() {
+		List<SearchIndexRecommendation> retVal = new ArrayList<>();
+		for (Map.Entry<IndexCandidate, CandidateStatistics> next : myCandidateToStatistics.entrySet()) {
+			IndexCandidate candidate = next.getKey();
+			CandidateStatistics statistics = next.getValue();
+			long slowExecutions = statistics.mySlowExecutions.sum();
+			String indexName = createIndexName(
+					candidate.getTableName(),
+					candidate.getColumns(),
+					myTableToColumnNames.getOrDefault(candidate.getTableName(), List.of()));
+			if (slowExecutions < myMinimumSlowExecutions
+					|| indexName == null
+					|| myHandledIndexNames.contains(indexName)
+					|| isCoveredByBuiltInIndex(candidate)) {
+				continue;
+			}
+			retVal.add(new SearchIndexRecommendation(
+					candidate.getTableName(),
+					indexName,
+					candidate.getColumns(),
+					statistics.myExecutions.sum(),
+					slowExecutions,
+					statistics.mySlowMillis.sum(),
+					statistics.myExampleSql));
+		}
+		retVal.sort(Comparator.comparing(SearchIndexRecommendation::getSlowExecutionMillis)
+				.reversed());
+		return retVal;
+	}
+
+	/**
+	 * Creates all currently recommended indexes using the schema migration tasks, and
+	 * returns the ones which were created. Recommendations whose columns are already
+	 * indexed in the database are skipped.
+	 */
+	public synchronized List<SearchIndexRecommendation> createRecommendedIndexes() {
+		List<SearchIndexRecommendation> recommendations = getRecommendations();
+		if (recommendations.isEmpty()) {
+			return List.of();
+		}
+
+		Dialect dialect = myDialectProvider.getDialect();
+		if (!(dialect instanceof IHapiFhirDialect)) {
+			ourLog.warn("Can not create recommended indexes, dialect is not a HAPI FHIR dialect: {}", dialect);
+			return List.of();
+		}
+		DriverTypeEnum driverType = ((IHapiFhirDialect) dialect).getDriverType();
+		DriverTypeEnum.ConnectionProperties connectionProperties =
+				driverType.newConnectionProperties(myDialectProvider.getDataSource());
+
+		List<BaseTask> tasks = new ArrayList<>();
+		Builder builder = new Builder(VersionEnum.latestVersion().name(), tasks::add);
+		for (SearchIndexRecommendation next : recommendations) {
+			builder.onTable(next.getTableName())
+					.addIndex(SCHEMA_VERSION, next.getIndexName())
+					.unique(false)
+					.online(true)
+					.withColumns(next.getColumns().toArray(new String[0]));
+		}
+
+		List<SearchIndexRecommendation> retVal = new ArrayList<>();
+		Map<String, Map<String, List<String>>> tableToExistingIndexes = new HashMap<>();
+		for (int i = 0; i < tasks.size(); i++) {
+			BaseTask task = tasks.get(i);
+			SearchIndexRecommendation recommendation = recommendations.get(i);
+			task.setConnectionProperties(connectionProperties);
+			task.setDriverType(driverType);
+
+			// Whatever happens, don't try this index again
+			myHandledIndexNames.add(recommendation.getIndexName());
+			try {
+				Map<String, List<String>> existingIndexes = tableToExistingIndexes.get(recommendation.getTableName());
+				if (existingIndexes == null) {
+					existingIndexes = JdbcUtils.getIndexColumns(connectionProperties, recommendation.getTableName());
+					tableToExistingIndexes.put(recommendation.getTableName(), existingIndexes);
+				}
+				if (isAlreadyIndexed(recommendation, existingIndexes)) {
+					continue;
+				}
+
+				ourLog.info("Creating recommended index: {}", recommendation);
+				task.execute();
+				String sql = task.getExecutedStatements().stream()
+						.map(BaseTask.ExecutedStatement::getSql)
+						.collect(Collectors.joining(";\n"));
+				SearchIndexRecommendation created = recommendation.withCreateIndexSql(sql);
+				ourLog.warn(
+						"Created index {} on table {}. This index is not part of the schema migrations, "
+								+ "add it to your own migrations to keep environments consistent: {}",
+						created.getIndexName(),
+						created.getTableName(),
+						sql);
+				myCreatedIndexes.add(created);
+				retVal.add(created);
+			} catch (Exception e) {
+				ourLog.error("Failed to create recommended index {}: {}", recommendation.getIndexName(), e.toString());
+			}
+		}
+		return retVal;
+	}
+
+	/**
+	 * Returns the indexes created by this advisor since it was started, along with the SQL used to
+	 * create each one. These indexes are not recorded in the schema migration history.
+	 */
+	public List<SearchIndexRecommendation> getCreatedIndexes() {
+		return List.copyOf(myCreatedIndexes);
+	}
+
+	private static boolean isAlreadyIndexed(
+			SearchIndexRecommendation theRecommendation, Map<String, List<String>> theExistingIndexes) {
+		for (Map.Entry<String, List<String>> next : theExistingIndexes.entrySet()) {
+			if (next.getValue().equals(theRecommendation.getColumns())) {
+				ourLog.info(
+						"Not creating recommended index {}, columns {} are already indexed by {}",
+						theRecommendation.getIndexName(),
+						theRecommendation.getColumns(),
+						next.getKey());
+				return true;
+			}
+		}
+		if (theExistingIndexes.containsKey(theRecommendation.getIndexName())) {
+			ourLog.warn(
+					"Not creating recommended index {}, an index with this name already exists on {} with columns {}",
+					theRecommendation.getIndexName(),
+					theRecommendation.getTableName(),
+					theExistingIndexes.get(theRecommendation.getIndexName()));
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Forgets all recorded queries
+	 */
+	public void clear() {
+		myQueryShapeToCandidates.clear();
+		myCandidateToStatistics.clear();
+		myHandledIndexNames.clear();
+	}
+
+	@Override
+	public void scheduleJobs(ISchedulerService theSchedulerService) {
+		ScheduledJobDefinition jobDetail = new ScheduledJobDefinition();
+		jobDetail.setId(getClass().getName());
+		jobDetail.setJobClass(Job.class);
+		theSchedulerService.scheduleClusteredJob(10 * DateUtils.MILLIS_PER_MINUTE, jobDetail);
+	}
+
+	private void createRecommendedIndexesIfEnabled() {
+		if (isEnabled() && myStorageSettings.isIndexAdvisorAutomaticIndexCreationEnabled()) {
+			createRecommendedIndexes();
+		}
+	}
+
+	private boolean isCoveredByBuiltInIndex(IndexCandidate theCandidate) {
+		List<String> equalityColumns = theCandidate.getEqualityColumns();
+		Set<String> equalityColumnSet = new HashSet<>(equalityColumns);
+		for (List<String> nextIndex : myTableToBuiltInIndexes.getOrDefault(theCandidate.getTableName(), List.of())) {
+			int keyColumnCount = equalityColumns.size() + (theCandidate.getRangeColumn() != null ? 1 : 0);
+			if (nextIndex.size() < keyColumnCount) {
+				continue;
+			}
+			if (!new HashSet<>(nextIndex.subList(0, equalityColumns.size())).equals(equalityColumnSet)) {
+				continue;
+			}
+			if (theCandidate.getRangeColumn() == null
+					|| theCandidate.getRangeColumn().equals(nextIndex.get(equalityColumns.size()))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@VisibleForTesting
+	static List<IndexCandidate> parseCandidates(String theQueryShape) {
+		Map<String, String> aliasToTable = new HashMap<>();
+		Matcher tableMatcher = TABLE_ALIAS_PATTERN.matcher(theQueryShape);
+		while (tableMatcher.find()) {
+			aliasToTable.put(tableMatcher.group(2), tableMatcher.group(1));
+		}
+		if (aliasToTable.isEmpty()) {
+			return List.of();
+		}
+
+		Comparator<String> hashColumnsFirst =
+				Comparator.comparing((String t) -> !t.startsWith("HASH_")).thenComparing(Comparator.naturalOrder());
+		Map<String, Set<String>> aliasToEqualityColumns = new HashMap<>();
+		Matcher equalityMatcher = EQUALITY_PATTERN.matcher(theQueryShape);
+		while (equalityMatcher.find()) {
+			if (aliasToTable.containsKey(equalityMatcher.group(1)) && isKeyColumn(equalityMatcher.group(2))) {
+				aliasToEqualityColumns
+						.computeIfAbsent(equalityMatcher.group(1), t -> new TreeSet<>(hashColumnsFirst))
+						.add(equalityMatcher.group(2));
+			}
+		}
+
+		Map<String, String> aliasToRangeColumn = new HashMap<>();
+		Matcher rangeMatcher = RANGE_PATTERN.matcher(theQueryShape);
+		while (rangeMatcher.find()) {
+			if (aliasToTable.containsKey(rangeMatcher.group(1)) && isKeyColumn(rangeMatcher.group(2))) {
+				aliasToRangeColumn.putIfAbsent(rangeMatcher.group(1), rangeMatcher.group(2));
+			}
+		}
+
+		List<IndexCandidate> retVal = new ArrayList<>();
+		for (Map.Entry<String, Set<String>> next : aliasToEqualityColumns.entrySet()) {
+			Set<String> equalityColumns = next.getValue();
+			if (equalityColumns.stream().noneMatch(t -> t.startsWith("HASH_"))) {
+				continue;
+			}
+			String rangeColumn = aliasToRangeColumn.get(next.getKey());
+			if (equalityColumns.contains(rangeColumn)) {
+				rangeColumn = null;
+			}
+			retVal.add(new IndexCandidate(aliasToTable.get(next.getKey()), List.copyOf(equalityColumns), rangeColumn));
+		}
+		return retVal;
+	}
+
+	/**
+	 * Creates a name for an index with the given columns. The columns before the trailing
+	 * <code>RES_ID</code> and <code>PARTITION_ID</code> are encoded as one base-36 digit each,
+	 * giving their position in the sorted columns of the table, so the name identifies the
+	 * column list. Names are kept within 30 characters for Oracle.
+	 *
+	 * @return The name, or <code>null</code> if the columns can't be encoded within 30 characters
+	 */
+	@VisibleForTesting
+	@Nullable
+	static String createIndexName(String theTableName, List<String> theColumns, List<String> theTableColumnNames) {
+		StringBuilder b = new StringBuilder(INDEX_NAME_PREFIX);
+		b.append(theTableName.substring(INDEX_TABLE_PREFIX.length())).append('_');
+		for (String nextColumn : theColumns.subList(0, theColumns.size() - 2)) {
+			int position = theTableColumnNames.indexOf(nextColumn);
+			if (position < 0 || position >= Character.MAX_RADIX) {
+				return null;
+			}
+			b.append(Character.toUpperCase(Character.forDigit(position, Character.MAX_RADIX)));
+		}
+		if (b.length() > 30) {
+			return null;
+		}
+		return b.toString();
+	}
+
+	private static boolean isKeyColumn(String theColumnName) {
+		return !RES_ID.equals(theColumnName) && !PARTITION_ID.equals(theColumnName);
+	}
+
+	private static Map<String, List<List<String>>> loadBuiltInIndexes() {
+		Map<String, List<List<String>>> retVal = new HashMap<>();
+		for (Class<?> nextType : INDEX_ENTITY_TYPES) {
+			Table table = nextType.getAnnotation(Table.class);
+			if (table == null) {
+				continue;
+			}
+			List<List<String>> indexes = retVal.computeIfAbsent(table.name(), t -> new ArrayList<>());
+			for (Index nextIndex : table.indexes()) {
+				indexes.add(Arrays.stream(nextIndex.columnList().split(","))
+						.map(t -> t.trim().split("\\s+")[0])
+						.toList());
+			}
+		}
+		return retVal;
+	}
+
+	private static Map<String, List<String>> loadColumnNames() {
+		Map<String, List<String>> retVal = new HashMap<>();
+		for (Class<?> nextType : INDEX_ENTITY_TYPES) {
+			Table table = nextType.getAnnotation(Table.class);
+			if (table == null) {
+				continue;
+			}
+			Set<String> columnNames = new TreeSet<>();
+			for (Class<?> next = nextType; next != null; next = next.getSuperclass()) {
+				for (Field nextField : next.getDeclaredFields()) {
+					Column column = nextField.getAnnotation(Column.class);
+					if (column != null && !column.name().isEmpty()) {
+						columnNames.add(column.name());
+					}
+				}
+			}
+			retVal.put(table.name(), List.copyOf(columnNames));
+		}
+		return retVal;
+	}
+
+	@VisibleForTesting
+	static final class IndexCandidate {
+
+		private final String myTableName;
+		private final List<String> myEqualityColumns;
+		private final String myRangeColumn;
+
+		IndexCandidate(String theTableName, List<String> theEqualityColumns, @Nullable String theRangeColumn) {
+			myTableName = theTableName;
+			myEqualityColumns = theEqualityColumns;
+			myRangeColumn = theRangeColumn;
+		}
+
+		String getTableName() {
+			return myTableName;
+		}
+
+		List<String> getEqualityColumns() {
+			return myEqualityColumns;
+		}
+
+		@Nullable
+		String getRangeColumn() {
+			return myRangeColumn;
+		}
+
+		List<String> getColumns() {
+			List<String> retVal = new ArrayList<>(myEqualityColumns);
+			if (myRangeColumn != null) {
+				retVal.add(myRangeColumn);
+			}
+			retVal.add(RES_ID);
+			retVal.add(PARTITION_ID);
+			return retVal;
+		}
+
+		@Override
+		public boolean equals(Object theO) {
+			if (!(theO instanceof IndexCandidate)) {
+				return false;
+			}
+			IndexCandidate that = (IndexCandidate) theO;
+			return myTableName.equals(that.myTableName)
+					&& myEqualityColumns.equals(that.myEqualityColumns)
+					&& Objects.equals(myRangeColumn, that.myRangeColumn);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(myTableName, myEqualityColumns, myRangeColumn);
+		}
+	}
+
+	private static class CandidateStatistics {
+
+		private final LongAdder myExecutions = new LongAdder();
+		private final LongAdder mySlowExecutions = new LongAdder();
+		private final LongAdder mySlowMillis = new LongAdder();
+		private volatile String myExampleSql;
+
+		private void record(String theQueryShape, long theElapsedMillis, boolean theSlow) {
+			myExecutions.increment();
+			if (theSlow) {
+				mySlowExecutions.increment();
+				mySlowMillis.add(theElapsedMillis);
+				if (myExampleSql == null) {
+					myExampleSql = theQueryShape;
+				}
+			}
+		}
+	}
+
+	public static class Job implements HapiJob {
+		@Autowired
+		private SearchIndexAdvisor myTarget;
+
+		@Override
+		public void execute(JobExecutionContext theContext) {
+			myTarget.createRecommendedIndexesIfEnabled();
+		}
+	}
+}
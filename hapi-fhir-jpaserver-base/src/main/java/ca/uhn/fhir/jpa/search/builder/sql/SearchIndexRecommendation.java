@@ -0,0 +1,150 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.builder.sql;
+
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.util.List;
+
+/**
+ * An index recommended by the {@link SearchIndexAdvisor}, along with the statistics
+ * of the slow queries which led to the recommendation.
+ *
+ * @since 8.4.0
+ */
+public class SearchIndexRecommendation {
+
+	private final String myTableName;
+	private final String myIndexName;
+	private final List<String> myColumns;
+	private final long myExecutionCount;
+	private final long mySlowExecutionCount;
+	private final long mySlowExecutionMillis;
+	private final String myExampleSql;
+	private final String myCreateIndexSql;
+
+	/**
+	 * Constructor
+	 */
+	public SearchIndexRecommendation(
+			String theTableName,
+			String theIndexName,
+			List<String> theColumns,
+			long theExecutionCount,
+			long theSlowExecutionCount,
+			long theSlowExecutionMillis,
+			String theExampleSql) {
+		myTableName = theTableName;
+		myIndexName = theIndexName;
+		myColumns = List.copyOf(theColumns);
+		myExecutionCount = theExecutionCount;
+		mySlowExecutionCount = theSlowExecutionCount;
+		mySlowExecutionMillis = theSlowExecutionMillis;
+		myExampleSql = theExampleSql;
+		myCreateIndexSql = null;
+	}
+
+	private SearchIndexRecommendation(SearchIndexRecommendation theRecommendation, String theCreateIndexSql) {
+		myTableName = theRecommendation.myTableName;
+		myIndexName = theRecommendation.myIndexName;
+		myColumns = theRecommendation.myColumns;
+		myExecutionCount = theRecommendation.myExecutionCount;
+		mySlowExecutionCount = theRecommendation.mySlowExecutionCount;
+		mySlowExecutionMillis = theRecommendation.mySlowExecutionMillis;
+		myExampleSql = theRecommendation.myExampleSql;
+		myCreateIndexSql = theCreateIndexSql;
+	}
+
+	public String getTableName() {
+		return myTableName;
+	}
+
+	/**
+	 * The name the index will be created with. Names are derived from the table and
+	 * columns, so the same recommendation always produces the same name, and different
+	 * column lists produce different names.
+	 */
+	public String getIndexName() {
+		return myIndexName;
+	}
+
+	/**
+	 * The index columns, in order
+	 */
+	public List<String> getColumns() {
+		return myColumns;
+	}
+
+	/**
+	 * The number of recorded queries which would use this index
+	 */
+	public long getExecutionCount() {
+		return myExecutionCount;
+	}
+
+	/**
+	 * The number of recorded queries which would use this index and were slower than the threshold
+	 */
+	public long getSlowExecutionCount() {
+		return mySlowExecutionCount;
+	}
+
+	/**
+	 * The total time spent in slow queries which would use this index
+	 */
+	public long getSlowExecutionMillis() {
+		return mySlowExecutionMillis;
+	}
+
+	/**
+	 * The SQL (without bind values) of one of the slow queries
+	 */
+	public String getExampleSql() {
+		return myExampleSql;
+	}
+
+	/**
+	 * The SQL which was used to create the index, or <code>null</code> if the advisor has not
+	 * created it. Indexes created by the advisor are not recorded in the schema migration
+	 * history, so this can be used to add them to your own migrations.
+	 */
+	@Nullable
+	public String getCreateIndexSql() {
+		return myCreateIndexSql;
+	}
+
+	SearchIndexRecommendation withCreateIndexSql(String theCreateIndexSql) {
+		return new SearchIndexRecommendation(this, theCreateIndexSql);
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+				.append("table", myTableName)
+				.append("index", myIndexName)
+				.append("columns", myColumns)
+				.append("executions", myExecutionCount)
+				.append("slowExecutions", mySlowExecutionCount)
+				.append("slowMillis", mySlowExecutionMillis)
+				.toString();
+	}
+}
@@ -114,6 +114,7 @@ public class SearchQueryBuilder {
 	private int myNextNearnessColumnId = 0;
 	private DbColumn mySelectedResourceIdColumn;
 	private DbColumn mySelectedPartitionIdColumn;
+	private SearchQueryShape myQueryShape;
 
 	/**
 	 * Constructor
@@ -524,39 +525,83 @@ public class SearchQueryBuilder {
 	public GeneratedSql generate(@Nullable Integer theOffset, @Nullable Integer theMaxResultsToFetch) {
 		getOrCreateFirstPredicateBuilder();
 
-		mySelect.validate();
-		String sql = mySelect.toString();
+		Integer maxResultsToFetch = theMaxResultsToFetch;
+		Integer offset = theOffset;
+		if (offset != null && offset == 0) {
+			offset = null;
+		}
+		if (maxResultsToFetch != null || offset != null) {
+			maxResultsToFetch = defaultIfNull(maxResultsToFetch, 10000);
+		}
 
-		List<Object> bindVariables = new ArrayList<>();
+		/*
+		 * Searches with the same shape generate the same SQL. If we have seen this shape
+		 * before, we can skip rendering and validating the SQL and applying the dialect
+		 * limit handling, and just bind this query's values.
+		 */
+		GeneratedSqlTemplateCache cache = null;
+		if (myQueryShape != null) {
+			cache = mySqlBuilderFactory.getGeneratedSqlTemplateCache();
+		}
+		if (cache != null) {
+			GeneratedSqlTemplateCache.GeneratedSqlTemplate template =
+					cache.get(myDialect, myQueryShape, offset, maxResultsToFetch);
+			if (template != null && template.canBind(myBindVariableValues)) {
+				return new GeneratedSql(
+						myMatchNothing,
+						template.getSql(),
+						template.bind(myBindVariableValues, offset, maxResultsToFetch));
+			}
+		}
+
+		mySelect.validate();
+		String renderedSql = mySelect.toString();
+
+		/*
+		 * Replace each bind variable placeholder with a "?" and reference the
+		 * corresponding values in the order they appear in the SQL
+		 */
+		StringBuilder sqlBuilder = new StringBuilder(renderedSql.length());
+		List<Object> bindVariableTemplate = new ArrayList<>();
+		int substitutionBaseLength = myBindVariableSubstitutionBase.length();
+		int copyFromIdx = 0;
 		while (true) {
 
-			int idx = sql.indexOf(myBindVariableSubstitutionBase);
+			int idx = renderedSql.indexOf(myBindVariableSubstitutionBase, copyFromIdx);
 			if (idx == -1) {
 				break;
 			}
 
-			int endIdx = sql.indexOf("'", idx + myBindVariableSubstitutionBase.length());
-			String substitutionIndexString = sql.substring(idx + myBindVariableSubstitutionBase.length(), endIdx);
-			int substitutionIndex = Integer.parseInt(substitutionIndexString);
-			bindVariables.add(myBindVariableValues.get(substitutionIndex));
+			int endIdx = renderedSql.indexOf("'", idx + substitutionBaseLength);
+			int substitutionIndex = Integer.parseInt(renderedSql, idx + substitutionBaseLength, endIdx, 10);
+			bindVariableTemplate.add(GeneratedSqlTemplateCache.newQueryBindVariable(substitutionIndex));
 
-			sql = sql.substring(0, idx - 1) + "?" + sql.substring(endIdx + 1);
+			sqlBuilder.append(renderedSql, copyFromIdx, idx - 1).append('?');
+			copyFromIdx = endIdx + 1;
 		}
+		sqlBuilder.append(renderedSql, copyFromIdx, renderedSql.length());
+		String sql = sqlBuilder.toString();
 
-		Integer maxResultsToFetch = theMaxResultsToFetch;
-		Integer offset = theOffset;
-		if (offset != null && offset == 0) {
-			offset = null;
-		}
-		if (maxResultsToFetch != null || offset != null) {
-
-			maxResultsToFetch = defaultIfNull(maxResultsToFetch, 10000);
+		if (maxResultsToFetch != null) {
 			String selectedResourceIdColumn = mySelectedResourceIdColumn.getColumnNameSQL();
+			sql = applyLimitToSql(
+					myDialect,
+					offset,
+					maxResultsToFetch,
+					sql,
+					selectedResourceIdColumn,
+					bindVariableTemplate,
+					GeneratedSqlTemplateCache.isLimitBoundAsVariables(myDialect));
+		}
 
-			sql = applyLimitToSql(myDialect, offset, maxResultsToFetch, sql, selectedResourceIdColumn, bindVariables);
+		GeneratedSqlTemplateCache.GeneratedSqlTemplate template = new GeneratedSqlTemplateCache.GeneratedSqlTemplate(
+				sql, bindVariableTemplate, myBindVariableValues.size());
+		if (cache != null) {
+			cache.put(myDialect, myQueryShape, offset, maxResultsToFetch, template);
 		}
 
-		return new GeneratedSql(myMatchNothing, sql, bindVariables);
+		return new GeneratedSql(
+				myMatchNothing, template.getSql(), template.bind(myBindVariableValues, offset, maxResultsToFetch));
 	}
 
 	/**
@@ -571,6 +616,29 @@ public class SearchQueryBuilder {
 			String theInputSql,
 			@Nullable String theSelectedColumnOrNull,
 			List<Object> theBindVariables) {
+		return applyLimitToSql(
+				theDialect,
+				theOffset,
+				theMaxResultsToFetch,
+				theInputSql,
+				theSelectedColumnOrNull,
+				theBindVariables,
+				false);
+	}
+
+	/**
+	 * @param theBindLimitMarkers If <code>true</code> and the dialect binds the offset and limit as variables,
+	 *                            {@link GeneratedSqlTemplateCache.LimitBindVariable} markers are added to the
+	 *                            bind variables instead of the actual values
+	 */
+	private static String applyLimitToSql(
+			Dialect theDialect,
+			Integer theOffset,
+			Integer theMaxResultsToFetch,
+			String theInputSql,
+			@Nullable String theSelectedColumnOrNull,
+			List<Object> theBindVariables,
+			boolean theBindLimitMarkers) {
 		AbstractLimitHandler limitHandler = (AbstractLimitHandler) theDialect.getLimitHandler();
 		Limit selection = new Limit();
 		selection.setFirstRow(theOffset);
@@ -626,33 +694,41 @@ public class SearchQueryBuilder {
 		} else if (limitHandler.supportsVariableLimit()) {
 
 			boolean bindLimitParametersFirst = limitHandler.bindLimitParametersFirst();
-			if (limitHandler.useMaxForLimit() && theOffset != null) {
-				theMaxResultsToFetch = theMaxResultsToFetch + theOffset;
+			boolean maxIncludesOffset = limitHandler.useMaxForLimit() && theOffset != null;
+			Object offset = theOffset;
+			Object maxResultsToFetch = theMaxResultsToFetch;
+			if (theBindLimitMarkers) {
+				offset = theOffset != null ? GeneratedSqlTemplateCache.LimitBindVariable.OFFSET : null;
+				maxResultsToFetch = maxIncludesOffset
+						? GeneratedSqlTemplateCache.LimitBindVariable.MAX_RESULTS_PLUS_OFFSET
+						: GeneratedSqlTemplateCache.LimitBindVariable.MAX_RESULTS;
+			} else if (maxIncludesOffset) {
+				maxResultsToFetch = theMaxResultsToFetch + theOffset;
 			}
 
 			if (limitHandler.bindLimitParametersInReverseOrder()) {
 				startOfQueryParameterIndex = bindCountParameter(
 						theBindVariables,
-						theMaxResultsToFetch,
+						maxResultsToFetch,
 						limitHandler,
 						startOfQueryParameterIndex,
 						bindLimitParametersFirst);
 				bindOffsetParameter(
 						theBindVariables,
-						theOffset,
+						offset,
 						limitHandler,
 						startOfQueryParameterIndex,
 						bindLimitParametersFirst);
 			} else {
 				startOfQueryParameterIndex = bindOffsetParameter(
 						theBindVariables,
-						theOffset,
+						offset,
 						limitHandler,
 						startOfQueryParameterIndex,
 						bindLimitParametersFirst);
 				bindCountParameter(
 						theBindVariables,
-						theMaxResultsToFetch,
+						maxResultsToFetch,
 						limitHandler,
 						startOfQueryParameterIndex,
 						bindLimitParametersFirst);
@@ -663,7 +739,7 @@ public class SearchQueryBuilder {
 
 	private static int bindCountParameter(
 			List<Object> bindVariables,
-			Integer maxResultsToFetch,
+			Object maxResultsToFetch,
 			AbstractLimitHandler limitHandler,
 			int startOfQueryParameterIndex,
 			boolean bindLimitParametersFirst) {
@@ -679,7 +755,7 @@ public class SearchQueryBuilder {
 
 	public static int bindOffsetParameter(
 			List<Object> theBindVariables,
-			@Nullable Integer theOffset,
+			@Nullable Object theOffset,
 			AbstractLimitHandler theLimitHandler,
 			int theStartOfQueryParameterIndex,
 			boolean theBindLimitParametersFirst) {
@@ -1090,4 +1166,15 @@ public class SearchQueryBuilder {
 	public void setNeedResourceTableRoot(boolean theNeedResourceTableRoot) {
 		myNeedResourceTableRoot = theNeedResourceTableRoot;
 	}
+
+	/**
+	 * Sets the shape of the search this builder creates SQL for. If set, the SQL generated by
+	 * {@link #generate(Integer, Integer)} is cached and reused for other searches with the same
+	 * shape. Callers must clear the shape if they add predicates the shape doesn't describe.
+	 *
+	 * @since 8.4.0
+	 */
+	public void setQueryShape(@Nullable SearchQueryShape theQueryShape) {
+		myQueryShape = theQueryShape;
+	}
 }
@@ -37,6 +37,7 @@ import org.hibernate.ScrollMode;
 import org.hibernate.ScrollableResults;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.Arrays;
 import java.util.Objects;
@@ -52,6 +53,9 @@ public class SearchQueryExecutor implements ISearchQueryExecutor {
 	@PersistenceContext(type = PersistenceContextType.TRANSACTION)
 	private EntityManager myEntityManager;
 
+	@Autowired(required = false)
+	private SearchIndexAdvisor mySearchIndexAdvisor;
+
 	private boolean myQueryInitialized;
 	private ScrollableResultsIterator<Object> myResultSet;
 	private JpaPid myNext;
@@ -137,7 +141,11 @@ public class SearchQueryExecutor implements ISearchQueryExecutor {
 					// org.springframework.transaction.UnexpectedRollbackException: Transaction silently rolled back
 					// because it has been marked as rollback-only
 					hibernateQuery.setFlushMode(FlushModeType.COMMIT);
+					long start = System.currentTimeMillis();
 					ScrollableResults scrollableResults = hibernateQuery.scroll(ScrollMode.FORWARD_ONLY);
+					if (mySearchIndexAdvisor != null) {
+						mySearchIndexAdvisor.recordQuery(sql, System.currentTimeMillis() - start);
+					}
 					myResultSet = new ScrollableResultsIterator<>(scrollableResults);
 					myQueryInitialized = true;
 				}
@@ -0,0 +1,246 @@
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.builder.sql;
+
+import ca.uhn.fhir.context.RuntimeSearchParam;
+import ca.uhn.fhir.model.api.IQueryParameterType;
+import ca.uhn.fhir.rest.param.DateParam;
+import ca.uhn.fhir.rest.param.DateRangeParam;
+import ca.uhn.fhir.rest.param.NumberParam;
+import ca.uhn.fhir.rest.param.QuantityParam;
+import ca.uhn.fhir.rest.param.StringParam;
+import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.param.TokenParamModifier;
+import ca.uhn.fhir.rest.param.UriParam;
+import jakarta.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/**
+ * The normalized shape of a search, used as the key of the {@link GeneratedSqlTemplateCache}.
+ * <p>
+ * A shape is built from the {@link ca.uhn.fhir.jpa.searchparam.SearchParameterMap} before any
+ * predicates are created. It contains everything the predicate builders use to decide which
+ * tables, columns and joins a query needs (parameter names and types, modifiers, prefixes,
+ * date precisions, which optional parts of a value are present, etc.) but none of the values
+ * which end up as bind variables. Two searches with the same shape therefore generate the same
+ * SQL, and only need their values to be bound into it.
+ * </p>
+ * <p>
+ * Predicate builders make some choices based on the actual parameter values (e.g. resolving
+ * references or expanding value sets), so searches using parameter types or modifiers whose
+ * SQL depends on their values have no shape, and their SQL is not cached.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public final class SearchQueryShape {
+
+	private final List<Object> myParts;
+	private final int myHashCode;
+
+	private SearchQueryShape(List<Object> theParts) {
+		myParts = theParts;
+		myHashCode = theParts.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object theO) {
+		if (this == theO) {
+			return true;
+		}
+		if (!(theO instanceof SearchQueryShape)) {
+			return false;
+		}
+		SearchQueryShape that = (SearchQueryShape) theO;
+		return myHashCode == that.myHashCode && myParts.equals(that.myParts);
+	}
+
+	@Override
+	public int hashCode() {
+		return myHashCode;
+	}
+
+	@Override
+	public String toString() {
+		return myParts.toString();
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public static class Builder {
+
+		private final List<Object> myParts = new ArrayList<>();
+		private boolean myCacheable = true;
+
+		private Builder() {}
+
+		/**
+		 * Adds a part of the shape. Parts must implement value-based <code>equals</code>
+		 * and <code>hashCode</code>.
+		 */
+		public Builder add(@Nullable Object thePart) {
+			myParts.add(thePart);
+			return this;
+		}
+
+		/**
+		 * Marks the search as one whose SQL can't be cached
+		 */
+		public Builder notCacheable() {
+			myCacheable = false;
+			return this;
+		}
+
+		/**
+		 * Adds the shape of the values of one search parameter
+		 */
+		public Builder addSearchParameter(
+				RuntimeSearchParam theSearchParam, List<List<IQueryParameterType>> theAndOrValues) {
+			switch (theSearchParam.getParamType()) {
+				case TOKEN:
+				case STRING:
+				case DATE:
+				case NUMBER:
+				case QUANTITY:
+				case URI:
+					break;
+				default:
+					return notCacheable();
+			}
+
+			myParts.add(theSearchParam.getName());
+			myParts.add(theSearchParam.getParamType());
+			for (List<IQueryParameterType> nextOrValues : theAndOrValues) {
+				myParts.add(nextOrValues.size());
+
+				/*
+				 * Some predicate builders sort or de-duplicate the values of an OR list
+				 * before creating their predicates, so the SQL only depends on the shape
+				 * of the list if all of its values have the same shape
+				 */
+				List<Object> firstValueShape = null;
+				for (IQueryParameterType nextValue : nextOrValues) {
+					List<Object> nextValueShape = new ArrayList<>();
+					if (!addValue(nextValueShape, nextValue)) {
+						return notCacheable();
+					}
+					if (firstValueShape == null) {
+						firstValueShape = nextValueShape;
+						myParts.addAll(nextValueShape);
+					} else if (!firstValueShape.equals(nextValueShape)) {
+						return notCacheable();
+					}
+				}
+			}
+			return this;
+		}
+
+		/**
+		 * Adds the shape of a date range such as <code>_lastUpdated</code>
+		 */
+		public Builder addDateRange(@Nullable DateRangeParam theDateRange) {
+			if (theDateRange == null) {
+				myParts.add(null);
+			} else {
+				addDate(myParts, theDateRange.getLowerBound());
+				addDate(myParts, theDateRange.getUpperBound());
+			}
+			return this;
+		}
+
+		/**
+		 * @return The shape, or <code>null</code> if the search can't be cached
+		 */
+		@Nullable
+		public SearchQueryShape build() {
+			if (!myCacheable) {
+				return null;
+			}
+			return new SearchQueryShape(new ArrayList<>(myParts));
+		}
+
+		private static boolean addValue(List<Object> theParts, IQueryParameterType theValue) {
+			theParts.add(theValue.getClass());
+			theParts.add(theValue.getQueryParameterQualifier());
+			if (theValue.getMissing() != null) {
+				theParts.add(theValue.getMissing());
+				return true;
+			}
+
+			if (theValue instanceof TokenParam) {
+				TokenParam token = (TokenParam) theValue;
+				if (token.isMdmExpand()
+						|| (token.getModifier() != null && token.getModifier() != TokenParamModifier.NOT)) {
+					return false;
+				}
+				theParts.add(token.getSystem() == null ? null : isBlank(token.getSystem()));
+				theParts.add(isBlank(token.getValue()));
+				return true;
+			}
+			if (theValue instanceof StringParam) {
+				StringParam string = (StringParam) theValue;
+				if (string.isText()) {
+					return false;
+				}
+				theParts.add(string.isExact());
+				theParts.add(string.isContains());
+				return true;
+			}
+			if (theValue instanceof DateParam) {
+				addDate(theParts, (DateParam) theValue);
+				return true;
+			}
+			if (theValue instanceof NumberParam) {
+				NumberParam number = (NumberParam) theValue;
+				theParts.add(number.getPrefix());
+				theParts.add(number.getValue() == null);
+				return true;
+			}
+			if (theValue instanceof QuantityParam) {
+				// The system and units decide whether the normalized quantity index is used
+				QuantityParam quantity = (QuantityParam) theValue;
+				theParts.add(quantity.getPrefix());
+				theParts.add(quantity.getValue() == null);
+				theParts.add(quantity.getSystem());
+				theParts.add(quantity.getUnits());
+				return true;
+			}
+			if (theValue instanceof UriParam) {
+				return ((UriParam) theValue).getQualifier() == null;
+			}
+			return false;
+		}
+
+		private static void addDate(List<Object> theParts, @Nullable DateParam theDate) {
+			if (theDate == null || theDate.isEmpty()) {
+				theParts.add(null);
+			} else {
+				theParts.add(theDate.getPrefix());
+				theParts.add(theDate.getPrecision());
+			}
+		}
+	}
+}
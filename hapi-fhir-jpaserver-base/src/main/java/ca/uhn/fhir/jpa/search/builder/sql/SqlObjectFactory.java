@@ -42,9 +42,18 @@ import org.springframework.context.ApplicationContext;
 
 public class SqlObjectFactory {
 
+	private final GeneratedSqlTemplateCache myGeneratedSqlTemplateCache = new GeneratedSqlTemplateCache();
+
 	@Autowired
 	private ApplicationContext myApplicationContext;
 
+	/**
+	 * @since 8.4.0
+	 */
+	public GeneratedSqlTemplateCache getGeneratedSqlTemplateCache() {
+		return myGeneratedSqlTemplateCache;
+	}
+
 	public ComboUniqueSearchParameterPredicateBuilder newComboUniqueSearchParameterPredicateBuilder(
 			SearchQueryBuilder theSearchSqlBuilder) {
 		return myApplicationContext.getBean(ComboUniqueSearchParameterPredicateBuilder.class, theSearchSqlBuilder);
@@ -122,4 +131,8 @@ public class SqlObjectFactory {
 	public SearchQueryExecutor newSearchQueryExecutor(GeneratedSql theGeneratedSql, Integer theMaxResultsToFetch) {
 		return myApplicationContext.getBean(SearchQueryExecutor.class, theGeneratedSql, theMaxResultsToFetch);
 	}
+
+	public QueryPlanEstimateExecutor newQueryPlanEstimateExecutor(GeneratedSql theGeneratedSql) {
+		return myApplicationContext.getBean(QueryPlanEstimateExecutor.class, theGeneratedSql);
+	}
 }
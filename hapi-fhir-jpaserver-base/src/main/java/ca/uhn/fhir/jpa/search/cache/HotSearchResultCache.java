@@ -0,0 +1,310 @@
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.interceptor.api.Hook;
+import ca.uhn.fhir.interceptor.api.IInterceptorService;
+import ca.uhn.fhir.interceptor.api.Interceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.entity.SearchTypeEnum;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.model.search.SearchStatusEnum;
+import ca.uhn.fhir.sl.cache.Cache;
+import ca.uhn.fhir.sl.cache.CacheFactory;
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.lang3.time.DateUtils;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A node-local, in-memory cache of finished searches and the first page(s) of their result PIDs,
+ * which sits in front of the database search cache. When an identical search is repeated within
+ * the {@link JpaStorageSettings#getReuseCachedSearchResultsForMillis() reuse window}, the
+ * {@link ca.uhn.fhir.jpa.search.SearchCoordinatorSvcImpl} can reuse it and return the cached
+ * PIDs without looking up the <code>HFJ_SEARCH</code> or <code>HFJ_SEARCH_RESULT</code> tables.
+ * <p>
+ * Entries are keyed by resource type, request partition and normalized query string, exactly
+ * like searches reused from the database. In addition to the maximum size and the reuse window,
+ * all entries for a resource type are invalidated whenever a resource of that type is created,
+ * updated or deleted on this node, and all entries are invalidated by
+ * <code>$expunge</code> everything and <code>$delete-expunge</code>. Writes on other nodes of a
+ * cluster are not seen, so entries may be as stale as searches reused from the database.
+ * </p>
+ *
+ * @see JpaStorageSettings#setHotSearchCacheSize(int)
+ * @since 8.4.0
+ */
+@Interceptor
+public class HotSearchResultCache {
+
+	public static final int DEFAULT_MAX_PIDS_PER_ENTRY = 500;
+
+	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(HotSearchResultCache.class);
+
+	private final FhirContext myContext;
+	private final JpaStorageSettings myStorageSettings;
+	private final IInterceptorService myInterceptorService;
+	private final int myMaximumSize;
+	private final ConcurrentHashMap<String, Long> myResourceTypeToInvalidatedMillis = new ConcurrentHashMap<>();
+	private volatile long myAllInvalidatedMillis;
+	private int myMaxPidsPerEntry = DEFAULT_MAX_PIDS_PER_ENTRY;
+	private Cache<String, CachedSearch> myQueryKeyToSearch;
+	private Cache<String, CachedSearch> myUuidToSearch;
+
+	/**
+	 * Constructor
+	 */
+	public HotSearchResultCache(
+			FhirContext theContext, JpaStorageSettings theStorageSettings, IInterceptorService theInterceptorService) {
+		myContext = theContext;
+		myStorageSettings = theStorageSettings;
+		myInterceptorService = theInterceptorService;
+		myMaximumSize = theStorageSettings.getHotSearchCacheSize();
+	}
+
+	@PostConstruct
+	public void start() {
+		if (!isEnabled()) {
+			return;
+		}
+
+		Long reuseMillis = myStorageSettings.getReuseCachedSearchResultsForMillis();
+		long timeoutMillis = reuseMillis != null ? reuseMillis : DateUtils.MILLIS_PER_MINUTE;
+		myQueryKeyToSearch = CacheFactory.build(timeoutMillis, myMaximumSize);
+		myUuidToSearch = CacheFactory.build(timeoutMillis, myMaximumSize);
+
+		ourLog.info("Enabling in-memory hot search cache with a maximum size of {}", myMaximumSize);
+		myInterceptorService.registerInterceptor(this);
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (isEnabled()) {
+			myInterceptorService.unregisterInterceptor(this);
+		}
+	}
+
+	public boolean isEnabled() {
+		return myMaximumSize > 0;
+	}
+
+	public int getMaxPidsPerEntry() {
+		return myMaxPidsPerEntry;
+	}
+
+	@VisibleForTesting
+	public void setMaxPidsPerEntryForUnitTest(int theMaxPidsPerEntry) {
+		myMaxPidsPerEntry = theMaxPidsPerEntry;
+	}
+
+	/**
+	 * Returns a cached finished search matching the given query, or <code>null</code>
+	 */
+	@Nullable
+	public Search findSearch(
+			String theResourceType, String theQueryString, RequestPartitionId theRequestPartitionId) {
+		if (!isEnabled()) {
+			return null;
+		}
+		String queryString = Search.createSearchQueryStringForStorage(theQueryString, theRequestPartitionId);
+		CachedSearch cached = getIfValid(myQueryKeyToSearch, toQueryKey(theResourceType, queryString));
+		return cached != null ? cached.mySearch : null;
+	}
+
+	/**
+	 * Returns the cached search with the given UUID, or <code>null</code>
+	 */
+	@Nullable
+	public Search getSearch(String theUuid) {
+		if (!isEnabled()) {
+			return null;
+		}
+		CachedSearch cached = getIfValid(myUuidToSearch, theUuid);
+		return cached != null ? cached.mySearch : null;
+	}
+
+	/**
+	 * Returns the requested range of result PIDs for the search with the given UUID, or
+	 * <code>null</code> if the search is not cached or the range isn't entirely cached.
+	 */
+	@Nullable
+	public List<JpaPid> getResourcePids(String theUuid, int theFrom, int theTo) {
+		if (!isEnabled()) {
+			return null;
+		}
+		CachedSearch cached = getIfValid(myUuidToSearch, theUuid);
+		if (cached == null) {
+			return null;
+		}
+		List<JpaPid> pids = cached.myPids;
+		if (theTo <= pids.size()) {
+			return new ArrayList<>(pids.subList(theFrom, theTo));
+		}
+		if (cached.myComplete) {
+			return new ArrayList<>(pids.subList(Math.min(theFrom, pids.size()), pids.size()));
+		}
+		return null;
+	}
+
+	/**
+	 * Stores a finished search along with the first of its result PIDs
+	 *
+	 * @param theSearch   The search, which must have a status of {@link SearchStatusEnum#FINISHED}
+	 * @param thePids     The first result PIDs of the search, starting at index 0
+	 * @param theComplete Is <code>thePids</code> the complete set of results for the search?
+	 */
+	public void put(@Nonnull Search theSearch, @Nonnull List<JpaPid> thePids, boolean theComplete) {
+		if (!isEnabled()
+				|| theSearch.getSearchType() != SearchTypeEnum.SEARCH
+				|| theSearch.getStatus() != SearchStatusEnum.FINISHED
+				|| theSearch.getResourceType() == null) {
+			return;
+		}
+
+		CachedSearch cached = new CachedSearch(theSearch, List.copyOf(thePids), theComplete);
+		if (!isValid(cached)) {
+			return;
+		}
+
+		myQueryKeyToSearch.put(toQueryKey(theSearch.getResourceType(), theSearch.getSearchQueryString()), cached);
+		myUuidToSearch.put(theSearch.getUuid(), cached);
+	}
+
+	/**
+	 * Invalidates all cached searches for the given resource type
+	 */
+	public void invalidate(@Nonnull String theResourceType) {
+		myResourceTypeToInvalidatedMillis.put(theResourceType, System.currentTimeMillis());
+	}
+
+	/**
+	 * Invalidates all cached searches
+	 */
+	public void invalidateAll() {
+		myAllInvalidatedMillis = System.currentTimeMillis();
+		if (isEnabled()) {
+			myQueryKeyToSearch.invalidateAll();
+			myUuidToSearch.invalidateAll();
+		}
+	}
+
+	@Hook(Pointcut.STORAGE_PRECOMMIT_RESOURCE_CREATED)
+	public void resourceCreated(IBaseResource theResource) {
+		invalidateOnWrite(theResource);
+	}
+
+	@Hook(Pointcut.STORAGE_PRECOMMIT_RESOURCE_UPDATED)
+	public void resourceUpdated(IBaseResource theOldResource, IBaseResource theNewResource) {
+		invalidateOnWrite(theNewResource);
+	}
+
+	@Hook(Pointcut.STORAGE_PRECOMMIT_RESOURCE_DELETED)
+	public void resourceDeleted(IBaseResource theResource) {
+		invalidateOnWrite(theResource);
+	}
+
+	@Hook(Pointcut.STORAGE_PRE_DELETE_EXPUNGE)
+	public void deleteExpunge() {
+		invalidateAll();
+	}
+
+	@Hook(Pointcut.STORAGE_PRESTORAGE_EXPUNGE_EVERYTHING)
+	public void expungeEverything() {
+		invalidateAll();
+	}
+
+	private void invalidateOnWrite(IBaseResource theResource) {
+		String resourceType = myContext.getResourceType(theResource);
+		invalidate(resourceType);
+
+		/*
+		 * A search which starts after the invalidation above but before the writing transaction
+		 * commits won't see the write, so invalidate again once the transaction has completed
+		 */
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int theStatus) {
+					invalidate(resourceType);
+				}
+			});
+		}
+	}
+
+	@Nullable
+	private CachedSearch getIfValid(Cache<String, CachedSearch> theCache, String theKey) {
+		CachedSearch retVal = theCache.getIfPresent(theKey);
+		if (retVal != null && !isValid(retVal)) {
+			theCache.invalidate(theKey);
+			retVal = null;
+		}
+		return retVal;
+	}
+
+	/**
+	 * An entry is only valid if the search was created after the last invalidation of its
+	 * resource type, and within the reuse window
+	 */
+	private boolean isValid(CachedSearch theCachedSearch) {
+		Long reuseMillis = myStorageSettings.getReuseCachedSearchResultsForMillis();
+		if (reuseMillis == null) {
+			return false;
+		}
+		long created = theCachedSearch.mySearch.getCreated().getTime();
+		if (created < System.currentTimeMillis() - reuseMillis) {
+			return false;
+		}
+		if (created <= myAllInvalidatedMillis) {
+			return false;
+		}
+		Long invalidated = myResourceTypeToInvalidatedMillis.get(theCachedSearch.mySearch.getResourceType());
+		return invalidated == null || created > invalidated;
+	}
+
+	private static String toQueryKey(String theResourceType, String theStorageQueryString) {
+		return theResourceType + '|' + theStorageQueryString;
+	}
+
+	private static class CachedSearch {
+
+		private final Search mySearch;
+		private final List<JpaPid> myPids;
+		private final boolean myComplete;
+
+		private CachedSearch(Search theSearch, List<JpaPid> thePids, boolean theComplete) {
+			mySearch = theSearch;
+			myPids = thePids;
+			myComplete = theComplete;
+		}
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.dao.data.ISearchResultBlockDao;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.entity.SearchResultBlock;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link ISearchResultCacheSvc} which stores search results as blocks of delta-encoded and
+ * compressed PIDs (see {@link SearchResultBlock}) instead of one <code>HFJ_SEARCH_RESULT</code>
+ * row per matched resource. For searches matching large numbers of resources this reduces
+ * the number of rows inserted (and later deleted) by several orders of magnitude, and a page
+ * fetch only reads and decodes the blocks which overlap the requested range.
+ * <p>
+ * This implementation is used when
+ * {@link ca.uhn.fhir.jpa.api.config.JpaStorageSettings#setPackedSearchResultCacheEnabled(boolean)}
+ * is enabled.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public class PackedSearchResultCacheSvcImpl implements ISearchResultCacheSvc {
+	public static final int DEFAULT_BLOCK_SIZE = 10000;
+	private static final Logger ourLog = LoggerFactory.getLogger(PackedSearchResultCacheSvcImpl.class);
+
+	@Autowired
+	private ISearchResultBlockDao mySearchResultBlockDao;
+
+	@Autowired
+	private IHapiTransactionService myTransactionService;
+
+	private int myBlockSize = DEFAULT_BLOCK_SIZE;
+
+	/**
+	 * Sets the maximum number of PIDs stored in each block
+	 */
+	@VisibleForTesting
+	public void setBlockSize(int theBlockSize) {
+		Validate.isTrue(theBlockSize > 0, "theBlockSize must be positive");
+		myBlockSize = theBlockSize;
+	}
+
+	@Override
+	public List<JpaPid> fetchResultPids(
+			Search theSearch,
+			int theFrom,
+			int theTo,
+			RequestDetails theRequestDetails,
+			RequestPartitionId theRequestPartitionId) {
+		return myTransactionService
+				.withRequest(theRequestDetails)
+				.withRequestPartitionId(theRequestPartitionId)
+				.execute(() -> {
+					if (theTo <= theFrom) {
+						return Collections.emptyList();
+					}
+
+					List<SearchResultBlock> blocks =
+							mySearchResultBlockDao.findBlocksInRange(theSearch.getId(), theFrom, theTo);
+					if (blocks.isEmpty() && theFrom < theSearch.getNumFound()) {
+						// The results were stored in another format, or have been purged
+						return null;
+					}
+					List<JpaPid> retVal = new ArrayList<>(theTo - theFrom);
+					for (SearchResultBlock next : blocks) {
+						int fromIndex = Math.max(theFrom - next.getFirstOrder(), 0);
+						int toIndex = Math.min(theTo - next.getFirstOrder(), next.getPidCount());
+						retVal.addAll(SearchResultBlockCodec.decode(next.getPidData(), fromIndex, toIndex));
+					}
+
+					ourLog.debug(
+							"fetchResultPids for range {}-{} returned {} pids from {} blocks",
+							theFrom,
+							theTo,
+							retVal.size(),
+							blocks.size());
+					return retVal;
+				});
+	}
+
+	@Override
+	public List<JpaPid> fetchAllResultPids(
+			Search theSearch, RequestDetails theRequestDetails, RequestPartitionId theRequestPartitionId) {
+		return myTransactionService
+				.withRequest(theRequestDetails)
+				.withRequestPartitionId(theRequestPartitionId)
+				.execute(() -> {
+					List<SearchResultBlock> blocks = mySearchResultBlockDao.findAllForSearch(theSearch.getId());
+					if (blocks.isEmpty() && theSearch.getNumFound() > 0) {
+						// The results were stored in another format, or have been purged
+						return null;
+					}
+
+					List<JpaPid> retVal = new ArrayList<>();
+					for (SearchResultBlock next : blocks) {
+						retVal.addAll(SearchResultBlockCodec.decode(next.getPidData(), 0, next.getPidCount()));
+					}
+					ourLog.trace("fetchAllResultPids returned {} pids", retVal.size());
+					return retVal;
+				});
+	}
+
+	@Override
+	public void storeResults(
+			Search theSearch,
+			List<JpaPid> thePreviouslyStoredResourcePids,
+			List<JpaPid> theNewResourcePids,
+			RequestDetails theRequestDetails,
+			RequestPartitionId theRequestPartitionId) {
+		myTransactionService
+				.withRequest(theRequestDetails)
+				.withRequestPartitionId(theRequestPartitionId)
+				.execute(() -> {
+					ourLog.debug(
+							"Storing {} results with {} previous for search",
+							theNewResourcePids.size(),
+							thePreviouslyStoredResourcePids.size());
+
+					List<SearchResultBlock> blocksToSave = new ArrayList<>();
+					int firstOrder = thePreviouslyStoredResourcePids.size();
+					for (int start = 0; start < theNewResourcePids.size(); start += myBlockSize) {
+						int end = Math.min(start + myBlockSize, theNewResourcePids.size());
+						List<JpaPid> pids = theNewResourcePids.subList(start, end);
+						byte[] data = SearchResultBlockCodec.encode(pids);
+						blocksToSave.add(new SearchResultBlock(theSearch, firstOrder + start, pids.size(), data));
+						ourLog.trace(
+								"Saving block at ORDER[{}] with {} pids in {} bytes",
+								firstOrder + start,
+								pids.size(),
+								data.length);
+					}
+
+					mySearchResultBlockDao.saveAll(blocksToSave);
+				});
+	}
+}
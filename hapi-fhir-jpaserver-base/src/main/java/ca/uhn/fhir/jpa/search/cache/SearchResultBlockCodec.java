@@ -0,0 +1,131 @@
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Encodes a list of resource PIDs into the compact binary form stored in
+ * {@link ca.uhn.fhir.jpa.entity.SearchResultBlock}.
+ * <p>
+ * Each PID is written as the zigzag varint encoded difference from the previous PID
+ * (so runs of ascending PIDs take one or two bytes each), followed by a varint holding
+ * the partition ID (<code>0</code> for no partition). The resulting bytes are then
+ * deflate compressed.
+ * </p>
+ */
+final class SearchResultBlockCodec {
+
+	private SearchResultBlockCodec() {
+		// nothing
+	}
+
+	static byte[] encode(List<JpaPid> thePids) {
+		ByteArrayOutputStream raw = new ByteArrayOutputStream(thePids.size() * 3);
+		long previous = 0;
+		for (JpaPid next : thePids) {
+			long pid = next.getId();
+			writeVarLong(raw, zigzag(pid - previous));
+			previous = pid;
+
+			Integer partitionId = next.getPartitionId();
+			writeVarLong(raw, partitionId == null ? 0 : zigzag(partitionId) + 1);
+		}
+
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.size() / 2 + 16);
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater)) {
+			raw.writeTo(out);
+		} catch (IOException e) {
+			throw new InternalErrorException(Msg.code(2779) + "Failed to encode search result block: " + e, e);
+		} finally {
+			deflater.end();
+		}
+		return compressed.toByteArray();
+	}
+
+	/**
+	 * Decodes the PIDs with positions <code>[theFromIndex, theToIndex)</code> within a block.
+	 * Since the PIDs are delta encoded, the block is always decoded from the start, but only the
+	 * requested PIDs are materialized.
+	 */
+	static List<JpaPid> decode(byte[] theData, int theFromIndex, int theToIndex) {
+		byte[] raw;
+		try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(theData))) {
+			raw = in.readAllBytes();
+		} catch (IOException e) {
+			throw new InternalErrorException(Msg.code(2780) + "Failed to decode search result block: " + e, e);
+		}
+
+		List<JpaPid> retVal = new ArrayList<>(Math.max(0, theToIndex - theFromIndex));
+		int[] position = new int[1];
+		long pid = 0;
+		for (int index = 0; index < theToIndex && position[0] < raw.length; index++) {
+			pid += unzigzag(readVarLong(raw, position));
+			long partition = readVarLong(raw, position);
+			if (index >= theFromIndex) {
+				Integer partitionId = partition == 0 ? null : (int) unzigzag(partition - 1);
+				retVal.add(JpaPid.fromId(pid, partitionId));
+			}
+		}
+		return retVal;
+	}
+
+	private static long zigzag(long theValue) {
+		return (theValue << 1) ^ (theValue >> 63);
+	}
+
+	private static long unzigzag(long theValue) {
+		return (theValue >>> 1) ^ -(theValue & 1);
+	}
+
+	private static void writeVarLong(ByteArrayOutputStream theOut, long theValue) {
+		long value = theValue;
+		while ((value & ~0x7FL) != 0) {
+			theOut.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		theOut.write((int) value);
+	}
+
+	private static long readVarLong(byte[] theBytes, int[] thePosition) {
+		long retVal = 0;
+		int shift = 0;
+		while (true) {
+			byte next = theBytes[thePosition[0]++];
+			retVal |= (long) (next & 0x7F) << shift;
+			if ((next & 0x80) == 0) {
+				return retVal;
+			}
+			shift += 7;
+		}
+	}
+}
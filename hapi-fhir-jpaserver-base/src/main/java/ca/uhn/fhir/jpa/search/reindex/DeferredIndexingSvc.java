@@ -0,0 +1,256 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.reindex;
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
+import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
+import ca.uhn.fhir.jpa.api.dao.ReindexOutcome;
+import ca.uhn.fhir.jpa.api.dao.ReindexParameters;
+import ca.uhn.fhir.jpa.dao.data.IResourceTableDao;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.model.entity.EntityIndexStatusEnum;
+import ca.uhn.fhir.jpa.model.sched.HapiJob;
+import ca.uhn.fhir.jpa.model.sched.IHasScheduledJobs;
+import ca.uhn.fhir.jpa.model.sched.ISchedulerService;
+import ca.uhn.fhir.jpa.model.sched.ScheduledJobDefinition;
+import ca.uhn.fhir.jpa.partition.IRequestPartitionHelperSvc;
+import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
+import ca.uhn.fhir.rest.api.server.storage.TransactionDetails;
+import ca.uhn.fhir.util.StopWatch;
+import org.apache.commons.lang3.time.DateUtils;
+import org.quartz.JobExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Propagation;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the search parameter indexes for resources which were stored with deferred
+ * indexing (see {@link JpaStorageSettings#setDeferredIndexingResourceTypes(java.util.Set)}).
+ * Such resources are marked with {@link EntityIndexStatusEnum#INDEXING_PENDING} when they
+ * are written, and a clustered scheduled job indexes them every few seconds using the same
+ * reindex path as the batch2 reindex job. Searches which need to see their own writes can
+ * call {@link #indexPendingResources(String, RequestPartitionId, int)} first.
+ *
+ * @since 8.4.0
+ */
+public class DeferredIndexingSvc implements IHasScheduledJobs {
+
+	private static final Logger ourLog = LoggerFactory.getLogger(DeferredIndexingSvc.class);
+
+	@Autowired
+	private JpaStorageSettings myStorageSettings;
+
+	@Autowired
+	private IResourceTableDao myResourceTableDao;
+
+	@Autowired
+	private DaoRegistry myDaoRegistry;
+
+	@Autowired
+	private IHapiTransactionService myTransactionService;
+
+	@Autowired
+	private IRequestPartitionHelperSvc myRequestPartitionHelperSvc;
+
+	@Override
+	public void scheduleJobs(ISchedulerService theSchedulerService) {
+		ScheduledJobDefinition jobDetail = new ScheduledJobDefinition();
+		jobDetail.setId(getClass().getName());
+		jobDetail.setJobClass(Job.class);
+		theSchedulerService.scheduleClusteredJob(5 * DateUtils.MILLIS_PER_SECOND, jobDetail);
+	}
+
+	/**
+	 * Indexes all resources of any type which are waiting for deferred indexing
+	 *
+	 * @return The number of resources which were indexed
+	 */
+	public int indexPendingResources() {
+		List<String> resourceTypes = myTransactionService
+				.withSystemRequestOnPartition(RequestPartitionId.allPartitions())
+				.execute(() -> myResourceTableDao.findResourceTypesWithIndexStatus(
+						EntityIndexStatusEnum.INDEXING_PENDING));
+
+		int retVal = 0;
+		for (String nextResourceType : resourceTypes) {
+			retVal += indexPendingResources(nextResourceType);
+		}
+		return retVal;
+	}
+
+	/**
+	 * Indexes all resources of the given type which are waiting for deferred indexing. Each
+	 * batch of {@link JpaStorageSettings#getDeferredIndexingBatchSize()} resources is indexed
+	 * in its own new database transaction. If a batch fails it is rolled back and retried one
+	 * resource at a time, and any resource which still fails on its own is marked with
+	 * {@link EntityIndexStatusEnum#INDEXING_FAILED} so that it can't block the resources
+	 * after it. Such resources are no longer picked up by deferred indexing, and can be
+	 * indexed again using the <code>$reindex</code> operation once the cause has been fixed.
+	 *
+	 * @return The number of resources which were indexed
+	 */
+	public int indexPendingResources(String theResourceType) {
+		return indexPendingResources(theResourceType, RequestPartitionId.allPartitions(), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Indexes up to <code>theMaxResources</code> resources of the given type in the given partition(s)
+	 * which are waiting for deferred indexing, in batches as described in {@link #indexPendingResources(String)}.
+	 *
+	 * @return The number of resources which were indexed
+	 */
+	public int indexPendingResources(
+			String theResourceType, RequestPartitionId theRequestPartitionId, int theMaxResources) {
+		int batchSize = myStorageSettings.getDeferredIndexingBatchSize();
+		StopWatch sw = new StopWatch();
+		int processed = 0;
+		int retVal = 0;
+		while (processed < theMaxResources) {
+			int nextBatchSize = Math.min(batchSize, theMaxResources - processed);
+			List<JpaPid> pids = myTransactionService
+					.withSystemRequestOnPartition(theRequestPartitionId)
+					.execute(() -> findPendingResourceIds(theResourceType, theRequestPartitionId, nextBatchSize));
+			if (pids.isEmpty()) {
+				break;
+			}
+
+			try {
+				myTransactionService
+						.withSystemRequestOnPartition(theRequestPartitionId)
+						.withPropagation(Propagation.REQUIRES_NEW)
+						.execute(() -> indexPendingResourceBatch(theResourceType, pids));
+				retVal += pids.size();
+			} catch (Exception e) {
+				ourLog.warn(
+						"Failure during deferred indexing of {} {} resources, retrying them individually: {}",
+						pids.size(),
+						theResourceType,
+						e.toString());
+				for (JpaPid next : pids) {
+					if (indexPendingResourceIndividually(theResourceType, theRequestPartitionId, next)) {
+						retVal++;
+					}
+				}
+			}
+
+			processed += pids.size();
+			if (pids.size() < nextBatchSize) {
+				break;
+			}
+		}
+
+		if (retVal > 0) {
+			ourLog.info(
+					"Indexed {} {} resources with deferred indexing in {} ({}/sec)",
+					retVal,
+					theResourceType,
+					sw,
+					sw.formatThroughput(retVal, TimeUnit.SECONDS));
+		}
+		return retVal;
+	}
+
+	private void indexPendingResourceBatch(String theResourceType, List<JpaPid> thePids) {
+		myDaoRegistry.getSystemDao().preFetchResources(thePids, true);
+
+		IFhirResourceDao<?> dao = myDaoRegistry.getResourceDao(theResourceType);
+		ReindexParameters parameters = new ReindexParameters();
+		SystemRequestDetails requestDetails = new SystemRequestDetails();
+		TransactionDetails transactionDetails = new TransactionDetails();
+		for (JpaPid next : thePids) {
+			ReindexOutcome outcome = dao.reindex(next, parameters, requestDetails, transactionDetails);
+			outcome.getWarnings().forEach(w -> ourLog.warn("Deferred indexing of {}: {}", next, w));
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the resource was indexed, or <code>false</code> if it failed and
+	 * 		has been marked with {@link EntityIndexStatusEnum#INDEXING_FAILED}
+	 */
+	private boolean indexPendingResourceIndividually(
+			String theResourceType, RequestPartitionId theRequestPartitionId, JpaPid thePid) {
+		try {
+			myTransactionService
+					.withSystemRequestOnPartition(theRequestPartitionId)
+					.withPropagation(Propagation.REQUIRES_NEW)
+					.execute(() -> indexPendingResourceBatch(theResourceType, List.of(thePid)));
+			return true;
+		} catch (Exception e) {
+			ourLog.warn(
+					"Failure during deferred indexing of {} resource with PID {}, marking it as failed: {}",
+					theResourceType,
+					thePid,
+					e.toString());
+			myTransactionService
+					.withSystemRequestOnPartition(theRequestPartitionId)
+					.withPropagation(Propagation.REQUIRES_NEW)
+					.execute(() -> myResourceTableDao.updateIndexStatus(thePid, EntityIndexStatusEnum.INDEXING_FAILED));
+			return false;
+		}
+	}
+
+	private List<JpaPid> findPendingResourceIds(
+			String theResourceType, RequestPartitionId theRequestPartitionId, int theCount) {
+		PageRequest page = PageRequest.of(0, theCount);
+		EntityIndexStatusEnum status = EntityIndexStatusEnum.INDEXING_PENDING;
+		if (theRequestPartitionId.isAllPartitions()) {
+			return myResourceTableDao
+					.findIdsOfResourcesWithIndexStatus(page, theResourceType, status)
+					.getContent();
+		}
+
+		Set<Integer> partitionIds = new HashSet<>(myRequestPartitionHelperSvc.toReadPartitions(theRequestPartitionId));
+		boolean includeNullPartition = partitionIds.remove(null);
+		if (partitionIds.isEmpty()) {
+			return myResourceTableDao
+					.findIdsOfResourcesWithIndexStatusInNullPartition(page, theResourceType, status)
+					.getContent();
+		}
+		if (includeNullPartition) {
+			return myResourceTableDao
+					.findIdsOfResourcesWithIndexStatusInPartitionIdsOrNullPartition(
+							page, theResourceType, status, partitionIds)
+					.getContent();
+		}
+		return myResourceTableDao
+				.findIdsOfResourcesWithIndexStatusInPartitionIds(page, theResourceType, status, partitionIds)
+				.getContent();
+	}
+
+	public static class Job implements HapiJob {
+		@Autowired
+		private DeferredIndexingSvc myTarget;
+
+		@Override
+		public void execute(JobExecutionContext theContext) {
+			myTarget.indexPendingResources();
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package ca.uhn.fhir.jpa.dao;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.jpa.dao.codec.ResourceBodyCodecRegistry;
 import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
@@ -11,9 +12,11 @@ import org.hl7.fhir.dstu3.hapi.ctx.FhirDstu3;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.hapi.ctx.FhirR4;
 import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
@@ -286,6 +289,83 @@ class ResourceHistoryCalculatorTest {
 		}
 	}
 
+	@Test
+	void historyDelta_roundTrip() {
+		final Patient base = getPatientR4();
+		base.addName().setFamily("Simpson").addGiven("Homer");
+		base.addExtension("http://example.com/weight", new org.hl7.fhir.r4.model.DecimalType("1.50"));
+		final Patient target = base.copy();
+		target.getNameFirstRep().addGiven("Jay");
+		target.setActive(true);
+		final String baseText = CONTEXT.newJsonParser().encodeResourceToString(base);
+		final String targetText = CONTEXT.newJsonParser().encodeResourceToString(target);
+
+		final String delta = CALCULATOR_NON_ORACLE.encodeHistoryDelta(3L, baseText, targetText);
+
+		assertNotNull(delta);
+		assertEquals(3L, CALCULATOR_NON_ORACLE.getHistoryDeltaBaseVersion(delta));
+		final String reconstructed = CALCULATOR_NON_ORACLE.applyHistoryDelta(baseText, delta);
+		final Patient reconstructedPatient = CONTEXT.newJsonParser().parseResource(Patient.class, reconstructed);
+		assertTrue(target.equalsDeep(reconstructedPatient));
+		assertTrue(reconstructed.contains("1.50"));
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	void historyDelta_populateHistoryEntity(boolean theIsOracle) {
+		final ResourceHistoryCalculator calculator = getCalculator(theIsOracle);
+		final Patient base = getPatientR4();
+		for (int i = 0; i < 20; i++) {
+			base.addName().setFamily("Family" + i).addGiven("Given" + i);
+		}
+		final Patient target = base.copy();
+		target.setActive(true);
+		final String baseText = CONTEXT.newJsonParser().encodeResourceToString(base);
+		final String targetText = CONTEXT.newJsonParser().encodeResourceToString(target);
+		final ResourceHistoryTable historyEntity = new ResourceHistoryTable();
+		historyEntity.setEncoding(ResourceEncodingEnum.JSON);
+		historyEntity.setResourceTextVc(targetText);
+
+		final String delta = calculator.encodeHistoryDelta(1L, baseText, targetText);
+		assertTrue(calculator.populateHistoryDelta(historyEntity, delta));
+
+		assertEquals(ResourceEncodingEnum.DIFF, historyEntity.getEncoding());
+		if (theIsOracle) {
+			assertNull(historyEntity.getResourceTextVc());
+			assertNotNull(historyEntity.getResource());
+		} else {
+			// Deltas must not be written to RES_TEXT, which is a large object on Postgres
+			assertEquals(delta, historyEntity.getResourceTextVc());
+			assertNull(historyEntity.getResource());
+		}
+		assertEquals(delta, calculator.getHistoryDelta(historyEntity));
+		assertEquals(1L, calculator.getHistoryDeltaBaseVersion(calculator.getHistoryDelta(historyEntity)));
+	}
+
+	@Test
+	void getStorageEncoding_dictionaryEncodingNotUsedOnPostgres() {
+		final ResourceHistoryCalculator postgres =
+				new ResourceHistoryCalculator(CONTEXT, false, true, new ResourceBodyCodecRegistry());
+
+		assertEquals(ResourceEncodingEnum.JSONC, postgres.getStorageEncoding(ResourceEncodingEnum.JSOND));
+		assertEquals(ResourceEncodingEnum.JSONC, postgres.getStorageEncoding(ResourceEncodingEnum.JSONC));
+		assertEquals(ResourceEncodingEnum.JSOND, CALCULATOR_NON_ORACLE.getStorageEncoding(ResourceEncodingEnum.JSOND));
+		assertEquals(ResourceEncodingEnum.JSOND, CALCULATOR_ORACLE.getStorageEncoding(ResourceEncodingEnum.JSOND));
+	}
+
+	@Test
+	void historyDelta_snapshotVersions() {
+		assertTrue(ResourceHistoryCalculator.isHistoryDeltaSnapshotVersion(1, 10));
+		assertFalse(ResourceHistoryCalculator.isHistoryDeltaSnapshotVersion(2, 10));
+		assertFalse(ResourceHistoryCalculator.isHistoryDeltaSnapshotVersion(10, 10));
+		assertTrue(ResourceHistoryCalculator.isHistoryDeltaSnapshotVersion(11, 10));
+		assertTrue(ResourceHistoryCalculator.isHistoryDeltaSnapshotVersion(7, 0));
+
+		assertEquals(1L, ResourceHistoryCalculator.getHistoryDeltaSnapshotVersion(2, 10));
+		assertEquals(1L, ResourceHistoryCalculator.getHistoryDeltaSnapshotVersion(10, 10));
+		assertEquals(11L, ResourceHistoryCalculator.getHistoryDeltaSnapshotVersion(15, 10));
+	}
+
 	private ResourceHistoryCalculator getCalculator(boolean theIsOracle) {
 		return theIsOracle ? CALCULATOR_ORACLE : CALCULATOR_NON_ORACLE;
 	}
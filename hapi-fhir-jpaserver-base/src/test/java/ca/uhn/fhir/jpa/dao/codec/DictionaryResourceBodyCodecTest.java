@@ -0,0 +1,132 @@
+package ca.uhn.fhir.jpa.dao.codec;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.jpa.dao.GZipUtil;
+import ca.uhn.fhir.jpa.entity.ResourceBodyDictionaryEntity;
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
+import ca.uhn.fhir.parser.DataFormatException;
+import org.hl7.fhir.r4.model.Observation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DictionaryResourceBodyCodecTest {
+
+	private static final FhirContext ourCtx = FhirContext.forR4Cached();
+
+	@Mock
+	private ResourceBodyDictionarySvc myDictionarySvc;
+
+	@Mock
+	private ResourceBodyDictionaryEntity myDictionary;
+
+	@Test
+	void testRoundTripWithoutDictionary() {
+		String observation = newObservationJson(1);
+
+		byte[] encoded = DictionaryResourceBodyCodec.encode(observation, 0L, null);
+
+		assertThat(encoded[0]).isEqualTo(DictionaryResourceBodyCodec.FORMAT_VERSION);
+		assertThat(DictionaryResourceBodyCodec.decode(encoded, id -> null)).isEqualTo(observation);
+	}
+
+	@Test
+	void testRoundTripWithTrainedDictionary() {
+		byte[] dictionary = ResourceBodyDictionaryTrainer.train(newSamples());
+		when(myDictionary.getId()).thenReturn(5L);
+		when(myDictionary.getDictionary()).thenReturn(dictionary);
+		when(myDictionarySvc.getCurrentDictionary("Observation")).thenReturn(myDictionary);
+		when(myDictionarySvc.getDictionary(5L)).thenReturn(dictionary);
+		DictionaryResourceBodyCodec codec = new DictionaryResourceBodyCodec(myDictionarySvc);
+		String observation = newObservationJson(1000);
+
+		byte[] encoded = codec.encode("Observation", observation);
+
+		assertThat(codec.getEncoding()).isEqualTo(ResourceEncodingEnum.JSOND);
+		assertThat(codec.decode(encoded)).isEqualTo(observation);
+		assertThat(encoded.length).isLessThan(GZipUtil.compress(observation).length);
+	}
+
+	@Test
+	void testDecodeWithUnknownDictionary() {
+		byte[] dictionary = ResourceBodyDictionaryTrainer.train(newSamples());
+		byte[] encoded = DictionaryResourceBodyCodec.encode(newObservationJson(1), 123L, dictionary);
+
+		assertThatThrownBy(() -> DictionaryResourceBodyCodec.decode(encoded, id -> null))
+				.isInstanceOf(DataFormatException.class)
+				.hasMessageContaining("Unknown resource body dictionary: 123");
+	}
+
+	@Test
+	void testDecodeUnsupportedFormat() {
+		byte[] encoded = DictionaryResourceBodyCodec.encode(newObservationJson(1), 0L, null);
+		encoded[0] = 99;
+
+		assertThatThrownBy(() -> DictionaryResourceBodyCodec.decode(encoded, id -> null))
+				.isInstanceOf(DataFormatException.class)
+				.hasMessageContaining("Unsupported JSOND resource body format");
+	}
+
+	@Test
+	void testTrainerKeepsOnlySharedFragments() {
+		byte[] dictionary = ResourceBodyDictionaryTrainer.train(newSamples());
+		String dictionaryText = new String(dictionary, StandardCharsets.UTF_8);
+
+		assertThat(dictionary.length).isBetween(1, ResourceBodyDictionaryTrainer.MAXIMUM_DICTIONARY_SIZE);
+		assertThat(dictionaryText).contains("\"system\":\"http://loinc.org\",");
+		assertThat(dictionaryText).doesNotContain("subject-7");
+	}
+
+	@Test
+	void testTrainerWithNothingInCommon() {
+		assertThat(ResourceBodyDictionaryTrainer.train(List.of("{\"a\":1}", "[\"b\",2]"))).isEmpty();
+	}
+
+	@Test
+	void testRegistryUsesRegisteredCodec() {
+		ResourceBodyCodecRegistry registry =
+				new ResourceBodyCodecRegistry(List.of(new DictionaryResourceBodyCodec(myDictionarySvc)));
+		String observation = newObservationJson(1);
+
+		byte[] jsonc = registry.encode(ResourceEncodingEnum.JSONC, "Observation", observation);
+		byte[] jsond = registry.encode(ResourceEncodingEnum.JSOND, "Observation", observation);
+
+		assertThat(registry.decode(ResourceEncodingEnum.JSONC, jsonc)).isEqualTo(observation);
+		assertThat(registry.decode(ResourceEncodingEnum.JSOND, jsond)).isEqualTo(observation);
+		assertThat(registry.encode(ResourceEncodingEnum.DEL, "Observation", observation)).isEmpty();
+		assertThat(registry.decode(ResourceEncodingEnum.DEL, new byte[0])).isNull();
+	}
+
+	private static List<String> newSamples() {
+		List<String> retVal = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			retVal.add(newObservationJson(i));
+		}
+		return retVal;
+	}
+
+	private static String newObservationJson(int theIndex) {
+		Observation observation = new Observation();
+		observation.setId("Observation/" + theIndex);
+		observation.setStatus(Observation.ObservationStatus.FINAL);
+		observation.getCode().addCoding().setSystem("http://loinc.org").setCode("8867-4").setDisplay("Heart rate");
+		observation.getSubject().setReference("Patient/subject-" + theIndex);
+		observation
+				.getValueQuantity()
+				.setValue(60 + theIndex % 40)
+				.setUnit("beats/minute")
+				.setSystem("http://unitsofmeasure.org")
+				.setCode("/min");
+		return ourCtx.newJsonParser().encodeResourceToString(observation);
+	}
+}
@@ -52,6 +52,9 @@ public class DaoSearchParamSynchronizerTest {
 	@Mock
 	private ISearchParamIdentityCacheSvc searchParamIdentityCacheSvc;
 
+	@Mock
+	private ResourceIndexBulkWriter resourceIndexBulkWriter;
+
 	private ResourceIndexedSearchParams existingParams;
 
 	@BeforeEach
@@ -91,4 +94,19 @@ public class DaoSearchParamSynchronizerTest {
 		verify(searchParamIdentityCacheSvc, times(1))
 			.findOrCreateSearchParamIdentity(expectedSpIdentity, "Patient", GRITTSCORE);
 	}
+
+	@Test
+	void synchronizeSearchParamsWithBulkIndexInsert() {
+		JpaStorageSettings storageSettings = new JpaStorageSettings();
+		storageSettings.setBulkIndexInsertEnabled(true);
+		subject.setStorageSettings(storageSettings);
+		subject.setResourceIndexBulkWriter(resourceIndexBulkWriter);
+		when(resourceIndexBulkWriter.addPending(THE_SEARCH_PARAM_NUMBER)).thenReturn(true);
+
+		final AddRemoveCount addRemoveCount = subject.synchronizeSearchParamsToDatabase(theParams, theEntity, ResourceIndexedSearchParams.withSets());
+
+		assertEquals(1, addRemoveCount.getAddCount());
+		verify(resourceIndexBulkWriter, times(1)).addPending(THE_SEARCH_PARAM_NUMBER);
+		verify(entityManager, never()).persist(any());
+	}
 }
@@ -1,15 +1,22 @@
 package ca.uhn.fhir.jpa.search.builder;
 
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.util.ThreadPoolUtil;
 import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class SearchQueryExecutorsTest {
 
@@ -44,6 +51,50 @@ class SearchQueryExecutorsTest {
 		assertThat(drain(queryExecutor)).containsExactly(1L, 2L, 3L);
 	}
 
+	@Test
+	public void parallelChunksReturnResultsInChunkOrder() {
+		List<ISearchQueryExecutor> chunks = new ArrayList<>();
+		for (long i = 0; i < 10; i++) {
+			chunks.add(SearchQueryExecutors.from(JpaPid.fromLongList(Arrays.asList(i * 2, i * 2 + 1))));
+		}
+		Set<String> threadNames = ConcurrentHashMap.newKeySet();
+		ThreadPoolTaskExecutor taskExecutor = ThreadPoolUtil.newThreadPool(3, 3, "test-chunk-");
+		try {
+			ISearchQueryExecutor queryExecutor =
+				new ParallelChunkedSearchQueryExecutor(chunks, 3, taskExecutor, chunk -> {
+					threadNames.add(Thread.currentThread().getName());
+					List<JpaPid> pids = new ArrayList<>();
+					chunk.forEachRemaining(pids::add);
+					return pids;
+				});
+
+			assertThat(drain(queryExecutor)).containsExactly(
+				0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L, 13L, 14L, 15L, 16L, 17L, 18L, 19L);
+			assertThat(threadNames).allMatch(t -> t.startsWith("test-chunk-"));
+		} finally {
+			taskExecutor.shutdown();
+		}
+	}
+
+	@Test
+	public void parallelChunksPropagateFailure() {
+		List<ISearchQueryExecutor> chunks = List.of(
+			SearchQueryExecutors.from(JpaPid.fromLongList(List.of(1L))),
+			SearchQueryExecutors.from(JpaPid.fromLongList(List.of(2L))));
+		ThreadPoolTaskExecutor taskExecutor = ThreadPoolUtil.newThreadPool(2, 2, "test-chunk-");
+		try {
+			ISearchQueryExecutor queryExecutor =
+				new ParallelChunkedSearchQueryExecutor(chunks, 2, taskExecutor, chunk -> {
+					throw new InternalErrorException("FAILED");
+				});
+
+			assertThatThrownBy(queryExecutor::hasNext)
+				.isInstanceOf(InternalErrorException.class)
+				.hasMessage("FAILED");
+		} finally {
+			taskExecutor.shutdown();
+		}
+	}
 
 	private List<Long> drain(ISearchQueryExecutor theQueryExecutor) {
 		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(theQueryExecutor, 0), false)
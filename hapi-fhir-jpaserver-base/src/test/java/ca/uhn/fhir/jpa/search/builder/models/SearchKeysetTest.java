@@ -0,0 +1,61 @@
+package ca.uhn.fhir.jpa.search.builder.models;
+
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.SortOrderEnum;
+import ca.uhn.fhir.rest.api.SortSpec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchKeysetTest {
+
+	@Test
+	void testEncodeAndParse_LastUpdated() {
+		Date lastUpdated = new Date(1700000000123L);
+		SearchKeyset keyset = new SearchKeyset(SearchKeyset.SortKeyEnum.LAST_UPDATED, false, 123L, lastUpdated);
+
+		SearchKeyset parsed = SearchKeyset.parse(keyset.encode());
+
+		assertThat(parsed).isNotNull();
+		assertThat(parsed.getSortKey()).isEqualTo(SearchKeyset.SortKeyEnum.LAST_UPDATED);
+		assertThat(parsed.isAscending()).isFalse();
+		assertThat(parsed.getPid()).isEqualTo(123L);
+		assertThat(parsed.getValue()).isEqualTo(lastUpdated);
+		assertThat(parsed.matches(new SortSpec(Constants.PARAM_LASTUPDATED, SortOrderEnum.DESC))).isTrue();
+		assertThat(parsed.matches(new SortSpec(Constants.PARAM_LASTUPDATED, SortOrderEnum.ASC))).isFalse();
+		assertThat(parsed.matches(new SortSpec("_id", SortOrderEnum.DESC))).isFalse();
+	}
+
+	@Test
+	void testEncodeAndParse_ResourceId() {
+		SearchKeyset keyset = new SearchKeyset(SearchKeyset.SortKeyEnum.RESOURCE_ID, true, 7L, "a|b");
+
+		SearchKeyset parsed = SearchKeyset.parse(keyset.encode());
+
+		assertThat(keyset.encode()).matches("[A-Za-z0-9_-]+");
+		assertThat(parsed).isNotNull();
+		assertThat(parsed.getValue()).isEqualTo("a|b");
+		assertThat(parsed.getPid()).isEqualTo(7L);
+		assertThat(parsed.matches(new SortSpec("_id"))).isTrue();
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"", "foo", "!!!", "bHV8eHwxfDI", "eHh8YXwxfDI"})
+	void testParse_InvalidToken(String theToken) {
+		assertThat(SearchKeyset.parse(theToken)).isNull();
+	}
+
+	@Test
+	void testGetSortKey() {
+		assertThat(SearchKeyset.getSortKey(null)).isNull();
+		assertThat(SearchKeyset.getSortKey(new SortSpec("_id"))).isEqualTo(SearchKeyset.SortKeyEnum.RESOURCE_ID);
+		assertThat(SearchKeyset.getSortKey(new SortSpec(Constants.PARAM_LASTUPDATED)))
+				.isEqualTo(SearchKeyset.SortKeyEnum.LAST_UPDATED);
+		assertThat(SearchKeyset.getSortKey(new SortSpec("name"))).isNull();
+		assertThat(SearchKeyset.getSortKey(new SortSpec("_id").setChain(new SortSpec("name")))).isNull();
+	}
+}
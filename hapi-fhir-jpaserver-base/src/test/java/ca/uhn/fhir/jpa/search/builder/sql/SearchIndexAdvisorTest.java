@@ -0,0 +1,122 @@
+package ca.uhn.fhir.jpa.search.builder.sql;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.config.HibernatePropertiesProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class SearchIndexAdvisorTest {
+
+	private static final String STRING_CONTAINS_SQL =
+		"SELECT t0.RES_ID FROM HFJ_SPIDX_STRING t0 WHERE ((t0.HASH_IDENTITY = ?) AND (t0.SP_VALUE_NORMALIZED LIKE ?)) fetch first ? rows only";
+	private static final String STRING_PREFIX_SQL =
+		"SELECT t0.RES_ID FROM HFJ_SPIDX_STRING t0 WHERE ((t0.HASH_NORM_PREFIX = ?) AND (t0.SP_VALUE_NORMALIZED LIKE ?)) fetch first ? rows only";
+
+	@Mock
+	private HibernatePropertiesProvider myDialectProvider;
+	private JpaStorageSettings myStorageSettings;
+	private SearchIndexAdvisor mySvc;
+
+	@BeforeEach
+	public void before() {
+		myStorageSettings = new JpaStorageSettings();
+		myStorageSettings.setIndexAdvisorEnabled(true);
+		mySvc = new SearchIndexAdvisor(myStorageSettings, myDialectProvider);
+		mySvc.setMinimumSlowExecutions(2);
+		mySvc.setSlowQueryThresholdMillis(100);
+	}
+
+	@Test
+	public void testParseCandidates_JoinedTables() {
+		String sql = "SELECT t1.PARTITION_ID,t1.RES_ID FROM HFJ_RESOURCE t1 "
+			+ "INNER JOIN HFJ_SPIDX_STRING t0 ON ((t1.PARTITION_ID = t0.PARTITION_ID) AND (t1.RES_ID = t0.RES_ID)) "
+			+ "INNER JOIN HFJ_SPIDX_TOKEN t2 ON ((t1.PARTITION_ID = t2.PARTITION_ID) AND (t1.RES_ID = t2.RES_ID)) "
+			+ "WHERE (((t0.PARTITION_ID = ?) AND ((t0.HASH_NORM_PREFIX = ?) AND (t0.SP_VALUE_NORMALIZED LIKE ?))) "
+			+ "AND ((t2.PARTITION_ID = ?) AND (t2.HASH_SYS_AND_VALUE IN (?,?,?) ))) fetch first ? rows only";
+
+		List<SearchIndexAdvisor.IndexCandidate> candidates = SearchIndexAdvisor.parseCandidates(sql);
+
+		assertThat(candidates).containsExactlyInAnyOrder(
+			new SearchIndexAdvisor.IndexCandidate("HFJ_SPIDX_STRING", List.of("HASH_NORM_PREFIX"), "SP_VALUE_NORMALIZED"),
+			new SearchIndexAdvisor.IndexCandidate("HFJ_SPIDX_TOKEN", List.of("HASH_SYS_AND_VALUE"), null));
+	}
+
+	@Test
+	public void testRecommendIndexForSlowUncoveredShape() {
+		mySvc.recordQuery(STRING_CONTAINS_SQL, 500);
+		assertThat(mySvc.getRecommendations()).isEmpty();
+
+		// Fast queries don't count towards a recommendation
+		mySvc.recordQuery(STRING_CONTAINS_SQL, 5);
+		assertThat(mySvc.getRecommendations()).isEmpty();
+
+		mySvc.recordQuery(STRING_CONTAINS_SQL, 700);
+		List<SearchIndexRecommendation> recommendations = mySvc.getRecommendations();
+		assertThat(recommendations).hasSize(1);
+		SearchIndexRecommendation recommendation = recommendations.get(0);
+		assertThat(recommendation.getTableName()).isEqualTo("HFJ_SPIDX_STRING");
+		assertThat(recommendation.getColumns())
+			.containsExactly("HASH_IDENTITY", "SP_VALUE_NORMALIZED", "RES_ID", "PARTITION_ID");
+		assertThat(recommendation.getIndexName()).startsWith("IDX_ADV_STRING_");
+		assertThat(recommendation.getIndexName().length()).isLessThanOrEqualTo(30);
+		assertThat(recommendation.getExecutionCount()).isEqualTo(3);
+		assertThat(recommendation.getSlowExecutionCount()).isEqualTo(2);
+		assertThat(recommendation.getSlowExecutionMillis()).isEqualTo(1200);
+		assertThat(recommendation.getExampleSql()).isEqualTo(STRING_CONTAINS_SQL);
+	}
+
+	@Test
+	public void testNoRecommendationWhenBuiltInIndexCoversShape() {
+		mySvc.recordQuery(STRING_PREFIX_SQL, 500);
+		mySvc.recordQuery(STRING_PREFIX_SQL, 500);
+		mySvc.recordQuery(STRING_PREFIX_SQL, 500);
+
+		assertThat(mySvc.getRecommendations()).isEmpty();
+	}
+
+	@Test
+	public void testCreateIndexName_DistinctForEachColumnList() {
+		List<String> tableColumns = List.of("HASH_EXACT", "HASH_IDENTITY", "HASH_NORM_PREFIX", "SP_VALUE_NORMALIZED");
+
+		String identityAndValue = SearchIndexAdvisor.createIndexName(
+			"HFJ_SPIDX_STRING", List.of("HASH_IDENTITY", "SP_VALUE_NORMALIZED", "RES_ID", "PARTITION_ID"), tableColumns);
+		String valueAndIdentity = SearchIndexAdvisor.createIndexName(
+			"HFJ_SPIDX_STRING", List.of("SP_VALUE_NORMALIZED", "HASH_IDENTITY", "RES_ID", "PARTITION_ID"), tableColumns);
+		String identityOnly = SearchIndexAdvisor.createIndexName(
+			"HFJ_SPIDX_STRING", List.of("HASH_IDENTITY", "RES_ID", "PARTITION_ID"), tableColumns);
+
+		assertThat(identityAndValue).isEqualTo("IDX_ADV_STRING_13");
+		assertThat(valueAndIdentity).isEqualTo("IDX_ADV_STRING_31");
+		assertThat(identityOnly).isEqualTo("IDX_ADV_STRING_1");
+	}
+
+	@Test
+	public void testCreateIndexName_UnknownColumnOrTooLong() {
+		List<String> tableColumns = List.of("HASH_IDENTITY", "SP_VALUE");
+
+		assertThat(SearchIndexAdvisor.createIndexName(
+			"HFJ_SPIDX_STRING", List.of("HASH_FOO", "RES_ID", "PARTITION_ID"), tableColumns)).isNull();
+		assertThat(SearchIndexAdvisor.createIndexName(
+			"HFJ_SPIDX_QUANTITY_NRML", List.of("HASH_IDENTITY", "SP_VALUE", "HASH_IDENTITY", "SP_VALUE",
+				"HASH_IDENTITY", "SP_VALUE", "HASH_IDENTITY", "SP_VALUE", "HASH_IDENTITY", "RES_ID", "PARTITION_ID"),
+			tableColumns)).isNull();
+	}
+
+	@Test
+	public void testNothingRecordedWhenDisabled() {
+		myStorageSettings.setIndexAdvisorEnabled(false);
+
+		mySvc.recordQuery(STRING_CONTAINS_SQL, 500);
+		mySvc.recordQuery(STRING_CONTAINS_SQL, 500);
+
+		assertThat(mySvc.getRecommendations()).isEmpty();
+	}
+}
@@ -0,0 +1,119 @@
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.interceptor.api.IInterceptorService;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.entity.SearchTypeEnum;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.model.search.SearchStatusEnum;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class HotSearchResultCacheTest {
+
+	private final FhirContext myFhirContext = FhirContext.forR4Cached();
+	private final IInterceptorService myInterceptorService = mock(IInterceptorService.class);
+	private HotSearchResultCache mySvc;
+
+	@BeforeEach
+	public void beforeEach() {
+		JpaStorageSettings storageSettings = new JpaStorageSettings();
+		storageSettings.setHotSearchCacheSize(10);
+		mySvc = new HotSearchResultCache(myFhirContext, storageSettings, myInterceptorService);
+		mySvc.start();
+		verify(myInterceptorService).registerInterceptor(mySvc);
+	}
+
+	@Test
+	public void testFindAndFetchPids() {
+		Search search = newSearch("Observation", "?patient=Patient%2F123", new Date());
+		mySvc.put(search, pids(5), true);
+
+		assertSame(search, mySvc.findSearch("Observation", "?patient=Patient%2F123", RequestPartitionId.allPartitions()));
+		assertSame(search, mySvc.getSearch(search.getUuid()));
+		assertNull(mySvc.findSearch("Observation", "?patient=Patient%2F456", RequestPartitionId.allPartitions()));
+		assertNull(mySvc.findSearch("Encounter", "?patient=Patient%2F123", RequestPartitionId.allPartitions()));
+
+		assertThat(mySvc.getResourcePids(search.getUuid(), 0, 3)).extracting(JpaPid::getId).containsExactly(0L, 1L, 2L);
+		// Asking for more than there is returns what there is, since the entry is complete
+		assertThat(mySvc.getResourcePids(search.getUuid(), 3, 20)).extracting(JpaPid::getId).containsExactly(3L, 4L);
+	}
+
+	@Test
+	public void testIncompleteEntry() {
+		Search search = newSearch("Observation", "?code=foo", new Date());
+		mySvc.put(search, pids(5), false);
+
+		assertThat(mySvc.getResourcePids(search.getUuid(), 0, 5)).hasSize(5);
+		assertNull(mySvc.getResourcePids(search.getUuid(), 0, 6));
+	}
+
+	@Test
+	public void testUnfinishedSearchNotCached() {
+		Search search = newSearch("Observation", "?code=foo", new Date());
+		search.setStatus(SearchStatusEnum.LOADING);
+		mySvc.put(search, pids(5), false);
+
+		assertNull(mySvc.getSearch(search.getUuid()));
+	}
+
+	@Test
+	public void testInvalidatedByWriteToSameResourceType() {
+		Search observationSearch = newSearch("Observation", "?code=foo", new Date(System.currentTimeMillis() - 100));
+		Search patientSearch = newSearch("Patient", "?name=foo", new Date(System.currentTimeMillis() - 100));
+		mySvc.put(observationSearch, pids(2), true);
+		mySvc.put(patientSearch, pids(2), true);
+
+		mySvc.resourceCreated(new Observation());
+
+		assertNull(mySvc.findSearch("Observation", "?code=foo", RequestPartitionId.allPartitions()));
+		assertNull(mySvc.getResourcePids(observationSearch.getUuid(), 0, 1));
+		assertSame(patientSearch, mySvc.findSearch("Patient", "?name=foo", RequestPartitionId.allPartitions()));
+
+		// Searches started before the invalidation can't be cached afterward either
+		mySvc.put(observationSearch, pids(2), true);
+		assertNull(mySvc.getSearch(observationSearch.getUuid()));
+
+		mySvc.resourceDeleted(new Patient());
+		assertNull(mySvc.getSearch(patientSearch.getUuid()));
+	}
+
+	@Test
+	public void testExpiredByReuseWindow() {
+		Date created = new Date(System.currentTimeMillis() - 2 * JpaStorageSettings.DEFAULT_REUSE_CACHED_SEARCH_RESULTS_FOR_MILLIS);
+		Search search = newSearch("Observation", "?code=foo", created);
+		mySvc.put(search, pids(2), true);
+
+		assertNull(mySvc.getSearch(search.getUuid()));
+	}
+
+	private static List<JpaPid> pids(int theCount) {
+		return LongStream.range(0, theCount).mapToObj(t -> JpaPid.fromId(t)).toList();
+	}
+
+	private static Search newSearch(String theResourceType, String theQueryString, Date theCreated) {
+		Search retVal = new Search();
+		retVal.setUuid(UUID.randomUUID().toString());
+		retVal.setResourceType(theResourceType);
+		retVal.setSearchType(SearchTypeEnum.SEARCH);
+		retVal.setStatus(SearchStatusEnum.FINISHED);
+		retVal.setSearchQueryString(theQueryString, RequestPartitionId.allPartitions());
+		retVal.setCreated(theCreated);
+		return retVal;
+	}
+}
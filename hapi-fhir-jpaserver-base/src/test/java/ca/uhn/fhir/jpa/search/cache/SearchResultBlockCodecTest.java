@@ -0,0 +1,51 @@
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SearchResultBlockCodecTest {
+
+	@Test
+	public void testEncodeDecode() {
+		List<JpaPid> pids = new ArrayList<>();
+		for (long i = 0; i < 10000; i++) {
+			pids.add(JpaPid.fromId(1000000L + i * 3, null));
+		}
+		// Unordered PIDs, extreme values and partitions must all survive
+		pids.add(JpaPid.fromId(5L, 1));
+		pids.add(JpaPid.fromId(Long.MAX_VALUE, -1));
+		pids.add(JpaPid.fromId(-12L, 0));
+		pids.add(JpaPid.fromId(Long.MIN_VALUE, Integer.MAX_VALUE));
+		pids.add(JpaPid.fromId(7L, Integer.MIN_VALUE));
+
+		byte[] encoded = SearchResultBlockCodec.encode(pids);
+		assertThat(encoded.length).isLessThan(pids.size());
+
+		assertSamePids(pids, SearchResultBlockCodec.decode(encoded, 0, pids.size()));
+		assertSamePids(pids.subList(9998, 10005), SearchResultBlockCodec.decode(encoded, 9998, 10005));
+		assertSamePids(pids.subList(10, 20), SearchResultBlockCodec.decode(encoded, 10, 20));
+	}
+
+	@Test
+	public void testDecodePastEnd() {
+		List<JpaPid> pids = List.of(JpaPid.fromId(1L, null), JpaPid.fromId(2L, null));
+		byte[] encoded = SearchResultBlockCodec.encode(pids);
+
+		assertSamePids(pids.subList(1, 2), SearchResultBlockCodec.decode(encoded, 1, 50));
+		assertThat(SearchResultBlockCodec.decode(encoded, 5, 50)).isEmpty();
+	}
+
+	private static void assertSamePids(List<JpaPid> theExpected, List<JpaPid> theActual) {
+		assertEquals(theExpected.size(), theActual.size());
+		for (int i = 0; i < theExpected.size(); i++) {
+			assertEquals(theExpected.get(i).getId(), theActual.get(i).getId());
+			assertEquals(theExpected.get(i).getPartitionId(), theActual.get(i).getPartitionId());
+		}
+	}
+}
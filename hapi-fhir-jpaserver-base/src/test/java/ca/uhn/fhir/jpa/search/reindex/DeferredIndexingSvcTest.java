@@ -0,0 +1,139 @@
+package ca.uhn.fhir.jpa.search.reindex;
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
+import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
+import ca.uhn.fhir.jpa.api.dao.IFhirSystemDao;
+import ca.uhn.fhir.jpa.api.dao.ReindexOutcome;
+import ca.uhn.fhir.jpa.dao.data.IResourceTableDao;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
+import ca.uhn.fhir.jpa.dao.tx.NonTransactionalHapiTransactionService;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.model.entity.EntityIndexStatusEnum;
+import ca.uhn.fhir.jpa.partition.IRequestPartitionHelperSvc;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DeferredIndexingSvcTest {
+
+	@InjectMocks
+	private DeferredIndexingSvc mySvc;
+
+	@Spy
+	private JpaStorageSettings myStorageSettings = new JpaStorageSettings();
+
+	@Spy
+	private IHapiTransactionService myTransactionService = new NonTransactionalHapiTransactionService();
+
+	@Mock
+	private IResourceTableDao myResourceTableDao;
+
+	@Mock
+	private DaoRegistry myDaoRegistry;
+
+	@Mock
+	private IFhirSystemDao<?, ?> mySystemDao;
+
+	@Mock
+	private IFhirResourceDao<?> myPatientDao;
+
+	@Mock
+	private IRequestPartitionHelperSvc myRequestPartitionHelperSvc;
+
+	@Test
+	void testIndexPendingResources_IndexesInBatches() {
+		myStorageSettings.setDeferredIndexingBatchSize(2);
+		when(myResourceTableDao.findIdsOfResourcesWithIndexStatus(
+						any(), eq("Patient"), eq(EntityIndexStatusEnum.INDEXING_PENDING)))
+				.thenReturn(new SliceImpl<>(List.of(JpaPid.fromId(1L), JpaPid.fromId(2L))))
+				.thenReturn(new SliceImpl<>(List.of(JpaPid.fromId(3L))));
+		doReturn(mySystemDao).when(myDaoRegistry).getSystemDao();
+		doReturn(myPatientDao).when(myDaoRegistry).getResourceDao("Patient");
+		when(myPatientDao.reindex(any(), any(), any(), any())).thenReturn(new ReindexOutcome());
+
+		int count = mySvc.indexPendingResources("Patient");
+
+		assertThat(count).isEqualTo(3);
+		verify(myPatientDao, times(3)).reindex(any(), any(), any(), any());
+		verify(mySystemDao, times(2)).preFetchResources(any(), eq(true));
+	}
+
+	@Test
+	void testIndexPendingResources_FailingResourceDoesNotBlockOthers() {
+		myStorageSettings.setDeferredIndexingBatchSize(3);
+		when(myResourceTableDao.findIdsOfResourcesWithIndexStatus(
+						any(), eq("Patient"), eq(EntityIndexStatusEnum.INDEXING_PENDING)))
+				.thenReturn(new SliceImpl<>(List.of(JpaPid.fromId(1L), JpaPid.fromId(2L), JpaPid.fromId(3L))))
+				.thenReturn(new SliceImpl<>(List.of(JpaPid.fromId(4L))));
+		doReturn(mySystemDao).when(myDaoRegistry).getSystemDao();
+		doReturn(myPatientDao).when(myDaoRegistry).getResourceDao("Patient");
+		when(myPatientDao.reindex(any(), any(), any(), any())).thenReturn(new ReindexOutcome());
+		when(myPatientDao.reindex(eq(JpaPid.fromId(2L)), any(), any(), any()))
+				.thenThrow(new IllegalStateException("FAILED"));
+
+		int count = mySvc.indexPendingResources("Patient");
+
+		// The failed batch is retried one resource at a time, and the next batch still runs
+		assertThat(count).isEqualTo(3);
+		verify(myResourceTableDao, times(1))
+				.updateIndexStatus(JpaPid.fromId(2L), EntityIndexStatusEnum.INDEXING_FAILED);
+		verify(myResourceTableDao, times(1)).updateIndexStatus(any(), any());
+		verify(myPatientDao, times(2)).reindex(eq(JpaPid.fromId(1L)), any(), any(), any());
+		verify(myPatientDao, times(1)).reindex(eq(JpaPid.fromId(3L)), any(), any(), any());
+		verify(myPatientDao, times(1)).reindex(eq(JpaPid.fromId(4L)), any(), any(), any());
+	}
+
+	@Test
+	void testIndexPendingResources_AllTypes_NothingPending() {
+		when(myResourceTableDao.findResourceTypesWithIndexStatus(EntityIndexStatusEnum.INDEXING_PENDING))
+				.thenReturn(List.of());
+
+		int count = mySvc.indexPendingResources();
+
+		assertThat(count).isEqualTo(0);
+		verify(myResourceTableDao, times(0)).findIdsOfResourcesWithIndexStatus(any(), any(), any());
+	}
+
+	@Test
+	void testIndexPendingResources_OnlyRequestPartitionUpToLimit() {
+		myStorageSettings.setDeferredIndexingBatchSize(2);
+		RequestPartitionId partition = RequestPartitionId.fromPartitionId(1);
+		when(myRequestPartitionHelperSvc.toReadPartitions(partition)).thenReturn(Set.of(1));
+		when(myResourceTableDao.findIdsOfResourcesWithIndexStatusInPartitionIds(
+						any(), eq("Patient"), eq(EntityIndexStatusEnum.INDEXING_PENDING), eq(Set.of(1))))
+				.thenReturn(new SliceImpl<>(List.of(JpaPid.fromId(1L), JpaPid.fromId(2L))))
+				.thenReturn(new SliceImpl<>(List.of(JpaPid.fromId(3L))));
+		doReturn(mySystemDao).when(myDaoRegistry).getSystemDao();
+		doReturn(myPatientDao).when(myDaoRegistry).getResourceDao("Patient");
+		when(myPatientDao.reindex(any(), any(), any(), any())).thenReturn(new ReindexOutcome());
+
+		int count = mySvc.indexPendingResources("Patient", partition, 3);
+
+		assertThat(count).isEqualTo(3);
+		ArgumentCaptor<Pageable> pageCaptor = ArgumentCaptor.forClass(Pageable.class);
+		verify(myResourceTableDao, times(2))
+				.findIdsOfResourcesWithIndexStatusInPartitionIds(pageCaptor.capture(), any(), any(), any());
+		assertThat(pageCaptor.getAllValues()).extracting(Pageable::getPageSize).containsExactly(2, 1);
+		verify(myResourceTableDao, times(0)).findIdsOfResourcesWithIndexStatus(any(), any(), any());
+	}
+}
@@ -33,5 +33,14 @@ public enum EntityIndexStatusEnum {
 	/**
 	 * Indexing failed - This should only happen if a resource is being reindexed and the reindexing fails
 	 */
-	INDEXING_FAILED;
+	INDEXING_FAILED,
+
+	/**
+	 * The resource body has been stored but its search indexes have not been built yet. This
+	 * is only used when deferred indexing is enabled, and a background job will replace it with
+	 * one of the other values once the resource has been indexed.
+	 *
+	 * @since 8.4.0
+	 */
+	INDEXING_PENDING;
 }
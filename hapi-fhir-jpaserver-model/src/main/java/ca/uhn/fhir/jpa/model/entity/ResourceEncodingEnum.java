@@ -40,6 +40,28 @@ public enum ResourceEncodingEnum {
 	 */
 	JSONC,
 
+	/**
+	 * Json Compressed using a dictionary trained for the resource type. The dictionaries
+	 * are stored in the <code>HFJ_RES_BODY_DICT</code> table.
+	 * <p>
+	 * These bodies are always stored in the binary <code>RES_TEXT</code> column. On Postgres that
+	 * column is an <code>oid</code> large object rather than a real blob, so this encoding is not used
+	 * there and bodies are stored as inline JSON text instead.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	JSOND,
+
+	/**
+	 * Historical version stored as a JSON Patch against an earlier full version of the same
+	 * resource. The body is a JSON document containing the base version number and the patch. It is
+	 * stored as inline text, or compressed in the binary column when using Oracle.
+	 *
+	 * @since 8.4.0
+	 */
+	DIFF,
+
 	/**
 	 * Resource was deleted - No contents expected
 	 */
@@ -95,6 +95,14 @@ public class StorageSettings {
 	private boolean myAutoCreatePlaceholderReferenceTargets;
 	private Integer myBundleBatchPoolSize = DEFAULT_BUNDLE_BATCH_POOL_SIZE;
 	private Integer myBundleBatchMaxPoolSize = DEFAULT_BUNDLE_BATCH_MAX_POOL_SIZE;
+	/**
+	 * @since 8.4.0
+	 */
+	private boolean myBundleBatchSearchMergingEnabled = false;
+	/**
+	 * @since 8.4.0
+	 */
+	private int myTransactionPreprocessingParallelism = 1;
 	private boolean myMassIngestionMode;
 	private Integer myMaximumTransactionBundleSize = DEFAULT_MAXIMUM_TRANSACTION_BUNDLE_SIZE;
 	private boolean myNormalizeTerminologyForBulkExportJobs = false;
@@ -239,6 +247,84 @@ public class StorageSettings {
 		this.myBundleBatchMaxPoolSize = theBundleBatchMaxPoolSize;
 	}
 
+	/**
+	 * If enabled (default is <code>false</code>), GET entries in a batch Bundle which perform the
+	 * same search and differ only in the value of a single search parameter (e.g.
+	 * <code>Observation?code=1234-5&amp;patient=Patient/A</code> and
+	 * <code>Observation?code=1234-5&amp;patient=Patient/B</code>) are executed as a single search
+	 * which ORs the values together. The results are then split back into one searchset Bundle
+	 * per entry using in-memory matching.
+	 * <p>
+	 * Entries are only merged when this can not change their results: entries using control
+	 * parameters such as <code>_include</code> or <code>_count</code>, conditional headers, or
+	 * per-entry partition extensions are always executed individually, as are any entries whose
+	 * merged search would return more results than fit on a single page. If a merged search fails
+	 * for any reason, its entries are executed individually as well.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public boolean isBundleBatchSearchMergingEnabled() {
+		return myBundleBatchSearchMergingEnabled;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>), GET entries in a batch Bundle which perform the
+	 * same search and differ only in the value of a single search parameter (e.g.
+	 * <code>Observation?code=1234-5&amp;patient=Patient/A</code> and
+	 * <code>Observation?code=1234-5&amp;patient=Patient/B</code>) are executed as a single search
+	 * which ORs the values together. The results are then split back into one searchset Bundle
+	 * per entry using in-memory matching.
+	 * <p>
+	 * Entries are only merged when this can not change their results: entries using control
+	 * parameters such as <code>_include</code> or <code>_count</code>, conditional headers, or
+	 * per-entry partition extensions are always executed individually, as are any entries whose
+	 * merged search would return more results than fit on a single page. If a merged search fails
+	 * for any reason, its entries are executed individually as well.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setBundleBatchSearchMergingEnabled(boolean theBundleBatchSearchMergingEnabled) {
+		myBundleBatchSearchMergingEnabled = theBundleBatchSearchMergingEnabled;
+	}
+
+	/**
+	 * The number of threads (default is <code>1</code>) used to analyze the resources in a large
+	 * transaction Bundle before they are saved. This analysis walks each resource to find the
+	 * references and URIs which may need to be rewritten, and since it is pure CPU work on
+	 * independent resources it can use more than one core. Saving and indexing the resources,
+	 * including the rewriting itself, always happens afterward in a single thread and in the same
+	 * order as before, so this setting does not change the outcome of a transaction.
+	 * <p>
+	 * Setting this to <code>1</code> disables the parallel analysis.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public int getTransactionPreprocessingParallelism() {
+		return myTransactionPreprocessingParallelism;
+	}
+
+	/**
+	 * The number of threads (default is <code>1</code>) used to analyze the resources in a large
+	 * transaction Bundle before they are saved. This analysis walks each resource to find the
+	 * references and URIs which may need to be rewritten, and since it is pure CPU work on
+	 * independent resources it can use more than one core. Saving and indexing the resources,
+	 * including the rewriting itself, always happens afterward in a single thread and in the same
+	 * order as before, so this setting does not change the outcome of a transaction.
+	 * <p>
+	 * Setting this to <code>1</code> disables the parallel analysis.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setTransactionPreprocessingParallelism(int theTransactionPreprocessingParallelism) {
+		Validate.isTrue(
+				theTransactionPreprocessingParallelism > 0, "theTransactionPreprocessingParallelism must be positive");
+		myTransactionPreprocessingParallelism = theTransactionPreprocessingParallelism;
+	}
+
 	/**
 	 * If set to {@link IndexEnabledEnum#DISABLED} (default is {@link IndexEnabledEnum#DISABLED})
 	 * the server will not create search indexes for search parameters with no values in resources.
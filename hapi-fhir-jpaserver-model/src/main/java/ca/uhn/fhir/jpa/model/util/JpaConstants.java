@@ -279,6 +279,16 @@ public class JpaConstants {
 	public static final String HEADER_UPSERT_EXISTENCE_CHECK = "X-Upsert-Extistence-Check";
 	public static final String HEADER_UPSERT_EXISTENCE_CHECK_DISABLED = "disabled";
 
+	/**
+	 * Request header which can be added to a search in order to request that any resources of the
+	 * searched type whose indexing has been deferred are indexed before the search is executed.
+	 *
+	 * @since 8.4.0
+	 */
+	public static final String HEADER_INDEX_CONSISTENCY = "X-Index-Consistency";
+
+	public static final String HEADER_INDEX_CONSISTENCY_READ_YOUR_WRITES = "read-your-writes";
+
 	/**
 	 * Parameters for the rewrite history operation
 	 */
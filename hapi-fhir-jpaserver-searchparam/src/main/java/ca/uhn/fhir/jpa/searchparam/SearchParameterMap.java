@@ -71,6 +71,7 @@ public class SearchParameterMap implements Serializable {
 	private final HashMap<String, List<List<IQueryParameterType>>> mySearchParameterMap = new LinkedHashMap<>();
 	private Integer myCount;
 	private Integer myOffset;
+	private String mySearchAfter;
 	private EverythingModeEnum myEverythingMode = null;
 	private Set<Include> myIncludes;
 	private DateRangeParam myLastUpdated;
@@ -122,6 +123,7 @@ public class SearchParameterMap implements Serializable {
 		map.setNearDistanceParam(getNearDistanceParam());
 		map.setLoadSynchronousUpTo(getLoadSynchronousUpTo());
 		map.setOffset(getOffset());
+		map.setSearchAfter(getSearchAfter());
 		map.setSearchContainedMode(getSearchContainedMode());
 
 		for (Map.Entry<String, List<List<IQueryParameterType>>> entry : mySearchParameterMap.entrySet()) {
@@ -280,6 +282,28 @@ public class SearchParameterMap implements Serializable {
 		myOffset = theOffset;
 	}
 
+	/**
+	 * Returns the opaque keyset pagination token supplied with an offset query, if any.
+	 * The token is only a hint: storage which can not use it falls back to the offset.
+	 *
+	 * @see Constants#PARAM_SEARCH_AFTER
+	 * @since 8.4.0
+	 */
+	public String getSearchAfter() {
+		return mySearchAfter;
+	}
+
+	/**
+	 * Sets the opaque keyset pagination token supplied with an offset query, if any.
+	 * The token is only a hint: storage which can not use it falls back to the offset.
+	 *
+	 * @see Constants#PARAM_SEARCH_AFTER
+	 * @since 8.4.0
+	 */
+	public void setSearchAfter(String theSearchAfter) {
+		mySearchAfter = theSearchAfter;
+	}
+
 	public EverythingModeEnum getEverythingMode() {
 		return myEverythingMode;
 	}
@@ -66,6 +66,8 @@ import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -195,6 +197,52 @@ public class InMemoryResourceMatcher {
 		return match(searchParameterMap, theResource, resourceDefinition, relevantSearchParams);
 	}
 
+	/**
+	 * Matches a single resource against each of several criteria. This is equivalent to calling
+	 * {@link #match(String, IBaseResource, ResourceIndexedSearchParams, RequestDetails)} once for
+	 * each criteria string, except that the search parameter indexes of the resource are only
+	 * calculated once.
+	 *
+	 * @param theCriteria The criteria to test, each in the format <code>[resourceType]?[params]</code>
+	 * @return One result for each of the criteria, in the same order
+	 * @since 8.4.0
+	 */
+	@Nonnull
+	public List<InMemoryMatchResult> matchEach(
+			@Nonnull List<String> theCriteria, @Nonnull IBaseResource theResource, RequestDetails theRequestDetails) {
+		RuntimeResourceDefinition resourceDefinition = myFhirContext.getResourceDefinition(theResource);
+
+		List<SearchParameterMap> searchParameterMaps = new ArrayList<>(theCriteria.size());
+		Set<String> paramNames = new HashSet<>();
+		for (String nextCriteria : theCriteria) {
+			SearchParameterMap searchParameterMap;
+			try {
+				searchParameterMap = myMatchUrlService.translateMatchUrl(nextCriteria, resourceDefinition);
+				searchParameterMap.clean();
+				paramNames.addAll(searchParameterMap.keySet());
+			} catch (UnsupportedOperationException e) {
+				searchParameterMap = null;
+			}
+			searchParameterMaps.add(searchParameterMap);
+		}
+
+		ISearchParamExtractor.ISearchParamFilter filter = theSearchParams -> theSearchParams.stream()
+				.filter(t -> paramNames.contains(t.getName()))
+				.collect(Collectors.toList());
+		ResourceIndexedSearchParams indexedSearchParams =
+				myIndexedSearchParamExtractor.extractIndexedSearchParams(theResource, theRequestDetails, filter);
+
+		List<InMemoryMatchResult> retVal = new ArrayList<>(searchParameterMaps.size());
+		for (SearchParameterMap next : searchParameterMaps) {
+			if (next == null) {
+				retVal.add(InMemoryMatchResult.unsupportedFromReason(InMemoryMatchResult.PARSE_FAIL));
+			} else {
+				retVal.add(match(next, theResource, resourceDefinition, indexedSearchParams));
+			}
+		}
+		return retVal;
+	}
+
 	/**
 	 * @param theCriteria
 	 * @return result.supported() will be true if theCriteria can be evaluated in-memory
@@ -0,0 +1,143 @@
+package ca.uhn.fhir.jpa.dao.r4;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import ca.uhn.fhir.rest.param.DateParam;
+import ca.uhn.fhir.rest.param.QuantityParam;
+import ca.uhn.fhir.rest.param.StringParam;
+import ca.uhn.fhir.rest.param.TokenParam;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.Reference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FhirResourceDaoR4BulkIndexInsertTest extends BaseJpaR4Test {
+
+	@BeforeEach
+	public void beforeEnableBulkIndexInsert() {
+		myStorageSettings.setBulkIndexInsertEnabled(true);
+	}
+
+	@AfterEach
+	public void afterResetSettings() {
+		myStorageSettings.setBulkIndexInsertEnabled(new JpaStorageSettings().isBulkIndexInsertEnabled());
+	}
+
+	@Test
+	public void testCreateUpdateAndSearch() {
+		myCaptureQueriesListener.clear();
+		IIdType id = myObservationDao.create(newObservation("code-1", "2024-01-02", 1.5), mySrd)
+				.getId()
+				.toUnqualifiedVersionless();
+
+		// Index rows are written by the bulk writer rather than one Hibernate insert per row
+		List<String> inserts = myCaptureQueriesListener.getInsertQueries().stream()
+				.map(t -> t.getSql(false, false))
+				.toList();
+		assertThat(inserts).anyMatch(t -> t.startsWith("INSERT INTO HFJ_SPIDX_TOKEN ("));
+		assertThat(inserts).noneMatch(t -> t.startsWith("insert into HFJ_SPIDX_TOKEN"));
+
+		assertThat(searchByCode("code-1")).containsExactly(id.getValue());
+		assertThat(searchByDate("2024-01-02")).containsExactly(id.getValue());
+		assertThat(searchByValue(1.5)).containsExactly(id.getValue());
+		assertThat(searchByIdentifier("code-1")).containsExactly(id.getValue());
+
+		// Update replaces the rows written above
+		Observation updated = newObservation("code-2", "2025-03-04", 2.5);
+		updated.setId(id);
+		myObservationDao.update(updated, mySrd);
+
+		assertThat(searchByCode("code-1")).isEmpty();
+		assertThat(searchByDate("2024-01-02")).isEmpty();
+		assertThat(searchByValue(1.5)).isEmpty();
+		assertThat(searchByCode("code-2")).containsExactly(id.getValue());
+		assertThat(searchByDate("2025-03-04")).containsExactly(id.getValue());
+		assertThat(searchByValue(2.5)).containsExactly(id.getValue());
+		assertThat(searchByIdentifier("code-2")).containsExactly(id.getValue());
+	}
+
+	@Test
+	public void testTransactionWithReferencesAndConditionalCreate() {
+		Bundle input = new Bundle();
+		input.setType(Bundle.BundleType.TRANSACTION);
+
+		Patient patient = new Patient();
+		patient.setId("urn:uuid:patient");
+		patient.addIdentifier().setSystem("http://example.com/mrn").setValue("MRN-1");
+		patient.addName().setFamily("Simpson");
+		input.addEntry()
+				.setFullUrl(patient.getId())
+				.setResource(patient)
+				.getRequest()
+				.setMethod(Bundle.HTTPVerb.POST)
+				.setUrl("Patient")
+				.setIfNoneExist("Patient?identifier=http://example.com/mrn|MRN-1");
+
+		for (int i = 0; i < 3; i++) {
+			Observation obs = newObservation("code-tx", "2024-01-0" + (i + 1), i);
+			obs.setSubject(new Reference("urn:uuid:patient"));
+			input.addEntry().setResource(obs).getRequest().setMethod(Bundle.HTTPVerb.POST).setUrl("Observation");
+		}
+
+		mySystemDao.transaction(mySrd, input);
+		assertThat(searchByCode("code-tx")).hasSize(3);
+		SearchParameterMap map = SearchParameterMap.newSynchronous(Patient.SP_FAMILY, new StringParam("Simpson"));
+		assertThat(toUnqualifiedVersionlessIdValues(myPatientDao.search(map, mySrd))).hasSize(1);
+
+		// The conditional create finds the patient through the bulk-written identifier row
+		mySystemDao.transaction(mySrd, input);
+		assertThat(searchByCode("code-tx")).hasSize(6);
+		assertThat(toUnqualifiedVersionlessIdValues(myPatientDao.search(map, mySrd))).hasSize(1);
+	}
+
+	private List<String> searchByCode(String theCode) {
+		return search(SearchParameterMap.newSynchronous(
+				Observation.SP_CODE, new TokenParam("http://example.com/code", theCode)));
+	}
+
+	private List<String> searchByDate(String theDate) {
+		return search(SearchParameterMap.newSynchronous(Observation.SP_DATE, new DateParam(theDate)));
+	}
+
+	private List<String> searchByValue(double theValue) {
+		QuantityParam param = new QuantityParam()
+				.setValue(theValue)
+				.setSystem("http://unitsofmeasure.org")
+				.setUnits("mg");
+		return search(SearchParameterMap.newSynchronous(Observation.SP_VALUE_QUANTITY, param));
+	}
+
+	private List<String> searchByIdentifier(String theValue) {
+		return search(SearchParameterMap.newSynchronous(
+				Observation.SP_IDENTIFIER, new TokenParam("http://example.com/id", theValue)));
+	}
+
+	private List<String> search(SearchParameterMap theMap) {
+		return toUnqualifiedVersionlessIdValues(myObservationDao.search(theMap, mySrd));
+	}
+
+	private static Observation newObservation(String theCode, String theDate, double theValue) {
+		Observation retVal = new Observation();
+		retVal.setStatus(Observation.ObservationStatus.FINAL);
+		retVal.addIdentifier().setSystem("http://example.com/id").setValue(theCode);
+		retVal.getCode().addCoding().setSystem("http://example.com/code").setCode(theCode);
+		retVal.setEffective(new DateTimeType(theDate));
+		retVal.setValue(new Quantity()
+				.setValue(theValue)
+				.setSystem("http://unitsofmeasure.org")
+				.setCode("mg")
+				.setUnit("mg"));
+		return retVal;
+	}
+}
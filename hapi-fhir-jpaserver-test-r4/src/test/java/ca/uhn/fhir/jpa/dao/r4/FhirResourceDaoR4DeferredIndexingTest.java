@@ -0,0 +1,121 @@
+package ca.uhn.fhir.jpa.dao.r4;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.model.entity.EntityIndexStatusEnum;
+import ca.uhn.fhir.jpa.model.util.JpaConstants;
+import ca.uhn.fhir.jpa.search.reindex.DeferredIndexingSvc;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import ca.uhn.fhir.rest.param.TokenParam;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.Observation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+public class FhirResourceDaoR4DeferredIndexingTest extends BaseJpaR4Test {
+
+	@Autowired
+	private DeferredIndexingSvc myDeferredIndexingSvc;
+
+	@BeforeEach
+	public void beforeEnableDeferredIndexing() {
+		myStorageSettings.setDeferredIndexingResourceTypes(Set.of("Observation"));
+	}
+
+	@AfterEach
+	public void afterResetSettings() {
+		JpaStorageSettings defaults = new JpaStorageSettings();
+		myStorageSettings.setDeferredIndexingResourceTypes(defaults.getDeferredIndexingResourceTypes());
+		myStorageSettings.setDeferredIndexingReadYourWritesLimit(defaults.getDeferredIndexingReadYourWritesLimit());
+		myStorageSettings.setDeferredIndexingBatchSize(defaults.getDeferredIndexingBatchSize());
+	}
+
+	@Test
+	public void testSearchWithReadYourWrites() {
+		IIdType id = createObservation("code-1");
+		assertEquals(EntityIndexStatusEnum.INDEXING_PENDING, getIndexStatus(id));
+
+		// Without the header the pending resource isn't indexed yet, and this result is cached
+		assertThat(searchForCode("code-1")).isEmpty();
+
+		// With the header it is indexed first, and the cached result is not reused
+		when(mySrd.getHeader(JpaConstants.HEADER_INDEX_CONSISTENCY))
+				.thenReturn(JpaConstants.HEADER_INDEX_CONSISTENCY_READ_YOUR_WRITES);
+		assertThat(searchForCode("code-1")).containsExactly(id.getIdPart());
+		assertEquals(EntityIndexStatusEnum.INDEXED_RDBMS_ONLY, getIndexStatus(id));
+	}
+
+	@Test
+	public void testSearchWithReadYourWrites_IndexingIsLimited() {
+		myStorageSettings.setDeferredIndexingReadYourWritesLimit(2);
+		for (int i = 0; i < 3; i++) {
+			createObservation("code-2");
+		}
+
+		when(mySrd.getHeader(JpaConstants.HEADER_INDEX_CONSISTENCY))
+				.thenReturn(JpaConstants.HEADER_INDEX_CONSISTENCY_READ_YOUR_WRITES);
+		assertThat(searchForCode("code-2")).hasSize(2);
+
+		// The remaining resource is left for the background job (or the next search)
+		assertThat(searchForCode("code-2")).hasSize(3);
+	}
+
+	@Test
+	public void testResourceWhichFailsToIndexDoesNotBlockLaterResources() {
+		myStorageSettings.setDeferredIndexingBatchSize(2);
+		IIdType failingId = createObservation("code-3");
+		List<String> otherIds = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			otherIds.add(createObservation("code-3").getIdPart());
+		}
+
+		// Swap in an unparseable body, which will cause an error when the resource is indexed
+		runInTransaction(() -> {
+			String pid = failingId.getIdPart();
+			assertEquals(1, myEntityManager.createNativeQuery(
+					"UPDATE HFJ_RES_VER SET RES_TEXT = null, RES_TEXT_VC = 'ABCDEFG' WHERE RES_ID = " + pid)
+					.executeUpdate());
+		});
+
+		myDeferredIndexingSvc.indexPendingResources("Observation");
+
+		assertEquals(EntityIndexStatusEnum.INDEXING_FAILED, getIndexStatus(failingId));
+		assertThat(searchForCode("code-3")).containsExactlyInAnyOrderElementsOf(otherIds);
+
+		// The failed resource is not picked up again
+		assertEquals(0, myDeferredIndexingSvc.indexPendingResources("Observation"));
+	}
+
+	private IIdType createObservation(String theCode) {
+		Observation obs = new Observation();
+		obs.setStatus(Observation.ObservationStatus.FINAL);
+		obs.getCode().addCoding().setSystem("http://example.com").setCode(theCode);
+		return myObservationDao.create(obs, mySrd).getId().toUnqualifiedVersionless();
+	}
+
+	private List<String> searchForCode(String theCode) {
+		SearchParameterMap map = new SearchParameterMap();
+		map.add(Observation.SP_CODE, new TokenParam("http://example.com", theCode));
+		return toUnqualifiedVersionlessIdValues(myObservationDao.search(map, mySrd)).stream()
+				.map(t -> t.substring(t.indexOf('/') + 1))
+				.toList();
+	}
+
+	private EntityIndexStatusEnum getIndexStatus(IIdType theId) {
+		return runInTransaction(() -> myResourceTableDao
+				.findById(JpaPid.fromId(theId.getIdPartAsLong()))
+				.orElseThrow()
+				.getIndexStatus());
+	}
+}
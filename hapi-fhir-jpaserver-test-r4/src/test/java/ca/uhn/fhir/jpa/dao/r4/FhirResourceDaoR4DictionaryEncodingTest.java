@@ -0,0 +1,153 @@
+package ca.uhn.fhir.jpa.dao.r4;
+
+import ca.uhn.fhir.batch2.jobs.reindex.ReindexJobParameters;
+import ca.uhn.fhir.batch2.model.JobInstanceStartRequest;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.api.dao.ReindexParameters;
+import ca.uhn.fhir.jpa.batch.models.Batch2JobStartResponse;
+import ca.uhn.fhir.jpa.dao.codec.ResourceBodyDictionarySvc;
+import ca.uhn.fhir.jpa.dao.data.IResourceBodyDictionaryDao;
+import ca.uhn.fhir.jpa.entity.ResourceBodyDictionaryEntity;
+import ca.uhn.fhir.jpa.model.dao.JpaPidFk;
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
+import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.param.DateRangeParam;
+import ca.uhn.fhir.rest.param.HistorySearchDateRangeParam;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.ContactPoint;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+
+import static ca.uhn.fhir.batch2.jobs.reindex.ReindexUtils.JOB_REINDEX;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class FhirResourceDaoR4DictionaryEncodingTest extends BaseJpaR4Test {
+
+	@Autowired
+	private ResourceBodyDictionarySvc myResourceBodyDictionarySvc;
+
+	@Autowired
+	private IResourceBodyDictionaryDao myResourceBodyDictionaryDao;
+
+	@BeforeEach
+	public void beforeEnableDictionaryEncoding() {
+		myResourceBodyDictionarySvc.clearCaches();
+		myStorageSettings.setResourceEncoding(ResourceEncodingEnum.JSOND);
+	}
+
+	@AfterEach
+	public void afterResetSettings() {
+		myStorageSettings.setResourceEncoding(new JpaStorageSettings().getResourceEncoding());
+		runInTransaction(() -> myResourceBodyDictionaryDao.deleteAll());
+		myResourceBodyDictionarySvc.clearCaches();
+	}
+
+	@Test
+	public void testCreateUpdateReadAndHistoryAcrossDictionaryTraining() {
+		IIdType id = createPatientsAndTrainDictionary();
+
+		// Version 3 is written with the trained dictionary
+		myPatientDao.update(newPatient(id, "Version3"), mySrd);
+
+		assertEquals("Version3", readFamily(id.withVersion(null)));
+		assertEquals("Version1", readFamily(id.withVersion("1")));
+		assertEquals("Version2", readFamily(id.withVersion("2")));
+		assertEquals("Version3", readFamily(id.withVersion("3")));
+
+		IBundleProvider history = myPatientDao.history(
+				id, new HistorySearchDateRangeParam(new HashMap<>(), new DateRangeParam(), 0), mySrd);
+		List<IBaseResource> versions = history.getResources(0, 10);
+		assertEquals(3, versions.size());
+		assertEquals("Version3", ((Patient) versions.get(0)).getNameFirstRep().getFamily());
+		assertEquals("Version1", ((Patient) versions.get(2)).getNameFirstRep().getFamily());
+
+		runInTransaction(() -> {
+			JpaPidFk pid = JpaPidFk.fromId(id.getIdPartAsLong());
+			ResourceHistoryTable version1 = myResourceHistoryTableDao.findForIdAndVersion(pid, 1);
+			ResourceHistoryTable version3 = myResourceHistoryTableDao.findForIdAndVersion(pid, 3);
+			assertEquals(ResourceEncodingEnum.JSOND, version1.getEncoding());
+			assertNull(version1.getResourceTextVc());
+			assertEquals(0L, getDictionaryId(version1));
+			assertEquals(ResourceEncodingEnum.JSOND, version3.getEncoding());
+			assertNotEquals(0L, getDictionaryId(version3));
+		});
+
+		// Storing the same content again doesn't create a new version even though the body bytes differ
+		myPatientDao.update(newPatient(id, "Version3"), mySrd);
+		assertEquals("3", myPatientDao.read(id, mySrd).getIdElement().getVersionIdPart());
+	}
+
+	@Test
+	public void testReindexOptimizeStorageMovesDictionaryEncodedBodiesInline() {
+		IIdType id = createPatientsAndTrainDictionary();
+		myPatientDao.update(newPatient(id, "Version3"), mySrd);
+
+		myStorageSettings.setResourceEncoding(ResourceEncodingEnum.JSONC);
+		JobInstanceStartRequest startRequest = new JobInstanceStartRequest();
+		startRequest.setJobDefinitionId(JOB_REINDEX);
+		startRequest.setParameters(new ReindexJobParameters()
+				.setOptimizeStorage(ReindexParameters.OptimizeStorageModeEnum.ALL_VERSIONS)
+				.setReindexSearchParameters(ReindexParameters.ReindexSearchParametersEnum.NONE));
+		Batch2JobStartResponse startResponse = myJobCoordinator.startInstance(mySrd, startRequest);
+		myBatch2JobHelper.awaitJobCompletion(startResponse);
+
+		runInTransaction(() -> {
+			for (ResourceHistoryTable next : myResourceHistoryTableDao.findAll()) {
+				assertEquals(ResourceEncodingEnum.JSON, next.getEncoding());
+				assertNotNull(next.getResourceTextVc());
+				assertNull(next.getResource());
+			}
+		});
+		assertEquals("Version1", readFamily(id.withVersion("1")));
+		assertEquals("Version3", readFamily(id.withVersion("3")));
+	}
+
+	/**
+	 * Creates enough patients to train a dictionary from, plus two versions of one patient
+	 * written before the dictionary exists
+	 */
+	private IIdType createPatientsAndTrainDictionary() {
+		IIdType id = myPatientDao.create(newPatient(null, "Version1"), mySrd).getId().toUnqualifiedVersionless();
+		myPatientDao.update(newPatient(id, "Version2"), mySrd);
+		for (int i = 0; i < ResourceBodyDictionarySvc.MINIMUM_TRAINING_SAMPLES; i++) {
+			myPatientDao.create(newPatient(null, "Other" + i), mySrd);
+		}
+
+		ResourceBodyDictionaryEntity dictionary = myResourceBodyDictionarySvc.trainDictionary("Patient");
+		assertNotNull(dictionary);
+		return id;
+	}
+
+	private String readFamily(IIdType theId) {
+		return myPatientDao.read(theId, mySrd).getNameFirstRep().getFamily();
+	}
+
+	private static long getDictionaryId(ResourceHistoryTable theHistoryEntity) {
+		return ByteBuffer.wrap(theHistoryEntity.getResource(), 1, Long.BYTES).getLong();
+	}
+
+	private static Patient newPatient(IIdType theId, String theFamily) {
+		Patient retVal = new Patient();
+		if (theId != null) {
+			retVal.setId(theId);
+		}
+		retVal.setActive(true);
+		retVal.addName().setFamily(theFamily).addGiven("Given");
+		retVal.addIdentifier().setSystem("http://example.com/mrn").setValue(theFamily);
+		retVal.addTelecom().setSystem(ContactPoint.ContactPointSystem.PHONE).setValue("555-1234");
+		return retVal;
+	}
+}
@@ -0,0 +1,142 @@
+package ca.uhn.fhir.jpa.dao.r4;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.api.model.ExpungeOptions;
+import ca.uhn.fhir.jpa.model.dao.JpaPidFk;
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
+import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+public class FhirResourceDaoR4HistoryDeltaTest extends BaseJpaR4Test {
+
+	private static final int SNAPSHOT_INTERVAL = 3;
+	private static final int VERSION_COUNT = 10;
+
+	@BeforeEach
+	public void beforeEnableDeltas() {
+		myStorageSettings.setResourceHistoryDeltaSnapshotInterval(SNAPSHOT_INTERVAL);
+	}
+
+	@AfterEach
+	public void afterResetSettings() {
+		JpaStorageSettings defaults = new JpaStorageSettings();
+		myStorageSettings.setResourceHistoryDeltaSnapshotInterval(defaults.getResourceHistoryDeltaSnapshotInterval());
+		myStorageSettings.setExpungeEnabled(defaults.isExpungeEnabled());
+		myStorageSettings.setUpdateWithHistoryRewriteEnabled(defaults.isUpdateWithHistoryRewriteEnabled());
+	}
+
+	@Test
+	public void testEveryVersionReadsBack() {
+		List<Patient> versions = new ArrayList<>();
+		IIdType id = createPatientWithVersions(versions);
+
+		for (int version = 1; version <= VERSION_COUNT; version++) {
+			assertVersionMatches(id, version, versions.get(version - 1));
+		}
+
+		// Non-snapshot versions other than the current one are deltas, stored as inline text
+		runInTransaction(() -> {
+			JpaPidFk pid = JpaPidFk.fromId(id.getIdPartAsLong());
+			for (int version = 1; version <= VERSION_COUNT; version++) {
+				ResourceHistoryTable history = myResourceHistoryTableDao.findForIdAndVersion(pid, version);
+				boolean snapshot = (version - 1) % SNAPSHOT_INTERVAL == 0;
+				if (snapshot || version == VERSION_COUNT) {
+					assertEquals(ResourceEncodingEnum.JSON, history.getEncoding(), "Version " + version);
+				} else {
+					assertEquals(ResourceEncodingEnum.DIFF, history.getEncoding(), "Version " + version);
+					assertNotNull(history.getResourceTextVc());
+					assertNull(history.getResource());
+				}
+			}
+		});
+	}
+
+	@Test
+	public void testExpungeSnapshot() {
+		myStorageSettings.setExpungeEnabled(true);
+		List<Patient> versions = new ArrayList<>();
+		IIdType id = createPatientWithVersions(versions);
+
+		// Versions 2 and 3 are deltas against version 1
+		myPatientDao.expunge(id.withVersion("1"), new ExpungeOptions().setExpungeOldVersions(true), mySrd);
+
+		assertThrows(ResourceNotFoundException.class, () -> myPatientDao.read(id.withVersion("1"), mySrd));
+		for (int version = 2; version <= VERSION_COUNT; version++) {
+			assertVersionMatches(id, version, versions.get(version - 1));
+		}
+	}
+
+	@Test
+	public void testRewriteSnapshot() {
+		myStorageSettings.setUpdateWithHistoryRewriteEnabled(true);
+		List<Patient> versions = new ArrayList<>();
+		IIdType id = createPatientWithVersions(versions);
+
+		// Versions 5 and 6 are deltas against version 4
+		when(mySrd.isRewriteHistory()).thenReturn(true);
+		Patient rewritten = newPatient(-1);
+		rewritten.setId(id.withVersion("4"));
+		myPatientDao.update(rewritten, mySrd);
+		when(mySrd.isRewriteHistory()).thenReturn(false);
+
+		assertEquals("Family-1", myPatientDao.read(id.withVersion("4"), mySrd).getNameFirstRep().getFamily());
+		for (int version = 1; version <= VERSION_COUNT; version++) {
+			if (version != 4) {
+				assertVersionMatches(id, version, versions.get(version - 1));
+			}
+		}
+	}
+
+	private IIdType createPatientWithVersions(List<Patient> theVersions) {
+		IIdType id = null;
+		for (int i = 0; i < VERSION_COUNT; i++) {
+			Patient patient = newPatient(i);
+			if (id == null) {
+				id = myPatientDao.create(patient, mySrd).getId().toUnqualifiedVersionless();
+			} else {
+				patient.setId(id);
+				myPatientDao.update(patient, mySrd);
+			}
+			theVersions.add(patient);
+		}
+		return id;
+	}
+
+	private void assertVersionMatches(IIdType theId, int theVersion, Patient theExpected) {
+		Patient actual = myPatientDao.read(theId.withVersion(Integer.toString(theVersion)), mySrd);
+		assertEquals(Integer.toString(theVersion), actual.getIdElement().getVersionIdPart());
+		actual.setId((String) null);
+		actual.setMeta(null);
+		Patient expected = theExpected.copy();
+		expected.setId((String) null);
+		expected.setMeta(null);
+		assertTrue(expected.equalsDeep(actual), "Version " + theVersion + " differs: "
+				+ myFhirContext.newJsonParser().encodeResourceToString(actual));
+	}
+
+	private static Patient newPatient(int theRevision) {
+		Patient retVal = new Patient();
+		retVal.setActive(theRevision % 2 == 0);
+		retVal.addName().setFamily("Family" + theRevision);
+		for (int i = 0; i < 20; i++) {
+			retVal.addIdentifier().setSystem("http://example.com/identifier/" + i).setValue("value-" + i);
+		}
+		return retVal;
+	}
+}
@@ -67,6 +67,7 @@ public class FhirResourceDaoR4SearchIncludeTest extends BaseJpaR4Test {
 	@AfterEach
 	public void afterEach() {
 		myStorageSettings.setMaximumIncludesToLoadPerPage(JpaStorageSettings.DEFAULT_MAXIMUM_INCLUDES_TO_LOAD_PER_PAGE);
+		myStorageSettings.setIncludeLoadingThreadCount(new JpaStorageSettings().getIncludeLoadingThreadCount());
 		myInterceptorRegistry.unregisterInterceptor(myAnonymousInterceptor);
 	}
 
@@ -325,6 +326,52 @@ public class FhirResourceDaoR4SearchIncludeTest extends BaseJpaR4Test {
 	}
 
 
+	@ParameterizedTest
+	@CsvSource({"true", "false"})
+	public void testIncludesLoadedInParallel(boolean theSynchronous) {
+		myStorageSettings.setIncludeLoadingThreadCount(4);
+
+		Organization org = new Organization();
+		org.setId("ORG-1");
+		myOrganizationDao.update(org, mySrd);
+
+		Patient patient = new Patient();
+		patient.setId("PAT-1");
+		patient.getManagingOrganization().setReference("Organization/ORG-1");
+		myPatientDao.update(patient, mySrd);
+
+		for (int i = 1; i <= 3; i++) {
+			CarePlan carePlan = new CarePlan();
+			carePlan.setId("CP-" + i);
+			carePlan.getSubject().setReference("Patient/PAT-1");
+			myCarePlanDao.update(carePlan, mySrd);
+
+			EpisodeOfCare episodeOfCare = new EpisodeOfCare();
+			episodeOfCare.setId("EOC-" + i);
+			episodeOfCare.getPatient().setReference("Patient/PAT-1");
+			episodeOfCare.getManagingOrganization().setReference("Organization/ORG-1");
+			myEpisodeOfCareDao.update(episodeOfCare, mySrd);
+		}
+
+		SearchParameterMap map = new SearchParameterMap()
+			.setLoadSynchronous(theSynchronous)
+			.add("_id", new TokenParam("PAT-1"))
+			.addInclude(Patient.INCLUDE_ORGANIZATION)
+			.addRevInclude(CarePlan.INCLUDE_SUBJECT)
+			.addRevInclude(EpisodeOfCare.INCLUDE_PATIENT);
+		IBundleProvider results = myPatientDao.search(map, mySrd);
+		List<String> ids = toUnqualifiedVersionlessIdValues(results);
+		assertThat(ids).as(ids.toString()).containsExactlyInAnyOrder(
+			"Patient/PAT-1",
+			"Organization/ORG-1",
+			"CarePlan/CP-1",
+			"CarePlan/CP-2",
+			"CarePlan/CP-3",
+			"EpisodeOfCare/EOC-1",
+			"EpisodeOfCare/EOC-2",
+			"EpisodeOfCare/EOC-3");
+	}
+
 	@Test
 	public void testRevIncludesPaged_AsyncSearch() {
 		int eocCount = 10;
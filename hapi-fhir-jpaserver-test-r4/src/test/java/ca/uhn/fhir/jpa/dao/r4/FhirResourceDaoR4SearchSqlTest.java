@@ -4,14 +4,18 @@ import ca.uhn.fhir.interceptor.api.Hook;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.model.config.PartitionSettings;
+import ca.uhn.fhir.jpa.search.builder.sql.GeneratedSqlTemplateCache;
+import ca.uhn.fhir.jpa.search.builder.sql.SqlObjectFactory;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.param.StringOrListParam;
 import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.param.UriParam;
 import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.Enumerations;
 import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.SearchParameter;
 import org.junit.jupiter.api.AfterEach;
@@ -23,6 +27,7 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.List;
 import java.util.UUID;
@@ -36,6 +41,9 @@ public class FhirResourceDaoR4SearchSqlTest extends BaseJpaR4Test {
 
 	private static final Logger ourLog = LoggerFactory.getLogger(FhirResourceDaoR4SearchSqlTest.class);
 
+	@Autowired
+	private SqlObjectFactory mySqlObjectFactory;
+
 	@Override
 	@BeforeEach
 	public void before() throws Exception {
@@ -273,6 +281,47 @@ public class FhirResourceDaoR4SearchSqlTest extends BaseJpaR4Test {
 		}
 	}
 
+	@Test
+	public void testSearchesWithSameShapeReuseGeneratedSql() {
+		IIdType homer = createPatient("Simpson");
+		IIdType ned = createPatient("Flanders");
+		GeneratedSqlTemplateCache cache = mySqlObjectFactory.getGeneratedSqlTemplateCache();
+		cache.invalidateAll();
+
+		// Same shape, different values
+		assertThat(searchForPatients(new StringParam("Simpson"))).containsExactly(homer);
+		String sql = myCaptureQueriesListener.getSelectQueriesForCurrentThread().get(0).getSql(false, false);
+		assertEquals(1, cache.size());
+		assertThat(searchForPatients(new StringParam("Flanders"))).containsExactly(ned);
+		assertEquals(sql, myCaptureQueriesListener.getSelectQueriesForCurrentThread().get(0).getSql(false, false));
+		assertEquals(1, cache.size());
+
+		// Different shape
+		assertThat(searchForPatients(new StringParam("Simpson").setExact(true))).containsExactly(homer);
+		assertEquals(2, cache.size());
+		assertThat(searchForPatients(new StringParam("Simpson"), new StringParam("Flanders"))).containsExactlyInAnyOrder(homer, ned);
+		assertEquals(3, cache.size());
+	}
+
+	private IIdType createPatient(String theFamily) {
+		Patient patient = new Patient();
+		patient.setGender(Enumerations.AdministrativeGender.MALE);
+		patient.addName().setFamily(theFamily);
+		return myPatientDao.create(patient, mySrd).getId().toUnqualifiedVersionless();
+	}
+
+	private List<IIdType> searchForPatients(StringParam... theFamilies) {
+		StringOrListParam families = new StringOrListParam();
+		for (StringParam next : theFamilies) {
+			families.addOr(next);
+		}
+		SearchParameterMap map = SearchParameterMap.newSynchronous()
+			.add(Patient.SP_FAMILY, families)
+			.add(Patient.SP_GENDER, new TokenParam("male"));
+		myCaptureQueriesListener.clear();
+		return toUnqualifiedVersionlessIds(myPatientDao.search(map, mySrd));
+	}
+
 	public static class MyPartitionInterceptor {
 
 		@Hook(STORAGE_PARTITION_IDENTIFY_ANY)
@@ -2,6 +2,7 @@ package ca.uhn.fhir.jpa.interceptor;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.provider.BaseResourceProviderR4Test;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.rest.api.Constants;
@@ -36,6 +37,7 @@ public class ForceOffsetSearchModeInterceptorTest extends BaseResourceProviderR4
 
 		myInterceptorRegistry.unregisterInterceptor(mySvc);
 		myServer.setDefaultPageSize(myInitialDefaultPageSize);
+		myStorageSettings.setKeysetPagingEnabled(new JpaStorageSettings().isKeysetPagingEnabled());
 	}
 
 	@Test
@@ -92,6 +94,60 @@ public class ForceOffsetSearchModeInterceptorTest extends BaseResourceProviderR4
 		assertNull(outcome.getLink("next"));
 	}
 
+	@Test
+	public void testSearch_KeysetPaging() {
+		myStorageSettings.setKeysetPagingEnabled(true);
+
+		for (int i = 0; i < 10; i++) {
+			createPatient(withId("A" + i), withActiveTrue());
+		}
+
+		// First page
+		Bundle outcome = myClient
+			.search()
+			.forResource("Patient")
+			.where(Patient.ACTIVE.exactly().code("true"))
+			.sort().ascending(Patient.RES_ID)
+			.count(4)
+			.returnBundle(Bundle.class)
+			.execute();
+		assertThat(toUnqualifiedVersionlessIdValues(outcome)).containsExactly("Patient/A0", "Patient/A1", "Patient/A2", "Patient/A3");
+		assertThat(outcome.getLink(Constants.LINK_NEXT).getUrl()).contains("_offset=4", Constants.PARAM_SEARCH_AFTER + "=");
+
+		// Second page seeks past the last row instead of using an OFFSET
+		myCaptureQueriesListener.clear();
+		outcome = myClient.loadPage().next(outcome).execute();
+		assertThat(toUnqualifiedVersionlessIdValues(outcome)).containsExactly("Patient/A4", "Patient/A5", "Patient/A6", "Patient/A7");
+		myCaptureQueriesListener.logSelectQueries();
+		String sql = myCaptureQueriesListener.getSelectQueries().get(0).getSql(true, false);
+		assertThat(sql).contains("FHIR_ID > 'A3'");
+		assertThat(sql).doesNotContain("offset '4'");
+		assertThat(outcome.getLink(Constants.LINK_PREVIOUS).getUrl()).doesNotContain(Constants.PARAM_SEARCH_AFTER);
+
+		// Last page
+		outcome = myClient.loadPage().next(outcome).execute();
+		assertThat(toUnqualifiedVersionlessIdValues(outcome)).containsExactly("Patient/A8", "Patient/A9");
+		assertNull(outcome.getLink(Constants.LINK_NEXT));
+	}
+
+	@Test
+	public void testSearch_KeysetPaging_InvalidTokenFallsBackToOffset() {
+		myStorageSettings.setKeysetPagingEnabled(true);
+
+		for (int i = 0; i < 10; i++) {
+			createPatient(withId("A" + i), withActiveTrue());
+		}
+
+		myCaptureQueriesListener.clear();
+		Bundle outcome = myClient
+			.search()
+			.byUrl("Patient?active=true&_sort=_id&_count=4&_offset=4&" + Constants.PARAM_SEARCH_AFTER + "=foo")
+			.returnBundle(Bundle.class)
+			.execute();
+		assertThat(toUnqualifiedVersionlessIdValues(outcome)).containsExactly("Patient/A4", "Patient/A5", "Patient/A6", "Patient/A7");
+		assertThat(myCaptureQueriesListener.getSelectQueries().get(0).getSql(true, false)).contains("offset '4'");
+	}
+
 	@Test
 	public void testPagingNextLink_whenAllResourcesHaveBeenReturned_willNotBePresent(){
 
@@ -1,8 +1,11 @@
 package ca.uhn.fhir.jpa.provider.r4;
 
+import ca.uhn.fhir.interceptor.api.Hook;
+import ca.uhn.fhir.interceptor.api.Pointcut;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.model.util.JpaConstants;
 import ca.uhn.fhir.jpa.provider.BaseResourceProviderR4Test;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.jpa.test.config.TestR4Config;
 import ca.uhn.fhir.rest.server.exceptions.NotImplementedOperationException;
 import com.google.common.base.Charsets;
@@ -16,6 +19,7 @@ import org.hl7.fhir.r4.model.Bundle.HTTPVerb;
 import org.hl7.fhir.r4.model.CarePlan;
 import org.hl7.fhir.r4.model.Condition;
 import org.hl7.fhir.r4.model.Enumerations.AdministrativeGender;
+import org.hl7.fhir.r4.model.Observation;
 import org.hl7.fhir.r4.model.OperationOutcome;
 import org.hl7.fhir.r4.model.Parameters;
 import org.hl7.fhir.r4.model.Patient;
@@ -66,6 +70,7 @@ public class ResourceProviderR4BundleTest extends BaseResourceProviderR4Test {
 		super.after();
 		myStorageSettings.setBundleBatchPoolSize(JpaStorageSettings.DEFAULT_BUNDLE_BATCH_POOL_SIZE);
 		myStorageSettings.setBundleBatchMaxPoolSize(JpaStorageSettings.DEFAULT_BUNDLE_BATCH_MAX_POOL_SIZE);
+		myStorageSettings.setBundleBatchSearchMergingEnabled(new JpaStorageSettings().isBundleBatchSearchMergingEnabled());
 	}
 
 	/**
@@ -190,6 +195,58 @@ public class ResourceProviderR4BundleTest extends BaseResourceProviderR4Test {
 		}
 	}
 
+	@Test
+	public void testBundleBatchWithMergedSearches() {
+		List<String> patientIds = createPatients(3);
+		for (String patientId : patientIds) {
+			for (String code : List.of("A", "A", "B")) {
+				Observation observation = new Observation();
+				observation.getSubject().setReference(patientId);
+				observation.getCode().addCoding().setSystem("http://foo").setCode(code);
+				myObservationDao.create(observation, mySrd);
+			}
+		}
+
+		Bundle input = new Bundle();
+		input.setType(BundleType.BATCH);
+		for (String patientId : patientIds) {
+			input.addEntry().getRequest().setMethod(HTTPVerb.GET).setUrl("Observation?code=http://foo|A&subject=" + patientId);
+		}
+		input.addEntry().getRequest().setMethod(HTTPVerb.GET).setUrl("Observation?code=http://foo|B&subject=" + patientIds.get(0));
+
+		Bundle unmerged = myClient.transaction().withBundle(input).execute();
+
+		myStorageSettings.setBundleBatchSearchMergingEnabled(true);
+		List<SearchParameterMap> searches = new ArrayList<>();
+		Object interceptor = new Object() {
+			@Hook(Pointcut.STORAGE_PRESEARCH_REGISTERED)
+			public void presearchRegistered(SearchParameterMap theSearchParameterMap) {
+				searches.add(theSearchParameterMap);
+			}
+		};
+		myInterceptorRegistry.registerInterceptor(interceptor);
+		Bundle merged;
+		try {
+			merged = myClient.transaction().withBundle(input).execute();
+		} finally {
+			myInterceptorRegistry.unregisterInterceptor(interceptor);
+		}
+
+		// The three code A searches are merged into one, the code B search runs individually
+		assertThat(searches).hasSize(2);
+		assertThat(merged.getEntry()).hasSize(4);
+		for (int i = 0; i < 4; i++) {
+			BundleEntryComponent entry = merged.getEntry().get(i);
+			assertEquals("200 OK", entry.getResponse().getStatus());
+			List<String> expectedIds = toUnqualifiedVersionlessIdValues((Bundle) unmerged.getEntry().get(i).getResource());
+			List<String> actualIds = toUnqualifiedVersionlessIdValues((Bundle) entry.getResource());
+			assertThat(actualIds).containsExactlyInAnyOrderElementsOf(expectedIds);
+			assertEquals(expectedIds.size(), ((Bundle) entry.getResource()).getTotal());
+		}
+		assertThat(toUnqualifiedVersionlessIdValues((Bundle) merged.getEntry().get(0).getResource())).hasSize(2);
+		assertThat(toUnqualifiedVersionlessIdValues((Bundle) merged.getEntry().get(3).getResource())).hasSize(1);
+	}
+
 	@Test
 	public void testBundleBatchWithError() {
 		List<String> ids = createPatients(5);
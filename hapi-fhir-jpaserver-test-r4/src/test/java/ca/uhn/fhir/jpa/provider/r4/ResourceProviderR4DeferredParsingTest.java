@@ -0,0 +1,187 @@
+package ca.uhn.fhir.jpa.provider.r4;
+
+import ca.uhn.fhir.interceptor.api.IAnonymousInterceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.provider.BaseResourceProviderR4Test;
+import ca.uhn.fhir.narrative.INarrativeGenerator;
+import ca.uhn.fhir.parser.DeferredResource;
+import ca.uhn.fhir.rest.server.EncodedResponseCache;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.DecimalType;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ResourceProviderR4DeferredParsingTest extends BaseResourceProviderR4Test {
+
+	private INarrativeGenerator myNarrativeGenerator;
+
+	@Override
+	@BeforeEach
+	public void before() throws Exception {
+		super.before();
+		// A narrative generator may change the encoded resource, which disables splicing
+		myNarrativeGenerator = myFhirContext.getNarrativeGenerator();
+		myFhirContext.setNarrativeGenerator(null);
+	}
+
+	@Override
+	@AfterEach
+	public void after() throws Exception {
+		super.after();
+		myFhirContext.setNarrativeGenerator(myNarrativeGenerator);
+		myStorageSettings.setDeferredParsingForReadsEnabled(
+				new JpaStorageSettings().isDeferredParsingForReadsEnabled());
+	}
+
+	@Test
+	public void testReadForResponseDoesNotParseResource() {
+		myStorageSettings.setDeferredParsingForReadsEnabled(true);
+		IIdType id = createPatient();
+
+		Patient header = myPatientDao.readForResponse(id, mySrd);
+		DeferredResource<?> deferred = DeferredResource.fromResource(header);
+		assertNotNull(deferred);
+		assertFalse(deferred.isInflated());
+		assertEquals("1", header.getIdElement().getVersionIdPart());
+		assertFalse(header.hasName());
+
+		Patient inflated = DeferredResource.inflate(header);
+		assertEquals("Simpson", inflated.getNameFirstRep().getFamily());
+		assertEquals("1", inflated.getIdElement().getVersionIdPart());
+	}
+
+	@Test
+	public void testReadForResponseParsesResourceWhenDisabled() {
+		IIdType id = createPatient();
+
+		Patient patient = myPatientDao.readForResponse(id, mySrd);
+		assertNull(DeferredResource.fromResource(patient));
+		assertEquals("Simpson", patient.getNameFirstRep().getFamily());
+	}
+
+	@Test
+	public void testReadAndVreadReturnSameBodyAsParsedResource() throws IOException {
+		IIdType id = createPatient();
+		Patient update = new Patient();
+		update.setId(id.toUnqualifiedVersionless());
+		update.setActive(false);
+		update.addName().setFamily("Simpson").addGiven("Marge");
+		myPatientDao.update(update, mySrd);
+
+		String readUrl = myServerBase + "/Patient/" + id.getIdPart() + "?_format=json";
+		String vreadUrl = myServerBase + "/Patient/" + id.getIdPart() + "/_history/1?_format=json";
+		// _summary requires the parsed resource
+		String summaryUrl = readUrl + "&_summary=true";
+		String expectedRead = fetch(readUrl);
+		String expectedVread = fetch(vreadUrl);
+		String expectedSummary = fetch(summaryUrl);
+
+		myStorageSettings.setDeferredParsingForReadsEnabled(true);
+		assertEquals(expectedRead, fetch(readUrl));
+		assertEquals(expectedVread, fetch(vreadUrl));
+		assertEquals(expectedSummary, fetch(summaryUrl));
+		assertThat(expectedRead).contains("Marge");
+		assertThat(expectedVread).contains("\"valueDecimal\":1.50");
+	}
+
+	@Test
+	public void testOutgoingResponseHookSeesParsedResource() throws IOException {
+		myStorageSettings.setDeferredParsingForReadsEnabled(true);
+		IIdType id = createPatient();
+
+		List<IBaseResource> responses = new ArrayList<>();
+		IAnonymousInterceptor interceptor = (thePointcut, theArgs) -> responses.add(theArgs.get(IBaseResource.class));
+		myServer.getRestfulServer()
+				.getInterceptorService()
+				.registerAnonymousInterceptor(Pointcut.SERVER_OUTGOING_RESPONSE, interceptor);
+		try {
+			String body = fetch(myServerBase + "/Patient/" + id.getIdPart() + "?_format=json");
+			assertThat(body).contains("Simpson");
+		} finally {
+			myServer.getRestfulServer().getInterceptorService().unregisterInterceptor(interceptor);
+		}
+
+		assertThat(responses).hasSize(1);
+		Patient response = (Patient) responses.get(0);
+		assertNull(DeferredResource.fromResource(response));
+		assertEquals("Simpson", response.getNameFirstRep().getFamily());
+	}
+
+	@Test
+	public void testCachedResponseIsServedWithoutLoadingResource() throws IOException {
+		IIdType id = createPatient();
+		EncodedResponseCache cache = new EncodedResponseCache(1024 * 1024);
+		myServer.getRestfulServer().setEncodedResponseCache(cache);
+		try {
+			String readUrl = myServerBase + "/Patient/" + id.getIdPart() + "?_format=json";
+			String expected = fetch(readUrl);
+			assertEquals(1, cache.getMissCount());
+
+			myCaptureQueriesListener.clear();
+			assertEquals(expected, fetch(readUrl));
+			assertEquals(1, cache.getHitCount());
+			myCaptureQueriesListener.logSelectQueries();
+			assertThat(myCaptureQueriesListener.getSelectQueries())
+					.noneMatch(t -> t.getSql(false, false).contains("HFJ_RES_VER"));
+			assertThat(myCaptureQueriesListener.getSelectQueries())
+					.noneMatch(t -> t.getSql(false, false).contains("HFJ_RES_TAG"));
+		} finally {
+			myServer.getRestfulServer().setEncodedResponseCache(null);
+		}
+	}
+
+	@Test
+	public void testCachedResponseNotUsedWithOutgoingResponseHook() throws IOException {
+		IIdType id = createPatient();
+		EncodedResponseCache cache = new EncodedResponseCache(1024 * 1024);
+		myServer.getRestfulServer().setEncodedResponseCache(cache);
+		IAnonymousInterceptor interceptor = (thePointcut, theArgs) -> {};
+		myServer.getRestfulServer()
+				.getInterceptorService()
+				.registerAnonymousInterceptor(Pointcut.SERVER_OUTGOING_RESPONSE, interceptor);
+		try {
+			String readUrl = myServerBase + "/Patient/" + id.getIdPart() + "?_format=json";
+			assertEquals(fetch(readUrl), fetch(readUrl));
+			assertEquals(0, cache.getHitCount());
+			assertEquals(0, cache.size());
+		} finally {
+			myServer.getRestfulServer().getInterceptorService().unregisterInterceptor(interceptor);
+			myServer.getRestfulServer().setEncodedResponseCache(null);
+		}
+	}
+
+	private IIdType createPatient() {
+		Patient patient = new Patient();
+		patient.setActive(true);
+		patient.addName().setFamily("Simpson").addGiven("Homer");
+		patient.addExtension("http://foo", new DecimalType("1.50"));
+		patient.getManagingOrganization().setDisplay("Springfield Nuclear");
+		patient.getMeta().addTag("http://tags", "tag0", null);
+		return myPatientDao.create(patient, mySrd).getId();
+	}
+
+	private String fetch(String theUrl) throws IOException {
+		try (CloseableHttpResponse resp = ourHttpClient.execute(new HttpGet(theUrl))) {
+			assertEquals(200, resp.getStatusLine().getStatusCode());
+			return IOUtils.toString(resp.getEntity().getContent(), StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -35,6 +35,7 @@ public class ResourceProviderSummaryModeR4Test extends BaseResourceProviderR4Tes
 		mySearchCoordinatorSvcRaw.setSyncSizeForUnitTests(QueryParameterUtils.DEFAULT_SYNC_SIZE);
 		myStorageSettings.setSearchPreFetchThresholds(new JpaStorageSettings().getSearchPreFetchThresholds());
 		myStorageSettings.setDefaultTotalMode(null);
+		myStorageSettings.setEstimatedTotalSampleSize(JpaStorageSettings.DEFAULT_ESTIMATED_TOTAL_SAMPLE_SIZE);
 	}
 
 	@BeforeEach
@@ -96,6 +97,45 @@ public class ResourceProviderSummaryModeR4Test extends BaseResourceProviderR4Tes
 		assertThat(outcome.getEntry()).hasSize(10);
 	}
 
+	/**
+	 * Estimated total - H2 has no planner estimates, so the total comes from a sample of
+	 * the matching IDs, which is exact because it is below the sample size
+	 */
+	@Test
+	public void testSearchWithTotalEstimated() {
+		Bundle outcome = myClient
+			.search()
+			.forResource(Patient.class)
+			.where(Patient.ACTIVE.exactly().code("true"))
+			.totalMode(SearchTotalModeEnum.ESTIMATED)
+			.returnBundle(Bundle.class)
+			.execute();
+
+		assertEquals(new Integer(104), outcome.getTotalElement().getValue());
+		assertThat(outcome.getEntry()).hasSize(10);
+		assertThat(outcome.getLink(Bundle.LINK_NEXT)).isNotNull();
+	}
+
+	/**
+	 * Estimated total - No estimate is available if the search matches more resources
+	 * than the sample size
+	 */
+	@Test
+	public void testSearchWithTotalEstimatedAboveSampleSize() {
+		myStorageSettings.setEstimatedTotalSampleSize(50);
+
+		Bundle outcome = myClient
+			.search()
+			.forResource(Patient.class)
+			.where(Patient.FAMILY.matches().value("FAM"))
+			.totalMode(SearchTotalModeEnum.ESTIMATED)
+			.returnBundle(Bundle.class)
+			.execute();
+
+		assertNull(outcome.getTotalElement().getValue());
+		assertThat(outcome.getEntry()).hasSize(10);
+	}
+
 	/**
 	 * Count and data via config - Should include both a count and the data portions of results
 	 */
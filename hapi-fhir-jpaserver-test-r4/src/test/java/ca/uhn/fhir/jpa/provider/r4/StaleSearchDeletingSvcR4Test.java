@@ -2,9 +2,11 @@ package ca.uhn.fhir.jpa.provider.r4;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import ca.uhn.fhir.jpa.dao.data.ISearchDao;
+import ca.uhn.fhir.jpa.dao.data.ISearchResultBlockDao;
 import ca.uhn.fhir.jpa.dao.data.ISearchResultDao;
 import ca.uhn.fhir.jpa.entity.Search;
 import ca.uhn.fhir.jpa.entity.SearchResult;
+import ca.uhn.fhir.jpa.entity.SearchResultBlock;
 import ca.uhn.fhir.jpa.entity.SearchTypeEnum;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.model.search.SearchStatusEnum;
@@ -28,6 +30,7 @@ import java.util.UUID;
 
 import static ca.uhn.fhir.util.TestUtil.sleepAtLeast;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -39,6 +42,8 @@ public class StaleSearchDeletingSvcR4Test extends BaseResourceProviderR4Test {
 	private ISearchDao mySearchEntityDao;
 	@Autowired
 	private ISearchResultDao mySearchResultDao;
+	@Autowired
+	private ISearchResultBlockDao mySearchResultBlockDao;
 
 	@Override
 	@AfterEach()
@@ -166,6 +171,30 @@ public class StaleSearchDeletingSvcR4Test extends BaseResourceProviderR4Test {
 		});
 	}
 
+	@Test
+	public void testDeletePackedResultBlocksWhenPackedStorageIsDisabled() {
+		assertFalse(myStorageSettings.isPackedSearchResultCacheEnabled());
+
+		runInTransaction(() -> {
+			Search search = new Search();
+			search.setStatus(SearchStatusEnum.FINISHED);
+			search.setUuid(UUID.randomUUID().toString());
+			search.setCreated(DateUtils.addDays(new Date(), -10000));
+			search.setSearchType(SearchTypeEnum.SEARCH);
+			search.setResourceType("Patient");
+			search = mySearchEntityDao.save(search);
+			mySearchResultBlockDao.save(new SearchResultBlock(search, 0, 1, new byte[] {0}));
+		});
+		runInTransaction(() -> assertEquals(1, mySearchResultBlockDao.count()));
+
+		myStaleSearchDeletingSvc.pollForStaleSearchesAndDeleteThem();
+
+		runInTransaction(() -> {
+			assertEquals(0, mySearchEntityDao.count());
+			assertEquals(0, mySearchResultBlockDao.count());
+		});
+	}
+
 	@Test
 	public void testDontDeleteSearchBeforeExpiry() {
 		DatabaseSearchCacheSvcImpl.setMaximumResultsToDeleteInOneStatement(10);
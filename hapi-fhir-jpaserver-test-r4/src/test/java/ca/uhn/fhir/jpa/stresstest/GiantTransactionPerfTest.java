@@ -105,12 +105,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -166,6 +169,7 @@ public class GiantTransactionPerfTest {
 	public void afterEach() {
 		myStorageSettings.setEnforceReferenceTargetTypes(new JpaStorageSettings().isEnforceReferenceTargetTypes());
 		myStorageSettings.setAllowInlineMatchUrlReferences(new JpaStorageSettings().isAllowInlineMatchUrlReferences());
+		myTransactionProcessor.shutdownPreprocessingPool();
 	}
 
 	@BeforeEach
@@ -316,6 +320,38 @@ public class GiantTransactionPerfTest {
 		assertEquals(0, myResourceHistoryTableDao.mySaveCount);
 	}
 
+	@Test
+	public void testTransaction_ParallelPreprocessing() throws Exception {
+		myStorageSettings.setTransactionPreprocessingParallelism(4);
+
+		Bundle input = ClasspathUtil.loadResource(ourFhirContext, Bundle.class, "/r4/large-transaction.json");
+		assertThat(input.getEntry()).hasSize(100);
+
+		ServletRequestDetails requestDetails = new ServletRequestDetails(myInterceptorSvc);
+		requestDetails.setServer(new RestfulServer());
+		requestDetails.setServletRequest(new MockServletRequest());
+
+		Bundle output = mySystemDao.transaction(requestDetails, input);
+
+		assertThat(output.getEntry()).hasSize(100);
+		assertThat(output.getEntry()).allMatch(t -> t.getResponse().getStatus().startsWith("201"));
+		assertThat(myEntityManager.myPersistCount.stream().filter(t -> t instanceof ResourceTable)).hasSize(100);
+		assertEquals(1, myEntityManager.myFlushCount);
+
+		ForkJoinPool pool = myTransactionProcessor.getPreprocessingPoolForUnitTest();
+		assertEquals(4, pool.getParallelism());
+		assertThat(pool.submit(() -> Thread.currentThread().getName()).get()).startsWith("transaction-preprocessing-");
+
+		// Changing the setting replaces the pool on the next transaction
+		myStorageSettings.setTransactionPreprocessingParallelism(2);
+		mySystemDao.transaction(requestDetails, input);
+		assertTrue(pool.isShutdown());
+		assertEquals(2, myTransactionProcessor.getPreprocessingPoolForUnitTest().getParallelism());
+
+		myTransactionProcessor.shutdownPreprocessingPool();
+		assertNull(myTransactionProcessor.getPreprocessingPoolForUnitTest());
+	}
+
 	@Test
 	@Disabled
 	public void testTransactionStressTest() {
@@ -1,6 +1,7 @@
 package ca.uhn.fhir.jpa.dao.r5.database;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
 import ca.uhn.fhir.jpa.api.dao.IFhirResourceDaoPatient;
 import ca.uhn.fhir.jpa.dao.TestDaoSearch;
@@ -29,6 +30,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.r5.model.Bundle;
+import org.hl7.fhir.r5.model.DateType;
 import org.hl7.fhir.r5.model.IdType;
 import org.hl7.fhir.r5.model.Parameters;
 import org.hl7.fhir.r5.model.Patient;
@@ -139,6 +141,35 @@ public abstract class BaseDatabaseVerificationIT extends BaseJpaTest implements
 	}
 
 
+	/**
+	 * Index rows are written with COPY on PostgreSQL and with batched inserts elsewhere
+	 */
+	@Test
+	public void testCreateUpdateSearchWithBulkIndexInsert() {
+		myStorageSettings.setBulkIndexInsertEnabled(true);
+		try {
+			Patient patient = new Patient();
+			patient.setActive(true);
+			patient.addName().setFamily("Simpson \"Homer\", Jr.").addGiven("Homer");
+			patient.setBirthDateElement(new DateType("1956-05-12"));
+			IIdType id = myPatientDao.create(patient, myRequestDetails).getId().toUnqualifiedVersionless();
+
+			assertThat(myTestDaoSearch.searchForIds("Patient?family=Simpson&birthdate=1956-05-12&active=true"))
+				.containsExactly(id.getIdPart());
+
+			patient.setId(id);
+			patient.getNameFirstRep().setFamily("Flanders");
+			myPatientDao.update(patient, myRequestDetails);
+
+			assertThat(myTestDaoSearch.searchForIds("Patient?family=Flanders&birthdate=1956-05-12&active=true"))
+				.containsExactly(id.getIdPart());
+			assertThat(myTestDaoSearch.searchForIds("Patient?family=Simpson")).isEmpty();
+		} finally {
+			myStorageSettings.setBulkIndexInsertEnabled(new JpaStorageSettings().isBulkIndexInsertEnabled());
+		}
+	}
+
+
 	@Test
 	public void testEverything() {
         Set<String> expectedIds = new HashSet<>();
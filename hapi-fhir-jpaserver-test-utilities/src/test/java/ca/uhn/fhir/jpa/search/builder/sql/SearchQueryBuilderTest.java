@@ -25,6 +25,8 @@ import org.springframework.context.annotation.Scope;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -430,6 +432,103 @@ public class SearchQueryBuilderTest {
 
 	}
 	
+	@Test
+	public void testGeneratedSqlIsReusedForSameQueryShape() {
+		HibernatePropertiesProvider dialectProvider = new HibernatePropertiesProvider();
+		dialectProvider.setDialectForUnitTest(new PostgreSQLDialect());
+		GeneratedSqlTemplateCache cache = mySqlBuilderFactory.getGeneratedSqlTemplateCache();
+		cache.invalidateAll();
+		SearchQueryShape shape = SearchQueryShape.builder().add("ids").add(2).build();
+
+		SearchQueryBuilder builder = newBuilder(dialectProvider, shape, 500L, 501L);
+		GeneratedSql first = builder.generate(10, 5);
+		assertEquals(1, cache.size());
+
+		// Same shape, different values
+		builder = newBuilder(dialectProvider, shape, 600L, 601L);
+		GeneratedSql second = builder.generate(10, 5);
+		assertEquals(1, cache.size());
+		assertEquals(first.getSql(), second.getSql());
+		assertThat(first.getBindVariables()).containsExactly("Patient", 500L, 501L, 10, 5);
+		assertThat(second.getBindVariables()).containsExactly("Patient", 600L, 601L, 10, 5);
+
+		// Different page, the offset and limit are bound into the same template
+		GeneratedSql third = builder.generate(20, 7);
+		assertEquals(1, cache.size());
+		assertEquals(first.getSql(), third.getSql());
+		assertThat(third.getBindVariables()).containsExactly("Patient", 600L, 601L, 20, 7);
+
+		// No offset renders different limit SQL
+		GeneratedSql fourth = builder.generate(null, 5);
+		assertEquals(2, cache.size());
+		assertThat(fourth.getSql()).endsWith("fetch first ? rows only");
+		assertThat(fourth.getBindVariables()).containsExactly("Patient", 600L, 601L, 5);
+
+		// Different shape
+		SearchQueryShape otherShape = SearchQueryShape.builder().add("ids").add(3).build();
+		builder = newBuilder(dialectProvider, otherShape, 600L, 601L, 602L);
+		GeneratedSql fifth = builder.generate(10, 5);
+		assertEquals(3, cache.size());
+		assertThat(fifth.getSql()).contains("IN (?,?,?)");
+		assertThat(fifth.getBindVariables()).containsExactly("Patient", 600L, 601L, 602L, 10, 5);
+	}
+
+	@Test
+	public void testGeneratedSqlIsRegeneratedWhenShapeDoesNotMatchBindVariables() {
+		HibernatePropertiesProvider dialectProvider = new HibernatePropertiesProvider();
+		dialectProvider.setDialectForUnitTest(new PostgreSQLDialect());
+		GeneratedSqlTemplateCache cache = mySqlBuilderFactory.getGeneratedSqlTemplateCache();
+		cache.invalidateAll();
+		SearchQueryShape shape = SearchQueryShape.builder().add("ids").build();
+
+		newBuilder(dialectProvider, shape, 500L, 501L).generate(10, 5);
+
+		// The shape doesn't capture the number of IDs, so the cached SQL can't be used
+		GeneratedSql generated = newBuilder(dialectProvider, shape, 600L, 601L, 602L).generate(10, 5);
+		assertThat(generated.getSql()).contains("IN (?,?,?)");
+		assertThat(generated.getBindVariables()).containsExactly("Patient", 600L, 601L, 602L, 10, 5);
+	}
+
+	@Test
+	public void testGeneratedSqlIsNotCachedWithoutShape() {
+		HibernatePropertiesProvider dialectProvider = new HibernatePropertiesProvider();
+		dialectProvider.setDialectForUnitTest(new PostgreSQLDialect());
+		GeneratedSqlTemplateCache cache = mySqlBuilderFactory.getGeneratedSqlTemplateCache();
+		cache.invalidateAll();
+
+		GeneratedSql generated = newBuilder(dialectProvider, null, 500L, 501L).generate(10, 5);
+		assertEquals(0, cache.size());
+		assertThat(generated.getBindVariables()).containsExactly("Patient", 500L, 501L, 10, 5);
+	}
+
+	@Test
+	public void testGeneratedSqlIsCachedPerPageWhenLimitDependsOnValues() {
+		HibernatePropertiesProvider dialectProvider = new HibernatePropertiesProvider();
+		dialectProvider.setDialectForUnitTest(new SQLServerDialect());
+		GeneratedSqlTemplateCache cache = mySqlBuilderFactory.getGeneratedSqlTemplateCache();
+		cache.invalidateAll();
+		SearchQueryShape shape = SearchQueryShape.builder().add("ids").add(2).build();
+
+		SearchQueryBuilder builder = newBuilder(dialectProvider, shape, 500L, 501L);
+		GeneratedSql first = builder.generate(10, 5);
+		GeneratedSql second = builder.generate(20, 7);
+		assertEquals(2, cache.size());
+		assertThat(first.getBindVariables()).containsExactly("Patient", 500L, 501L, 10, 5);
+		assertThat(second.getBindVariables()).containsExactly("Patient", 500L, 501L, 20, 7);
+	}
+
+	private SearchQueryBuilder newBuilder(
+			HibernatePropertiesProvider theDialectProvider, SearchQueryShape theShape, Long... theIds) {
+		SearchQueryBuilder retVal = new SearchQueryBuilder(myFhirContext, myStorageSettings, myPartitionSettings, myRequestPartitionId, "Patient", mySqlBuilderFactory, theDialectProvider, false);
+		retVal.setQueryShape(theShape);
+		List<JpaPid> pids = new ArrayList<>();
+		for (Long next : theIds) {
+			pids.add(JpaPid.fromId(next));
+		}
+		retVal.addResourceIdsPredicate(pids);
+		return retVal;
+	}
+
 	@Configuration
 	public static class MyConfig {
 
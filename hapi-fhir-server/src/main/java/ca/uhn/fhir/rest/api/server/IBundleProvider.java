@@ -31,6 +31,7 @@ import org.hl7.fhir.instance.model.api.IPrimitiveType;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public interface IBundleProvider {
@@ -99,6 +100,20 @@ public interface IBundleProvider {
 		return null;
 	}
 
+	/**
+	 * If the results in this bundle were produced using an offset query and the underlying
+	 * storage supports keyset (seek) pagination, this method may return an opaque token
+	 * identifying the last result of the current page. The server will then add it to the
+	 * <code>_offset</code> based next page link as the {@link ca.uhn.fhir.rest.api.Constants#PARAM_SEARCH_AFTER}
+	 * parameter. The <code>_offset</code> value is always retained in the link too, so storage
+	 * which can not use the token is still able to serve the page.
+	 *
+	 * @since 8.4.0
+	 */
+	default String getNextPageSearchAfter() {
+		return null;
+	}
+
 	/**
 	 * If {@link #getCurrentPageOffset()} returns a non-null value, this method must also return
 	 * the actual page size used
@@ -163,6 +178,42 @@ public interface IBundleProvider {
 		return getResources(theFromIndex, theToIndex);
 	}
 
+	/**
+	 * Load the given collection of resources by index (plus any additional resources, as
+	 * for {@link #getResources(int, int, ResponsePage.ResponsePageBuilder)}) and pass them to
+	 * <code>theConsumer</code> in batches as they are loaded. This allows the server to write
+	 * the first entries of a response before the whole page has been loaded.
+	 * <p>
+	 * The default implementation loads the whole page using
+	 * {@link #getResources(int, int, ResponsePage.ResponsePageBuilder)} and passes it to the
+	 * consumer as a single batch. Implementations that load resources from a database can
+	 * override this method to load and hand over at most <code>theBatchSize</code> resources
+	 * at a time.
+	 * </p>
+	 * <p>
+	 * The Bundle links are written ahead of the entries, using the values on
+	 * <code>theResponsePageBuilder</code> when the first batch is passed to the consumer.
+	 * Implementations must therefore set any values which affect paging (e.g. the number of
+	 * requested resources fetched and the included resource count) before the first batch.
+	 * They should also load all batches of a page from one consistent snapshot of the data.
+	 * </p>
+	 *
+	 * @param theFromIndex           The low index (inclusive) to return
+	 * @param theToIndex             The high index (exclusive) to return
+	 * @param theResponsePageBuilder The ResponsePageBuilder. The builder will add values needed for the response page.
+	 * @param theBatchSize           The preferred maximum number of search results in each batch
+	 * @param theConsumer            Receives each batch of loaded resources, in order
+	 * @since 8.4.0
+	 */
+	default void streamResources(
+			int theFromIndex,
+			int theToIndex,
+			@Nonnull ResponsePage.ResponsePageBuilder theResponsePageBuilder,
+			int theBatchSize,
+			@Nonnull Consumer<List<IBaseResource>> theConsumer) {
+		theConsumer.accept(getResources(theFromIndex, theToIndex, theResponsePageBuilder));
+	}
+
 	/**
 	 * Get all resources
 	 *
@@ -224,6 +275,21 @@ public interface IBundleProvider {
 	@Nullable
 	Integer size();
 
+	/**
+	 * Returns an estimate of the total number of results which match the given query
+	 * (exclusive of any _include's or OperationOutcome), or {@literal null} if no estimate
+	 * is available. This is only used to populate <code>Bundle.total</code> when
+	 * {@link #size()} returns {@literal null}, e.g. because the client requested
+	 * <code>_total=estimated</code>. Unlike {@link #size()}, the value is never used for
+	 * paging, so it does not need to be exact.
+	 *
+	 * @since 8.4.0
+	 */
+	@Nullable
+	default Integer estimatedSize() {
+		return null;
+	}
+
 	/**
 	 * This method returns <code>false</code> if the bundle provider knows that at least
 	 * one result exists.
@@ -63,6 +63,29 @@ public interface IRestfulResponse {
 	Writer getResponseWriter(int theStatusCode, String theContentType, String theCharset, boolean theRespondGzip)
 			throws IOException;
 
+	/**
+	 * Initiate a new textual response which the caller will write as UTF-8 encoded bytes rather than
+	 * characters. This allows encoders which produce UTF-8 directly to skip the character encoding
+	 * layer of {@link #getResponseWriter(int, String, String, boolean)}. The OutputStream returned by
+	 * this method must be finalized by calling {@link #commitResponse(Closeable)} later.
+	 * <p>
+	 * Implementations which can not provide a byte stream for textual responses return {@literal null}
+	 * (which is the default), in which case the caller must use
+	 * {@link #getResponseWriter(int, String, String, boolean)} instead.
+	 * </p>
+	 *
+	 * @param theStatusCode  The HTTP status code.
+	 * @param theContentType The HTTP response content type.
+	 * @param theRespondGzip Should the response be GZip encoded?
+	 * @return Returns an {@link OutputStream} that can accept the UTF-8 encoded response body, or {@literal null}
+	 * @since 8.4.0
+	 */
+	@Nullable
+	default OutputStream getResponseUtf8OutputStream(int theStatusCode, String theContentType, boolean theRespondGzip)
+			throws IOException {
+		return null;
+	}
+
 	/**
 	 * Initiate a new binary response. The OutputStream returned by this method must be finalized by
 	 * calling {@link #commitResponse(Closeable)} later. This method should only be used for non-textual
@@ -0,0 +1,480 @@
+/*
+ * #%L
+ * HAPI FHIR - Server Framework
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.rest.server;
+
+import ca.uhn.fhir.interceptor.api.Hook;
+import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
+import ca.uhn.fhir.interceptor.api.Interceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.EncodingEnum;
+import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+import ca.uhn.fhir.rest.api.SummaryEnum;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.method.ElementsParameter;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.Validate;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.apache.commons.lang3.StringUtils.defaultString;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/**
+ * A size-bounded cache of encoded <code>read</code> and <code>vread</code> response bodies, so that
+ * repeated reads of an unchanged resource version are written straight from the cache instead of
+ * being re-encoded each time.
+ * <p>
+ * Entries are keyed by the resource ID and version along with everything in the request which
+ * affects the encoded output (encoding, pretty printing, <code>_summary</code>, <code>_elements</code>,
+ * <code>_elements:exclude</code> and the server base URL), as well as the request tenant and the
+ * partition the resource was read from, so that the same ID in two tenants or partitions never
+ * shares an entry. The least recently used entries are evicted once the total size of the cached
+ * bodies exceeds the configured limit.
+ * </p>
+ * <p>
+ * This class is also an interceptor: it evicts all entries for a resource when the
+ * {@link Pointcut#STORAGE_PRECOMMIT_RESOURCE_UPDATED} or {@link Pointcut#STORAGE_PRECOMMIT_RESOURCE_DELETED}
+ * pointcuts are invoked for it, which covers changes that don't create a new version
+ * (e.g. <code>$meta-add</code>). Because a read which starts before the writing transaction commits
+ * can still cache the old body, the entries are evicted again once the transaction completes when
+ * Spring transaction synchronization is active. {@link RestfulServer#setEncodedResponseCache(EncodedResponseCache)}
+ * registers it with the server's interceptor service automatically.
+ * </p>
+ * <p>
+ * Nothing is cached or served from the cache while any hooks are registered for a pointcut which can
+ * change or block a response depending on who is asking for it ({@link Pointcut#SERVER_OUTGOING_RESPONSE},
+ * {@link Pointcut#SERVER_OUTGOING_WRITER_CREATED}, {@link Pointcut#STORAGE_PREACCESS_RESOURCES} and
+ * {@link Pointcut#STORAGE_PRESHOW_RESOURCES}). This covers the consent and authorization interceptors.
+ * <b>If resource providers return different content for the same resource version depending on the user,
+ * override {@link #getRequestDiscriminator(RequestDetails)}</b> so that each user gets their own entries,
+ * or override {@link #isCacheable(RequestDetails, IBaseResource)} to restrict which responses are cached.
+ * </p>
+ * <p>
+ * Storage modules may look up a cached response with {@link #attachCachedResponse(RequestDetails, IBaseResource)}
+ * using a resource containing only the ID, version and partition, before the stored resource body is
+ * loaded. If the response is cached, the body is attached to that resource and written as-is, so the
+ * stored resource is neither loaded nor parsed. Changes which don't create a new resource version (e.g.
+ * <code>$meta-add</code>) are only seen by the cache if they are made through the same interceptor service,
+ * so in a cluster they may not be seen by the other servers until the entry is evicted.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+@Interceptor
+public class EncodedResponseCache {
+
+	/**
+	 * Pointcuts whose hooks can alter or block the response to a read depending on the requesting user
+	 */
+	private static final List<Pointcut> ourUserDependentPointcuts = Arrays.asList(
+			Pointcut.SERVER_OUTGOING_RESPONSE,
+			Pointcut.SERVER_OUTGOING_WRITER_CREATED,
+			Pointcut.STORAGE_PREACCESS_RESOURCES,
+			Pointcut.STORAGE_PRESHOW_RESOURCES);
+
+	private static final String ATTACHED_RESPONSE_USER_DATA_KEY = EncodedResponseCache.class.getName() + "_RESPONSE";
+	private static final boolean ourTransactionSynchronizationAvailable = isTransactionSynchronizationAvailable();
+
+	private final long myMaxTotalBytes;
+	private final LinkedHashMap<String, CacheEntry> myEntries = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<String, Set<String>> myKeysByResourceId = new HashMap<>();
+	private final AtomicLong myHitCount = new AtomicLong();
+	private final AtomicLong myMissCount = new AtomicLong();
+	private long myTotalBytes;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theMaxTotalBytes The maximum total size of all cached response bodies, in bytes
+	 */
+	public EncodedResponseCache(long theMaxTotalBytes) {
+		Validate.isTrue(theMaxTotalBytes > 0, "theMaxTotalBytes must be positive");
+		myMaxTotalBytes = theMaxTotalBytes;
+	}
+
+	/**
+	 * Returns <code>true</code> if the response for the given request and resource may be cached.
+	 * By default, only <code>read</code> and <code>vread</code> responses for resources with a
+	 * version ID are cached, and only while no hooks are registered which could make the response
+	 * depend on the requesting user. Sub-requests (e.g. reads within a transaction) are never
+	 * cached, since their callers use the resource content.
+	 */
+	protected boolean isCacheable(RequestDetails theRequestDetails, IBaseResource theResource) {
+		RestOperationTypeEnum operationType = theRequestDetails.getRestOperationType();
+		if (operationType != RestOperationTypeEnum.READ && operationType != RestOperationTypeEnum.VREAD) {
+			return false;
+		}
+		if (theRequestDetails.isSubRequest()) {
+			return false;
+		}
+		IIdType id = theResource.getIdElement();
+		if (id == null || !id.hasIdPart() || isBlank(getVersionId(theResource))) {
+			return false;
+		}
+
+		IRestfulServerDefaults server = theRequestDetails.getServer();
+		IInterceptorBroadcaster serverBroadcaster = server != null ? server.getInterceptorService() : null;
+		IInterceptorBroadcaster requestBroadcaster = theRequestDetails.getInterceptorBroadcaster();
+		for (Pointcut next : ourUserDependentPointcuts) {
+			if (hasHooks(serverBroadcaster, next) || hasHooks(requestBroadcaster, next)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a value identifying everything about the request which affects the returned content
+	 * of a resource, and which is not already part of the cache key. Responses are only shared
+	 * between requests with the same discriminator. By default, this returns <code>null</code>.
+	 * Override this if resource content depends on the requesting user, e.g. by returning
+	 * the user's ID.
+	 */
+	@Nullable
+	protected String getRequestDiscriminator(RequestDetails theRequestDetails) {
+		return null;
+	}
+
+	/**
+	 * Looks up the cached response for the given request and resource, and if there is one, attaches
+	 * it to the resource so that it will be written as the response body. The resource only needs to
+	 * contain the ID (including the version) and the partition it was read from, so this can be called
+	 * before the stored resource body is loaded.
+	 *
+	 * @return <code>true</code> if a cached response was found. In that case the resource must be
+	 * 	returned to the server as-is, since its content will not be encoded.
+	 */
+	public boolean attachCachedResponse(
+			@Nonnull RequestDetails theRequestDetails, @Nonnull IBaseResource theResource) {
+		String key = createKey(theRequestDetails, theResource);
+		if (key == null) {
+			return false;
+		}
+		byte[] body = get(key);
+		if (body == null) {
+			return false;
+		}
+		theResource.setUserData(ATTACHED_RESPONSE_USER_DATA_KEY, new AttachedResponse(key, body));
+		return true;
+	}
+
+	/**
+	 * Returns the cache key for the given response, using the encoding, pretty printing and summary
+	 * mode requested by the client, or <code>null</code> if it can not be cached
+	 */
+	@Nullable
+	String createKey(RequestDetails theRequestDetails, IBaseResource theResource) {
+		IRestfulServerDefaults server = theRequestDetails.getServer();
+		if (server == null) {
+			return null;
+		}
+		RestfulServerUtils.ResponseEncoding responseEncoding = RestfulServerUtils.determineResponseEncodingNoDefault(
+				theRequestDetails, server.getDefaultResponseEncoding());
+		EncodingEnum encoding =
+				responseEncoding != null ? responseEncoding.getEncoding() : server.getDefaultResponseEncoding();
+		return createKey(
+				theRequestDetails,
+				theResource,
+				encoding,
+				RestfulServerUtils.prettyPrintResponse(server, theRequestDetails),
+				RestfulServerUtils.determineSummaryMode(theRequestDetails));
+	}
+
+	/**
+	 * Returns the cache key for the given response, or <code>null</code> if it can not be cached
+	 */
+	@Nullable
+	String createKey(
+			RequestDetails theRequestDetails,
+			IBaseResource theResource,
+			EncodingEnum theEncoding,
+			boolean thePrettyPrint,
+			Set<SummaryEnum> theSummaryMode) {
+		// _summary=text responses are written as HTML rather than by a parser
+		if (theSummaryMode.contains(SummaryEnum.TEXT) || !isCacheable(theRequestDetails, theResource)) {
+			return null;
+		}
+
+		StringBuilder b = new StringBuilder();
+		b.append(toResourceKey(theResource.getIdElement(), theResource));
+		b.append("/_history/").append(getVersionId(theResource));
+		b.append('|').append(theResource.getStructureFhirVersionEnum());
+		b.append('|').append(theEncoding);
+		b.append('|').append(thePrettyPrint);
+		b.append('|').append(new TreeSet<>(theSummaryMode));
+		b.append('|').append(sorted(ElementsParameter.getElementsValueOrNull(theRequestDetails, false)));
+		b.append('|').append(sorted(ElementsParameter.getElementsValueOrNull(theRequestDetails, true)));
+		b.append('|').append(defaultString(theRequestDetails.getFhirServerBase()));
+		b.append('|').append(defaultString(theRequestDetails.getTenantId()));
+		b.append('|').append(defaultString(toStringOrNull(theResource.getUserData(Constants.RESOURCE_PARTITION_ID))));
+		b.append('|').append(defaultString(getRequestDiscriminator(theRequestDetails)));
+		return b.toString();
+	}
+
+	/**
+	 * Returns the body attached to the resource by {@link #attachCachedResponse(RequestDetails, IBaseResource)}
+	 * if it was attached for the given key, or else the cached body for the key, or <code>null</code>
+	 */
+	@Nullable
+	byte[] get(@Nonnull String theKey, @Nonnull IBaseResource theResource) {
+		Object attached = theResource.getUserData(ATTACHED_RESPONSE_USER_DATA_KEY);
+		if (attached instanceof AttachedResponse && ((AttachedResponse) attached).myKey.equals(theKey)) {
+			return ((AttachedResponse) attached).myBody;
+		}
+		return get(theKey);
+	}
+
+	/**
+	 * Returns the body attached to the resource by {@link #attachCachedResponse(RequestDetails, IBaseResource)},
+	 * or <code>null</code> if there is none
+	 */
+	@Nullable
+	static byte[] getAttachedResponse(@Nullable IBaseResource theResource) {
+		Object attached = theResource != null ? theResource.getUserData(ATTACHED_RESPONSE_USER_DATA_KEY) : null;
+		return attached instanceof AttachedResponse ? ((AttachedResponse) attached).myBody : null;
+	}
+
+	/**
+	 * Returns the cached body for the given key, or <code>null</code>
+	 */
+	@Nullable
+	byte[] get(@Nonnull String theKey) {
+		CacheEntry entry;
+		synchronized (myEntries) {
+			entry = myEntries.get(theKey);
+		}
+		if (entry == null) {
+			myMissCount.incrementAndGet();
+			return null;
+		}
+		myHitCount.incrementAndGet();
+		return entry.myBody;
+	}
+
+	/**
+	 * Stores an encoded body, evicting the least recently used entries if the cache is full.
+	 * Bodies larger than the whole cache are not stored.
+	 */
+	void put(@Nonnull String theKey, @Nonnull IBaseResource theResource, @Nonnull byte[] theBody) {
+		if (theBody.length > myMaxTotalBytes) {
+			return;
+		}
+		String resourceKey = toResourceKey(theResource.getIdElement(), theResource);
+		synchronized (myEntries) {
+			CacheEntry previous = myEntries.put(theKey, new CacheEntry(resourceKey, theBody));
+			if (previous != null) {
+				myTotalBytes -= previous.myBody.length;
+			}
+			myTotalBytes += theBody.length;
+			myKeysByResourceId.computeIfAbsent(resourceKey, t -> new HashSet<>()).add(theKey);
+
+			Iterator<Map.Entry<String, CacheEntry>> iterator = myEntries.entrySet().iterator();
+			while (myTotalBytes > myMaxTotalBytes && iterator.hasNext()) {
+				Map.Entry<String, CacheEntry> eldest = iterator.next();
+				iterator.remove();
+				removeFromIndex(eldest.getKey(), eldest.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Evicts all cached responses for any version of the given resource
+	 */
+	public void invalidate(@Nonnull IIdType theResourceId) {
+		String resourceKey = toResourceKey(theResourceId, null);
+		synchronized (myEntries) {
+			Set<String> keys = myKeysByResourceId.remove(resourceKey);
+			if (keys != null) {
+				for (String next : keys) {
+					CacheEntry removed = myEntries.remove(next);
+					if (removed != null) {
+						myTotalBytes -= removed.myBody.length;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Evicts all cached responses
+	 */
+	public void clear() {
+		synchronized (myEntries) {
+			myEntries.clear();
+			myKeysByResourceId.clear();
+			myTotalBytes = 0;
+		}
+	}
+
+	@Hook(Pointcut.STORAGE_PRECOMMIT_RESOURCE_UPDATED)
+	public void resourceUpdated(IBaseResource theOldResource, IBaseResource theNewResource) {
+		invalidateOnWrite(theNewResource.getIdElement());
+	}
+
+	@Hook(Pointcut.STORAGE_PRECOMMIT_RESOURCE_DELETED)
+	public void resourceDeleted(IBaseResource theResource) {
+		invalidateOnWrite(theResource.getIdElement());
+	}
+
+	private void invalidateOnWrite(IIdType theResourceId) {
+		IIdType resourceId = theResourceId.toVersionless();
+		invalidate(resourceId);
+
+		/*
+		 * A read which starts after the invalidation above but before the writing transaction
+		 * commits still sees the old version, so invalidate again once the transaction has completed
+		 */
+		if (ourTransactionSynchronizationAvailable) {
+			AfterCompletionInvalidator.register(this, resourceId);
+		}
+	}
+
+	/**
+	 * Returns the number of responses which were served from the cache
+	 */
+	public long getHitCount() {
+		return myHitCount.get();
+	}
+
+	/**
+	 * Returns the number of cacheable responses which had to be encoded
+	 */
+	public long getMissCount() {
+		return myMissCount.get();
+	}
+
+	/**
+	 * Returns the number of responses currently cached
+	 */
+	public int size() {
+		synchronized (myEntries) {
+			return myEntries.size();
+		}
+	}
+
+	/**
+	 * Returns the total size in bytes of the responses currently cached
+	 */
+	public long getTotalBytes() {
+		synchronized (myEntries) {
+			return myTotalBytes;
+		}
+	}
+
+	private void removeFromIndex(String theKey, CacheEntry theEntry) {
+		myTotalBytes -= theEntry.myBody.length;
+		Set<String> keys = myKeysByResourceId.get(theEntry.myResourceKey);
+		if (keys != null) {
+			keys.remove(theKey);
+			if (keys.isEmpty()) {
+				myKeysByResourceId.remove(theEntry.myResourceKey);
+			}
+		}
+	}
+
+	private static String toResourceKey(IIdType theId, @Nullable IBaseResource theResource) {
+		String resourceType = theId.getResourceType();
+		if (isBlank(resourceType) && theResource != null) {
+			resourceType = theResource.fhirType();
+		}
+		return defaultString(resourceType) + "/" + theId.getIdPart();
+	}
+
+	private static String getVersionId(IBaseResource theResource) {
+		String retVal = theResource.getIdElement().getVersionIdPart();
+		if (isBlank(retVal) && theResource.getMeta() != null) {
+			retVal = theResource.getMeta().getVersionId();
+		}
+		return retVal;
+	}
+
+	private static boolean hasHooks(@Nullable IInterceptorBroadcaster theBroadcaster, Pointcut thePointcut) {
+		return theBroadcaster != null && theBroadcaster.hasHooks(thePointcut);
+	}
+
+	private static String toStringOrNull(@Nullable Object theValue) {
+		return theValue != null ? theValue.toString() : null;
+	}
+
+	private static boolean isTransactionSynchronizationAvailable() {
+		try {
+			Class.forName("org.springframework.transaction.support.TransactionSynchronizationManager");
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	private static Set<String> sorted(@Nullable Set<String> theValues) {
+		return theValues != null ? new TreeSet<>(theValues) : null;
+	}
+
+	/**
+	 * Kept in its own class so that Spring's transaction classes are only loaded when they are present
+	 */
+	private static class AfterCompletionInvalidator {
+
+		private static void register(EncodedResponseCache theCache, IIdType theResourceId) {
+			if (TransactionSynchronizationManager.isSynchronizationActive()) {
+				TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+					@Override
+					public void afterCompletion(int theStatus) {
+						theCache.invalidate(theResourceId);
+					}
+				});
+			}
+		}
+	}
+
+	private static class AttachedResponse {
+		private final String myKey;
+		private final byte[] myBody;
+
+		private AttachedResponse(String theKey, byte[] theBody) {
+			myKey = theKey;
+			myBody = theBody;
+		}
+	}
+
+	private static class CacheEntry {
+		private final String myResourceKey;
+		private final byte[] myBody;
+
+		private CacheEntry(String theResourceKey, byte[] theBody) {
+			myResourceKey = theResourceKey;
+			myBody = theBody;
+		}
+	}
+}
@@ -103,4 +103,25 @@ public interface IRestfulServerDefaults {
 	 * Returns the interceptor service for this server
 	 */
 	IInterceptorService getInterceptorService();
+
+	/**
+	 * Returns the cache used to store encoded <code>read</code>/<code>vread</code> response bodies,
+	 * or <code>null</code> if responses should always be encoded (this is the default).
+	 *
+	 * @since 8.4.0
+	 */
+	default EncodedResponseCache getEncodedResponseCache() {
+		return null;
+	}
+
+	/**
+	 * Returns the number of search results which are loaded and written at a time when a
+	 * searchset Bundle is streamed to the client, or <code>0</code> if search results should
+	 * be collected and encoded as a complete Bundle (this is the default).
+	 *
+	 * @since 8.4.0
+	 */
+	default int getBundleStreamingBatchSize() {
+		return 0;
+	}
 }
@@ -148,6 +148,8 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 	private boolean myDefaultPrettyPrint = false;
 	private EncodingEnum myDefaultResponseEncoding = EncodingEnum.JSON;
 	private ETagSupportEnum myETagSupport = DEFAULT_ETAG_SUPPORT;
+	private EncodedResponseCache myEncodedResponseCache;
+	private int myBundleStreamingBatchSize;
 	private FhirContext myFhirContext;
 	private boolean myIgnoreServerParsedRequestParameters = true;
 	private String myImplementationDescription;
@@ -644,6 +646,33 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 		myETagSupport = theETagSupport;
 	}
 
+	@Override
+	public EncodedResponseCache getEncodedResponseCache() {
+		return myEncodedResponseCache;
+	}
+
+	/**
+	 * Sets a cache which stores the encoded bodies of <code>read</code> and <code>vread</code>
+	 * responses, so that repeated reads of an unchanged resource version don't need to be
+	 * encoded again. The cache is registered with the {@link #getInterceptorService() interceptor service}
+	 * so that it can be invalidated when resources are updated or deleted. Default is <code>null</code>
+	 * (no caching).
+	 * <p>
+	 * See {@link EncodedResponseCache} for details on when it is safe to enable this cache.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setEncodedResponseCache(EncodedResponseCache theEncodedResponseCache) {
+		if (myEncodedResponseCache != null) {
+			myInterceptorService.unregisterInterceptor(myEncodedResponseCache);
+		}
+		myEncodedResponseCache = theEncodedResponseCache;
+		if (theEncodedResponseCache != null) {
+			myInterceptorService.registerInterceptor(theEncodedResponseCache);
+		}
+	}
+
 	@Override
 	public ElementsSupportEnum getElementsSupport() {
 		return myElementsSupport;
@@ -776,6 +805,47 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 		}
 	}
 
+	@Override
+	public int getBundleStreamingBatchSize() {
+		return myBundleStreamingBatchSize;
+	}
+
+	/**
+	 * If set to a value greater than <code>0</code>, search and paging responses which are
+	 * encoded as JSON are written to the client as the search results are loaded, in batches
+	 * of this many results, instead of being collected into a complete Bundle which is only
+	 * encoded once every resource has been loaded. This reduces the time before the client
+	 * receives the first byte and the memory needed for large pages. The Bundle elements which
+	 * precede the entries (including the total and the paging links) are written first, so the
+	 * response is the same as a non-streamed one.
+	 * <p>
+	 * Streaming is not used for requests where an interceptor is registered for the
+	 * {@link ca.uhn.fhir.interceptor.api.Pointcut#SERVER_OUTGOING_RESPONSE} or
+	 * {@link ca.uhn.fhir.interceptor.api.Pointcut#SERVER_OUTGOING_WRITER_CREATED} pointcuts, since
+	 * these expect to see (or replace) the complete response.
+	 * </p>
+	 * <p>
+	 * A failure which occurs after the first batch has been written can no longer be reported
+	 * with an error status, since the <code>200 OK</code> status has already been sent. Instead,
+	 * the Bundle is completed with a final entry containing an OperationOutcome (with a search
+	 * mode of <code>outcome</code>) which describes the failure, and the
+	 * {@link ca.uhn.fhir.interceptor.api.Pointcut#SERVER_OUTGOING_FAILURE_OPERATIONOUTCOME} pointcut
+	 * is invoked with it. Clients using streaming should check for such an entry.
+	 * </p>
+	 * <p>
+	 * Bundle providers backed by a database (such as the JPA server's) load all batches of a page
+	 * in one transaction so that the page is a consistent snapshot, which means that a database
+	 * connection is held while the page is written to the client. Default is <code>0</code>
+	 * (disabled).
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setBundleStreamingBatchSize(int theBundleStreamingBatchSize) {
+		Validate.isTrue(theBundleStreamingBatchSize >= 0, "theBundleStreamingBatchSize must not be negative");
+		myBundleStreamingBatchSize = theBundleStreamingBatchSize;
+	}
+
 	@Override
 	public Integer getDefaultPageSize() {
 		return myDefaultPageSize;
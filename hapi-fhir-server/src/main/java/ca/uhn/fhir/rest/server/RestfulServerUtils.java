@@ -28,6 +28,7 @@ import ca.uhn.fhir.model.api.IResource;
 import ca.uhn.fhir.model.api.Include;
 import ca.uhn.fhir.model.api.ResourceMetadataKeyEnum;
 import ca.uhn.fhir.model.primitive.InstantDt;
+import ca.uhn.fhir.parser.DeferredResource;
 import ca.uhn.fhir.parser.IParser;
 import ca.uhn.fhir.rest.api.BundleLinks;
 import ca.uhn.fhir.rest.api.Constants;
@@ -65,9 +66,12 @@ import org.hl7.fhir.instance.model.api.IDomainResource;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.instance.model.api.IPrimitiveType;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
@@ -903,6 +907,17 @@ public class RestfulServerUtils {
 			throws IOException {
 		IRestfulResponse response = theRequestDetails.getResponse();
 
+		/*
+		 * A resource which has not been parsed yet can only be written by a parser, so parse
+		 * it now if its content is going to be used in any other way
+		 */
+		DeferredResource<?> deferredResource = DeferredResource.fromResource(theResource);
+		if (deferredResource != null
+				&& (theResource instanceof IBaseBinary || theSummaryMode.contains(SummaryEnum.TEXT))) {
+			theResource = deferredResource.getResource();
+			deferredResource = null;
+		}
+
 		// Determine response encoding
 		ResponseEncoding responseEncoding = RestfulServerUtils.determineResponseEncodingNoDefault(
 				theRequestDetails, theServer.getDefaultResponseEncoding());
@@ -1026,6 +1041,48 @@ public class RestfulServerUtils {
 		}
 		String charset = Constants.CHARSET_NAME_UTF8;
 
+		/*
+		 * When the resource is going to be encoded by a parser and nothing needs to wrap the
+		 * response writer, encode straight to the response bytes. This avoids transcoding
+		 * the document through an intermediate character buffer.
+		 */
+		if (theResource != null
+				&& !encodingDomainResourceAsText
+				&& (theServer.getInterceptorService() == null
+						|| !theServer.getInterceptorService().hasHooks(Pointcut.SERVER_OUTGOING_WRITER_CREATED))) {
+			OutputStream outputStream =
+					response.getResponseUtf8OutputStream(theStatusCode, contentType, respondGzip);
+			if (outputStream != null) {
+				FhirVersionEnum forVersion = theResource.getStructureFhirVersionEnum();
+				IParser parser = getNewParser(theServer.getFhirContext(), forVersion, theRequestDetails);
+
+				EncodedResponseCache cache = theServer.getEncodedResponseCache();
+				String cacheKey = null;
+				byte[] body;
+				if (cache != null) {
+					cacheKey = cache.createKey(theRequestDetails, theResource);
+				}
+				if (cacheKey != null) {
+					body = cache.get(cacheKey, theResource);
+				} else {
+					body = EncodedResponseCache.getAttachedResponse(theResource);
+				}
+
+				if (body != null) {
+					outputStream.write(body);
+				} else if (cacheKey != null) {
+					ByteArrayOutputStream bufferStream = new ByteArrayOutputStream();
+					encodeResourceToOutputStream(parser, theResource, deferredResource, bufferStream);
+					body = bufferStream.toByteArray();
+					cache.put(cacheKey, theResource, body);
+					outputStream.write(body);
+				} else {
+					encodeResourceToOutputStream(parser, theResource, deferredResource, outputStream);
+				}
+				return response.commitResponse(outputStream);
+			}
+		}
+
 		Writer writer = response.getResponseWriter(theStatusCode, contentType, charset, respondGzip);
 
 		// Interceptor call: SERVER_OUTGOING_WRITER_CREATED
@@ -1058,12 +1115,35 @@ public class RestfulServerUtils {
 		} else {
 			FhirVersionEnum forVersion = theResource.getStructureFhirVersionEnum();
 			IParser parser = getNewParser(theServer.getFhirContext(), forVersion, theRequestDetails);
-			parser.encodeResourceToWriter(theResource, writer);
+			byte[] cachedBody = EncodedResponseCache.getAttachedResponse(theResource);
+			if (cachedBody != null) {
+				// The resource only contains the ID, and the storage module found the response in the cache
+				writer.write(new String(cachedBody, StandardCharsets.UTF_8));
+			} else if (deferredResource != null) {
+				deferredResource.encodeToWriter(parser, writer);
+			} else {
+				parser.encodeResourceToWriter(theResource, writer);
+			}
 		}
 
 		return response.commitResponse(writer);
 	}
 
+	private static void encodeResourceToOutputStream(
+			IParser theParser,
+			IBaseResource theResource,
+			@Nullable DeferredResource<?> theDeferredResource,
+			OutputStream theOutputStream)
+			throws IOException {
+		if (theDeferredResource != null) {
+			Writer writer = new OutputStreamWriter(theOutputStream, StandardCharsets.UTF_8);
+			theDeferredResource.encodeToWriter(theParser, writer);
+			writer.flush();
+		} else {
+			theParser.encodeResourceToOutputStream(theResource, theOutputStream);
+		}
+	}
+
 	private static String getBinaryContentTypeOrDefault(IBaseBinary theBinary) {
 		String contentType;
 		if (isNotBlank(theBinary.getContentType())) {
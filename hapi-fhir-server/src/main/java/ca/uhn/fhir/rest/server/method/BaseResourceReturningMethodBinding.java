@@ -28,6 +28,7 @@ import ca.uhn.fhir.interceptor.api.Pointcut;
 import ca.uhn.fhir.model.api.IResource;
 import ca.uhn.fhir.model.api.Include;
 import ca.uhn.fhir.model.valueset.BundleTypeEnum;
+import ca.uhn.fhir.parser.DeferredResource;
 import ca.uhn.fhir.rest.api.BundleLinks;
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.IVersionSpecificBundleFactory;
@@ -141,6 +142,17 @@ public abstract class BaseResourceReturningMethodBinding extends BaseMethodBindi
 	}
 
 	public IBaseResource doInvokeServer(IRestfulServer<?> theServer, RequestDetails theRequest) {
+		// Callers of this method use the resource content, so never hand them an unparsed resource
+		return DeferredResource.inflate(doInvokeServer(theServer, theRequest, false));
+	}
+
+	/**
+	 * @param theAllowStreaming If <code>true</code>, a Bundle response may be streamed directly to the
+	 *                          client (see {@link ca.uhn.fhir.rest.server.RestfulServer#setBundleStreamingBatchSize(int)}),
+	 *                          in which case <code>null</code> is returned
+	 */
+	protected IBaseResource doInvokeServer(
+			IRestfulServer<?> theServer, RequestDetails theRequest, boolean theAllowStreaming) {
 		Object[] params = createMethodParams(theRequest);
 
 		Object resultObj = invokeServer(theServer, theRequest, params);
@@ -198,7 +210,7 @@ public abstract class BaseResourceReturningMethodBinding extends BaseMethodBindi
 							count,
 							responseBundleType,
 							linkSelf);
-					responseObject = myResponseBundleBuilder.buildResponseBundle(responseBundleRequest);
+					responseObject = buildOrStreamResponseBundle(responseBundleRequest, theAllowStreaming);
 				}
 				break;
 			}
@@ -221,6 +233,22 @@ public abstract class BaseResourceReturningMethodBinding extends BaseMethodBindi
 		return responseObject;
 	}
 
+	/**
+	 * Builds the response Bundle, or writes it directly to the client and returns <code>null</code>
+	 * if streaming is allowed and supported for this request
+	 */
+	protected IBaseBundle buildOrStreamResponseBundle(
+			ResponseBundleRequest theResponseBundleRequest, boolean theAllowStreaming) {
+		if (theAllowStreaming) {
+			StreamingBundleWriter writer = StreamingBundleWriter.newInstanceIfSupported(theResponseBundleRequest);
+			if (writer != null) {
+				myResponseBundleBuilder.streamResponseBundle(theResponseBundleRequest, writer);
+				return null;
+			}
+		}
+		return myResponseBundleBuilder.buildResponseBundle(theResponseBundleRequest);
+	}
+
 	private ResponseBundleRequest buildResponseBundleRequest(
 			IRestfulServer<?> theServer,
 			RequestDetails theRequest,
@@ -272,7 +300,7 @@ public abstract class BaseResourceReturningMethodBinding extends BaseMethodBindi
 	@Override
 	public Object invokeServer(IRestfulServer<?> theServer, RequestDetails theRequest)
 			throws BaseServerResponseException, IOException {
-		IBaseResource response = doInvokeServer(theServer, theRequest);
+		IBaseResource response = doInvokeServer(theServer, theRequest, true);
 		/*
 		When we write directly to an HttpServletResponse, the invocation returns null. However, we still want to invoke
 		the SERVER_OUTGOING_RESPONSE pointcut.
@@ -294,6 +322,12 @@ public abstract class BaseResourceReturningMethodBinding extends BaseMethodBindi
 			return null;
 		} else {
 			Set<SummaryEnum> summaryMode = RestfulServerUtils.determineSummaryMode(theRequest);
+			// Hooks may inspect or replace the response, so they always see the parsed resource
+			if (theRequest.getInterceptorBroadcaster() != null
+					&& theRequest.getInterceptorBroadcaster().hasHooks(Pointcut.SERVER_OUTGOING_RESPONSE)) {
+				response = DeferredResource.inflate(response);
+			}
+
 			ResponseDetails responseDetails = new ResponseDetails();
 			responseDetails.setResponseResource(response);
 			responseDetails.setResponseCode(responseCode);
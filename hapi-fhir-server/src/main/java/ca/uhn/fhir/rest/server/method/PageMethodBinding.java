@@ -74,17 +74,24 @@ public class PageMethodBinding extends BaseResourceReturningMethodBinding {
 	public Object invokeServer(IRestfulServer<?> theServer, RequestDetails theRequest, Object[] theMethodParams)
 			throws InvalidRequestException, InternalErrorException {
 		return handlePagingRequest(
-				theServer, theRequest, theRequest.getParameters().get(Constants.PARAM_PAGINGACTION)[0]);
+				theServer, theRequest, theRequest.getParameters().get(Constants.PARAM_PAGINGACTION)[0], false);
 	}
 
 	@Override
-	public IBaseResource doInvokeServer(IRestfulServer<?> theServer, RequestDetails theRequest) {
+	protected IBaseResource doInvokeServer(
+			IRestfulServer<?> theServer, RequestDetails theRequest, boolean theAllowStreaming) {
 		return handlePagingRequest(
-				theServer, theRequest, theRequest.getParameters().get(Constants.PARAM_PAGINGACTION)[0]);
+				theServer,
+				theRequest,
+				theRequest.getParameters().get(Constants.PARAM_PAGINGACTION)[0],
+				theAllowStreaming);
 	}
 
 	private IBaseResource handlePagingRequest(
-			IRestfulServer<?> theServer, RequestDetails theRequest, String thePagingAction) {
+			IRestfulServer<?> theServer,
+			RequestDetails theRequest,
+			String thePagingAction,
+			boolean theAllowStreaming) {
 		IPagingProvider pagingProvider = theServer.getPagingProvider();
 		if (pagingProvider == null) {
 			throw new InvalidRequestException(Msg.code(416) + "This server does not support paging");
@@ -96,7 +103,7 @@ public class PageMethodBinding extends BaseResourceReturningMethodBinding {
 
 		ResponseBundleRequest responseBundleRequest =
 				buildResponseBundleRequest(theServer, theRequest, thePagingAction, pagingProvider);
-		return myResponseBundleBuilder.buildResponseBundle(responseBundleRequest);
+		return buildOrStreamResponseBundle(responseBundleRequest, theAllowStreaming);
 	}
 
 	private ResponseBundleRequest buildResponseBundleRequest(
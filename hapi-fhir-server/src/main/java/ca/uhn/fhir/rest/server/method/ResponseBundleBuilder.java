@@ -29,6 +29,7 @@ import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.IPagingProvider;
 import ca.uhn.fhir.rest.server.RestfulServerUtils;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.instance.model.api.IBaseBundle;
 import org.hl7.fhir.instance.model.api.IBaseOperationOutcome;
@@ -54,7 +55,7 @@ public class ResponseBundleBuilder {
 	}
 
 	IBaseBundle buildResponseBundle(ResponseBundleRequest theResponseBundleRequest) {
-		final ResponsePage responsePage = buildResponsePage(theResponseBundleRequest);
+		final ResponsePage responsePage = buildResponsePage(theResponseBundleRequest, null);
 
 		removeNulls(responsePage.getResourceList());
 		validateIds(responsePage.getResourceList());
@@ -64,6 +65,42 @@ public class ResponseBundleBuilder {
 		return buildBundle(theResponseBundleRequest, responsePage, links);
 	}
 
+	/**
+	 * Writes the response Bundle to the client using the given writer, passing each batch of
+	 * resources to the writer as soon as it has been loaded by the bundle provider. The Bundle
+	 * envelope (including the links) is built when the first batch is written, from the counts
+	 * the bundle provider has recorded on the page builder by then.
+	 */
+	void streamResponseBundle(ResponseBundleRequest theResponseBundleRequest, StreamingBundleWriter theWriter) {
+		try {
+			buildResponsePage(theResponseBundleRequest, theWriter);
+		} catch (RuntimeException e) {
+			if (!theWriter.isStarted()) {
+				throw e;
+			}
+			theWriter.finishWithFailure(e);
+			return;
+		}
+
+		theWriter.finish();
+	}
+
+	private IBaseBundle buildStreamedEnvelope(
+			ResponseBundleRequest theResponseBundleRequest,
+			ResponsePage.ResponsePageBuilder theResponsePageBuilder,
+			@Nullable String theSearchId,
+			int theStreamedResourceCount) {
+		ResponsePage responsePage = theResponsePageBuilder
+				.setSearchId(theSearchId)
+				.setResources(new ArrayList<>())
+				.setStreamedResourceCount(theStreamedResourceCount)
+				.build();
+
+		BundleLinks links = buildLinks(theResponseBundleRequest, responsePage);
+
+		return buildBundle(theResponseBundleRequest, responsePage, links);
+	}
+
 	private static IBaseBundle buildBundle(
 			ResponseBundleRequest theResponseBundleRequest, ResponsePage pageResponse, BundleLinks links) {
 		final IRestfulServer<?> server = theResponseBundleRequest.server;
@@ -71,8 +108,13 @@ public class ResponseBundleBuilder {
 				server.getFhirContext().newBundleFactory();
 		final IBundleProvider bundleProvider = theResponseBundleRequest.bundleProvider;
 
+		Integer total = bundleProvider.size();
+		if (total == null) {
+			total = bundleProvider.estimatedSize();
+		}
+
 		bundleFactory.addRootPropertiesToBundle(
-				bundleProvider.getUuid(), links, bundleProvider.size(), bundleProvider.getPublished());
+				bundleProvider.getUuid(), links, total, bundleProvider.getPublished());
 		bundleFactory.addResourcesToBundle(
 				new ArrayList<>(pageResponse.getResourceList()),
 				theResponseBundleRequest.bundleType,
@@ -83,7 +125,8 @@ public class ResponseBundleBuilder {
 		return (IBaseBundle) bundleFactory.getResourceBundle();
 	}
 
-	private ResponsePage buildResponsePage(ResponseBundleRequest theResponseBundleRequest) {
+	private ResponsePage buildResponsePage(
+			ResponseBundleRequest theResponseBundleRequest, @Nullable StreamingBundleWriter theWriter) {
 		final IRestfulServer<?> server = theResponseBundleRequest.server;
 		final IBundleProvider bundleProvider = theResponseBundleRequest.bundleProvider;
 		final RequestedPage requestedPage = theResponseBundleRequest.requestedPage;
@@ -92,15 +135,13 @@ public class ResponseBundleBuilder {
 
 		ResponsePage.ResponsePageBuilder responsePageBuilder = new ResponsePage.ResponsePageBuilder();
 
-		int numToReturn;
+		final int numToReturn;
 		String searchId = null;
 
-		if (requestedPage.offset != null || !server.canStoreSearchResults()) {
+		boolean offsetPaging = requestedPage.offset != null || !server.canStoreSearchResults();
+		if (offsetPaging) {
 			pageSize = offsetCalculatePageSize(server, requestedPage, bundleProvider.size());
 			numToReturn = pageSize;
-
-			resourceList = offsetBuildResourceList(bundleProvider, requestedPage, numToReturn, responsePageBuilder);
-			RestfulServerUtils.validateResourceListNotNull(resourceList);
 		} else {
 			pageSize = pagingCalculatePageSize(requestedPage, server.getPagingProvider());
 
@@ -110,23 +151,42 @@ public class ResponseBundleBuilder {
 			} else {
 				numToReturn = Math.min(pageSize, size.intValue() - theResponseBundleRequest.offset);
 			}
-
-			resourceList =
-					pagingBuildResourceList(theResponseBundleRequest, bundleProvider, numToReturn, responsePageBuilder);
-			RestfulServerUtils.validateResourceListNotNull(resourceList);
-
-			searchId = pagingBuildSearchId(theResponseBundleRequest, numToReturn, bundleProvider.size());
 		}
 
 		// We should leave the IBundleProvider to populate these values (specifically resourceList).
 		// But since we haven't updated all such providers, we will
 		// build it here (this is at best 'duplicating' work).
 		responsePageBuilder
-				.setSearchId(searchId)
 				.setPageSize(pageSize)
 				.setNumToReturn(numToReturn)
-				.setBundleProvider(bundleProvider)
-				.setResources(resourceList);
+				.setBundleProvider(bundleProvider);
+
+		if (theWriter != null) {
+			theWriter.setEnvelopeSupplier(() -> buildStreamedEnvelope(
+					theResponseBundleRequest,
+					responsePageBuilder,
+					offsetPaging
+							? null
+							: pagingBuildSearchId(theResponseBundleRequest, numToReturn, bundleProvider.size()),
+					theWriter.getResourceCount()));
+		}
+
+		if (offsetPaging) {
+			resourceList = offsetBuildResourceList(
+					bundleProvider, requestedPage, numToReturn, responsePageBuilder, theWriter);
+			RestfulServerUtils.validateResourceListNotNull(resourceList);
+		} else {
+			resourceList = pagingBuildResourceList(
+					theResponseBundleRequest, bundleProvider, numToReturn, responsePageBuilder, theWriter);
+			RestfulServerUtils.validateResourceListNotNull(resourceList);
+
+			// When streaming, the search ID was determined when the Bundle envelope was written
+			if (theWriter == null) {
+				searchId = pagingBuildSearchId(theResponseBundleRequest, numToReturn, bundleProvider.size());
+			}
+		}
+
+		responsePageBuilder.setSearchId(searchId).setResources(resourceList);
 
 		return responsePageBuilder.build();
 	}
@@ -157,13 +217,16 @@ public class ResponseBundleBuilder {
 			ResponseBundleRequest theResponseBundleRequest,
 			IBundleProvider theBundleProvider,
 			int theNumToReturn,
-			ResponsePage.ResponsePageBuilder theResponsePageBuilder) {
+			ResponsePage.ResponsePageBuilder theResponsePageBuilder,
+			@Nullable StreamingBundleWriter theWriter) {
 		final List<IBaseResource> retval;
 		if (theNumToReturn > 0 || theBundleProvider.getCurrentPageId() != null) {
-			retval = theBundleProvider.getResources(
+			retval = loadResources(
+					theBundleProvider,
 					theResponseBundleRequest.offset,
 					theNumToReturn + theResponseBundleRequest.offset,
-					theResponsePageBuilder);
+					theResponsePageBuilder,
+					theWriter);
 		} else {
 			retval = Collections.emptyList();
 		}
@@ -182,21 +245,41 @@ public class ResponseBundleBuilder {
 			IBundleProvider theBundleProvider,
 			RequestedPage theRequestedPage,
 			int theNumToReturn,
-			ResponsePage.ResponsePageBuilder theResponsePageBuilder) {
+			ResponsePage.ResponsePageBuilder theResponsePageBuilder,
+			@Nullable StreamingBundleWriter theWriter) {
 		final List<IBaseResource> retval;
 		if ((theRequestedPage.offset != null && !myIsOffsetModeHistory)
 				|| theBundleProvider.getCurrentPageOffset() != null) {
 			// When offset query is done theResult already contains correct amount (+ their includes etc.) so return
 			// everything
-			retval = theBundleProvider.getResources(0, Integer.MAX_VALUE, theResponsePageBuilder);
+			retval = loadResources(theBundleProvider, 0, Integer.MAX_VALUE, theResponsePageBuilder, theWriter);
 		} else if (theNumToReturn > 0) {
-			retval = theBundleProvider.getResources(0, theNumToReturn, theResponsePageBuilder);
+			retval = loadResources(theBundleProvider, 0, theNumToReturn, theResponsePageBuilder, theWriter);
 		} else {
 			retval = Collections.emptyList();
 		}
 		return retval;
 	}
 
+	/**
+	 * Loads the requested resources, or streams them to the writer if one is provided (in which
+	 * case an empty list is returned)
+	 */
+	private static List<IBaseResource> loadResources(
+			IBundleProvider theBundleProvider,
+			int theFromIndex,
+			int theToIndex,
+			ResponsePage.ResponsePageBuilder theResponsePageBuilder,
+			@Nullable StreamingBundleWriter theWriter) {
+		if (theWriter == null) {
+			return theBundleProvider.getResources(theFromIndex, theToIndex, theResponsePageBuilder);
+		}
+
+		theBundleProvider.streamResources(
+				theFromIndex, theToIndex, theResponsePageBuilder, theWriter.getBatchSize(), theWriter::writeBatch);
+		return new ArrayList<>();
+	}
+
 	private static int offsetCalculatePageSize(
 			IRestfulServer<?> server, RequestedPage theRequestedPage, Integer theNumTotalResults) {
 		final int retval;
@@ -212,7 +295,7 @@ public class ResponseBundleBuilder {
 		return retval;
 	}
 
-	private static void validateIds(List<IBaseResource> theResourceList) {
+	static void validateIds(List<IBaseResource> theResourceList) {
 		/*
 		 * Make sure all returned resources have an ID (if not, this is a bug
 		 * in the user server code)
@@ -228,7 +311,7 @@ public class ResponseBundleBuilder {
 		}
 	}
 
-	private static void removeNulls(List<IBaseResource> resourceList) {
+	static void removeNulls(List<IBaseResource> resourceList) {
 		/*
 		 * Remove any null entries in the list - This generally shouldn't happen but can if
 		 * data has been manually purged from the JPA database
@@ -20,6 +20,7 @@
 package ca.uhn.fhir.rest.server.method;
 
 import ca.uhn.fhir.rest.api.BundleLinks;
+import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.server.RestfulServerUtils;
 import org.apache.commons.lang3.ObjectUtils;
@@ -28,7 +29,9 @@ import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This is an intermediate record object that holds all the fields required to make the final bundle that will be returned to the client.
@@ -44,6 +47,11 @@ public class ResponsePage {
 	 * The list of resources that will be used to create the bundle
 	 */
 	private final List<IBaseResource> myResourceList;
+	/**
+	 * The number of resources in the page. This is the size of the resource list,
+	 * unless the resources were streamed to the client instead of being collected.
+	 */
+	private final int myResourceCount;
 	/**
 	 * The total number of results that matched the search
 	 */
@@ -120,9 +128,11 @@ public class ResponsePage {
 			int theIncludedResourceCount,
 			int theOmittedResourceCount,
 			int theTotalRequestedResourcesFetched,
+			int theStreamedResourceCount,
 			IBundleProvider theBundleProvider) {
 		mySearchId = theSearchId;
 		myResourceList = theResourceList;
+		myResourceCount = theStreamedResourceCount >= 0 ? theStreamedResourceCount : theResourceList.size();
 		myPageSize = thePageSize;
 		myNumToReturn = theNumToReturn;
 		myIncludedResourceCount = theIncludedResourceCount;
@@ -134,7 +144,7 @@ public class ResponsePage {
 	}
 
 	public int size() {
-		return myResourceList.size();
+		return myResourceCount;
 	}
 
 	public List<IBaseResource> getResourceList() {
@@ -260,7 +270,7 @@ public class ResponsePage {
 			// calculation:
 			// resourceList.size - included resources + omitted resources == pagesize
 			// -> we (most likely) have more resources
-			if (myPageSize == myResourceList.size() - myIncludedResourceCount + myOmittedResourceCount) {
+			if (myPageSize == myResourceCount - myIncludedResourceCount + myOmittedResourceCount) {
 				ourLog.warn(
 						"Returning a next page based on calculated resource count."
 								+ " This could be inaccurate if the exact number of resources were fetched is equal to the pagesize requested. "
@@ -291,7 +301,7 @@ public class ResponsePage {
 							myResponseBundleRequest.requestDetails.getTenantId(),
 							ObjectUtils.defaultIfNull(myRequestedPage.offset, 0) + myNumToReturn,
 							myNumToReturn,
-							myResponseBundleRequest.getRequestParameters());
+							getOffsetPagingParameters(myBundleProvider.getNextPageSearchAfter()));
 					break;
 				case BUNDLE_PROVIDER_PAGE_IDS:
 					next = RestfulServerUtils.createPagingLink(
@@ -321,6 +331,20 @@ public class ResponsePage {
 		}
 	}
 
+	/**
+	 * A keyset token from the request only describes the position of the current page, so it
+	 * is never carried over into another page link. Only the next page link gets a (new) token,
+	 * and only if the bundle provider supplied one.
+	 */
+	private Map<String, String[]> getOffsetPagingParameters(String theSearchAfter) {
+		Map<String, String[]> retVal = new HashMap<>(myResponseBundleRequest.getRequestParameters());
+		retVal.remove(Constants.PARAM_SEARCH_AFTER);
+		if (StringUtils.isNotBlank(theSearchAfter)) {
+			retVal.put(Constants.PARAM_SEARCH_AFTER, new String[] {theSearchAfter});
+		}
+		return retVal;
+	}
+
 	private boolean hasPreviousPage() {
 		determinePagingStyle();
 		switch (myPagingStyle) {
@@ -362,7 +386,7 @@ public class ResponsePage {
 								myResponseBundleRequest.requestDetails.getTenantId(),
 								start,
 								myPageSize,
-								myResponseBundleRequest.getRequestParameters());
+								getOffsetPagingParameters(null));
 					}
 					break;
 				case BUNDLE_PROVIDER_PAGE_IDS:
@@ -408,6 +432,7 @@ public class ResponsePage {
 		private int myOmittedResourceCount;
 		private IBundleProvider myBundleProvider;
 		private int myTotalRequestedResourcesFetched = -1;
+		private int myStreamedResourceCount = -1;
 
 		public ResponsePageBuilder setOmittedResourceCount(int theOmittedResourceCount) {
 			myOmittedResourceCount = theOmittedResourceCount;
@@ -449,6 +474,18 @@ public class ResponsePage {
 			return this;
 		}
 
+		/**
+		 * Sets the number of resources which have been written directly to the client as
+		 * they were loaded (see {@link IBundleProvider#streamResources}). When set, this
+		 * count is used for paging calculations instead of the size of the resource list.
+		 *
+		 * @since 8.4.0
+		 */
+		public ResponsePageBuilder setStreamedResourceCount(int theStreamedResourceCount) {
+			myStreamedResourceCount = theStreamedResourceCount;
+			return this;
+		}
+
 		/**
 		 * Combine this builder with a second buider.
 		 * Useful if a second page is requested, but you do not wish to
@@ -483,6 +520,7 @@ public class ResponsePage {
 					myIncludedResourceCount, // included count
 					myOmittedResourceCount, // omitted resources
 					myTotalRequestedResourcesFetched, // total count of requested resources
+					myStreamedResourceCount, // streamed resource count
 					myBundleProvider // the bundle provider
 					);
 		}
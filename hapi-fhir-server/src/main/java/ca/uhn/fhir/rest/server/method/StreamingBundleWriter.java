@@ -0,0 +1,333 @@
+/*
+ * #%L
+ * HAPI FHIR - Server Framework
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.rest.server.method;
+
+import ca.uhn.fhir.context.BaseRuntimeChildDefinition;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.model.api.ResourceMetadataKeyEnum;
+import ca.uhn.fhir.model.valueset.BundleEntrySearchModeEnum;
+import ca.uhn.fhir.parser.IJsonLikeParser;
+import ca.uhn.fhir.parser.IParser;
+import ca.uhn.fhir.parser.json.BaseJsonLikeWriter;
+import ca.uhn.fhir.parser.json.jackson.JacksonStructure;
+import ca.uhn.fhir.rest.api.BundleLinks;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.EncodingEnum;
+import ca.uhn.fhir.rest.api.IVersionSpecificBundleFactory;
+import ca.uhn.fhir.rest.api.SummaryEnum;
+import ca.uhn.fhir.rest.api.server.IRestfulResponse;
+import ca.uhn.fhir.rest.api.server.IRestfulServer;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.RestfulServerUtils;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import ca.uhn.fhir.util.DateUtils;
+import ca.uhn.fhir.util.OperationOutcomeUtil;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.Validate;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.instance.model.api.IBaseBundle;
+import org.hl7.fhir.instance.model.api.IBaseOperationOutcome;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Writes a response Bundle to the client one batch of entries at a time, so that the
+ * first entries can be sent before the rest of the page has been loaded (see
+ * {@link ca.uhn.fhir.rest.server.RestfulServer#setBundleStreamingBatchSize(int)}).
+ * <p>
+ * The whole Bundle is written by the normal JSON parser to a single JSON writer. When the
+ * first batch is ready, the Bundle envelope (id, meta, type, total and links) is encoded
+ * with its JSON object left open, and each batch is then encoded as Bundle entries using the
+ * same writer, so the response is identical to a Bundle built and encoded in one go.
+ * </p>
+ * <p>
+ * Once the first entries have been sent, the HTTP status can no longer be changed. If
+ * loading a later batch fails, the Bundle is completed with a final entry holding an
+ * OperationOutcome (with a search mode of <code>outcome</code>) which describes the
+ * failure, so that clients can tell that the page is incomplete.
+ * </p>
+ */
+class StreamingBundleWriter {
+
+	private static final Logger ourLog = LoggerFactory.getLogger(StreamingBundleWriter.class);
+
+	private final ResponseBundleRequest myResponseBundleRequest;
+	private final IRestfulResponse myResponse;
+	private final String myContentType;
+	private final IJsonLikeParser myParser;
+	private Supplier<IBaseBundle> myEnvelopeSupplier;
+	private OutputStream myOutputStream;
+	private BaseJsonLikeWriter myJsonWriter;
+	private boolean myWroteEntries;
+	private int myResourceCount;
+
+	private StreamingBundleWriter(
+			ResponseBundleRequest theResponseBundleRequest,
+			IRestfulResponse theResponse,
+			String theContentType,
+			IJsonLikeParser theParser) {
+		myResponseBundleRequest = theResponseBundleRequest;
+		myResponse = theResponse;
+		myContentType = theContentType;
+		myParser = theParser;
+	}
+
+	/**
+	 * Sets the supplier of the Bundle envelope, meaning the Bundle without any entries. It is
+	 * called once, when the response is started, so the links and counts it contains can
+	 * reflect what has been loaded up to that point.
+	 */
+	void setEnvelopeSupplier(Supplier<IBaseBundle> theEnvelopeSupplier) {
+		myEnvelopeSupplier = theEnvelopeSupplier;
+	}
+
+	/**
+	 * Returns the number of resources written so far
+	 */
+	int getResourceCount() {
+		return myResourceCount;
+	}
+
+	int getBatchSize() {
+		return myResponseBundleRequest.server.getBundleStreamingBatchSize();
+	}
+
+	/**
+	 * Returns <code>true</code> once the response has been opened, after which failures
+	 * can no longer be returned as a normal error response
+	 */
+	boolean isStarted() {
+		return myOutputStream != null;
+	}
+
+	/**
+	 * Encodes the given resources as Bundle entries and writes them to the client
+	 */
+	void writeBatch(List<IBaseResource> theResources) {
+		List<IBaseResource> resources = new ArrayList<>(theResources);
+		ResponseBundleBuilder.removeNulls(resources);
+		ResponseBundleBuilder.validateIds(resources);
+		if (resources.isEmpty()) {
+			return;
+		}
+		myResourceCount += resources.size();
+
+		ensureStarted();
+		writeEntries(resources);
+		flush();
+	}
+
+	/**
+	 * Completes the Bundle and the response
+	 */
+	void finish() {
+		ensureStarted();
+		finishBundle();
+	}
+
+	/**
+	 * Completes a Bundle whose entries could not all be loaded. Must only be called once
+	 * the response has been started, since the failure can then no longer be returned
+	 * as an error status. The failure is described by an OperationOutcome in a final
+	 * entry, and is not rethrown.
+	 */
+	void finishWithFailure(Exception theException) {
+		Validate.isTrue(isStarted(), "Response has not been started");
+		ourLog.error(
+				Msg.code(2800) + "Failed to load Bundle entries after the response had been started: {}",
+				theException.toString(),
+				theException);
+
+		FhirContext ctx = myResponseBundleRequest.server.getFhirContext();
+		IBaseOperationOutcome outcome = OperationOutcomeUtil.newInstance(ctx);
+		OperationOutcomeUtil.addIssue(
+				ctx,
+				outcome,
+				"fatal",
+				"Failed to load all entries of this page, the Bundle is incomplete: " + theException.getMessage(),
+				null,
+				"exception");
+		ResourceMetadataKeyEnum.ENTRY_SEARCH_MODE.put(outcome, BundleEntrySearchModeEnum.OUTCOME);
+		BaseResourceReturningMethodBinding.callOutgoingFailureOperationOutcomeHook(
+				myResponseBundleRequest.requestDetails, outcome);
+
+		try {
+			writeEntries(Collections.singletonList(outcome));
+			finishBundle();
+		} catch (InternalErrorException e) {
+			// Most likely the client has gone away, so there is nobody left to tell
+			ourLog.debug("Failed to complete streamed Bundle", e);
+		}
+	}
+
+	private void writeEntries(List<IBaseResource> theResources) {
+		IRestfulServer<?> server = myResponseBundleRequest.server;
+		IVersionSpecificBundleFactory bundleFactory = server.getFhirContext().newBundleFactory();
+
+		// The root properties provide the base URL used for Bundle.entry.fullUrl
+		BundleLinks links = new BundleLinks(
+				myResponseBundleRequest.requestDetails.getFhirServerBase(),
+				myResponseBundleRequest.includes,
+				false,
+				myResponseBundleRequest.bundleType);
+		bundleFactory.addRootPropertiesToBundle(null, links, null, null);
+		bundleFactory.addResourcesToBundle(
+				theResources,
+				myResponseBundleRequest.bundleType,
+				links.serverBase,
+				server.getBundleInclusionRule(),
+				myResponseBundleRequest.includes);
+
+		IBaseResource bundle = bundleFactory.getResourceBundle();
+		BaseRuntimeChildDefinition entryChild =
+				server.getFhirContext().getResourceDefinition(bundle).getChildByName("entry");
+		try {
+			for (IBase nextEntry : entryChild.getAccessor().getValues(bundle)) {
+				if (!myWroteEntries) {
+					myJsonWriter.beginArray("entry");
+					myWroteEntries = true;
+				}
+				myParser.encodeToJsonLikeWriter(nextEntry, myJsonWriter);
+			}
+		} catch (IOException e) {
+			throw newWriteFailure(e);
+		}
+	}
+
+	private void finishBundle() {
+		try {
+			if (myWroteEntries) {
+				myJsonWriter.endArray();
+			}
+			myJsonWriter.endObject();
+			myJsonWriter.close();
+			myResponse.commitResponse(myOutputStream);
+		} catch (IOException e) {
+			throw newWriteFailure(e);
+		}
+	}
+
+	/**
+	 * The response is only opened once the first batch has been loaded, so that a failure
+	 * while loading the first batch can still be returned as a normal error response
+	 */
+	private void ensureStarted() {
+		if (myOutputStream != null) {
+			return;
+		}
+
+		Validate.notNull(myEnvelopeSupplier, "No envelope supplier has been set");
+		IBaseBundle envelope = myEnvelopeSupplier.get();
+
+		IPrimitiveType<Date> published = myResponseBundleRequest.bundleProvider.getPublished();
+		if (published != null && !published.isEmpty()) {
+			myResponse.addHeader(Constants.HEADER_LAST_MODIFIED, DateUtils.formatDate(published.getValue()));
+		}
+
+		try {
+			myOutputStream = myResponse.getResponseUtf8OutputStream(
+					Constants.STATUS_HTTP_200_OK,
+					myContentType,
+					myResponseBundleRequest.requestDetails.isRespondGzip());
+			Validate.notNull(myOutputStream, "Response does not support streaming");
+
+			myJsonWriter = new JacksonStructure().getJsonLikeWriter(myOutputStream);
+			myParser.encodeResourceToJsonLikeWriter(envelope, myJsonWriter, false);
+		} catch (IOException e) {
+			throw newWriteFailure(e);
+		}
+	}
+
+	private void flush() {
+		try {
+			myJsonWriter.flush();
+			myOutputStream.flush();
+		} catch (IOException e) {
+			throw newWriteFailure(e);
+		}
+	}
+
+	private static InternalErrorException newWriteFailure(IOException theCause) {
+		return new InternalErrorException(
+				Msg.code(2783) + "Failed to write streamed Bundle: " + theCause.getMessage(), theCause);
+	}
+
+	/**
+	 * Returns a writer if the Bundle for the given request can be streamed, or <code>null</code>
+	 * if it should be built and returned normally
+	 */
+	@Nullable
+	static StreamingBundleWriter newInstanceIfSupported(ResponseBundleRequest theResponseBundleRequest) {
+		IRestfulServer<?> server = theResponseBundleRequest.server;
+		RequestDetails requestDetails = theResponseBundleRequest.requestDetails;
+		IRestfulResponse response = requestDetails.getResponse();
+		if (server.getBundleStreamingBatchSize() <= 0
+				|| requestDetails.isSubRequest()
+				|| !(requestDetails instanceof ServletRequestDetails)
+				|| response == null) {
+			return null;
+		}
+
+		RestfulServerUtils.ResponseEncoding responseEncoding =
+				RestfulServerUtils.determineResponseEncodingWithDefault(requestDetails);
+		if (responseEncoding.getEncoding() != EncodingEnum.JSON
+				|| RestfulServerUtils.determineSummaryMode(requestDetails).contains(SummaryEnum.COUNT)) {
+			return null;
+		}
+
+		// These hooks expect to see (or replace) the complete response
+		if (hasOutgoingResponseHooks(server.getInterceptorService())
+				|| hasOutgoingResponseHooks(requestDetails.getInterceptorBroadcaster())) {
+			return null;
+		}
+
+		IParser parser = RestfulServerUtils.getNewParser(
+				server.getFhirContext(), server.getFhirContext().getVersion().getVersion(), requestDetails);
+		if (!(parser instanceof IJsonLikeParser)) {
+			return null;
+		}
+
+		return new StreamingBundleWriter(
+				theResponseBundleRequest,
+				response,
+				responseEncoding.getResourceContentType(),
+				(IJsonLikeParser) parser);
+	}
+
+	private static boolean hasOutgoingResponseHooks(@Nullable IInterceptorBroadcaster theBroadcaster) {
+		return theBroadcaster != null
+				&& (theBroadcaster.hasHooks(Pointcut.SERVER_OUTGOING_RESPONSE)
+						|| theBroadcaster.hasHooks(Pointcut.SERVER_OUTGOING_WRITER_CREATED));
+	}
+}
@@ -91,6 +91,27 @@ public class ServletRestfulResponse extends BaseRestfulResponse<ServletRequestDe
 		return myWriter;
 	}
 
+	@Override
+	public OutputStream getResponseUtf8OutputStream(int theStatusCode, String theContentType, boolean theRespondGzip)
+			throws IOException {
+		Validate.isTrue(myWriter == null, "getResponseUtf8OutputStream() called after getResponseWriter()");
+		Validate.isTrue(myOutputStream == null, "getResponseUtf8OutputStream() called multiple times");
+
+		addHeaders();
+		HttpServletResponse httpResponse = getRequestDetails().getServletResponse();
+		httpResponse.setCharacterEncoding(Constants.CHARSET_NAME_UTF8);
+		httpResponse.setStatus(theStatusCode);
+		httpResponse.setContentType(theContentType);
+		if (theRespondGzip) {
+			httpResponse.addHeader(Constants.HEADER_CONTENT_ENCODING, Constants.ENCODING_GZIP);
+			myOutputStream = new GZIPOutputStream(httpResponse.getOutputStream());
+			return myOutputStream;
+		}
+
+		myOutputStream = httpResponse.getOutputStream();
+		return myOutputStream;
+	}
+
 	private void addHeaders() {
 		HttpServletResponse httpResponse = getRequestDetails().getServletResponse();
 		getRequestDetails().getServer().addHeadersToResponse(httpResponse);
@@ -0,0 +1,169 @@
+package ca.uhn.fhir.rest.server;
+
+import ca.uhn.fhir.interceptor.api.IAnonymousInterceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.interceptor.executor.InterceptorService;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.model.primitive.IdDt;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.EncodingEnum;
+import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EncodedResponseCacheTest {
+
+	private final EncodedResponseCache mySvc = new EncodedResponseCache(1024 * 1024);
+
+	@AfterEach
+	public void after() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	public void testKeyIncludesTenant() {
+		IBaseResource resource = newResource("Patient/1/_history/1", null);
+
+		String keyA = createKey(newReadRequest("TENANT-A"), resource);
+		String keyB = createKey(newReadRequest("TENANT-B"), resource);
+
+		assertNotEquals(keyA, keyB);
+		assertEquals(keyA, createKey(newReadRequest("TENANT-A"), resource));
+	}
+
+	@Test
+	public void testKeyIncludesPartition() {
+		IBaseResource resourceInPartition1 = newResource("Patient/1/_history/1", RequestPartitionId.fromPartitionId(1));
+		IBaseResource resourceInPartition2 = newResource("Patient/1/_history/1", RequestPartitionId.fromPartitionId(2));
+
+		String key1 = createKey(newReadRequest(null), resourceInPartition1);
+		String key2 = createKey(newReadRequest(null), resourceInPartition2);
+
+		assertNotEquals(key1, key2);
+	}
+
+	@Test
+	public void testInvalidateAgainAfterTransactionCompletes() {
+		IBaseResource resource = newResource("Patient/1/_history/1", null);
+		String key = createKey(newReadRequest(null), resource);
+		mySvc.put(key, resource, "{}".getBytes(StandardCharsets.UTF_8));
+		assertEquals(1, mySvc.size());
+
+		TransactionSynchronizationManager.initSynchronization();
+		mySvc.resourceUpdated(null, newResource("Patient/1/_history/2", null));
+		assertEquals(0, mySvc.size());
+
+		// A concurrent read caches the old version before the write commits
+		mySvc.put(key, resource, "{}".getBytes(StandardCharsets.UTF_8));
+		assertEquals(1, mySvc.size());
+
+		for (TransactionSynchronization next : TransactionSynchronizationManager.getSynchronizations()) {
+			next.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+		}
+		assertEquals(0, mySvc.size());
+	}
+
+	@Test
+	public void testNotCacheableWithOutgoingResponseHook() {
+		IBaseResource resource = newResource("Patient/1/_history/1", null);
+		InterceptorService interceptorService = new InterceptorService();
+		SystemRequestDetails requestDetails = new SystemRequestDetails(interceptorService);
+		requestDetails.setRestOperationType(RestOperationTypeEnum.READ);
+		assertNotNull(createKey(requestDetails, resource));
+
+		IAnonymousInterceptor interceptor = (thePointcut, theArgs) -> {};
+		interceptorService.registerAnonymousInterceptor(Pointcut.SERVER_OUTGOING_RESPONSE, interceptor);
+		assertNull(createKey(requestDetails, resource));
+	}
+
+	@Test
+	public void testNotCacheableForSubRequest() {
+		IBaseResource resource = newResource("Patient/1/_history/1", null);
+		SystemRequestDetails requestDetails = newReadRequest(null);
+		requestDetails.setSubRequest(true);
+
+		assertNull(createKey(requestDetails, resource));
+	}
+
+	@Test
+	public void testKeyIncludesRequestDiscriminator() {
+		EncodedResponseCache svc = new EncodedResponseCache(1024 * 1024) {
+			@Override
+			protected String getRequestDiscriminator(RequestDetails theRequestDetails) {
+				return theRequestDetails.getUserData().get("user").toString();
+			}
+		};
+		IBaseResource resource = newResource("Patient/1/_history/1", null);
+		SystemRequestDetails requestA = newReadRequest(null);
+		requestA.getUserData().put("user", "A");
+		SystemRequestDetails requestB = newReadRequest(null);
+		requestB.getUserData().put("user", "B");
+
+		String keyA = svc.createKey(requestA, resource, EncodingEnum.JSON, false, Collections.emptySet());
+		String keyB = svc.createKey(requestB, resource, EncodingEnum.JSON, false, Collections.emptySet());
+
+		assertNotEquals(keyA, keyB);
+	}
+
+	@Test
+	public void testAttachCachedResponse() {
+		RestfulServer server = mock(RestfulServer.class);
+		when(server.getDefaultResponseEncoding()).thenReturn(EncodingEnum.JSON);
+		SystemRequestDetails requestDetails = newReadRequest(null);
+		requestDetails.setServer(server);
+		IBaseResource resource = newResource("Patient/1/_history/1", null);
+		assertFalse(mySvc.attachCachedResponse(requestDetails, resource));
+
+		String key = mySvc.createKey(requestDetails, resource);
+		byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+		mySvc.put(key, resource, body);
+		assertTrue(mySvc.attachCachedResponse(requestDetails, resource));
+
+		ArgumentCaptor<String> name = ArgumentCaptor.forClass(String.class);
+		ArgumentCaptor<Object> attached = ArgumentCaptor.forClass(Object.class);
+		verify(resource).setUserData(name.capture(), attached.capture());
+		when(resource.getUserData(name.getValue())).thenReturn(attached.getValue());
+		assertArrayEquals(body, EncodedResponseCache.getAttachedResponse(resource));
+		assertArrayEquals(body, mySvc.get(key, resource));
+	}
+
+	private String createKey(SystemRequestDetails theRequestDetails, IBaseResource theResource) {
+		return mySvc.createKey(theRequestDetails, theResource, EncodingEnum.JSON, false, Collections.emptySet());
+	}
+
+	private static SystemRequestDetails newReadRequest(String theTenantId) {
+		SystemRequestDetails retVal = new SystemRequestDetails();
+		retVal.setRestOperationType(RestOperationTypeEnum.READ);
+		retVal.setTenantId(theTenantId);
+		return retVal;
+	}
+
+	private static IBaseResource newResource(String theId, RequestPartitionId thePartitionId) {
+		IBaseResource retVal = mock(IBaseResource.class);
+		when(retVal.getIdElement()).thenReturn(new IdDt(theId));
+		when(retVal.getUserData(Constants.RESOURCE_PARTITION_ID)).thenReturn(thePartitionId);
+		return retVal;
+	}
+}
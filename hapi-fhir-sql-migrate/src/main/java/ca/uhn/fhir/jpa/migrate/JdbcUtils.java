@@ -60,12 +60,14 @@ import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 import javax.sql.DataSource;
@@ -146,6 +148,51 @@ public class JdbcUtils {
 		}
 	}
 
+	/**
+	 * Retrieve the columns of every index on a table, keyed by the (upper case) index name.
+	 * The columns of each index are returned in index order.
+	 */
+	public static Map<String, List<String>> getIndexColumns(
+			DriverTypeEnum.ConnectionProperties theConnectionProperties, String theTableName) throws SQLException {
+
+		if (!getTableNames(theConnectionProperties).contains(theTableName)) {
+			return Collections.emptyMap();
+		}
+
+		DataSource dataSource = Objects.requireNonNull(theConnectionProperties.getDataSource());
+		try (Connection connection = dataSource.getConnection()) {
+			return theConnectionProperties.getTxTemplate().execute(t -> {
+				DatabaseMetaData metadata;
+				try {
+					metadata = connection.getMetaData();
+
+					Map<String, TreeMap<Integer, String>> indexToColumns = new HashMap<>();
+					for (boolean unique : Set.of(false, true)) {
+						try (ResultSet indexes = getIndexInfo(theTableName, connection, metadata, unique)) {
+							while (indexes.next()) {
+								String indexName = indexes.getString("INDEX_NAME");
+								String columnName = indexes.getString("COLUMN_NAME");
+								if (indexName == null || columnName == null) {
+									continue;
+								}
+								indexToColumns
+										.computeIfAbsent(indexName.toUpperCase(Locale.US), k -> new TreeMap<>())
+										.put(indexes.getInt("ORDINAL_POSITION"), columnName.toUpperCase(Locale.US));
+							}
+						}
+					}
+
+					Map<String, List<String>> retVal = new HashMap<>();
+					indexToColumns.forEach((k, v) -> retVal.put(k, List.copyOf(v.values())));
+					return retVal;
+
+				} catch (SQLException e) {
+					throw new InternalErrorException(Msg.code(2801) + e);
+				}
+			});
+		}
+	}
+
 	@SuppressWarnings("ConstantConditions")
 	public static boolean isIndexUnique(
 			DriverTypeEnum.ConnectionProperties theConnectionProperties, String theTableName, String theIndexName)
@@ -15,6 +15,8 @@ import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
 import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -48,6 +50,21 @@ public class AddIndexTaskTest extends BaseTest {
 
 	}
 
+	@ParameterizedTest(name = "{index}: {0}")
+	@MethodSource("data")
+	public void testGetIndexColumns(Supplier<TestDatabaseDetails> theTestDatabaseDetails) throws SQLException {
+		before(theTestDatabaseDetails);
+
+		executeSql("create table SOMETABLE (PID bigint not null, TEXTCOL varchar(255))");
+		executeSql("create index IDX_ANINDEX on SOMETABLE (TEXTCOL, PID)");
+		executeSql("create unique index IDX_DIFINDEX on SOMETABLE (PID)");
+
+		Map<String, List<String>> indexColumns = JdbcUtils.getIndexColumns(getConnectionProperties(), "SOMETABLE");
+
+		assertEquals(List.of("TEXTCOL", "PID"), indexColumns.get("IDX_ANINDEX"));
+		assertEquals(List.of("PID"), indexColumns.get("IDX_DIFINDEX"));
+	}
+
 	@ParameterizedTest(name = "{index}: {0}")
 	@MethodSource("data")
 	public void testUniqueIndexAlreadyExists(Supplier<TestDatabaseDetails> theTestDatabaseDetails) throws SQLException {
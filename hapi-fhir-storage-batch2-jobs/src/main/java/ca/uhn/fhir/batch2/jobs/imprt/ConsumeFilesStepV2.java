@@ -32,11 +32,10 @@ import ca.uhn.fhir.jpa.api.dao.IFhirSystemDao;
 import ca.uhn.fhir.jpa.dao.TransactionUtil;
 import ca.uhn.fhir.jpa.util.TransactionSemanticsHeader;
 import ca.uhn.fhir.parser.DataFormatException;
-import ca.uhn.fhir.parser.IParser;
+import ca.uhn.fhir.parser.NDJsonParser;
 import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
 import ca.uhn.fhir.util.BundleBuilder;
 import jakarta.annotation.Nonnull;
-import org.apache.commons.io.LineIterator;
 import org.hl7.fhir.instance.model.api.IBaseBundle;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.slf4j.Logger;
@@ -44,7 +43,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.io.StringReader;
-import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import static java.util.Objects.requireNonNullElseGet;
@@ -74,25 +73,24 @@ public class ConsumeFilesStepV2
 		String ndjson = theStepExecutionDetails.getData().getNdJsonText();
 		String sourceName = theStepExecutionDetails.getData().getSourceName();
 
-		IParser jsonParser = myCtx.newJsonParser();
-		LineIterator lineIter = new LineIterator(new StringReader(ndjson));
-		List<IBaseResource> resources = new ArrayList<>();
-		while (lineIter.hasNext()) {
-			String next = lineIter.next();
-			if (isNotBlank(next)) {
-				IBaseResource parsed;
-				try {
-					parsed = jsonParser.parseResource(next);
-				} catch (DataFormatException e) {
-					throw new JobExecutionFailedException(Msg.code(2674) + "Failed to parse resource: " + e, e);
-				}
-				resources.add(parsed);
+		// Each resource goes straight into the batch Bundle as it is parsed, so the chunk is never
+		// held as a list of lines or a separate list of resources
+		NDJsonParser ndJsonParser = (NDJsonParser) myCtx.newNDJsonParser();
+		BundleBuilder bundleBuilder = newBatchBundleBuilder();
+		int resourceCount = 0;
+		try {
+			Iterator<IBaseResource> iterator = ndJsonParser.iterateResources(new StringReader(ndjson));
+			while (iterator.hasNext()) {
+				addEntry(bundleBuilder, iterator.next());
+				resourceCount++;
 			}
+		} catch (DataFormatException e) {
+			throw new JobExecutionFailedException(Msg.code(2674) + "Failed to parse resource: " + e, e);
 		}
 
-		ourLog.info("Bulk loading {} resources from source {}", resources.size(), sourceName);
+		ourLog.info("Bulk loading {} resources from source {}", resourceCount, sourceName);
 
-		TransactionUtil.TransactionResponse response = storeResources(resources, partitionId);
+		TransactionUtil.TransactionResponse response = storeResources(bundleBuilder, partitionId);
 
 		ConsumeFilesOutcomeJson outcome = new ConsumeFilesOutcomeJson();
 		outcome.setSourceName(sourceName);
@@ -106,11 +104,20 @@ public class ConsumeFilesStepV2
 		}
 		theDataSink.accept(outcome);
 
-		return new RunOutcome(resources.size());
+		return new RunOutcome(resourceCount);
 	}
 
 	public TransactionUtil.TransactionResponse storeResources(
 			List<IBaseResource> resources, RequestPartitionId thePartitionId) {
+		BundleBuilder bb = newBatchBundleBuilder();
+		for (var resource : resources) {
+			addEntry(bb, resource);
+		}
+		return storeResources(bb, thePartitionId);
+	}
+
+	private TransactionUtil.TransactionResponse storeResources(
+			BundleBuilder theBundleBuilder, RequestPartitionId thePartitionId) {
 		SystemRequestDetails requestDetails = new SystemRequestDetails();
 		requestDetails.setRequestPartitionId(
 				requireNonNullElseGet(thePartitionId, RequestPartitionId::defaultPartition));
@@ -123,20 +130,23 @@ public class ConsumeFilesStepV2
 				.build();
 		requestDetails.addHeader(TransactionSemanticsHeader.HEADER_NAME, transactionSemantics.toHeaderValue());
 
-		BundleBuilder bb = new BundleBuilder(myCtx);
-		bb.setType("batch");
-
-		for (var resource : resources) {
-			if (resource.getIdElement().hasIdPart()) {
-				bb.addTransactionUpdateEntry(resource);
-			} else {
-				bb.addTransactionCreateEntry(resource);
-			}
-		}
-
-		IBaseBundle requestBundle = bb.getBundleTyped();
+		IBaseBundle requestBundle = theBundleBuilder.getBundleTyped();
 		IBaseBundle responseBundle = (IBaseBundle) mySystemDao.transaction(requestDetails, requestBundle);
 
 		return TransactionUtil.parseTransactionResponse(myCtx, requestBundle, responseBundle);
 	}
+
+	private BundleBuilder newBatchBundleBuilder() {
+		BundleBuilder retVal = new BundleBuilder(myCtx);
+		retVal.setType("batch");
+		return retVal;
+	}
+
+	private static void addEntry(BundleBuilder theBundleBuilder, IBaseResource theResource) {
+		if (theResource.getIdElement().hasIdPart()) {
+			theBundleBuilder.addTransactionUpdateEntry(theResource);
+		} else {
+			theBundleBuilder.addTransactionCreateEntry(theResource);
+		}
+	}
 }
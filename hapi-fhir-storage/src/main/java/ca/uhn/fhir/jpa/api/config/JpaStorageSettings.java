@@ -139,6 +139,21 @@ public class JpaStorageSettings extends StorageSettings {
 
 	public static final List<Integer> DEFAULT_SEARCH_PRE_FETCH_THRESHOLDS = Arrays.asList(13, 503, 2003, 1000003, -1);
 
+	/**
+	 * @since 8.4.0
+	 */
+	public static final int DEFAULT_ESTIMATED_TOTAL_SAMPLE_SIZE = 1000;
+
+	/**
+	 * @since 8.4.0
+	 */
+	public static final int DEFAULT_DEFERRED_INDEXING_BATCH_SIZE = 100;
+
+	/**
+	 * @since 8.4.0
+	 */
+	public static final int DEFAULT_DEFERRED_INDEXING_READ_YOUR_WRITES_LIMIT = 1000;
+
 	/**
 	 * Do not change default of {@code 0}!
 	 *
@@ -438,6 +453,76 @@ public class JpaStorageSettings extends StorageSettings {
 	 */
 	private boolean myWriteToSearchParamIdentityTable = true;
 
+	/**
+	 * @since 8.4.0
+	 */
+	private boolean myPackedSearchResultCacheEnabled = false;
+
+	/**
+	 * @since 8.4.0
+	 */
+	private int myIncludeLoadingThreadCount = 1;
+
+	/**
+	 * @since 8.4.0
+	 */
+	private int myHotSearchCacheSize = 0;
+
+	/**
+	 * @since 8.4.0
+	 */
+	private boolean myKeysetPagingEnabled = false;
+
+	/**
+	 * @since 8.4.0
+	 */
+	private int myEstimatedTotalSampleSize = DEFAULT_ESTIMATED_TOTAL_SAMPLE_SIZE;
+
+	/**
+	 * @since 8.4.0
+	 */
+	private int myChunkedQueryThreadCount = 1;
+
+	/**
+	 * @since 8.4.0
+	 */
+	private boolean myIndexAdvisorEnabled = false;
+
+	/**
+	 * @since 8.4.0
+	 */
+	private boolean myIndexAdvisorAutomaticIndexCreationEnabled = false;
+
+	/**
+	 * @since 8.4.0
+	 */
+	private boolean myBulkIndexInsertEnabled = false;
+
+	/**
+	 * @since 8.4.0
+	 */
+	private boolean myDeferredParsingForReadsEnabled = false;
+
+	/**
+	 * @since 8.4.0
+	 */
+	private int myResourceHistoryDeltaSnapshotInterval = 0;
+
+	/**
+	 * @since 8.4.0
+	 */
+	private Set<String> myDeferredIndexingResourceTypes = Collections.emptySet();
+
+	/**
+	 * @since 8.4.0
+	 */
+	private int myDeferredIndexingBatchSize = DEFAULT_DEFERRED_INDEXING_BATCH_SIZE;
+
+	/**
+	 * @since 8.4.0
+	 */
+	private int myDeferredIndexingReadYourWritesLimit = DEFAULT_DEFERRED_INDEXING_READ_YOUR_WRITES_LIMIT;
+
 	/**
 	 * Constructor
 	 */
@@ -2756,6 +2841,588 @@ public class JpaStorageSettings extends StorageSettings {
 		myWriteToSearchParamIdentityTable = theWriteToSearchParamIdentityTable;
 	}
 
+	/**
+	 * If enabled (default is <code>false</code>), the PIDs of cached search results are stored as
+	 * compressed blocks of up to 10,000 PIDs in the <code>HFJ_SEARCH_RESULT_BLOCK</code> table, instead
+	 * of as one row per result in the <code>HFJ_SEARCH_RESULT</code> table. This greatly reduces the
+	 * insert volume and index churn for searches which match large numbers of resources.
+	 * <p>
+	 * This setting is read when the server starts, and changing it afterward has no effect. Search
+	 * results stored in one format can not be read using the other, so searches cached before this
+	 * setting was changed should be allowed to expire (or be purged) before it is changed.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public boolean isPackedSearchResultCacheEnabled() {
+		return myPackedSearchResultCacheEnabled;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>), the PIDs of cached search results are stored as
+	 * compressed blocks of up to 10,000 PIDs in the <code>HFJ_SEARCH_RESULT_BLOCK</code> table, instead
+	 * of as one row per result in the <code>HFJ_SEARCH_RESULT</code> table. This greatly reduces the
+	 * insert volume and index churn for searches which match large numbers of resources.
+	 * <p>
+	 * This setting is read when the server starts, and changing it afterward has no effect. Search
+	 * results stored in one format can not be read using the other, so searches cached before this
+	 * setting was changed should be allowed to expire (or be purged) before it is changed.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setPackedSearchResultCacheEnabled(boolean thePackedSearchResultCacheEnabled) {
+		myPackedSearchResultCacheEnabled = thePackedSearchResultCacheEnabled;
+	}
+
+	/**
+	 * The number of threads used to resolve the individual <code>_include</code> and
+	 * <code>_revinclude</code> parameters of a search concurrently (default is <code>1</code>).
+	 * When this is greater than 1, each include within a round is resolved by its own database
+	 * query in its own read-only transaction, and the results are merged once all of them have
+	 * completed. When set to 1, includes are resolved one after another on the calling thread.
+	 * <p>
+	 * Each concurrently resolved include uses its own database connection, so the connection pool
+	 * should be sized accordingly. Includes are always resolved serially for requests within a
+	 * transaction or batch Bundle, and when {@link ca.uhn.fhir.interceptor.api.Pointcut#JPA_PERFTRACE_RAW_SQL}
+	 * hooks are registered.
+	 * </p>
+	 * <p>
+	 * The size of the thread pool is read when the server starts.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public int getIncludeLoadingThreadCount() {
+		return myIncludeLoadingThreadCount;
+	}
+
+	/**
+	 * The number of threads used to resolve the individual <code>_include</code> and
+	 * <code>_revinclude</code> parameters of a search concurrently (default is <code>1</code>).
+	 * When this is greater than 1, each include within a round is resolved by its own database
+	 * query in its own read-only transaction, and the results are merged once all of them have
+	 * completed. When set to 1, includes are resolved one after another on the calling thread.
+	 * <p>
+	 * Each concurrently resolved include uses its own database connection, so the connection pool
+	 * should be sized accordingly. Includes are always resolved serially for requests within a
+	 * transaction or batch Bundle, and when {@link ca.uhn.fhir.interceptor.api.Pointcut#JPA_PERFTRACE_RAW_SQL}
+	 * hooks are registered.
+	 * </p>
+	 * <p>
+	 * The size of the thread pool is read when the server starts.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setIncludeLoadingThreadCount(int theIncludeLoadingThreadCount) {
+		Validate.isTrue(theIncludeLoadingThreadCount >= 1, "theIncludeLoadingThreadCount must be at least 1");
+		myIncludeLoadingThreadCount = theIncludeLoadingThreadCount;
+	}
+
+	/**
+	 * The maximum number of finished searches (and the first results of each) to hold in a
+	 * node-local, in-memory cache in front of the database search cache (default is <code>0</code>,
+	 * meaning that this cache is disabled). When a search is repeated within the
+	 * {@link #setReuseCachedSearchResultsForMillis(Long) reuse window}, a search found in this
+	 * cache is reused without any lookups in the <code>HFJ_SEARCH</code> and
+	 * <code>HFJ_SEARCH_RESULT</code> tables, which benefits clients which repeat the same
+	 * query very frequently.
+	 * <p>
+	 * Cached searches for a resource type are invalidated when a resource of that type is
+	 * written on the same node. Writes on other nodes are not seen, so cached searches may be
+	 * as stale as the reuse window allows, just like searches reused from the database.
+	 * </p>
+	 * <p>
+	 * This setting is read when the server starts.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public int getHotSearchCacheSize() {
+		return myHotSearchCacheSize;
+	}
+
+	/**
+	 * The maximum number of finished searches (and the first results of each) to hold in a
+	 * node-local, in-memory cache in front of the database search cache (default is <code>0</code>,
+	 * meaning that this cache is disabled). When a search is repeated within the
+	 * {@link #setReuseCachedSearchResultsForMillis(Long) reuse window}, a search found in this
+	 * cache is reused without any lookups in the <code>HFJ_SEARCH</code> and
+	 * <code>HFJ_SEARCH_RESULT</code> tables, which benefits clients which repeat the same
+	 * query very frequently.
+	 * <p>
+	 * Cached searches for a resource type are invalidated when a resource of that type is
+	 * written on the same node. Writes on other nodes are not seen, so cached searches may be
+	 * as stale as the reuse window allows, just like searches reused from the database.
+	 * </p>
+	 * <p>
+	 * This setting is read when the server starts.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setHotSearchCacheSize(int theHotSearchCacheSize) {
+		Validate.isTrue(theHotSearchCacheSize >= 0, "theHotSearchCacheSize must not be negative");
+		myHotSearchCacheSize = theHotSearchCacheSize;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>), <code>_offset</code> paged searches which are
+	 * sorted on a single <code>_lastUpdated</code> or <code>_id</code> sort key use keyset (seek)
+	 * pagination. The next page link then carries a {@link ca.uhn.fhir.rest.api.Constants#PARAM_SEARCH_AFTER}
+	 * token holding the sort key and resource PID of the last result, and the next page query
+	 * seeks directly past that row instead of having the database scan and discard every
+	 * earlier row. This keeps the cost of each page proportional to the page size, no matter
+	 * how deep the client pages.
+	 * <p>
+	 * The <code>_offset</code> parameter is retained in the links, so requests without a token
+	 * (or with one which does not match the current sort) are served using regular offset paging.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public boolean isKeysetPagingEnabled() {
+		return myKeysetPagingEnabled;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>), <code>_offset</code> paged searches which are
+	 * sorted on a single <code>_lastUpdated</code> or <code>_id</code> sort key use keyset (seek)
+	 * pagination. The next page link then carries a {@link ca.uhn.fhir.rest.api.Constants#PARAM_SEARCH_AFTER}
+	 * token holding the sort key and resource PID of the last result, and the next page query
+	 * seeks directly past that row instead of having the database scan and discard every
+	 * earlier row. This keeps the cost of each page proportional to the page size, no matter
+	 * how deep the client pages.
+	 * <p>
+	 * The <code>_offset</code> parameter is retained in the links, so requests without a token
+	 * (or with one which does not match the current sort) are served using regular offset paging.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setKeysetPagingEnabled(boolean theKeysetPagingEnabled) {
+		myKeysetPagingEnabled = theKeysetPagingEnabled;
+	}
+
+	/**
+	 * When a client requests <code>_total=estimated</code> and the database does not expose
+	 * query planner row estimates that the server can use (currently only PostgreSQL does), the
+	 * server instead fetches up to this many matching resource IDs. If the search matches no more
+	 * than this number of resources the exact count is returned as the total, otherwise no total
+	 * is returned. Set to <code>0</code> to disable this fallback.
+	 * <p>
+	 * Default is {@value #DEFAULT_ESTIMATED_TOTAL_SAMPLE_SIZE}
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public int getEstimatedTotalSampleSize() {
+		return myEstimatedTotalSampleSize;
+	}
+
+	/**
+	 * When a client requests <code>_total=estimated</code> and the database does not expose
+	 * query planner row estimates that the server can use (currently only PostgreSQL does), the
+	 * server instead fetches up to this many matching resource IDs. If the search matches no more
+	 * than this number of resources the exact count is returned as the total, otherwise no total
+	 * is returned. Set to <code>0</code> to disable this fallback.
+	 * <p>
+	 * Default is {@value #DEFAULT_ESTIMATED_TOTAL_SAMPLE_SIZE}
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setEstimatedTotalSampleSize(int theEstimatedTotalSampleSize) {
+		Validate.isTrue(theEstimatedTotalSampleSize >= 0, "theEstimatedTotalSampleSize must not be negative");
+		myEstimatedTotalSampleSize = theEstimatedTotalSampleSize;
+	}
+
+	/**
+	 * The number of threads used to run the chunk queries of a search concurrently (default is
+	 * <code>1</code>). Searches which first resolve a large list of resource IDs (e.g. using the
+	 * fulltext index, or for <code>$everything</code>) split that list into chunks and run one
+	 * database query per chunk. When this is greater than 1, up to this many chunk queries run at
+	 * the same time, each in its own read-only transaction, and their results are still returned
+	 * in order. When set to 1, the chunk queries run one after another on the calling thread.
+	 * <p>
+	 * Each concurrently running chunk query uses its own database connection, so the connection
+	 * pool should be sized accordingly. Chunk queries always run serially for requests within a
+	 * transaction or batch Bundle, and when {@link ca.uhn.fhir.interceptor.api.Pointcut#JPA_PERFTRACE_RAW_SQL}
+	 * hooks are registered.
+	 * </p>
+	 * <p>
+	 * The size of the thread pool is read when the server starts.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public int getChunkedQueryThreadCount() {
+		return myChunkedQueryThreadCount;
+	}
+
+	/**
+	 * The number of threads used to run the chunk queries of a search concurrently (default is
+	 * <code>1</code>). Searches which first resolve a large list of resource IDs (e.g. using the
+	 * fulltext index, or for <code>$everything</code>) split that list into chunks and run one
+	 * database query per chunk. When this is greater than 1, up to this many chunk queries run at
+	 * the same time, each in its own read-only transaction, and their results are still returned
+	 * in order. When set to 1, the chunk queries run one after another on the calling thread.
+	 * <p>
+	 * Each concurrently running chunk query uses its own database connection, so the connection
+	 * pool should be sized accordingly. Chunk queries always run serially for requests within a
+	 * transaction or batch Bundle, and when {@link ca.uhn.fhir.interceptor.api.Pointcut#JPA_PERFTRACE_RAW_SQL}
+	 * hooks are registered.
+	 * </p>
+	 * <p>
+	 * The size of the thread pool is read when the server starts.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setChunkedQueryThreadCount(int theChunkedQueryThreadCount) {
+		Validate.isTrue(theChunkedQueryThreadCount >= 1, "theChunkedQueryThreadCount must be at least 1");
+		myChunkedQueryThreadCount = theChunkedQueryThreadCount;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>), the server records the shape and latency of the
+	 * SQL queries it runs against the search parameter index tables (<code>HFJ_SPIDX_*</code>), and
+	 * the {@link ca.uhn.fhir.jpa.search.builder.sql.SearchIndexAdvisor} recommends composite indexes
+	 * for slow query shapes which are not already served by an existing index.
+	 *
+	 * @see #setIndexAdvisorAutomaticIndexCreationEnabled(boolean)
+	 * @since 8.4.0
+	 */
+	public boolean isIndexAdvisorEnabled() {
+		return myIndexAdvisorEnabled;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>), the server records the shape and latency of the
+	 * SQL queries it runs against the search parameter index tables (<code>HFJ_SPIDX_*</code>), and
+	 * the {@link ca.uhn.fhir.jpa.search.builder.sql.SearchIndexAdvisor} recommends composite indexes
+	 * for slow query shapes which are not already served by an existing index.
+	 *
+	 * @see #setIndexAdvisorAutomaticIndexCreationEnabled(boolean)
+	 * @since 8.4.0
+	 */
+	public void setIndexAdvisorEnabled(boolean theIndexAdvisorEnabled) {
+		myIndexAdvisorEnabled = theIndexAdvisorEnabled;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>) and {@link #isIndexAdvisorEnabled() the index advisor}
+	 * is enabled, the indexes recommended by the advisor are periodically created in the database
+	 * (online, where the database supports this) using the schema migration tasks. Index creation
+	 * can be expensive on large tables, so this should only be enabled after reviewing the
+	 * recommendations on a representative system. In a clustered deployment, index creation is a
+	 * clustered job, so it runs on one node at a time using the queries recorded by that node.
+	 * <p>
+	 * Created indexes are not recorded in the schema migration history. Each one is logged at
+	 * <code>WARN</code> level with the statement used to create it, so that it can be added to
+	 * your own migrations.
+	 * </p>
+	 * <p>
+	 * Locking depends on the database:
+	 * </p>
+	 * <ul>
+	 * <li>PostgreSQL and CockroachDB use <code>CREATE INDEX CONCURRENTLY</code>, which does not block
+	 * reads or writes, but waits for all open transactions using the table before finishing. If it
+	 * fails, it leaves an invalid index behind which must be dropped manually.</li>
+	 * <li>Oracle uses <code>ONLINE</code> where the edition supports it. Otherwise the index is
+	 * built while holding a lock which blocks writes to the table.</li>
+	 * <li>SQL Server uses <code>ONLINE = ON</code> where the edition supports it, and otherwise
+	 * builds the index offline, blocking writes to the table (and reads, briefly, at the end).</li>
+	 * <li>MySQL and MariaDB build the index in place, allowing reads and writes except for short
+	 * metadata locks at the start and end.</li>
+	 * <li>On other databases (e.g. H2) the table is locked while the index is built.</li>
+	 * </ul>
+	 *
+	 * @since 8.4.0
+	 */
+	public boolean isIndexAdvisorAutomaticIndexCreationEnabled() {
+		return myIndexAdvisorAutomaticIndexCreationEnabled;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>) and {@link #isIndexAdvisorEnabled() the index advisor}
+	 * is enabled, the indexes recommended by the advisor are periodically created in the database
+	 * (online, where the database supports this) using the schema migration tasks. Index creation
+	 * can be expensive on large tables, so this should only be enabled after reviewing the
+	 * recommendations on a representative system. In a clustered deployment, index creation is a
+	 * clustered job, so it runs on one node at a time using the queries recorded by that node.
+	 * <p>
+	 * Created indexes are not recorded in the schema migration history. Each one is logged at
+	 * <code>WARN</code> level with the statement used to create it, so that it can be added to
+	 * your own migrations.
+	 * </p>
+	 * <p>
+	 * Locking depends on the database:
+	 * </p>
+	 * <ul>
+	 * <li>PostgreSQL and CockroachDB use <code>CREATE INDEX CONCURRENTLY</code>, which does not block
+	 * reads or writes, but waits for all open transactions using the table before finishing. If it
+	 * fails, it leaves an invalid index behind which must be dropped manually.</li>
+	 * <li>Oracle uses <code>ONLINE</code> where the edition supports it. Otherwise the index is
+	 * built while holding a lock which blocks writes to the table.</li>
+	 * <li>SQL Server uses <code>ONLINE = ON</code> where the edition supports it, and otherwise
+	 * builds the index offline, blocking writes to the table (and reads, briefly, at the end).</li>
+	 * <li>MySQL and MariaDB build the index in place, allowing reads and writes except for short
+	 * metadata locks at the start and end.</li>
+	 * <li>On other databases (e.g. H2) the table is locked while the index is built.</li>
+	 * </ul>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setIndexAdvisorAutomaticIndexCreationEnabled(boolean theIndexAdvisorAutomaticIndexCreationEnabled) {
+		myIndexAdvisorAutomaticIndexCreationEnabled = theIndexAdvisorAutomaticIndexCreationEnabled;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>), new search parameter index rows (the rows in the
+	 * <code>HFJ_SPIDX_*</code> tables) are not persisted individually through Hibernate. Instead they
+	 * are collected for the whole database transaction and written just before it commits, using
+	 * JDBC batch inserts per table, or the <code>COPY</code> protocol on PostgreSQL. This can
+	 * significantly improve ingest throughput.
+	 * <p>
+	 * Note that index rows written this way are not visible to searches performed within the same
+	 * database transaction before it commits (FHIR transaction bundles flush them between verbs), so
+	 * this setting is primarily intended for write-heavy workloads such as bulk loading.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public boolean isBulkIndexInsertEnabled() {
+		return myBulkIndexInsertEnabled;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>), new search parameter index rows (the rows in the
+	 * <code>HFJ_SPIDX_*</code> tables) are not persisted individually through Hibernate. Instead they
+	 * are collected for the whole database transaction and written just before it commits, using
+	 * JDBC batch inserts per table, or the <code>COPY</code> protocol on PostgreSQL. This can
+	 * significantly improve ingest throughput.
+	 * <p>
+	 * Note that index rows written this way are not visible to searches performed within the same
+	 * database transaction before it commits (FHIR transaction bundles flush them between verbs), so
+	 * this setting is primarily intended for write-heavy workloads such as bulk loading.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setBulkIndexInsertEnabled(boolean theBulkIndexInsertEnabled) {
+		myBulkIndexInsertEnabled = theBulkIndexInsertEnabled;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>), the body of a resource returned by a client
+	 * <code>read</code> or <code>vread</code> is not parsed into the FHIR model. When the response
+	 * is encoded as JSON, the stored body is copied into it after a freshly encoded
+	 * <code>id</code> and <code>meta</code>. The resource is still parsed when anything needs its
+	 * content: if any interceptor is registered for the <code>STORAGE_PREACCESS_RESOURCES</code>,
+	 * <code>STORAGE_PRESHOW_RESOURCES</code> or <code>SERVER_OUTGOING_RESPONSE</code> pointcuts
+	 * (e.g. consent or authorization interceptors), for <code>Binary</code> resources, for
+	 * non-JSON responses, and when <code>_summary</code>, <code>_elements</code> or pretty
+	 * printing are requested.
+	 *
+	 * @since 8.4.0
+	 */
+	public boolean isDeferredParsingForReadsEnabled() {
+		return myDeferredParsingForReadsEnabled;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>), the body of a resource returned by a client
+	 * <code>read</code> or <code>vread</code> is not parsed into the FHIR model. When the response
+	 * is encoded as JSON, the stored body is copied into it after a freshly encoded
+	 * <code>id</code> and <code>meta</code>. The resource is still parsed when anything needs its
+	 * content: if any interceptor is registered for the <code>STORAGE_PREACCESS_RESOURCES</code>,
+	 * <code>STORAGE_PRESHOW_RESOURCES</code> or <code>SERVER_OUTGOING_RESPONSE</code> pointcuts
+	 * (e.g. consent or authorization interceptors), for <code>Binary</code> resources, for
+	 * non-JSON responses, and when <code>_summary</code>, <code>_elements</code> or pretty
+	 * printing are requested.
+	 *
+	 * @since 8.4.0
+	 */
+	public void setDeferredParsingForReadsEnabled(boolean theDeferredParsingForReadsEnabled) {
+		myDeferredParsingForReadsEnabled = theDeferredParsingForReadsEnabled;
+	}
+
+	/**
+	 * If set to a value greater than <code>1</code> (default is <code>0</code>, meaning disabled),
+	 * historical versions of resources are stored as JSON Patch diffs against the nearest earlier
+	 * full snapshot version instead of as full copies. Every <code>N</code>th version of a resource
+	 * (versions 1, N+1, 2N+1, ...) is kept as a full snapshot, and a version is only converted to a
+	 * diff once a newer version has been stored, so the current version of a resource is always a
+	 * full body and normal reads are not affected. Reading an older version with
+	 * <code>_history/n</code> requires loading the snapshot it is based on as well.
+	 * <p>
+	 * This can greatly reduce the size of the <code>HFJ_RES_VER</code> table for resources which
+	 * are updated often, such as Encounter or Task. Disabling it later is safe: existing diffs
+	 * remain readable.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public int getResourceHistoryDeltaSnapshotInterval() {
+		return myResourceHistoryDeltaSnapshotInterval;
+	}
+
+	/**
+	 * If set to a value greater than <code>1</code> (default is <code>0</code>, meaning disabled),
+	 * historical versions of resources are stored as JSON Patch diffs against the nearest earlier
+	 * full snapshot version instead of as full copies. Every <code>N</code>th version of a resource
+	 * (versions 1, N+1, 2N+1, ...) is kept as a full snapshot, and a version is only converted to a
+	 * diff once a newer version has been stored, so the current version of a resource is always a
+	 * full body and normal reads are not affected. Reading an older version with
+	 * <code>_history/n</code> requires loading the snapshot it is based on as well.
+	 * <p>
+	 * This can greatly reduce the size of the <code>HFJ_RES_VER</code> table for resources which
+	 * are updated often, such as Encounter or Task. Disabling it later is safe: existing diffs
+	 * remain readable.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setResourceHistoryDeltaSnapshotInterval(int theResourceHistoryDeltaSnapshotInterval) {
+		myResourceHistoryDeltaSnapshotInterval = theResourceHistoryDeltaSnapshotInterval;
+	}
+
+	/**
+	 * Resource types listed here (default is none) are stored with deferred indexing. When a resource
+	 * of one of these types is created or updated, its body is stored and the write is acknowledged
+	 * without extracting or writing any search parameter index rows. The resource is instead marked
+	 * as pending and is indexed shortly afterward by a background job. Until then, searches match
+	 * against the indexes of the previous version (or none at all for a new resource), unless the
+	 * search includes the <code>X-Index-Consistency: read-your-writes</code> header, which causes
+	 * pending resources of the searched type in the searched partition to be indexed before the search
+	 * runs (up to {@link #getDeferredIndexingReadYourWritesLimit()} of them).
+	 * <p>
+	 * Conditional creates and updates are always indexed immediately. Checks which depend on the
+	 * extracted indexes, such as referential integrity and unique combo search parameters, are
+	 * performed by the background job. Do not list resource types which the server itself searches
+	 * for, such as SearchParameter or Subscription.
+	 * </p>
+	 * <p>
+	 * Since the write has already been acknowledged, a resource which fails these checks (or can't
+	 * be indexed for any other reason) is not rejected. It is marked with an index status of
+	 * <code>INDEXING_FAILED</code>, is skipped by the background job from then on, and stays
+	 * unsearchable until the cause is fixed and it is indexed again using <code>$reindex</code>.
+	 * </p>
+	 * <p>
+	 * Match URLs (used by conditional create, update and delete, and by conditional references in
+	 * transactions) are resolved against the search indexes, so they don't match resources of these
+	 * types which are still pending. For example, a conditional create which runs shortly after a
+	 * plain create of a matching resource may create a duplicate. Only list resource types which are
+	 * not the target of match URLs, or whose clients can tolerate this.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public Set<String> getDeferredIndexingResourceTypes() {
+		return myDeferredIndexingResourceTypes;
+	}
+
+	/**
+	 * Resource types listed here (default is none) are stored with deferred indexing. When a resource
+	 * of one of these types is created or updated, its body is stored and the write is acknowledged
+	 * without extracting or writing any search parameter index rows. The resource is instead marked
+	 * as pending and is indexed shortly afterward by a background job. Until then, searches match
+	 * against the indexes of the previous version (or none at all for a new resource), unless the
+	 * search includes the <code>X-Index-Consistency: read-your-writes</code> header, which causes
+	 * pending resources of the searched type in the searched partition to be indexed before the search
+	 * runs (up to {@link #getDeferredIndexingReadYourWritesLimit()} of them).
+	 * <p>
+	 * Conditional creates and updates are always indexed immediately. Checks which depend on the
+	 * extracted indexes, such as referential integrity and unique combo search parameters, are
+	 * performed by the background job. Do not list resource types which the server itself searches
+	 * for, such as SearchParameter or Subscription.
+	 * </p>
+	 * <p>
+	 * Since the write has already been acknowledged, a resource which fails these checks (or can't
+	 * be indexed for any other reason) is not rejected. It is marked with an index status of
+	 * <code>INDEXING_FAILED</code>, is skipped by the background job from then on, and stays
+	 * unsearchable until the cause is fixed and it is indexed again using <code>$reindex</code>.
+	 * </p>
+	 * <p>
+	 * Match URLs (used by conditional create, update and delete, and by conditional references in
+	 * transactions) are resolved against the search indexes, so they don't match resources of these
+	 * types which are still pending. For example, a conditional create which runs shortly after a
+	 * plain create of a matching resource may create a duplicate. Only list resource types which are
+	 * not the target of match URLs, or whose clients can tolerate this.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setDeferredIndexingResourceTypes(Set<String> theDeferredIndexingResourceTypes) {
+		Validate.notNull(theDeferredIndexingResourceTypes, "theDeferredIndexingResourceTypes must not be null");
+		myDeferredIndexingResourceTypes = theDeferredIndexingResourceTypes;
+	}
+
+	/**
+	 * Returns <code>true</code> if resources of the given type are stored with deferred indexing
+	 *
+	 * @see #setDeferredIndexingResourceTypes(Set)
+	 * @since 8.4.0
+	 */
+	public boolean isDeferredIndexingEnabled(String theResourceType) {
+		return myDeferredIndexingResourceTypes.contains(theResourceType);
+	}
+
+	/**
+	 * The maximum number of resources with deferred indexing that the background indexing job will
+	 * index in a single database transaction. Default is {@value #DEFAULT_DEFERRED_INDEXING_BATCH_SIZE}.
+	 *
+	 * @see #setDeferredIndexingResourceTypes(Set)
+	 * @since 8.4.0
+	 */
+	public int getDeferredIndexingBatchSize() {
+		return myDeferredIndexingBatchSize;
+	}
+
+	/**
+	 * The maximum number of resources with deferred indexing that the background indexing job will
+	 * index in a single database transaction. Default is {@value #DEFAULT_DEFERRED_INDEXING_BATCH_SIZE}.
+	 *
+	 * @see #setDeferredIndexingResourceTypes(Set)
+	 * @since 8.4.0
+	 */
+	public void setDeferredIndexingBatchSize(int theDeferredIndexingBatchSize) {
+		Validate.isTrue(theDeferredIndexingBatchSize > 0, "theDeferredIndexingBatchSize must be positive");
+		myDeferredIndexingBatchSize = theDeferredIndexingBatchSize;
+	}
+
+	/**
+	 * The maximum number of pending resources with deferred indexing that will be indexed before
+	 * a search with the <code>X-Index-Consistency: read-your-writes</code> header runs. This bounds
+	 * the work done on the request thread if the background job has fallen behind. Any remaining
+	 * resources are left for the background job, so the search may not see all of them.
+	 * Default is {@value #DEFAULT_DEFERRED_INDEXING_READ_YOUR_WRITES_LIMIT}.
+	 *
+	 * @see #setDeferredIndexingResourceTypes(Set)
+	 * @since 8.4.0
+	 */
+	public int getDeferredIndexingReadYourWritesLimit() {
+		return myDeferredIndexingReadYourWritesLimit;
+	}
+
+	/**
+	 * The maximum number of pending resources with deferred indexing that will be indexed before
+	 * a search with the <code>X-Index-Consistency: read-your-writes</code> header runs. This bounds
+	 * the work done on the request thread if the background job has fallen behind. Any remaining
+	 * resources are left for the background job, so the search may not see all of them.
+	 * Default is {@value #DEFAULT_DEFERRED_INDEXING_READ_YOUR_WRITES_LIMIT}.
+	 *
+	 * @see #setDeferredIndexingResourceTypes(Set)
+	 * @since 8.4.0
+	 */
+	public void setDeferredIndexingReadYourWritesLimit(int theDeferredIndexingReadYourWritesLimit) {
+		Validate.isTrue(
+				theDeferredIndexingReadYourWritesLimit > 0, "theDeferredIndexingReadYourWritesLimit must be positive");
+		myDeferredIndexingReadYourWritesLimit = theDeferredIndexingReadYourWritesLimit;
+	}
+
 	public enum StoreMetaSourceInformationEnum {
 		NONE(false, false),
 		SOURCE_URI(true, false),
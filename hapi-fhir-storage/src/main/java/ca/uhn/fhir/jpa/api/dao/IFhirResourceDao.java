@@ -31,6 +31,7 @@ import ca.uhn.fhir.jpa.model.cross.IBasePersistedResource;
 import ca.uhn.fhir.jpa.model.entity.TagTypeEnum;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.model.api.IQueryParameterType;
+import ca.uhn.fhir.parser.DeferredResource;
 import ca.uhn.fhir.rest.api.EncodingEnum;
 import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.api.PatchTypeEnum;
@@ -290,6 +291,25 @@ public interface IFhirResourceDao<T extends IBaseResource> extends IDao {
 	 */
 	T read(IIdType theId, RequestDetails theRequestDetails, boolean theDeletedOk);
 
+	/**
+	 * Reads a resource which will be returned unchanged to the client as the body of a
+	 * <code>read</code> or <code>vread</code> response. Implementations may avoid parsing the
+	 * stored resource body, in which case a header resource carrying a {@link DeferredResource}
+	 * is returned. Callers which need the resource content must use
+	 * {@link #read(IIdType, RequestDetails)} or pass the result through
+	 * {@link DeferredResource#inflate(IBaseResource)}. If the server has an
+	 * {@link ca.uhn.fhir.rest.server.EncodedResponseCache} which already holds the response,
+	 * implementations may return a resource containing only the ID and metadata, carrying the
+	 * cached response body, without loading the stored resource at all.
+	 *
+	 * @throws ResourceNotFoundException If the ID is not known to the server
+	 * @throws ResourceGoneException     If the resource has been deleted
+	 * @since 8.4.0
+	 */
+	default T readForResponse(IIdType theId, RequestDetails theRequestDetails) {
+		return read(theId, theRequestDetails);
+	}
+
 	/**
 	 * Read an entity from the database, and return it. Note that here we're talking about whatever the
 	 * native database representation is, not the parsed {@link IBaseResource} instance.
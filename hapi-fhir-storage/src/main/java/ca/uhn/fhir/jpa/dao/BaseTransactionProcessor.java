@@ -95,6 +95,7 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
 import org.apache.commons.lang3.RandomUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.ThreadUtils;
@@ -135,11 +136,17 @@ import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -165,6 +172,12 @@ public abstract class BaseTransactionProcessor {
 	private static final String DELETE = "DELETE";
 	private static final String PATCH = "PATCH";
 
+	/**
+	 * Transactions saving at least this many resources have their references analyzed in parallel
+	 * if {@link StorageSettings#getTransactionPreprocessingParallelism()} allows it
+	 */
+	private static final int PARALLEL_PREPROCESSING_MINIMUM_RESOURCES = 100;
+
 	@Autowired
 	private IRequestPartitionHelperSvc myRequestPartitionHelperService;
 
@@ -204,6 +217,8 @@ public abstract class BaseTransactionProcessor {
 
 	private TaskExecutor myExecutor;
 
+	private ForkJoinPool myPreprocessingPool;
+
 	@Autowired
 	private IResourceVersionSvc myResourceVersionSvc;
 
@@ -231,6 +246,41 @@ public abstract class BaseTransactionProcessor {
 		return myExecutor;
 	}
 
+	/**
+	 * The pool is replaced if {@link StorageSettings#getTransactionPreprocessingParallelism()} has
+	 * changed since it was created. Work already submitted to the old pool is allowed to finish.
+	 */
+	private synchronized <T> ForkJoinTask<T> submitPreprocessingTask(Callable<T> theTask) {
+		int parallelism = myStorageSettings.getTransactionPreprocessingParallelism();
+		if (myPreprocessingPool == null || myPreprocessingPool.getParallelism() != parallelism) {
+			if (myPreprocessingPool != null) {
+				myPreprocessingPool.shutdown();
+			}
+			myPreprocessingPool =
+					new ForkJoinPool(parallelism, BaseTransactionProcessor::newPreprocessingThread, null, false);
+		}
+		return myPreprocessingPool.submit(theTask);
+	}
+
+	private static ForkJoinWorkerThread newPreprocessingThread(ForkJoinPool thePool) {
+		ForkJoinWorkerThread retVal = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(thePool);
+		retVal.setName("transaction-preprocessing-" + retVal.getPoolIndex());
+		return retVal;
+	}
+
+	@PreDestroy
+	public synchronized void shutdownPreprocessingPool() {
+		if (myPreprocessingPool != null) {
+			myPreprocessingPool.shutdownNow();
+			myPreprocessingPool = null;
+		}
+	}
+
+	@VisibleForTesting
+	public synchronized ForkJoinPool getPreprocessingPoolForUnitTest() {
+		return myPreprocessingPool;
+	}
+
 	public <BUNDLE extends IBaseBundle> BUNDLE transaction(
 			RequestDetails theRequestDetails, BUNDLE theRequest, boolean theNestedMode) {
 		String actionName = "Transaction";
@@ -506,6 +556,13 @@ public abstract class BaseTransactionProcessor {
 		}
 		// Execute all non-gets on calling thread.
 		nonGetCalls.forEach(RetriableBundleTask::run);
+		// Answer searches which only differ in a single parameter value using merged searches
+		if (myStorageSettings.isBundleBatchSearchMergingEnabled()
+				&& !theNestedMode
+				&& getCalls.size() > 1
+				&& theRequestDetails instanceof ServletRequestDetails servletRequestDetails) {
+			getCalls = executeMergeableSearches(servletRequestDetails, getCalls, responseMap, completionLatch);
+		}
 		// Execute all gets (potentially in a pool)
 		if (myStorageSettings.getBundleBatchPoolSize() == 1) {
 			getCalls.forEach(RetriableBundleTask::run);
@@ -540,6 +597,36 @@ public abstract class BaseTransactionProcessor {
 		return response;
 	}
 
+	/**
+	 * Executes any batch GET entries which can be combined into merged searches, and returns
+	 * the remaining entries which still need to be executed individually
+	 */
+	private List<RetriableBundleTask> executeMergeableSearches(
+			ServletRequestDetails theRequestDetails,
+			List<RetriableBundleTask> theGetCalls,
+			Map<Integer, Object> theResponseMap,
+			CountDownLatch theCompletionLatch) {
+		Map<Integer, IBase> getEntries = new LinkedHashMap<>();
+		for (RetriableBundleTask next : theGetCalls) {
+			getEntries.put(next.myResponseOrder, next.myNextReqEntry);
+		}
+
+		BatchSearchMerger merger = new BatchSearchMerger(myContext, myVersionAdapter, myInMemoryResourceMatcher);
+		Map<Integer, IBase> mergedResponses = merger.executeMergeableSearches(theRequestDetails, getEntries);
+
+		List<RetriableBundleTask> retVal = new ArrayList<>(theGetCalls.size());
+		for (RetriableBundleTask next : theGetCalls) {
+			IBase response = mergedResponses.get(next.myResponseOrder);
+			if (response != null) {
+				theResponseMap.put(next.myResponseOrder, response);
+				theCompletionLatch.countDown();
+			} else {
+				retVal.add(next);
+			}
+		}
+		return retVal;
+	}
+
 	@VisibleForTesting
 	public void setHapiTransactionService(HapiTransactionService theHapiTransactionService) {
 		myHapiTransactionService = theHapiTransactionService;
@@ -1862,9 +1949,12 @@ public abstract class BaseTransactionProcessor {
 			EntriesToProcessMap theEntriesToProcess,
 			Set<IIdType> theNonUpdatedEntities,
 			Set<IBasePersistedResource> theUpdatedEntities) {
-		FhirTerser terser = myContext.newTerser();
+		theTransactionStopWatch.startTask("Analyze references in " + theIdToPersistedOutcome.size() + " resources");
+		IdentityHashMap<IBaseResource, ResourceReferenceAnalysis> referenceAnalyses =
+				analyzeResourceReferences(theIdToPersistedOutcome.values());
+
 		theTransactionStopWatch.startTask("Index " + theIdToPersistedOutcome.size() + " resources");
-		IdentityHashMap<DaoMethodOutcome, Set<IBaseReference>> deferredIndexesForAutoVersioning = null;
+		IdentityHashMap<DaoMethodOutcome, ResourceReferenceAnalysis> deferredIndexesForAutoVersioning = null;
 		int i = 0;
 		for (DaoMethodOutcome nextOutcome : theIdToPersistedOutcome.values()) {
 
@@ -1884,12 +1974,9 @@ public abstract class BaseTransactionProcessor {
 				continue;
 			}
 
-			Set<IBaseReference> referencesToAutoVersion =
-					BaseStorageDao.extractReferencesToAutoVersion(myContext, myStorageSettings, nextResource);
-			Set<IBaseReference> referencesToKeepClientSuppliedVersion =
-					BaseStorageDao.extractReferencesToAvoidReplacement(myContext, nextResource);
+			ResourceReferenceAnalysis referenceAnalysis = referenceAnalyses.get(nextResource);
 
-			if (referencesToAutoVersion.isEmpty()) {
+			if (referenceAnalysis.myReferencesToAutoVersion.isEmpty()) {
 				// no references to autoversion - we can do the resolve and save now
 				resolveReferencesThenSaveAndIndexResource(
 						theRequest,
@@ -1899,29 +1986,24 @@ public abstract class BaseTransactionProcessor {
 						theEntriesToProcess,
 						theNonUpdatedEntities,
 						theUpdatedEntities,
-						terser,
 						nextOutcome,
 						nextResource,
-						referencesToAutoVersion, // this is empty
-						referencesToKeepClientSuppliedVersion);
+						referenceAnalysis);
 			} else {
 				// we have autoversioned things to defer until later
 				if (deferredIndexesForAutoVersioning == null) {
 					deferredIndexesForAutoVersioning = new IdentityHashMap<>();
 				}
-				deferredIndexesForAutoVersioning.put(nextOutcome, referencesToAutoVersion);
+				deferredIndexesForAutoVersioning.put(nextOutcome, referenceAnalysis);
 			}
 		}
 
 		// If we have any resources we'll be auto-versioning, index these next
 		if (deferredIndexesForAutoVersioning != null) {
-			for (Map.Entry<DaoMethodOutcome, Set<IBaseReference>> nextEntry :
+			for (Map.Entry<DaoMethodOutcome, ResourceReferenceAnalysis> nextEntry :
 					deferredIndexesForAutoVersioning.entrySet()) {
 				DaoMethodOutcome nextOutcome = nextEntry.getKey();
-				Set<IBaseReference> referencesToAutoVersion = nextEntry.getValue();
 				IBaseResource nextResource = nextOutcome.getResource();
-				Set<IBaseReference> referencesToKeepClientSuppliedVersion =
-						BaseStorageDao.extractReferencesToAvoidReplacement(myContext, nextResource);
 
 				resolveReferencesThenSaveAndIndexResource(
 						theRequest,
@@ -1931,15 +2013,69 @@ public abstract class BaseTransactionProcessor {
 						theEntriesToProcess,
 						theNonUpdatedEntities,
 						theUpdatedEntities,
-						terser,
 						nextOutcome,
 						nextResource,
-						referencesToAutoVersion,
-						referencesToKeepClientSuppliedVersion);
+						nextEntry.getValue());
 			}
 		}
 	}
 
+	/**
+	 * Finds the references and URIs in each resource that is about to be saved. These tree walks
+	 * are pure CPU work on independent resources, so for large transactions they are run on a
+	 * fork-join pool. Everything which depends on the results (resolving and rewriting references,
+	 * saving and indexing) still happens afterward on the calling thread, one resource at a time.
+	 */
+	private IdentityHashMap<IBaseResource, ResourceReferenceAnalysis> analyzeResourceReferences(
+			Collection<DaoMethodOutcome> theOutcomes) {
+		List<IBaseResource> resources = theOutcomes.stream()
+				.filter(t -> !t.isNop())
+				.map(DaoMethodOutcome::getResource)
+				.filter(Objects::nonNull)
+				.collect(Collectors.toList());
+
+		List<ResourceReferenceAnalysis> analyses;
+		if (myStorageSettings.getTransactionPreprocessingParallelism() > 1
+				&& resources.size() >= PARALLEL_PREPROCESSING_MINIMUM_RESOURCES) {
+			try {
+				analyses = submitPreprocessingTask(() -> resources.parallelStream()
+								.map(this::analyzeResourceReferences)
+								.collect(Collectors.toList()))
+						.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InternalErrorException(Msg.code(2798) + "Interrupted while analyzing transaction", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new InternalErrorException(Msg.code(2799) + e.getCause().getMessage(), e.getCause());
+			}
+		} else {
+			analyses = resources.stream().map(this::analyzeResourceReferences).collect(Collectors.toList());
+		}
+
+		IdentityHashMap<IBaseResource, ResourceReferenceAnalysis> retVal = new IdentityHashMap<>();
+		for (int i = 0; i < resources.size(); i++) {
+			retVal.put(resources.get(i), analyses.get(i));
+		}
+		return retVal;
+	}
+
+	@SuppressWarnings("unchecked")
+	private ResourceReferenceAnalysis analyzeResourceReferences(IBaseResource theResource) {
+		// FhirTerser is cheap to create and is not shared between threads
+		FhirTerser terser = myContext.newTerser();
+		Class<? extends IPrimitiveType<?>> uriType = (Class<? extends IPrimitiveType<?>>)
+				myContext.getElementDefinition("uri").getImplementingClass();
+
+		return new ResourceReferenceAnalysis(
+				BaseStorageDao.extractReferencesToAutoVersion(myContext, myStorageSettings, theResource),
+				BaseStorageDao.extractReferencesToAvoidReplacement(myContext, theResource),
+				terser.getAllResourceReferences(theResource),
+				terser.getAllPopulatedChildElementsOfType(theResource, uriType));
+	}
+
 	private void resolveReferencesThenSaveAndIndexResource(
 			RequestDetails theRequest,
 			TransactionDetails theTransactionDetails,
@@ -1948,14 +2084,15 @@ public abstract class BaseTransactionProcessor {
 			EntriesToProcessMap theEntriesToProcess,
 			Set<IIdType> theNonUpdatedEntities,
 			Set<IBasePersistedResource> theUpdatedEntities,
-			FhirTerser theTerser,
 			DaoMethodOutcome theDaoMethodOutcome,
 			IBaseResource theResource,
-			Set<IBaseReference> theReferencesToAutoVersion,
-			Set<IBaseReference> theReferencesToKeepClientSuppliedVersion) {
+			ResourceReferenceAnalysis theReferenceAnalysis) {
+		Set<IBaseReference> referencesToAutoVersion = theReferenceAnalysis.myReferencesToAutoVersion;
+		Set<IBaseReference> referencesToKeepClientSuppliedVersion =
+				theReferenceAnalysis.myReferencesToKeepClientSuppliedVersion;
+
 		// References
-		List<ResourceReferenceInfo> allRefs = theTerser.getAllResourceReferences(theResource);
-		for (ResourceReferenceInfo nextRef : allRefs) {
+		for (ResourceReferenceInfo nextRef : theReferenceAnalysis.myAllReferences) {
 			IBaseReference resourceReference = nextRef.getResourceReference();
 			IIdType nextId = resourceReference.getReferenceElement();
 			IIdType newId = null;
@@ -1977,13 +2114,13 @@ public abstract class BaseTransactionProcessor {
 			}
 			if (newId != null || theIdSubstitutions.containsSource(nextId)) {
 				if (shouldReplaceResourceReference(
-						theReferencesToAutoVersion, theReferencesToKeepClientSuppliedVersion, resourceReference)) {
+						referencesToAutoVersion, referencesToKeepClientSuppliedVersion, resourceReference)) {
 					if (newId == null) {
 						newId = theIdSubstitutions.getForSource(nextId);
 					}
 					if (newId != null) {
 						ourLog.debug(" * Replacing resource ref {} with {}", nextId, newId);
-						if (theReferencesToAutoVersion.contains(resourceReference)) {
+						if (referencesToAutoVersion.contains(resourceReference)) {
 							replaceResourceReference(newId, resourceReference, theTransactionDetails);
 						} else {
 							replaceResourceReference(newId.toVersionless(), resourceReference, theTransactionDetails);
@@ -2001,11 +2138,11 @@ public abstract class BaseTransactionProcessor {
 				// should this be allPartitions?
 				ResourcePersistentIdMap resourceVersionMap = myResourceVersionSvc.getLatestVersionIdsForResourceIds(
 						RequestPartitionId.allPartitions(),
-						theReferencesToAutoVersion.stream()
+						referencesToAutoVersion.stream()
 								.map(IBaseReference::getReferenceElement)
 								.collect(Collectors.toList()));
 
-				for (IBaseReference baseRef : theReferencesToAutoVersion) {
+				for (IBaseReference baseRef : referencesToAutoVersion) {
 					IIdType id = baseRef.getReferenceElement();
 					if (!resourceVersionMap.containsKey(id)
 							&& myStorageSettings.isAutoCreatePlaceholderReferenceTargets()) {
@@ -2024,7 +2161,7 @@ public abstract class BaseTransactionProcessor {
 					}
 				}
 
-				if (theReferencesToAutoVersion.contains(resourceReference)) {
+				if (referencesToAutoVersion.contains(resourceReference)) {
 					DaoMethodOutcome outcome = theIdToPersistedOutcome.get(nextId);
 
 					if (outcome != null && !outcome.isNop() && !Boolean.TRUE.equals(outcome.getCreated())) {
@@ -2043,10 +2180,7 @@ public abstract class BaseTransactionProcessor {
 		}
 
 		// URIs
-		Class<? extends IPrimitiveType<?>> uriType = (Class<? extends IPrimitiveType<?>>)
-				myContext.getElementDefinition("uri").getImplementingClass();
-		List<? extends IPrimitiveType<?>> allUris = theTerser.getAllPopulatedChildElementsOfType(theResource, uriType);
-		for (IPrimitiveType<?> nextRef : allUris) {
+		for (IPrimitiveType<?> nextRef : theReferenceAnalysis.myAllUris) {
 			if (nextRef instanceof IIdType) {
 				continue; // No substitution on the resource ID itself!
 			}
@@ -2074,7 +2208,7 @@ public abstract class BaseTransactionProcessor {
 
 		IBasePersistedResource updateOutcome = null;
 		if (theUpdatedEntities.contains(theDaoMethodOutcome.getEntity())) {
-			boolean forceUpdateVersion = !theReferencesToAutoVersion.isEmpty();
+			boolean forceUpdateVersion = !referencesToAutoVersion.isEmpty();
 			String matchUrl = theDaoMethodOutcome.getMatchUrl();
 			RestOperationTypeEnum operationType = theDaoMethodOutcome.getOperationType();
 			DaoMethodOutcome daoMethodOutcome = jpaDao.updateInternal(
@@ -2405,6 +2539,28 @@ public abstract class BaseTransactionProcessor {
 		myPartitionSettings = thePartitionSettings;
 	}
 
+	/**
+	 * The references and URIs found in a resource before it is saved
+	 */
+	private static class ResourceReferenceAnalysis {
+
+		private final Set<IBaseReference> myReferencesToAutoVersion;
+		private final Set<IBaseReference> myReferencesToKeepClientSuppliedVersion;
+		private final List<ResourceReferenceInfo> myAllReferences;
+		private final List<? extends IPrimitiveType<?>> myAllUris;
+
+		private ResourceReferenceAnalysis(
+				Set<IBaseReference> theReferencesToAutoVersion,
+				Set<IBaseReference> theReferencesToKeepClientSuppliedVersion,
+				List<ResourceReferenceInfo> theAllReferences,
+				List<? extends IPrimitiveType<?>> theAllUris) {
+			myReferencesToAutoVersion = theReferencesToAutoVersion;
+			myReferencesToKeepClientSuppliedVersion = theReferencesToKeepClientSuppliedVersion;
+			myAllReferences = theAllReferences;
+			myAllUris = theAllUris;
+		}
+	}
+
 	/**
 	 * Transaction Order, per the spec:
 	 * <p>
@@ -0,0 +1,508 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
+import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryResourceMatcher;
+import ca.uhn.fhir.model.primitive.InstantDt;
+import ca.uhn.fhir.model.valueset.BundleEntrySearchModeEnum;
+import ca.uhn.fhir.model.valueset.BundleTypeEnum;
+import ca.uhn.fhir.rest.api.BundleLinks;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.IVersionSpecificBundleFactory;
+import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+import ca.uhn.fhir.rest.server.RestfulServer;
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import ca.uhn.fhir.rest.server.method.BaseMethodBinding;
+import ca.uhn.fhir.rest.server.method.BaseResourceReturningMethodBinding;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import ca.uhn.fhir.rest.server.servlet.ServletSubRequestDetails;
+import ca.uhn.fhir.rest.server.util.ServletRequestUtil;
+import ca.uhn.fhir.util.BundleUtil;
+import ca.uhn.fhir.util.UrlUtil;
+import ca.uhn.fhir.util.bundle.SearchBundleEntryParts;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MultimapBuilder;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.instance.model.api.IBaseBundle;
+import org.hl7.fhir.instance.model.api.IBaseOperationOutcome;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static ca.uhn.fhir.util.HapiExtensions.EXTENSION_TRANSACTION_ENTRY_PARTITION_IDS;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Executes batch Bundle GET entries which perform the same search, and only differ in the
+ * value of a single search parameter, as one search that ORs the values together. For example,
+ * the entries <code>Observation?code=1234-5&amp;patient=Patient/A</code> and
+ * <code>Observation?code=1234-5&amp;patient=Patient/B</code> are executed as
+ * <code>Observation?code=1234-5&amp;patient=Patient/A,Patient/B</code>, and the results are
+ * then split back into a searchset Bundle for each entry using in-memory matching.
+ * <p>
+ * The merged search is invoked through the server in the same way as an individual batch
+ * entry, so interceptors (including authorization) see the merged search. Entries are only
+ * merged when this can not change their results, and any merged search which can not be
+ * split unambiguously (or which fails) is abandoned so that its entries are executed
+ * individually by the caller.
+ * </p>
+ *
+ * @see ca.uhn.fhir.jpa.model.entity.StorageSettings#setBundleBatchSearchMergingEnabled(boolean)
+ * @since 8.4.0
+ */
+class BatchSearchMerger {
+
+	/**
+	 * The maximum number of entries combined into a single search, which keeps the merged
+	 * search URL at a reasonable length
+	 */
+	static final int MAXIMUM_ENTRIES_PER_MERGED_SEARCH = 100;
+
+	private static final Logger ourLog = LoggerFactory.getLogger(BatchSearchMerger.class);
+
+	/**
+	 * Control parameters which filter or order results without changing how many are returned
+	 * or what a result Bundle contains. Any other control parameter prevents merging.
+	 */
+	private static final Set<String> MERGEABLE_CONTROL_PARAMETERS =
+			Set.of(Constants.PARAM_SORT, Constants.PARAM_LASTUPDATED);
+
+	private final FhirContext myContext;
+
+	@SuppressWarnings("rawtypes")
+	private final ITransactionProcessorVersionAdapter myVersionAdapter;
+
+	private final InMemoryResourceMatcher myInMemoryResourceMatcher;
+
+	@SuppressWarnings("rawtypes")
+	BatchSearchMerger(
+			FhirContext theContext,
+			ITransactionProcessorVersionAdapter theVersionAdapter,
+			InMemoryResourceMatcher theInMemoryResourceMatcher) {
+		myContext = theContext;
+		myVersionAdapter = theVersionAdapter;
+		myInMemoryResourceMatcher = theInMemoryResourceMatcher;
+	}
+
+	/**
+	 * Executes any of the given GET entries which can be merged with each other.
+	 *
+	 * @param theRequestDetails The request details for the batch
+	 * @param theGetEntries     The GET entries of the batch, keyed by their position in the batch
+	 * @return The response entries for the entries which were executed as part of a merged search,
+	 * keyed by their position in the batch. Entries which are not in this map still need to be
+	 * executed individually.
+	 */
+	@Nonnull
+	Map<Integer, IBase> executeMergeableSearches(
+			@Nonnull ServletRequestDetails theRequestDetails, @Nonnull Map<Integer, IBase> theGetEntries) {
+		RestfulServer server = theRequestDetails.getServer();
+		Integer defaultPageSize = server.getDefaultPageSize();
+		Integer maximumPageSize = server.getMaximumPageSize();
+		if (defaultPageSize == null || maximumPageSize == null) {
+			// Without a known page size we can't tell whether an individual search would have been paged
+			return Map.of();
+		}
+
+		/*
+		 * An entry can potentially vary in any of its single-valued search parameters, so it is
+		 * added to one group for each of them. The largest groups are then executed first, and
+		 * each entry is only ever executed in one group.
+		 */
+		ListMultimap<String, Candidate> candidatesByShape =
+				MultimapBuilder.linkedHashKeys().arrayListValues().build();
+		for (Map.Entry<Integer, IBase> nextEntry : theGetEntries.entrySet()) {
+			SearchEntry searchEntry = parseSearchEntry(nextEntry.getKey(), nextEntry.getValue());
+			if (searchEntry == null) {
+				continue;
+			}
+			for (String nextVaryingParameter : searchEntry.getVaryingParameterCandidates()) {
+				Candidate candidate = new Candidate(searchEntry, nextVaryingParameter);
+				candidatesByShape.put(candidate.getShape(), candidate);
+			}
+		}
+
+		List<String> shapes = new ArrayList<>(candidatesByShape.keySet());
+		shapes.sort(Comparator.comparing(t -> -candidatesByShape.get(t).size()));
+
+		Map<Integer, IBase> retVal = new HashMap<>();
+		Set<Integer> attemptedIndexes = new HashSet<>();
+		for (String nextShape : shapes) {
+			List<Candidate> group = candidatesByShape.get(nextShape).stream()
+					.filter(t -> !attemptedIndexes.contains(t.getIndex()))
+					.toList();
+			for (List<Candidate> nextChunk : Lists.partition(group, MAXIMUM_ENTRIES_PER_MERGED_SEARCH)) {
+				if (nextChunk.size() < 2) {
+					continue;
+				}
+				nextChunk.forEach(t -> attemptedIndexes.add(t.getIndex()));
+				retVal.putAll(executeMergedSearch(theRequestDetails, nextChunk, defaultPageSize, maximumPageSize));
+			}
+		}
+
+		if (!retVal.isEmpty()) {
+			ourLog.debug("Answered {} batch GET entries using merged searches", retVal.size());
+		}
+		return retVal;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Nullable
+	private SearchEntry parseSearchEntry(int theIndex, IBase theEntry) {
+		if (isNotBlank(myVersionAdapter.getEntryRequestIfMatch(theEntry))
+				|| isNotBlank(myVersionAdapter.getEntryRequestIfNoneMatch(theEntry))
+				|| isNotBlank(myVersionAdapter.getEntryRequestIfNoneExist(theEntry))) {
+			return null;
+		}
+		if (myVersionAdapter
+				.getEntryRequestExtensionByUrl(theEntry, EXTENSION_TRANSACTION_ENTRY_PARTITION_IDS)
+				.isPresent()) {
+			return null;
+		}
+
+		String url = myVersionAdapter.getEntryRequestUrl(theEntry);
+		if (isBlank(url)) {
+			return null;
+		}
+		if (url.startsWith("/")) {
+			url = url.substring(1);
+		}
+		int questionMarkIndex = url.indexOf('?');
+		if (questionMarkIndex < 1) {
+			return null;
+		}
+		String resourceType = url.substring(0, questionMarkIndex);
+		if (!myContext.getResourceTypes().contains(resourceType)) {
+			return null;
+		}
+
+		Map<String, String[]> parameters = UrlUtil.parseQueryString(url.substring(questionMarkIndex + 1));
+		if (parameters.isEmpty()) {
+			return null;
+		}
+		for (String nextName : parameters.keySet()) {
+			if (nextName.startsWith("_") && !MERGEABLE_CONTROL_PARAMETERS.contains(nextName)) {
+				return null;
+			}
+		}
+
+		return new SearchEntry(theIndex, resourceType, new TreeMap<>(parameters));
+	}
+
+	@Nonnull
+	private Map<Integer, IBase> executeMergedSearch(
+			ServletRequestDetails theRequestDetails,
+			List<Candidate> theCandidates,
+			int theDefaultPageSize,
+			int theMaximumPageSize) {
+		Candidate first = theCandidates.get(0);
+		Set<String> values = new LinkedHashSet<>();
+		for (Candidate next : theCandidates) {
+			values.add(next.getVaryingValue());
+		}
+
+		int count = (int) Math.min(theMaximumPageSize, (long) theDefaultPageSize * theCandidates.size());
+		StringBuilder mergedUrl = new StringBuilder(first.getSearchEntry().getResourceType());
+		mergedUrl.append('?');
+		if (first.getSearchEntry().appendParameters(mergedUrl, first.getVaryingParameter())) {
+			mergedUrl.append('&');
+		}
+		mergedUrl.append(UrlUtil.escapeUrlParam(first.getVaryingParameter())).append('=');
+		mergedUrl.append(String.join(",", values.stream().map(UrlUtil::escapeUrlParam).toList()));
+		mergedUrl.append('&').append(Constants.PARAM_COUNT).append('=').append(count);
+
+		try {
+			ServletSubRequestDetails requestDetails = ServletRequestUtil.getServletSubRequestDetails(
+					theRequestDetails, mergedUrl.toString(), "GET", ArrayListMultimap.create());
+			BaseMethodBinding method = theRequestDetails
+					.getServer()
+					.determineResourceMethod(requestDetails, requestDetails.getRequestPath());
+			if (!(method instanceof BaseResourceReturningMethodBinding methodBinding)
+					|| method.getRestOperationType(requestDetails) != RestOperationTypeEnum.SEARCH_TYPE) {
+				return Map.of();
+			}
+			requestDetails.setRestOperationType(RestOperationTypeEnum.SEARCH_TYPE);
+
+			IBaseResource result = methodBinding.doInvokeServer(theRequestDetails.getServer(), requestDetails);
+			if (!(result instanceof IBaseBundle mergedBundle)
+					|| BundleUtil.getLinkUrlOfType(myContext, mergedBundle, Constants.LINK_NEXT) != null) {
+				// More results than fit on a page, so the individual searches may need paging
+				return Map.of();
+			}
+
+			List<List<IBaseResource>> matches = splitResults(requestDetails, mergedBundle, theCandidates);
+			if (matches == null) {
+				return Map.of();
+			}
+
+			Map<Integer, IBase> retVal = new HashMap<>();
+			for (int i = 0; i < theCandidates.size(); i++) {
+				List<IBaseResource> nextMatches = matches.get(i);
+				if (nextMatches.size() >= theDefaultPageSize) {
+					// The individual search would (or might) have returned a paged result
+					return Map.of();
+				}
+				IBaseBundle searchBundle =
+						createSearchBundle(theRequestDetails, theCandidates.get(i), mergedBundle, nextMatches);
+				retVal.put(theCandidates.get(i).getIndex(), createResponseEntry(searchBundle));
+			}
+			return retVal;
+
+		} catch (BaseServerResponseException e) {
+			ourLog.debug(
+					"Merged batch search {} failed, entries will be executed individually: {}",
+					mergedUrl,
+					e.toString());
+			return Map.of();
+		}
+	}
+
+	/**
+	 * @return The matching resources for each candidate, or <code>null</code> if the results can
+	 * not be split unambiguously
+	 */
+	@Nullable
+	private List<List<IBaseResource>> splitResults(
+			ServletSubRequestDetails theRequestDetails, IBaseBundle theMergedBundle, List<Candidate> theCandidates) {
+		List<String> criteria = theCandidates.stream().map(Candidate::getMatchCriteria).toList();
+		List<List<IBaseResource>> retVal = new ArrayList<>(theCandidates.size());
+		for (int i = 0; i < theCandidates.size(); i++) {
+			retVal.add(new ArrayList<>());
+		}
+
+		for (SearchBundleEntryParts nextPart : BundleUtil.getSearchBundleEntryParts(myContext, theMergedBundle)) {
+			BundleEntrySearchModeEnum searchMode = nextPart.getSearchMode();
+			if (nextPart.getResource() == null
+					|| nextPart.getResource() instanceof IBaseOperationOutcome
+					|| (searchMode != null && searchMode != BundleEntrySearchModeEnum.MATCH)) {
+				// e.g. an OperationOutcome with warnings, which we can't attribute to a single entry
+				return null;
+			}
+
+			IBaseResource resource = nextPart.getResource();
+			List<InMemoryMatchResult> results =
+					myInMemoryResourceMatcher.matchEach(criteria, resource, theRequestDetails);
+			boolean matchedAny = false;
+			for (int i = 0; i < results.size(); i++) {
+				InMemoryMatchResult nextResult = results.get(i);
+				if (!nextResult.supported()) {
+					return null;
+				}
+				if (nextResult.matched()) {
+					retVal.get(i).add(resource);
+					matchedAny = true;
+				}
+			}
+			if (!matchedAny) {
+				return null;
+			}
+		}
+
+		return retVal;
+	}
+
+	private IBaseBundle createSearchBundle(
+			ServletRequestDetails theRequestDetails,
+			Candidate theCandidate,
+			IBaseBundle theMergedBundle,
+			List<IBaseResource> theMatches) {
+		String serverBase = theRequestDetails.getFhirServerBase();
+		BundleLinks links = new BundleLinks(serverBase, null, false, BundleTypeEnum.SEARCHSET);
+		links.setSelf(serverBase + "/" + theCandidate.getSearchEntry().getUrl());
+
+		InstantDt lastUpdated = null;
+		Date mergedLastUpdated = theMergedBundle.getMeta().getLastUpdated();
+		if (mergedLastUpdated != null) {
+			lastUpdated = new InstantDt(mergedLastUpdated);
+		}
+
+		IVersionSpecificBundleFactory bundleFactory = myContext.newBundleFactory();
+		bundleFactory.addRootPropertiesToBundle(
+				UUID.randomUUID().toString(), links, theMatches.size(), lastUpdated);
+		bundleFactory.addResourcesToBundle(
+				new ArrayList<>(theMatches),
+				BundleTypeEnum.SEARCHSET,
+				serverBase,
+				theRequestDetails.getServer().getBundleInclusionRule(),
+				null);
+		return (IBaseBundle) bundleFactory.getResourceBundle();
+	}
+
+	@SuppressWarnings("unchecked")
+	private IBase createResponseEntry(IBaseBundle theSearchBundle) {
+		IBaseBundle holder = myVersionAdapter.createBundle(
+				org.hl7.fhir.r4.model.Bundle.BundleType.BATCHRESPONSE.toCode());
+		IBase retVal = (IBase) myVersionAdapter.addEntry(holder);
+		myVersionAdapter.setResource(retVal, theSearchBundle);
+		myVersionAdapter.setResponseStatus(
+				retVal,
+				Constants.STATUS_HTTP_200_OK + " " + Constants.HTTP_STATUS_NAMES.get(Constants.STATUS_HTTP_200_OK));
+		return retVal;
+	}
+
+	/**
+	 * A parsed GET search entry from the batch
+	 */
+	private static class SearchEntry {
+
+		private final int myIndex;
+		private final String myResourceType;
+		private final TreeMap<String, String[]> myParameters;
+
+		private SearchEntry(int theIndex, String theResourceType, TreeMap<String, String[]> theParameters) {
+			myIndex = theIndex;
+			myResourceType = theResourceType;
+			myParameters = theParameters;
+		}
+
+		int getIndex() {
+			return myIndex;
+		}
+
+		String getResourceType() {
+			return myResourceType;
+		}
+
+		String getValue(String theParameter) {
+			return myParameters.get(theParameter)[0];
+		}
+
+		/**
+		 * Returns the parameters which could be merged with other entries. These are plain
+		 * search parameters (no modifiers or chains) with a single value which is not already
+		 * an OR list.
+		 */
+		List<String> getVaryingParameterCandidates() {
+			List<String> retVal = new ArrayList<>();
+			for (Map.Entry<String, String[]> next : myParameters.entrySet()) {
+				String name = next.getKey();
+				String[] values = next.getValue();
+				if (name.startsWith("_") || name.contains(":") || name.contains(".") || values.length != 1) {
+					continue;
+				}
+				String value = values[0];
+				if (isBlank(value) || value.contains(",") || value.contains("\\")) {
+					continue;
+				}
+				retVal.add(name);
+			}
+			return retVal;
+		}
+
+		/**
+		 * Appends every parameter except <code>theExcludedParameter</code> to the given URL
+		 *
+		 * @return Returns <code>true</code> if anything was appended
+		 */
+		boolean appendParameters(StringBuilder theUrl, @Nullable String theExcludedParameter) {
+			boolean first = true;
+			for (Map.Entry<String, String[]> next : myParameters.entrySet()) {
+				if (next.getKey().equals(theExcludedParameter)) {
+					continue;
+				}
+				for (String nextValue : next.getValue()) {
+					if (!first) {
+						theUrl.append('&');
+					}
+					first = false;
+					theUrl.append(UrlUtil.escapeUrlParam(next.getKey()))
+							.append('=')
+							.append(UrlUtil.escapeUrlParam(nextValue));
+				}
+			}
+			return !first;
+		}
+
+		String getUrl() {
+			StringBuilder retVal = new StringBuilder(myResourceType).append('?');
+			appendParameters(retVal, null);
+			return retVal.toString();
+		}
+	}
+
+	/**
+	 * A search entry, together with the parameter it could vary by within a merged search
+	 */
+	private static class Candidate {
+
+		private final SearchEntry mySearchEntry;
+		private final String myVaryingParameter;
+		private final String myShape;
+
+		private Candidate(SearchEntry theSearchEntry, String theVaryingParameter) {
+			mySearchEntry = theSearchEntry;
+			myVaryingParameter = theVaryingParameter;
+
+			StringBuilder shape = new StringBuilder(theSearchEntry.getResourceType());
+			shape.append('?').append(UrlUtil.escapeUrlParam(theVaryingParameter)).append("=*&");
+			theSearchEntry.appendParameters(shape, theVaryingParameter);
+			myShape = shape.toString();
+		}
+
+		SearchEntry getSearchEntry() {
+			return mySearchEntry;
+		}
+
+		int getIndex() {
+			return mySearchEntry.getIndex();
+		}
+
+		String getVaryingParameter() {
+			return myVaryingParameter;
+		}
+
+		String getVaryingValue() {
+			return mySearchEntry.getValue(myVaryingParameter);
+		}
+
+		String getShape() {
+			return myShape;
+		}
+
+		/**
+		 * The criteria used to decide which results of the merged search belong to this entry.
+		 * Every other parameter is shared by all entries of the merged search, so only the
+		 * varying parameter needs to be tested.
+		 */
+		String getMatchCriteria() {
+			return mySearchEntry.getResourceType() + "?" + UrlUtil.escapeUrlParam(myVaryingParameter) + "="
+					+ UrlUtil.escapeUrlParam(getVaryingValue());
+		}
+	}
+}
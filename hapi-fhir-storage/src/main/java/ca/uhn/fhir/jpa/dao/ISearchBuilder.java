@@ -30,6 +30,7 @@ import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
 import ca.uhn.fhir.rest.param.DateRangeParam;
 import com.google.common.collect.Streams;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import jakarta.persistence.EntityManager;
 import org.apache.commons.io.IOUtils;
 import org.hl7.fhir.instance.model.api.IBaseResource;
@@ -75,6 +76,23 @@ public interface ISearchBuilder<T extends IResourcePersistentId<?>> {
 			RequestDetails theRequest,
 			RequestPartitionId theRequestPartitionId);
 
+	/**
+	 * Returns an approximate number of resources matching the given parameters, or
+	 * <code>null</code> if no estimate can be produced cheaply. Unlike
+	 * {@link #createCountQuery(SearchParameterMap, String, RequestDetails, RequestPartitionId)}
+	 * the value does not need to be exact, so it must not be used for paging.
+	 *
+	 * @since 8.4.0
+	 */
+	@Nullable
+	default Long createEstimatedCountQuery(
+			SearchParameterMap theParams,
+			String theSearchUuid,
+			RequestDetails theRequest,
+			RequestPartitionId theRequestPartitionId) {
+		return null;
+	}
+
 	void setMaxResultsToFetch(Integer theMaxResultsToFetch);
 
 	void setDeduplicateInDatabase(boolean theShouldDeduplicateInDB);
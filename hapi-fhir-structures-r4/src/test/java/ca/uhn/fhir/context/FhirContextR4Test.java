@@ -45,4 +45,26 @@ public class FhirContextR4Test {
 
 		assertThatExceptionOfType(ConfigurationException.class).isThrownBy(() -> fhirContext.getAllResourceDefinitions());
 	}
+
+	@Test
+	void parallelModelScanningProducesSameModel() {
+		final FhirContext sequential = FhirContext.forR4();
+		final FhirContext parallel = FhirContext.forR4();
+		parallel.setPerformanceOptions(PerformanceOptionsEnum.PARALLEL_MODEL_SCANNING);
+
+		// The initial scan covers every datatype, which is large enough to be prefetched in parallel
+		long prefetchCount = ModelScanner.getParallelPrefetchCountForUnitTest();
+		parallel.getElementDefinition("Quantity");
+		assertThat(ModelScanner.getParallelPrefetchCountForUnitTest()).isGreaterThan(prefetchCount);
+
+		for (String resourceType : sequential.getResourceTypes()) {
+			RuntimeResourceDefinition expected = sequential.getResourceDefinition(resourceType);
+			RuntimeResourceDefinition actual = parallel.getResourceDefinition(resourceType);
+
+			assertThat(actual.getImplementingClass()).isEqualTo(expected.getImplementingClass());
+			assertThat(actual.getChildren().stream().map(BaseRuntimeChildDefinition::getElementName))
+				.containsExactlyElementsOf(expected.getChildren().stream().map(BaseRuntimeChildDefinition::getElementName).toList());
+			assertThat(actual.getSearchParams()).hasSameSizeAs(expected.getSearchParams());
+		}
+	}
 }
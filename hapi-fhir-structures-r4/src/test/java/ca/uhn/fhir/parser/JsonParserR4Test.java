@@ -5,6 +5,7 @@ import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.PerformanceOptionsEnum;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.model.api.annotation.DatatypeDef;
+import ca.uhn.fhir.parser.json.jackson.JacksonStreamingStructure;
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.test.BaseTest;
 import ca.uhn.fhir.util.ResourceUtil;
@@ -21,6 +22,7 @@ import org.hl7.fhir.r4.model.AuditEvent;
 import org.hl7.fhir.r4.model.Basic;
 import org.hl7.fhir.r4.model.Binary;
 import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Coding;
 import org.hl7.fhir.r4.model.Composition;
 import org.hl7.fhir.r4.model.DateTimeType;
 import org.hl7.fhir.r4.model.DateType;
@@ -67,7 +69,10 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Date;
@@ -79,10 +84,13 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -116,9 +124,255 @@ public class JsonParserR4Test extends BaseTest {
 	@AfterEach
 	public void afterEach() {
 		ourCtx.getParserOptions().setAutoContainReferenceTargetsWithNoId(true);
+		ourCtx.getParserOptions().setStreamingJsonParsing(false);
+		ourCtx.getParserOptions().setInternRepeatedPrimitiveValues(false);
 		ourCtx.setStoreRawJson(false);
 	}
 
+	@Test
+	public void testParseWithStreamingJsonParsing_ProducesSameResourceAsJacksonTree() {
+		@Language("JSON")
+		String input = """
+			{
+			  "resourceType": "Observation",
+			  "id": "OBS",
+			  "extension": [ { "url": "http://foo", "valueBoolean": false } ],
+			  "status": "final",
+			  "_status": { "extension": [ { "url": "http://bar", "valueString": "BAR" } ] },
+			  "code": { "coding": [ { "system": "http://loinc.org", "code": "1234-5" } ] },
+			  "valueQuantity": { "value": 1.50, "unit": "mg" },
+			  "component": [
+			    { "code": { "text": "A" }, "valueInteger": 12 },
+			    { "code": { "text": "B" }, "valueBoolean": true }
+			  ]
+			}
+			""";
+
+		Observation streamed = assertStreamingParseMatchesTree(Observation.class, input);
+		assertEquals("1.50", streamed.getValueQuantity().getValueElement().getValueAsString());
+		assertEquals("BAR", ((StringType) streamed.getStatusElement().getExtensionByUrl("http://bar").getValue()).getValue());
+		assertThat(streamed.getComponent()).hasSize(2);
+	}
+
+	@Test
+	public void testParseWithStreamingJsonParsing_ResourceTypeNotFirst() {
+		@Language("JSON")
+		String input = """
+			{
+			  "_gender": { "extension": [ { "url": "http://foo", "valueString": "FOO" } ] },
+			  "name": [ { "family": "Simpson", "given": [ "Homer", null ], "_given": [ null, { "id": "G2" } ] } ],
+			  "gender": "male",
+			  "resourceType": "Patient"
+			}
+			""";
+
+		Patient streamed = assertStreamingParseMatchesTree(Patient.class, input);
+		assertEquals("Simpson", streamed.getNameFirstRep().getFamily());
+		assertEquals("G2", streamed.getNameFirstRep().getGiven().get(1).getId());
+		assertEquals("FOO", ((StringType) streamed.getGenderElement().getExtensionByUrl("http://foo").getValue()).getValue());
+	}
+
+	@Test
+	public void testParseWithStreamingJsonParsing_NestedResources() {
+		@Language("JSON")
+		String input = """
+			{
+			  "resourceType": "Bundle",
+			  "type": "transaction",
+			  "entry": [
+			    {
+			      "resource": {
+			        "resourceType": "Patient",
+			        "contained": [ { "resourceType": "Organization", "id": "org", "name": "ORG" } ],
+			        "managingOrganization": { "reference": "#org" },
+			        "active": true
+			      },
+			      "fullUrl": "urn:uuid:patient",
+			      "request": { "method": "POST", "url": "Patient" }
+			    },
+			    {
+			      "fullUrl": "urn:uuid:observation",
+			      "resource": {
+			        "status": "final",
+			        "subject": { "reference": "urn:uuid:patient" },
+			        "resourceType": "Observation"
+			      },
+			      "request": { "method": "POST", "url": "Observation" }
+			    }
+			  ]
+			}
+			""";
+
+		Bundle streamed = assertStreamingParseMatchesTree(Bundle.class, input);
+		Patient patient = (Patient) streamed.getEntry().get(0).getResource();
+		assertEquals("ORG", ((Organization) patient.getManagingOrganization().getResource()).getName());
+		Observation observation = (Observation) streamed.getEntry().get(1).getResource();
+		assertEquals("urn:uuid:patient", observation.getSubject().getReference());
+		assertEquals(Bundle.HTTPVerb.POST, streamed.getEntry().get(1).getRequest().getMethod());
+	}
+
+	@Test
+	public void testParseWithStreamingJsonParsing_AlternateFollowsStreamedElement() {
+		@Language("JSON")
+		String input = """
+			{
+			  "resourceType": "Observation",
+			  "_code": { "id": "BEFORE" },
+			  "code": { "text": "CODE" },
+			  "valueQuantity": { "value": 1 },
+			  "_valueQuantity": { "id": "AFTER" }
+			}
+			""";
+
+		ourCtx.getParserOptions().setStreamingJsonParsing(true);
+		IParser parser = ourCtx.newJsonParser();
+		parser.setParserErrorHandler(myMockErrorHandler);
+		Observation streamed = parser.parseResource(Observation.class, input);
+
+		assertEquals("BEFORE", streamed.getCode().getId());
+		assertEquals("CODE", streamed.getCode().getText());
+		assertNull(streamed.getValueQuantity().getId());
+		verify(myMockErrorHandler, times(1)).unknownElement(myParseLocationCaptor.capture(), eq("_valueQuantity"));
+	}
+
+	@Test
+	public void testParseWithStreamingJsonParsing_InvalidContent() {
+		ourCtx.getParserOptions().setStreamingJsonParsing(true);
+		IParser parser = ourCtx.newJsonParser();
+
+		DataFormatException e = assertThrows(DataFormatException.class, () -> parser.parseResource("{\"resourceType\": \"Patient\"} {}"));
+		assertThat(e.getMessage()).contains(Msg.code(1861));
+
+		e = assertThrows(DataFormatException.class, () -> parser.parseResource("{\"resourceType\": \"Patient\", \"name\": [ { \"family\": "));
+		assertThat(e.getMessage()).contains(Msg.code(1861));
+
+		e = assertThrows(DataFormatException.class, () -> parser.parseResource("{\"resourceType\": \"\"}"));
+		assertThat(e.getMessage()).contains(Msg.code(1838));
+
+		e = assertThrows(DataFormatException.class, () -> parser.parseResource("{\"resourceType\": \"Bundle\", \"entry\": [ { \"resource\": { \"id\": \"A\" } } ]}"));
+		assertThat(e.getMessage()).contains(Msg.code(1843));
+
+		// Array roots are loaded by the Jackson tree
+		JacksonStreamingStructure structure = new JacksonStreamingStructure();
+		structure.load(new StringReader("[{\"resourceType\": \"Patient\"}]"), true);
+		e = assertThrows(DataFormatException.class, structure::getRootObject);
+		assertThat(e.getMessage()).contains(Msg.code(1862));
+	}
+
+	private <T extends IBaseResource> T assertStreamingParseMatchesTree(Class<T> theType, String theInput) {
+		T treeParsed = ourCtx.newJsonParser().parseResource(theType, theInput);
+		ourCtx.getParserOptions().setStreamingJsonParsing(true);
+		T streamed = ourCtx.newJsonParser().parseResource(theType, theInput);
+		ourCtx.getParserOptions().setStreamingJsonParsing(false);
+
+		IParser encoder = ourCtx.newJsonParser();
+		assertEquals(encoder.encodeResourceToString(treeParsed), encoder.encodeResourceToString(streamed));
+		return streamed;
+	}
+
+	@Test
+	public void testParseWithInternRepeatedPrimitiveValues() {
+		String input = """
+			{
+			  "resourceType": "Observation",
+			  "extension": [ { "url": "http://foo", "valueCode": "A" } ],
+			  "code": { "coding": [ { "system": "http://loinc.org", "code": "1234-5", "display": "Display" } ] }
+			}
+			""";
+
+		Observation obs0 = ourCtx.newJsonParser().parseResource(Observation.class, input);
+		Observation obs1 = ourCtx.newJsonParser().parseResource(Observation.class, input);
+		assertThat(obs1.getCode().getCodingFirstRep().getSystem()).isNotSameAs(obs0.getCode().getCodingFirstRep().getSystem());
+
+		ourCtx.getParserOptions().setInternRepeatedPrimitiveValues(true);
+		obs0 = ourCtx.newJsonParser().parseResource(Observation.class, input);
+		obs1 = ourCtx.newXmlParser().parseResource(Observation.class, ourCtx.newXmlParser().encodeResourceToString(obs0));
+
+		Coding coding0 = obs0.getCode().getCodingFirstRep();
+		Coding coding1 = obs1.getCode().getCodingFirstRep();
+		assertThat(coding1.getSystem()).isSameAs(coding0.getSystem());
+		assertThat(coding1.getCode()).isSameAs(coding0.getCode());
+		assertThat(obs1.getExtensionFirstRep().getUrl()).isSameAs(obs0.getExtensionFirstRep().getUrl());
+		assertThat(obs1.getExtensionFirstRep().getValue().primitiveValue()).isSameAs(obs0.getExtensionFirstRep().getValue().primitiveValue());
+
+		// Free text is not interned
+		assertEquals("Display", coding1.getDisplay());
+		assertThat(coding1.getDisplay()).isNotSameAs(coding0.getDisplay());
+	}
+
+	@Test
+	public void testEncodeResourceToOutputStream() throws IOException {
+		Patient patient = new Patient();
+		patient.setId("Patient/A");
+		patient.addName().setFamily("Müller").addGiven("Zoë");
+		patient.getText().setDivAsString("<div>日本語 &amp; \uD83D\uDE00</div>");
+		patient.addExtension("http://foo", new DecimalType("1.50"));
+
+		for (boolean prettyPrint : new boolean[]{false, true}) {
+			IParser parser = ourCtx.newJsonParser().setPrettyPrint(prettyPrint);
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			parser.encodeResourceToOutputStream(patient, outputStream);
+
+			String expected = parser.encodeResourceToString(patient);
+			assertEquals(expected, outputStream.toString(StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	public void testEncodeDeferredResource_SplicesStoredBodyWithoutInflating() {
+		Patient source = new Patient();
+		source.setActive(true);
+		source.addName().setFamily("Simpson").addGiven("Homer");
+		source.addExtension("http://foo", new DecimalType("1.50"));
+		source.getManagingOrganization().setReference("Organization/123");
+		String storedBody = ourCtx.newJsonParser().encodeResourceToString(source);
+
+		Patient header = new Patient();
+		header.setId("Patient/A/_history/2");
+		header.getMeta().setVersionId("2");
+		header.getMeta().addTag("http://tags", "tag0", null);
+
+		AtomicInteger inflateCount = new AtomicInteger();
+		DeferredResource<Patient> deferred = DeferredResource.forStoredJson(header, storedBody, () -> {
+			inflateCount.incrementAndGet();
+			Patient retVal = ourCtx.newJsonParser().parseResource(Patient.class, storedBody);
+			retVal.setId(header.getIdElement());
+			retVal.setMeta(header.getMeta().copy());
+			return retVal;
+		});
+
+		String spliced = deferred.encodeToString(ourCtx.newJsonParser());
+		assertEquals(0, inflateCount.get());
+		assertFalse(deferred.isInflated());
+
+		String expected = ourCtx.newJsonParser().encodeResourceToString(deferred.getResource());
+		assertEquals(1, inflateCount.get());
+		assertEquals(expected, spliced);
+		assertThat(spliced).contains("\"valueDecimal\":1.50");
+
+		// Once inflated, the resource is always encoded normally
+		String prettyPrinted = deferred.encodeToString(ourCtx.newJsonParser().setPrettyPrint(true));
+		assertEquals(ourCtx.newJsonParser().setPrettyPrint(true).encodeResourceToString(deferred.getResource()), prettyPrinted);
+		assertEquals(1, inflateCount.get());
+	}
+
+	@Test
+	public void testEncodeDeferredResource_FallsBackToInflatingWhenBodyHasMeta() {
+		String storedBody = "{\"resourceType\":\"Patient\",\"meta\":{\"tag\":[{\"code\":\"A\"}]},\"active\":true}";
+		Patient header = new Patient();
+		header.setId("Patient/A");
+
+		DeferredResource<Patient> deferred = DeferredResource.forStoredJson(header, storedBody, () -> {
+			Patient retVal = ourCtx.newJsonParser().parseResource(Patient.class, storedBody);
+			retVal.setId(header.getIdElement());
+			return retVal;
+		});
+
+		String encoded = deferred.encodeToString(ourCtx.newJsonParser());
+		assertTrue(deferred.isInflated());
+		assertEquals("{\"resourceType\":\"Patient\",\"id\":\"A\",\"meta\":{\"tag\":[{\"code\":\"A\"}]},\"active\":true}", encoded);
+	}
+
 	@ParameterizedTest
 	@MethodSource("patientStrs")
 	public void parseResource_withStoreRawJsonTrue_willStoreTheRawJsonOnTheResource(String thePatientStr) {
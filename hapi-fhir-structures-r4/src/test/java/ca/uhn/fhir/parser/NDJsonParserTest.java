@@ -8,7 +8,20 @@ import org.hl7.fhir.r4.model.Patient;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class NDJsonParserTest {
@@ -118,6 +131,71 @@ public class NDJsonParserTest {
 		});
 	}
 	
+	@Test
+	public void testStreamingWriteAndParse() throws IOException {
+		NDJsonParser parser = (NDJsonParser) ourCtx.newNDJsonParser();
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (NDJsonWriter writer = parser.newWriter(outputStream)) {
+			for (int i = 0; i < 500; i++) {
+				Patient p = new Patient();
+				p.setId("Patient/P" + i);
+				// Long enough that lines span the parser's read buffer
+				p.addName().setFamily("Family" + i + "-" + "x".repeat(i * 10));
+				p.addAddress().setText("1 Place Street\r\nOn Earth");
+				writer.write(p);
+			}
+			assertEquals(500, writer.getCount());
+		}
+
+		String ndjson = outputStream.toString(StandardCharsets.UTF_8);
+		assertThat(ndjson).endsWith("}\n");
+
+		List<IBaseResource> parsed = new ArrayList<>();
+		parser.parseResources(new StringReader(ndjson), parsed::add);
+		assertEquals(500, parsed.size());
+		for (int i = 0; i < 500; i++) {
+			Patient p = (Patient) parsed.get(i);
+			assertEquals("P" + i, p.getIdElement().getIdPart());
+			assertEquals("Family" + i + "-" + "x".repeat(i * 10), p.getNameFirstRep().getFamily());
+			assertEquals("1 Place Street\r\nOn Earth", p.getAddressFirstRep().getText());
+		}
+	}
+
+	@Test
+	public void testIterateResourcesSkipsBlankLines() {
+		NDJsonParser parser = (NDJsonParser) ourCtx.newNDJsonParser();
+		String ndjson = "\n{\"resourceType\":\"Patient\",\"id\":\"A\"}\r\n  \n\t{\"resourceType\":\"Patient\",\"id\":\"B\"}  ";
+
+		Iterator<IBaseResource> iterator = parser.iterateResources(new StringReader(ndjson));
+		assertTrue(iterator.hasNext());
+		assertEquals("A", iterator.next().getIdElement().getIdPart());
+		assertEquals("B", iterator.next().getIdElement().getIdPart());
+		assertFalse(iterator.hasNext());
+	}
+
+	@Test
+	public void testIterateResourcesWithCarriageReturnLineEndings() {
+		NDJsonParser parser = (NDJsonParser) ourCtx.newNDJsonParser();
+		String ndjson = "{\"resourceType\":\"Patient\",\"id\":\"A\"}\r"
+				+ "{\"resourceType\":\"Patient\",\"id\":\"B\"}\r\n"
+				+ "{\"resourceType\":\"Patient\",\"id\":\"C\"}\r";
+
+		// Reading one character at a time puts the \r and \n of each \r\n in separate reads
+		Reader oneCharAtATime = new FilterReader(new StringReader(ndjson)) {
+			@Override
+			public int read(char[] theBuffer, int theOffset, int theLength) throws IOException {
+				return super.read(theBuffer, theOffset, Math.min(theLength, 1));
+			}
+		};
+
+		for (Reader next : List.of(new StringReader(ndjson), oneCharAtATime)) {
+			List<String> ids = new ArrayList<>();
+			parser.parseResources(next, t -> ids.add(t.getIdElement().getIdPart()));
+			assertThat(ids).containsExactly("A", "B", "C");
+		}
+	}
+
 	@AfterAll
 	public static void afterClassClearContext() {
 		TestUtil.randomizeLocaleAndTimezone();
@@ -1,12 +1,16 @@
 package ca.uhn.fhir.rest.server;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.interceptor.api.IAnonymousInterceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
 import ca.uhn.fhir.model.api.Include;
 import ca.uhn.fhir.rest.annotation.IncludeParam;
 import ca.uhn.fhir.rest.annotation.Search;
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.rest.server.method.ResponsePage;
 import ca.uhn.fhir.test.utilities.server.RestfulServerExtension;
 import com.google.common.base.Charsets;
 import org.apache.commons.io.IOUtils;
@@ -18,8 +22,10 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.hl7.fhir.instance.model.api.IBaseBundle;
+import org.hl7.fhir.instance.model.api.IBaseOperationOutcome;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.OperationOutcome;
 import org.hl7.fhir.r4.model.Patient;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -31,6 +37,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static ca.uhn.fhir.rest.api.Constants.CHARSET_UTF8;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -247,6 +254,140 @@ public class PagingTest {
 			assertThat(bundle.getEntry()).isEmpty();
 		}
 	}
+
+	@Test
+	public void testStreamedBundleMatchesBufferedBundle() throws Exception {
+		List<Integer> batchSizes = new ArrayList<>();
+		ourBundleProvider = newBatchingBundleProvider(21, batchSizes, -1);
+		registerPagingProvider();
+
+		String base = "http://localhost:" + myServerExtension.getPort();
+		List<String> urls = List.of(
+			base + "/Patient?_format=json",
+			base + "/Patient?_format=json&_pretty=true",
+			base + "?_getpages=ABCD&_getpagesoffset=20&_count=10&_format=json");
+		for (String url : urls) {
+			myServerExtension.getRestfulServer().setBundleStreamingBatchSize(0);
+			String expected = fetchBody(url, 200);
+
+			myServerExtension.getRestfulServer().setBundleStreamingBatchSize(3);
+			batchSizes.clear();
+			String actual;
+			try {
+				actual = fetchBody(url, 200);
+			} finally {
+				myServerExtension.getRestfulServer().setBundleStreamingBatchSize(0);
+			}
+
+			assertThat(batchSizes).isNotEmpty();
+			assertThat(batchSizes).allMatch(t -> t <= 3);
+
+			// Only the generated Bundle ID differs
+			String expectedId = ourContext.newJsonParser().parseResource(Bundle.class, expected).getIdPart();
+			String actualId = ourContext.newJsonParser().parseResource(Bundle.class, actual).getIdPart();
+			assertEquals(expected, actual.replace(actualId, expectedId));
+		}
+	}
+
+	@Test
+	public void testStreamedBundleFailureBeforeFirstBatchReturnsError() throws Exception {
+		ourBundleProvider = newBatchingBundleProvider(21, new ArrayList<>(), 0);
+		registerPagingProvider();
+
+		myServerExtension.getRestfulServer().setBundleStreamingBatchSize(3);
+		try {
+			String body = fetchBody("http://localhost:" + myServerExtension.getPort() + "/Patient?_format=json", 500);
+			OperationOutcome outcome = ourContext.newJsonParser().parseResource(OperationOutcome.class, body);
+			assertThat(outcome.getIssueFirstRep().getDiagnostics()).contains("Failed to load batch 0");
+		} finally {
+			myServerExtension.getRestfulServer().setBundleStreamingBatchSize(0);
+		}
+	}
+
+	@Test
+	public void testStreamedBundleFailureAfterFirstBatchEndsWithOutcomeEntry() throws Exception {
+		ourBundleProvider = newBatchingBundleProvider(21, new ArrayList<>(), 2);
+		registerPagingProvider();
+		List<IBaseOperationOutcome> outcomes = new ArrayList<>();
+		IAnonymousInterceptor interceptor =
+			(thePointcut, theArgs) -> outcomes.add(theArgs.get(IBaseOperationOutcome.class));
+		myServerExtension.getRestfulServer().getInterceptorService()
+			.registerAnonymousInterceptor(Pointcut.SERVER_OUTGOING_FAILURE_OPERATIONOUTCOME, interceptor);
+
+		myServerExtension.getRestfulServer().setBundleStreamingBatchSize(3);
+		Bundle bundle;
+		try {
+			String body = fetchBody("http://localhost:" + myServerExtension.getPort() + "/Patient?_format=json", 200);
+			bundle = ourContext.newJsonParser().parseResource(Bundle.class, body);
+		} finally {
+			myServerExtension.getRestfulServer().setBundleStreamingBatchSize(0);
+			myServerExtension.getRestfulServer().getInterceptorService().unregisterInterceptor(interceptor);
+		}
+
+		// The first two batches were sent, followed by an entry describing the failure
+		assertEquals(21, bundle.getTotal());
+		assertThat(bundle.getLink(Constants.LINK_NEXT)).isNotNull();
+		assertThat(bundle.getEntry()).hasSize(7);
+		Bundle.BundleEntryComponent last = bundle.getEntry().get(6);
+		assertEquals(Bundle.SearchEntryMode.OUTCOME, last.getSearch().getMode());
+		OperationOutcome outcome = (OperationOutcome) last.getResource();
+		assertEquals(OperationOutcome.IssueSeverity.FATAL, outcome.getIssueFirstRep().getSeverity());
+		assertThat(outcome.getIssueFirstRep().getDiagnostics()).contains("Failed to load batch 2");
+		assertThat(outcomes).hasSize(1);
+	}
+
+	/**
+	 * Creates a provider which streams its pages in batches, recording the size of each batch
+	 * and failing when asked for the batch with the given index (or never if negative)
+	 */
+	private static SimpleBundleProvider newBatchingBundleProvider(
+		int theSize, List<Integer> theBatchSizes, int theFailingBatch) {
+		List<IBaseResource> resources = new ArrayList<>();
+		for (int i = 0; i < theSize; i++) {
+			Patient patient = new Patient();
+			patient.setId("" + i);
+			patient.addName().setFamily("" + i);
+			resources.add(patient);
+		}
+		return new SimpleBundleProvider(resources) {
+			@Override
+			public void streamResources(
+					int theFromIndex,
+					int theToIndex,
+					ResponsePage.ResponsePageBuilder theResponsePageBuilder,
+					int theBatchSize,
+					Consumer<List<IBaseResource>> theConsumer) {
+				List<IBaseResource> page = getResources(theFromIndex, theToIndex, theResponsePageBuilder);
+				for (int i = 0; i < page.size(); i += theBatchSize) {
+					if (i / theBatchSize == theFailingBatch) {
+						throw new InternalErrorException("Failed to load batch " + theFailingBatch);
+					}
+					List<IBaseResource> batch = page.subList(i, Math.min(i + theBatchSize, page.size()));
+					theBatchSizes.add(batch.size());
+					theConsumer.accept(batch);
+				}
+			}
+		};
+	}
+
+	private void registerPagingProvider() {
+		myServerExtension.getRestfulServer().registerProvider(new DummyPatientResourceProvider());
+		myServerExtension.getRestfulServer().setPagingProvider(pagingProvider);
+
+		when(pagingProvider.canStoreSearchResults()).thenReturn(true);
+		when(pagingProvider.getDefaultPageSize()).thenReturn(10);
+		when(pagingProvider.getMaximumPageSize()).thenReturn(50);
+		when(pagingProvider.storeResultList(any(RequestDetails.class), any(IBundleProvider.class))).thenReturn("ABCD");
+		when(pagingProvider.retrieveResultList(any(RequestDetails.class), anyString())).thenReturn(ourBundleProvider);
+	}
+
+	private String fetchBody(String theUrl, int theExpectedStatus) throws Exception {
+		try (CloseableHttpResponse resp = ourClient.execute(new HttpGet(theUrl))) {
+			assertEquals(theExpectedStatus, resp.getStatusLine().getStatusCode());
+			return IOUtils.toString(resp.getEntity().getContent(), Charsets.UTF_8);
+		}
+	}
+
 	private void checkParam(String theUriString, String theCheckedParam, String theExpectedValue) {
 		Optional<String> paramValue = URLEncodedUtils.parse(URI.create(theUriString), CHARSET_UTF8).stream()
 			.filter(nameValuePair -> nameValuePair.getName().equals(theCheckedParam))
@@ -258,6 +258,45 @@ public class ReadR4Test {
 
 	}
 
+	@Test
+	public void testReadWithEncodedResponseCache() throws Exception {
+		myRestfulServerExtension.getRestfulServer().registerProvider(new PatientProvider());
+		EncodedResponseCache cache = new EncodedResponseCache(1024 * 1024);
+		myRestfulServerExtension.getRestfulServer().setEncodedResponseCache(cache);
+		try {
+			String first = readPatient("/Patient/2?_format=json");
+			String second = readPatient("/Patient/2?_format=json");
+			assertEquals(first, second);
+			assertEquals(1, cache.getMissCount());
+			assertEquals(1, cache.getHitCount());
+
+			// Anything which changes the encoded output gets its own entry
+			String pretty = readPatient("/Patient/2?_format=json&_pretty=true");
+			assertThat(pretty).contains("\n");
+			readPatient("/Patient/2?_format=xml");
+			readPatient("/Patient/2?_format=json&_elements=id");
+			assertEquals(4, cache.getMissCount());
+			assertEquals(4, cache.size());
+
+			// Updating the resource evicts every entry for it
+			Patient updated = new Patient();
+			updated.setId("Patient/2/_history/3");
+			cache.resourceUpdated(null, updated);
+			assertEquals(0, cache.size());
+			assertEquals(0, cache.getTotalBytes());
+		} finally {
+			myRestfulServerExtension.getRestfulServer().setEncodedResponseCache(null);
+		}
+	}
+
+	private String readPatient(String thePath) throws IOException {
+		HttpGet httpGet = new HttpGet("http://localhost:" + myPort + thePath);
+		try (CloseableHttpResponse status = ourClient.execute(httpGet)) {
+			assertEquals(200, status.getStatusLine().getStatusCode());
+			return IOUtils.toString(status.getEntity().getContent(), StandardCharsets.UTF_8);
+		}
+	}
+
 	public static class PatientProvider implements IResourceProvider {
 
 		@Override
@@ -18,6 +18,7 @@ import jakarta.annotation.Nonnull;
 import jakarta.servlet.ReadListener;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.apache.commons.collections4.iterators.IteratorEnumeration;
@@ -38,7 +39,6 @@ import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
@@ -69,7 +69,7 @@ public class ServerConcurrencyTest {
 	@Mock
 	private HttpServletResponse myResponse;
 	@Mock
-	private PrintWriter myWriter;
+	private ServletOutputStream myOutputStream;
 	private HashMap<String, String> myHeaders;
 	@RegisterExtension
 	LogbackTestExtension myLogbackTestExtension = new LogbackTestExtension();
@@ -80,7 +80,7 @@ public class ServerConcurrencyTest {
 		DelegatingServletInputStream inputStream = createMockPatientBodyServletInputStream();
 		inputStream.setExceptionOnClose(true);
 		when(myRequest.getInputStream()).thenReturn(inputStream);
-		when(myResponse.getWriter()).thenReturn(myWriter);
+		when(myResponse.getOutputStream()).thenReturn(myOutputStream);
 
 		assertDoesNotThrow(() ->
 			ourServer.getRestfulServer().handleRequest(RequestTypeEnum.POST, myRequest, myResponse)
@@ -91,10 +91,10 @@ public class ServerConcurrencyTest {
 	public void testExceptionClosingOutputStream() throws IOException {
 		initRequestMocks("/Patient");
 		when(myRequest.getInputStream()).thenReturn(createMockPatientBodyServletInputStream());
-		when(myResponse.getWriter()).thenReturn(myWriter);
+		when(myResponse.getOutputStream()).thenReturn(myOutputStream);
 
 		// Throw an exception when the stream is closed
-		doThrow(new EOFException()).when(myWriter).close();
+		doThrow(new EOFException()).when(myOutputStream).close();
 
 		assertDoesNotThrow(() ->
 			ourServer.getRestfulServer().handleRequest(RequestTypeEnum.POST, myRequest, myResponse)
@@ -90,6 +90,55 @@ public class FhirTerserR4Test {
 	private static final Logger ourLog = LoggerFactory.getLogger(FhirTerserR4Test.class);
 	private final FhirContext myCtx = FhirContext.forR4Cached();
 
+	@Test
+	public void testCompilePath() {
+		Observation obs = new Observation();
+		obs.getCode().addCoding().setSystem("http://loinc.org").setCode("1234-5");
+		obs.getCode().addCoding().setSystem("http://snomed.info/sct").setCode("12345");
+		obs.setValue(new Quantity().setValue(12).setUnit("mg"));
+		obs.addExtension().setUrl("http://foo").setValue(new StringType("FOO"));
+		obs.addExtension().setUrl("http://bar").setValue(new StringType("BAR"));
+
+		FhirTerser terser = myCtx.newTerser();
+
+		CompiledTerserPath codePath = terser.compilePath(Observation.class, "Observation.code.coding.code");
+		assertSame(codePath, terser.compilePath(Observation.class, "Observation.code.coding.code"));
+		assertThat(codePath.getValues(obs, IPrimitiveType.class))
+			.extracting(IPrimitiveType::getValueAsString)
+			.containsExactly("1234-5", "12345");
+
+		CompiledTerserPath unitPath = terser.compilePath(Observation.class, "Observation.valueQuantity.unit");
+		assertEquals("mg", unitPath.getSinglePrimitiveValueOrNull(obs));
+		assertThat(terser.compilePath(Observation.class, "Observation.valueString").getValues(obs)).isEmpty();
+		assertThat(terser.compilePath(Observation.class, "Observation.value[x]").getValues(obs)).hasSize(1);
+
+		CompiledTerserPath extensionPath = terser.compilePath(Observation.class, "Observation.extension('http://bar').value");
+		assertEquals("BAR", extensionPath.getSinglePrimitiveValueOrNull(obs));
+
+		// Results must match the uncompiled terser
+		assertEquals(
+			terser.getValues(obs, "Observation.code.coding.code"),
+			codePath.getValues(obs));
+		assertEquals(
+			terser.getValues(obs, "Observation.extension('http://bar').value"),
+			extensionPath.getValues(obs));
+	}
+
+	@Test
+	public void testCompilePath_InvalidPath() {
+		FhirTerser terser = myCtx.newTerser();
+		try {
+			terser.compilePath(Observation.class, "Observation.code.foo");
+			fail();
+		} catch (DataFormatException e) {
+			assertThat(e.getMessage()).contains("Unknown child name 'foo'");
+		}
+
+		// A path for a different resource type never matches
+		CompiledTerserPath path = terser.compilePath(Observation.class, "Patient.name");
+		assertThat(path.getValues(new Observation())).isEmpty();
+	}
+
 	@Test
 	public void testAddElement() {
 		Patient patient = new Patient();